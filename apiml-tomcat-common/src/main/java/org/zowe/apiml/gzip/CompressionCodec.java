@@ -0,0 +1,44 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gzip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Algorithm to compress the body of a response. Each implementation is identified by the value of the
+ * Content-Encoding header it produces, see {@link StandardCompressionCodec} for the provided codecs.
+ */
+public interface CompressionCodec {
+
+    /**
+     * @return value of Content-Encoding (and Accept-Encoding) for this codec
+     */
+    String getEncoding();
+
+    /**
+     * Create the stream compressing data into the target. Closing of the returned stream finishes the compression
+     * and releases all resources of the codec.
+     *
+     * @param target stream to write compressed data into
+     * @param level compression level (0-9) or -1 for the default level of the codec
+     * @return compressing stream
+     * @throws IOException if the header of the compressed data cannot be written
+     */
+    OutputStream compress(OutputStream target, int level) throws IOException;
+
+    /**
+     * @param compressedBytes the compressed response body
+     * @return true if the compressed data contain no content, so the body should be empty
+     */
+    boolean isEmpty(byte[] compressedBytes);
+
+}
@@ -71,11 +71,22 @@ public final class GZipResponseUtils {
      *                          method and the set header is ignored.
      */
     public static void addGzipHeader(final HttpServletResponse response) throws GZipResponseException {
-        response.setHeader("Content-Encoding", "gzip");
+        addContentEncodingHeader(response, "gzip");
+    }
+
+    /**
+     * Adds the Content-Encoding HTTP header of the used compression to the response.
+     *
+     * @param response the response which will have a header added to it
+     * @param encoding name of the encoding, see {@link CompressionCodec#getEncoding()}
+     * @throws GZipResponseException if the header cannot be set, see {@link #addGzipHeader(HttpServletResponse)}
+     */
+    public static void addContentEncodingHeader(final HttpServletResponse response, String encoding) throws GZipResponseException {
+        response.setHeader("Content-Encoding", encoding);
         boolean containsEncoding = response.containsHeader("Content-Encoding");
         if (!containsEncoding) {
             throw new GZipResponseException("Failure when attempting to set "
-                + "Content-Encoding: gzip");
+                + "Content-Encoding: " + encoding);
         }
     }
 }
@@ -14,15 +14,24 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.util.zip.GZIPOutputStream;
 
+/**
+ * Response wrapper which compresses the written body. If the wrapped service sets its own Content-Encoding before
+ * the body is written, the body is already encoded and it is passed to the response as it is.
+ */
 public class GZipResponseWrapper extends HttpServletResponseWrapper {
 
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String IDENTITY_ENCODING = "identity";
+
     private GZipServletOutputStream gzipOutputStream;
     private PrintWriter printWriter = null;
     private boolean disableFlushBuffer = false;
+    private boolean bodyRequested = false;
+    private boolean passthrough = false;
 
     /**
      * Constructs a response adaptor wrapping the given response.
@@ -30,7 +39,7 @@ public class GZipResponseWrapper extends HttpServletResponseWrapper {
      * @param response The response to be wrapped
      * @throws IllegalArgumentException if the response is null
      */
-    public GZipResponseWrapper(HttpServletResponse response, GZIPOutputStream stream) {
+    public GZipResponseWrapper(HttpServletResponse response, OutputStream stream) {
         super(response);
         gzipOutputStream = new GZipServletOutputStream(stream);
     }
@@ -78,17 +87,27 @@ public class GZipResponseWrapper extends HttpServletResponseWrapper {
     }
 
     @Override
-    public ServletOutputStream getOutputStream() {
+    public ServletOutputStream getOutputStream() throws IOException {
         if (this.printWriter != null) {
             throw new IllegalStateException(
                 "PrintWriter obtained already - cannot get OutputStream");
         }
 
+        bodyRequested = true;
+        if (passthrough) {
+            return getResponse().getOutputStream();
+        }
+
         return this.gzipOutputStream;
     }
 
     @Override
     public PrintWriter getWriter() throws IOException {
+        bodyRequested = true;
+        if (passthrough) {
+            return getResponse().getWriter();
+        }
+
         if (this.printWriter == null) {
             this.gzipOutputStream = new GZipServletOutputStream(
                 getResponse().getOutputStream());
@@ -105,6 +124,48 @@ public class GZipResponseWrapper extends HttpServletResponseWrapper {
     public void setContentLength(int length) {
         //ignore, since content length of zipped content
         //does not match content length of unzipped content.
+        if (passthrough) {
+            super.setContentLength(length);
+        }
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        //ignore, since content length of zipped content
+        //does not match content length of unzipped content.
+        if (passthrough) {
+            super.setContentLengthLong(length);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        checkContentEncoding(name, value);
+        super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        checkContentEncoding(name, value);
+        super.addHeader(name, value);
+    }
+
+    /**
+     * The body is passed through if the service encodes it itself. It is possible to decide it only before the body
+     * is written, later the compression already started.
+     */
+    private void checkContentEncoding(String name, String value) {
+        if (!bodyRequested && CONTENT_ENCODING.equalsIgnoreCase(name)
+            && (value != null) && !IDENTITY_ENCODING.equalsIgnoreCase(value.trim())) {
+            passthrough = true;
+        }
+    }
+
+    /**
+     * @return true if the body was encoded by the service and it was not compressed again
+     */
+    public boolean isPassthrough() {
+        return passthrough;
     }
 
 
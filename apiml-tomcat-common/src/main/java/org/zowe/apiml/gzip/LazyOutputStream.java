@@ -0,0 +1,67 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gzip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream which opens the delegate with the first written byte. A compressing stream is not created at all
+ * for a response without body or for a response which is passed through as it is.
+ */
+public class LazyOutputStream extends OutputStream {
+
+    private final OutputStreamProvider provider;
+    private OutputStream delegate;
+
+    public LazyOutputStream(OutputStreamProvider provider) {
+        this.provider = provider;
+    }
+
+    private OutputStream getDelegate() throws IOException {
+        if (delegate == null) {
+            delegate = provider.open();
+        }
+        return delegate;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        getDelegate().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        getDelegate().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (delegate != null) {
+            delegate.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+
+    /**
+     * @return true if any data were written and the delegate was opened
+     */
+    public boolean isOpened() {
+        return delegate != null;
+    }
+
+}
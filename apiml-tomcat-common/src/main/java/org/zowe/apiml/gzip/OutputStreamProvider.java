@@ -0,0 +1,24 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gzip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Provider of a stream which is opened just when it is needed.
+ */
+@FunctionalInterface
+public interface OutputStreamProvider {
+
+    OutputStream open() throws IOException;
+
+}
@@ -0,0 +1,82 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gzip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Codecs available in the JDK. Brotli is not provided, there is no pure Java encoder of it.
+ */
+public enum StandardCompressionCodec implements CompressionCodec {
+
+    GZIP("gzip") {
+        @Override
+        public OutputStream compress(OutputStream target, int level) throws IOException {
+            return new GZIPOutputStream(target) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+
+        @Override
+        public boolean isEmpty(byte[] compressedBytes) {
+            return GZipResponseUtils.shouldGzippedBodyBeZero(compressedBytes);
+        }
+    },
+
+    /**
+     * HTTP deflate, it means zlib format (RFC 1950), not the raw deflate data
+     */
+    DEFLATE("deflate") {
+        @Override
+        public OutputStream compress(OutputStream target, int level) {
+            final Deflater deflater = new Deflater(level);
+            return new DeflaterOutputStream(target, deflater) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        // the stream ends only the deflater created by itself
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean isEmpty(byte[] compressedBytes) {
+            return compressedBytes.length == EMPTY_DEFLATED_CONTENT_SIZE;
+        }
+    };
+
+    /**
+     * Deflating of an empty stream results in 8 bytes (header, empty final block and checksum) with any level
+     */
+    private static final int EMPTY_DEFLATED_CONTENT_SIZE = 8;
+
+    private final String encoding;
+
+    StandardCompressionCodec(String encoding) {
+        this.encoding = encoding;
+    }
+
+    @Override
+    public String getEncoding() {
+        return encoding;
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gzip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream which keeps the written data in memory until the threshold is exceeded. Small responses are
+ * therefore still written at once with a known Content-Length. Once the buffered data exceed the threshold,
+ * the target stream is opened, the buffered data are written into it and all next data are passed through
+ * (the response is sent in chunks).
+ */
+public class ThresholdOutputStream extends OutputStream {
+
+    private final int threshold;
+    private final OutputStreamProvider targetProvider;
+
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private OutputStream target;
+
+    /**
+     * @param threshold maximum amount of bytes kept in memory, 0 means the data are streamed from the first byte
+     * @param targetProvider provider of the stream to pass data into once the threshold is exceeded
+     */
+    public ThresholdOutputStream(int threshold, OutputStreamProvider targetProvider) {
+        this.threshold = threshold;
+        this.targetProvider = targetProvider;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if ((target == null) && (buffer.size() + len > threshold)) {
+            target = targetProvider.open();
+            buffer.writeTo(target);
+            buffer = null;
+        }
+
+        if (target != null) {
+            target.write(b, off, len);
+        } else {
+            buffer.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (target != null) {
+            target.flush();
+        }
+    }
+
+    /**
+     * The target stream is not closed, it belongs to the response.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * @return true if the threshold was exceeded and the data are passed to the target stream
+     */
+    public boolean isStreaming() {
+        return target != null;
+    }
+
+    /**
+     * @return buffered data, it is available only if the threshold was not exceeded
+     */
+    public byte[] toByteArray() {
+        if (buffer == null) {
+            throw new IllegalStateException("The data were already streamed, they are not buffered");
+        }
+
+        return buffer.toByteArray();
+    }
+
+}
@@ -100,6 +100,46 @@ class GZipResponseWrapperTest {
         assertThrows(IllegalStateException.class, wrapper::getOutputStream);
     }
 
+    @Nested
+    class WhenServiceEncodesBody {
+
+        @Test
+        void givenContentEncodingBeforeBody_thenBodyIsPassedThrough() throws IOException {
+            GZIPOutputStream outputStream = mock(GZIPOutputStream.class);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            GZipResponseWrapper wrapper = new GZipResponseWrapper(response, outputStream);
+
+            wrapper.setHeader("Content-Encoding", "gzip");
+            wrapper.setContentLength(3);
+            wrapper.getOutputStream().write(new byte[] {1, 2, 3});
+
+            assertTrue(wrapper.isPassthrough());
+            assertEquals(3, response.getContentLength());
+            assertArrayEquals(new byte[] {1, 2, 3}, response.getContentAsByteArray());
+            verifyNoMoreInteractions(outputStream);
+        }
+
+        @Test
+        void givenIdentityEncoding_thenBodyIsCompressed() {
+            GZipResponseWrapper wrapper = new GZipResponseWrapper(new MockHttpServletResponse(), mock(GZIPOutputStream.class));
+
+            wrapper.addHeader("Content-Encoding", "identity");
+
+            assertFalse(wrapper.isPassthrough());
+        }
+
+        @Test
+        void givenContentEncodingAfterBody_thenBodyIsCompressed() throws IOException {
+            GZipResponseWrapper wrapper = new GZipResponseWrapper(new MockHttpServletResponse(), mock(GZIPOutputStream.class));
+
+            wrapper.getOutputStream();
+            wrapper.setHeader("Content-Encoding", "gzip");
+
+            assertFalse(wrapper.isPassthrough());
+        }
+
+    }
+
     @Nested
     class Cleanup {
         GZIPOutputStream gZipOutputStream = null;
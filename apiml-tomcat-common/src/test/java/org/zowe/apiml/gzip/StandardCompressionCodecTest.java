@@ -0,0 +1,66 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gzip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StandardCompressionCodecTest {
+
+    private static final byte[] DATA = "Hello worlds, Hello worlds, Hello worlds".getBytes();
+
+    private byte[] compress(CompressionCodec codec, int level, byte[] data) throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (OutputStream stream = codec.compress(target, level)) {
+            stream.write(data);
+        }
+        return target.toByteArray();
+    }
+
+    private byte[] decompress(InputStream stream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int length;
+        while ((length = stream.read(buffer)) > 0) {
+            output.write(buffer, 0, length);
+        }
+        return output.toByteArray();
+    }
+
+    @Test
+    void givenGzip_thenDataAreReadable() throws IOException {
+        byte[] compressed = compress(StandardCompressionCodec.GZIP, 1, DATA);
+        assertArrayEquals(DATA, decompress(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+        assertEquals("gzip", StandardCompressionCodec.GZIP.getEncoding());
+    }
+
+    @Test
+    void givenDeflate_thenDataAreReadable() throws IOException {
+        byte[] compressed = compress(StandardCompressionCodec.DEFLATE, 9, DATA);
+        assertArrayEquals(DATA, decompress(new InflaterInputStream(new ByteArrayInputStream(compressed))));
+        assertEquals("deflate", StandardCompressionCodec.DEFLATE.getEncoding());
+    }
+
+    @ParameterizedTest
+    @EnumSource(StandardCompressionCodec.class)
+    void givenNoData_thenCompressedBodyIsEmpty(StandardCompressionCodec codec) throws IOException {
+        assertTrue(codec.isEmpty(compress(codec, -1, new byte[0])));
+        assertFalse(codec.isEmpty(compress(codec, -1, DATA)));
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gzip;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThresholdOutputStreamTest {
+
+    private ByteArrayOutputStream target;
+    private int openCount;
+    private ThresholdOutputStream underTest;
+
+    @BeforeEach
+    void setUp() {
+        target = new ByteArrayOutputStream();
+        openCount = 0;
+        underTest = new ThresholdOutputStream(4, () -> {
+            openCount++;
+            return target;
+        });
+    }
+
+    @Nested
+    class GivenDataBelowThreshold {
+
+        @Test
+        void thenDataAreBuffered() throws IOException {
+            underTest.write("abcd".getBytes());
+            underTest.close();
+
+            assertFalse(underTest.isStreaming());
+            assertArrayEquals("abcd".getBytes(), underTest.toByteArray());
+            assertEquals(0, target.size());
+            assertEquals(0, openCount);
+        }
+
+    }
+
+    @Nested
+    class GivenDataAboveThreshold {
+
+        @Test
+        void thenBufferedAndNextDataAreStreamed() throws IOException {
+            underTest.write("abc".getBytes());
+            underTest.write('d');
+            underTest.write("ef".getBytes());
+            underTest.write("ghijkl".getBytes());
+            underTest.close();
+
+            assertTrue(underTest.isStreaming());
+            assertEquals("abcdefghijkl", target.toString());
+            assertEquals(1, openCount);
+            assertThrows(IllegalStateException.class, underTest::toByteArray);
+        }
+
+        @Test
+        void givenZeroThreshold_thenFirstByteIsStreamed() throws IOException {
+            underTest = new ThresholdOutputStream(0, () -> target);
+            underTest.write('a');
+
+            assertTrue(underTest.isStreaming());
+            assertEquals("a", target.toString());
+        }
+
+    }
+
+}
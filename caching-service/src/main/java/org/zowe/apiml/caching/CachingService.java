@@ -16,6 +16,7 @@ import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.cloud.client.circuitbreaker.EnableCircuitBreaker;
 import org.springframework.context.ApplicationListener;
 import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.zowe.apiml.enable.EnableApiDiscovery;
 import org.zowe.apiml.product.logging.annotations.EnableApimlLogger;
 import org.zowe.apiml.product.service.ServiceStartupEventHandler;
@@ -26,6 +27,7 @@ import javax.annotation.Nonnull;
 @EnableCircuitBreaker
 @EnableApiDiscovery
 @EnableRetry
+@EnableScheduling
 @EnableApimlLogger
 @Slf4j
 public class CachingService implements ApplicationListener<ApplicationReadyEvent> {
@@ -25,7 +25,9 @@ import org.zowe.apiml.message.core.Message;
 import org.zowe.apiml.message.core.MessageService;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @RestController
 @RequiredArgsConstructor
@@ -116,6 +118,56 @@ public class CachingController {
             keyValue, request, HttpStatus.NO_CONTENT);
     }
 
+    @PutMapping(value = "/cache/{key}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiOperation(value = "Create or update key in the cache",
+        notes = "Value at the {key} will be set to the provided value, the key-value pair is created if it doesn't exist")
+    @ResponseBody
+    @HystrixCommand
+    public ResponseEntity<Object> upsert(@PathVariable String key, @RequestBody KeyValue keyValue, HttpServletRequest request) {
+        return keyValueRequest((serviceId, payload) -> {
+                if (!payload.getKey().equals(key)) {
+                    invalidPayload(payload.toString(), "Key in the payload doesn't match the key in the path");
+                }
+                return storage.upsert(serviceId, payload);
+            },
+            keyValue, request, HttpStatus.NO_CONTENT);
+    }
+
+    @PostMapping(value = "/cache/batch/read", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiOperation(value = "Retrieves multiple values in the cache",
+        notes = "Values returned are for the provided keys, missing keys are not part of the response")
+    @ResponseBody
+    @HystrixCommand
+    public ResponseEntity<Object> readBatch(@RequestBody List<String> keys, HttpServletRequest request) {
+        return batchRequest((serviceId, payload) -> storage.readBatch(serviceId, payload),
+            keys, this::checkForInvalidKeys, request, HttpStatus.OK);
+    }
+
+    @PutMapping(value = "/cache/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiOperation(value = "Store multiple keys in the cache",
+        notes = "Values at the keys will be updated to the provided values, missing keys will be created")
+    @ResponseBody
+    @HystrixCommand
+    public ResponseEntity<Object> upsertBatch(@RequestBody List<KeyValue> keyValues, HttpServletRequest request) {
+        return batchRequest((serviceId, payload) -> {
+                storage.upsertBatch(serviceId, payload);
+                return null;
+            },
+            keyValues, this::checkForInvalidKeyValues, request, HttpStatus.NO_CONTENT);
+    }
+
+    @PostMapping(value = "/cache/batch/delete", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiOperation(value = "Delete multiple keys from the cache",
+        notes = "Will delete key-value pairs for the provided keys, missing keys are ignored")
+    @ResponseBody
+    @HystrixCommand
+    public ResponseEntity<Object> deleteBatch(@RequestBody List<String> keys, HttpServletRequest request) {
+        return batchRequest((serviceId, payload) -> {
+                storage.deleteBatch(serviceId, payload);
+                return null;
+            },
+            keys, this::checkForInvalidKeys, request, HttpStatus.NO_CONTENT);
+    }
 
     private ResponseEntity<Object> exceptionToResponse(StorageException exception) {
         Message message = messageService.createMessage(exception.getKey(), (Object[]) exception.getParameters());
@@ -174,6 +226,32 @@ public class CachingController {
         }
     }
 
+    /**
+     * Authenticate the user.
+     * verify validity of the data.
+     * Do the storage operation on the whole batch passed in as Lambda
+     * Properly handle and package Exceptions.
+     */
+    private <T> ResponseEntity<Object> batchRequest(BatchOperation<T> batchOperation, List<T> payload, Consumer<List<T>> validator,
+                                                    HttpServletRequest request, HttpStatus successStatus) {
+        Optional<String> serviceId = getServiceId(request);
+        if (!serviceId.isPresent()) {
+            return getUnauthorizedResponse();
+        }
+
+        try {
+            validator.accept(payload);
+
+            Object result = batchOperation.storageRequest(serviceId.get(), payload);
+
+            return new ResponseEntity<>(result, successStatus);
+        } catch (StorageException exception) {
+            return exceptionToResponse(exception);
+        } catch (Exception exception) {
+            return handleInternalError(exception, request.getRequestURL());
+        }
+    }
+
     private Optional<String> getServiceId(HttpServletRequest request) {
         Optional<String> certificateServiceId = getHeader(request, "X-Certificate-DistinguishedName");
         Optional<String> specificServiceId = getHeader(request, "X-CS-Service-ID");
@@ -224,6 +302,28 @@ public class CachingController {
         if (key == null) {
             invalidPayload(keyValue.toString(), "No key provided in the payload");
         }
+
+        if (keyValue.getTtl() != null && keyValue.getTtl() < 0) {
+            invalidPayload(keyValue.toString(), "Time to live cannot be negative");
+        }
+    }
+
+    private void checkForInvalidKeys(List<String> keys) {
+        if (keys == null) {
+            invalidPayload(null, "No keys provided in the payload");
+        }
+
+        if (keys.contains(null)) {
+            invalidPayload(keys.toString(), "No key provided in the payload");
+        }
+    }
+
+    private void checkForInvalidKeyValues(List<KeyValue> keyValues) {
+        if (keyValues == null) {
+            invalidPayload(null, "No KeyValues provided in the payload");
+        }
+
+        keyValues.forEach(this::checkForInvalidPayload);
     }
 
     @FunctionalInterface
@@ -235,4 +335,9 @@ public class CachingController {
     interface KeyValueOperation {
         KeyValue storageRequest(String serviceId, KeyValue keyValue);
     }
+
+    @FunctionalInterface
+    interface BatchOperation<T> {
+        Object storageRequest(String serviceId, List<T> payload);
+    }
 }
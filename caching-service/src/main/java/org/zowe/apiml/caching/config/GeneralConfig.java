@@ -27,6 +27,8 @@ public class GeneralConfig {
     private String evictionStrategy;
     @Value("${caching.storage.size:100}")
     private int maxDataSize;
+    @Value("${caching.storage.sizeInBytes:0}")
+    private long maxSizeInBytes;
 
 
     @Bean
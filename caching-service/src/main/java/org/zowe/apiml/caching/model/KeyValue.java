@@ -10,24 +10,37 @@
 package org.zowe.apiml.caching.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.math.NumberUtils;
 
 import java.io.Serializable;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Data POJO that represents entry in caching service
+ *
+ * The entry can have optional time to live in seconds, counted from its creation. Expired entries are handled by the
+ * storages as if they didn't exist.
+ *
+ * The weight of the entry approximates the amount of bytes it occupies in the memory, so the storages can be bounded
+ * by bytes and not only by the amount of entries.
  */
 @RequiredArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 @Data
 public class KeyValue implements Serializable {
+    private static final long ENTRY_OVERHEAD = 64;
+    private static final long STRING_OVERHEAD = 40;
+
     private final String key;
     private final String value;
     private String serviceId;
     private final String created;
+    private Long ttl;
 
     public KeyValue(String key, String value) {
         this.key = key;
@@ -36,6 +49,36 @@ public class KeyValue implements Serializable {
         this.created = currentTime();
     }
 
+    @JsonIgnore
+    public boolean hasExpiration() {
+        return ttl != null && ttl > 0;
+    }
+
+    /**
+     * @return time in milliseconds since epoch when the entry expires, it is meaningful only if the entry has expiration
+     */
+    @JsonIgnore
+    public long getExpiresAt() {
+        return NumberUtils.toLong(created) + TimeUnit.SECONDS.toMillis(ttl == null ? 0 : ttl);
+    }
+
+    @JsonIgnore
+    public boolean isExpired() {
+        return hasExpiration() && System.currentTimeMillis() >= getExpiresAt();
+    }
+
+    /**
+     * @return approximate amount of bytes occupied by the entry in the memory
+     */
+    @JsonIgnore
+    public long getWeight() {
+        return ENTRY_OVERHEAD + weight(key) + weight(value) + weight(serviceId) + weight(created);
+    }
+
+    private static long weight(String text) {
+        return text == null ? 0 : STRING_OVERHEAD + 2L * text.length();
+    }
+
     private static String currentTime() {
         return String.valueOf(new Date().getTime());
     }
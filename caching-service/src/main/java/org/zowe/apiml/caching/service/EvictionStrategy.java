@@ -13,6 +13,8 @@ public interface EvictionStrategy {
     /**
      * This method is called when some item should be evicted. The strategy decides what to do with it.
      * The reject one could use this method to throw the StorageException.
+     *
+     * @return true if an item was removed from the storage
      */
-    void evict(String key);
+    boolean evict(String key);
 }
@@ -0,0 +1,38 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.caching.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically removes expired entries from the storage, so the memory of entries which are not accessed anymore
+ * is reclaimed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExpiredEntriesSweeper {
+
+    private final Storage storage;
+
+    @Scheduled(
+        initialDelayString = "${caching.storage.expiration.sweepIntervalInMillis:60000}",
+        fixedDelayString = "${caching.storage.expiration.sweepIntervalInMillis:60000}")
+    public void sweep() {
+        try {
+            storage.removeExpired();
+        } catch (RuntimeException e) {
+            log.debug("Removal of expired entries failed: {}", e.getMessage());
+        }
+    }
+}
@@ -11,6 +11,7 @@ package org.zowe.apiml.caching.service;
 
 import org.zowe.apiml.caching.model.KeyValue;
 
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -44,6 +45,16 @@ public interface Storage {
      */
     KeyValue update(String serviceId, KeyValue toUpdate);
 
+    /**
+     * Store the key/value pair in one operation. If the key already exists its value is replaced, otherwise the pair
+     * is created.
+     *
+     * @param serviceId Id of the service to store the value for.
+     * @param toStore   KeyValue pair to be stored.
+     * @return The stored KeyValue pair.
+     */
+    KeyValue upsert(String serviceId, KeyValue toStore);
+
     /**
      * Delete the key/value pair if it exists within the context of the service. If there is none existing null
      * is returned.
@@ -54,6 +65,33 @@ public interface Storage {
      */
     KeyValue delete(String serviceId, String toDelete);
 
+    /**
+     * Returns the key/value pairs for all the provided keys. Keys which don't exist in the storage are not part of
+     * the result.
+     *
+     * @param serviceId Id of the service to read values for
+     * @param keys      keys to lookup
+     * @return Map with the found key/value pairs, it is empty if there is none existing.
+     */
+    Map<String, KeyValue> readBatch(String serviceId, Collection<String> keys);
+
+    /**
+     * Store all the key/value pairs. The existing values are replaced, the missing ones are created.
+     *
+     * @param serviceId Id of the service to store the values for
+     * @param toStore   KeyValue pairs to be stored
+     */
+    void upsertBatch(String serviceId, Collection<KeyValue> toStore);
+
+    /**
+     * Delete all the key/value pairs with the provided keys if they exist within the context of the service.
+     * Keys which don't exist in the storage are ignored.
+     *
+     * @param serviceId Id of the service to delete the values for
+     * @param toDelete  Keys to delete from the storage
+     */
+    void deleteBatch(String serviceId, Collection<String> toDelete);
+
     /**
      * Return all the key/value pairs for given service id.
      *
@@ -68,4 +106,11 @@ public interface Storage {
      * @param serviceId Id of the service to delete all key/value pairs for.
      */
     void deleteForService(String serviceId);
+
+    /**
+     * Remove all the expired key/value pairs. It is called periodically, storages which reclaim expired entries on
+     * their own don't need to do anything.
+     */
+    default void removeExpired() {
+    }
 }
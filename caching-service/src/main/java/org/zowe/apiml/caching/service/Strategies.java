@@ -16,7 +16,9 @@ import lombok.Getter;
 @Getter
 public enum Strategies {
     REJECT("reject"),
-    REMOVE_OLDEST("removeOldest");
+    REMOVE_OLDEST("removeOldest"),
+    LRU("lru"),
+    TINY_LFU("tinyLfu");
 
     private final String key;
 }
@@ -15,6 +15,7 @@ import org.infinispan.configuration.cache.CacheMode;
 import org.infinispan.configuration.cache.ConfigurationBuilder;
 import org.infinispan.configuration.parsing.ConfigurationBuilderHolder;
 import org.infinispan.configuration.parsing.ParserRegistry;
+import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.manager.DefaultCacheManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -48,6 +49,10 @@ public class InfinispanConfig {
     private String port;
     @Value("${jgroups.bind.address}")
     private String address;
+    @Value("${caching.storage.sizeInBytes:0}")
+    private long maxSizeInBytes;
+    @Value("${caching.storage.infinispan.serviceSizeInBytes:0}")
+    private long serviceSizeInBytes;
 
 
     @Bean
@@ -77,6 +82,10 @@ public class InfinispanConfig {
             .addSoftIndexFileStore()
             .shared(false)
             .dataLocation(dataLocation).indexLocation("index");
+        if (maxSizeInBytes > 0) {
+            // the least used entries over the limit are passivated into the file store
+            builder.memory().maxSize(String.valueOf(maxSizeInBytes)).whenFull(EvictionStrategy.REMOVE);
+        }
         cacheManager.administration()
             .withFlags(CacheContainerAdmin.AdminFlag.VOLATILE)
             .getOrCreateCache("zoweCache", builder.build());
@@ -86,7 +95,7 @@ public class InfinispanConfig {
 
     @Bean
     public Storage storage(DefaultCacheManager cacheManager) {
-        return new InfinispanStorage(cacheManager.getCache("zoweCache"));
+        return new InfinispanStorage(cacheManager.getCache("zoweCache"), serviceSizeInBytes);
     }
 
 }
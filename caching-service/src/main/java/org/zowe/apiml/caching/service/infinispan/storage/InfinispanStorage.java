@@ -16,30 +16,52 @@ import org.zowe.apiml.caching.service.Messages;
 import org.zowe.apiml.caching.service.Storage;
 import org.zowe.apiml.caching.service.StorageException;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Storage keeping the entries of each service in one map stored in Infinispan.
+ *
+ * Expired entries are ignored on read and purged whenever the map of the service is written. If all the entries of
+ * a service expire, the map is stored with lifespan of the entry expiring last, so Infinispan removes it on its own.
+ *
+ * The map of one service can be bounded by bytes, the write making it heavier is rejected. The map keeps its weight
+ * (see {@link ServiceEntries}), so the write doesn't go through all the entries of the service.
+ */
 @Slf4j
 public class InfinispanStorage implements Storage {
 
 
     private final Cache<String, Map<String, KeyValue>> cache;
+    private final long serviceSizeInBytes;
 
     public InfinispanStorage(Cache<String, Map<String, KeyValue>> cache) {
+        this(cache, 0);
+    }
+
+    /**
+     * @param cache              Infinispan cache to store the maps of the services
+     * @param serviceSizeInBytes maximal weight of the map of one service, 0 means no limit
+     */
+    public InfinispanStorage(Cache<String, Map<String, KeyValue>> cache, long serviceSizeInBytes) {
         this.cache = cache;
+        this.serviceSizeInBytes = serviceSizeInBytes;
     }
 
     @Override
     public KeyValue create(String serviceId, KeyValue toCreate) {
         log.info("Writing record: {}|{}|{}", serviceId, toCreate.getKey(), toCreate.getValue());
 
-        Map<String, KeyValue> serviceCache = cache.computeIfAbsent(serviceId, k -> new HashMap<>());
+        ServiceEntries serviceCache = getOrCreate(serviceId);
+        serviceCache.removeExpired();
 
         if (serviceCache.containsKey(toCreate.getKey())) {
             throw new StorageException(Messages.DUPLICATE_KEY.getKey(), Messages.DUPLICATE_KEY.getStatus(), toCreate.getKey());
         }
-        KeyValue entry = serviceCache.put(toCreate.getKey(), toCreate);
-        cache.put(serviceId, serviceCache);
+        KeyValue entry = serviceCache.putEntry(toCreate);
+        put(serviceId, serviceCache);
         return entry;
     }
 
@@ -47,7 +69,7 @@ public class InfinispanStorage implements Storage {
     public KeyValue read(String serviceId, String key) {
         log.info("Reading record for service {} under key {}", serviceId, key);
         Map<String, KeyValue> serviceCache = cache.get(serviceId);
-        if (serviceCache != null && serviceCache.containsKey(key)) {
+        if (serviceCache != null && serviceCache.containsKey(key) && !serviceCache.get(key).isExpired()) {
             return serviceCache.get(key);
         } else {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
@@ -57,34 +79,93 @@ public class InfinispanStorage implements Storage {
     @Override
     public KeyValue update(String serviceId, KeyValue toUpdate) {
         log.info("Updating record for service {} under key {}", serviceId, toUpdate);
-        Map<String, KeyValue> serviceCache = cache.get(serviceId);
+        ServiceEntries serviceCache = get(serviceId);
+        if (serviceCache != null) {
+            serviceCache.removeExpired();
+        }
         if (serviceCache == null || !serviceCache.containsKey(toUpdate.getKey())) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), toUpdate.getKey(), serviceId);
         }
-        serviceCache.put(toUpdate.getKey(), toUpdate);
-        cache.put(serviceId, serviceCache);
+        serviceCache.putEntry(toUpdate);
+        put(serviceId, serviceCache);
         return toUpdate;
 
     }
 
+    @Override
+    public KeyValue upsert(String serviceId, KeyValue toStore) {
+        log.info("Storing record for service {} under key {}", serviceId, toStore.getKey());
+        ServiceEntries serviceCache = getOrCreate(serviceId);
+        serviceCache.removeExpired();
+        serviceCache.putEntry(toStore);
+        put(serviceId, serviceCache);
+        return toStore;
+    }
+
     @Override
     public KeyValue delete(String serviceId, String toDelete) {
         log.info("Removing record for service {} under key {}", serviceId, toDelete);
-        Map<String, KeyValue> serviceCache = cache.get(serviceId);
+        ServiceEntries serviceCache = get(serviceId);
         KeyValue entry;
-        if (serviceCache.containsKey(toDelete)) {
-            entry = serviceCache.remove(toDelete);
-            cache.put(serviceId, serviceCache);
+        if (serviceCache != null && serviceCache.containsKey(toDelete)) {
+            entry = serviceCache.removeEntry(toDelete);
+            put(serviceId, serviceCache);
             return entry;
         } else {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), toDelete, serviceId);
         }
     }
 
+    @Override
+    public Map<String, KeyValue> readBatch(String serviceId, Collection<String> keys) {
+        log.info("Reading records for service {} under keys {}", serviceId, keys);
+        Map<String, KeyValue> result = new HashMap<>();
+        Map<String, KeyValue> serviceCache = cache.get(serviceId);
+        if (serviceCache == null) {
+            return result;
+        }
+
+        for (String key : keys) {
+            KeyValue keyValue = serviceCache.get(key);
+            if (keyValue != null && !keyValue.isExpired()) {
+                result.put(key, keyValue);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void upsertBatch(String serviceId, Collection<KeyValue> toStore) {
+        log.info("Storing {} records for service {}", toStore.size(), serviceId);
+        ServiceEntries serviceCache = getOrCreate(serviceId);
+        serviceCache.removeExpired();
+        toStore.forEach(serviceCache::putEntry);
+        put(serviceId, serviceCache);
+    }
+
+    @Override
+    public void deleteBatch(String serviceId, Collection<String> toDelete) {
+        log.info("Removing records for service {} under keys {}", serviceId, toDelete);
+        ServiceEntries serviceCache = get(serviceId);
+        if (serviceCache == null) {
+            return;
+        }
+
+        toDelete.forEach(serviceCache::removeEntry);
+        put(serviceId, serviceCache);
+    }
+
     @Override
     public Map<String, KeyValue> readForService(String serviceId) {
         log.info("Reading all records for service {} ", serviceId);
-        return cache.get(serviceId);
+        Map<String, KeyValue> serviceCache = cache.get(serviceId);
+        if (serviceCache == null) {
+            return null;
+        }
+
+        Map<String, KeyValue> result = new HashMap<>(serviceCache);
+        result.values().removeIf(KeyValue::isExpired);
+        return result;
     }
 
     @Override
@@ -92,4 +173,25 @@ public class InfinispanStorage implements Storage {
         log.info("Removing all records for service {} ", serviceId);
         cache.remove(serviceId);
     }
+
+    private ServiceEntries get(String serviceId) {
+        return ServiceEntries.of(cache.get(serviceId));
+    }
+
+    private ServiceEntries getOrCreate(String serviceId) {
+        return ServiceEntries.of(cache.computeIfAbsent(serviceId, k -> new ServiceEntries()));
+    }
+
+    private void put(String serviceId, ServiceEntries serviceCache) {
+        if (serviceSizeInBytes > 0 && serviceCache.getWeight() > serviceSizeInBytes) {
+            throw new StorageException(Messages.INSUFFICIENT_STORAGE.getKey(), Messages.INSUFFICIENT_STORAGE.getStatus());
+        }
+
+        long lifespan = serviceCache.getExpiresAt() - System.currentTimeMillis();
+        if (serviceCache.getExpiresAt() == 0 || lifespan <= 0) {
+            cache.put(serviceId, serviceCache);
+        } else {
+            cache.put(serviceId, serviceCache, lifespan, TimeUnit.MILLISECONDS);
+        }
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.caching.service.infinispan.storage;
+
+import org.zowe.apiml.caching.model.KeyValue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Entries of one service as they are stored in Infinispan.
+ *
+ * The map keeps the weight of its entries and the range of their expiration, so a write doesn't need to go through all
+ * the entries of the service. The values are stored together with the entries, so they are valid on each instance of
+ * the cluster. The entries have to be changed by {@link #putEntry(KeyValue)} and {@link #removeEntry(String)} only.
+ */
+public class ServiceEntries extends HashMap<String, KeyValue> {
+
+    private static final long serialVersionUID = 1L;
+
+    private long weight;
+    // amount of entries without expiration, the map mustn't expire while there is any
+    private int entriesWithoutExpiration;
+    // no entry expires before this time, it could be earlier than needed after a removal
+    private long nextExpiration = Long.MAX_VALUE;
+    // no entry expires after this time, it could be later than needed after a removal
+    private long lastExpiration;
+
+    /**
+     * @param entries entries of the service as they were read from the cache
+     * @return the same map, or its copy if it was stored without the weight (ie. by a previous version)
+     */
+    static ServiceEntries of(Map<String, KeyValue> entries) {
+        if (entries == null || entries instanceof ServiceEntries) {
+            return (ServiceEntries) entries;
+        }
+
+        ServiceEntries result = new ServiceEntries();
+        entries.values().forEach(result::putEntry);
+        return result;
+    }
+
+    /**
+     * @param keyValue entry to store
+     * @return the replaced entry, null if there was none
+     */
+    KeyValue putEntry(KeyValue keyValue) {
+        KeyValue previous = put(keyValue.getKey(), keyValue);
+        if (previous != null) {
+            unregister(previous);
+        }
+        register(keyValue);
+        return previous;
+    }
+
+    /**
+     * @param key key of the entry to remove
+     * @return the removed entry, null if there was none
+     */
+    KeyValue removeEntry(String key) {
+        KeyValue removed = remove(key);
+        if (removed != null) {
+            unregister(removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Remove the expired entries. The entries are scanned only if any of them could be expired.
+     */
+    void removeExpired() {
+        if (System.currentTimeMillis() < nextExpiration) {
+            return;
+        }
+
+        nextExpiration = Long.MAX_VALUE;
+        Iterator<KeyValue> iterator = values().iterator();
+        while (iterator.hasNext()) {
+            KeyValue keyValue = iterator.next();
+            if (keyValue.isExpired()) {
+                iterator.remove();
+                unregister(keyValue);
+            } else if (keyValue.hasExpiration()) {
+                nextExpiration = Math.min(nextExpiration, keyValue.getExpiresAt());
+            }
+        }
+    }
+
+    /**
+     * @return approximate amount of bytes occupied by the entries, see {@link KeyValue#getWeight()}
+     */
+    long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return time in milliseconds since epoch when all the entries are expired, 0 if there is an entry without
+     * expiration or there is no entry
+     */
+    long getExpiresAt() {
+        if (isEmpty() || entriesWithoutExpiration > 0) {
+            return 0;
+        }
+        return lastExpiration;
+    }
+
+    private void register(KeyValue keyValue) {
+        weight += keyValue.getWeight();
+        if (keyValue.hasExpiration()) {
+            nextExpiration = Math.min(nextExpiration, keyValue.getExpiresAt());
+            lastExpiration = Math.max(lastExpiration, keyValue.getExpiresAt());
+        } else {
+            entriesWithoutExpiration++;
+        }
+    }
+
+    private void unregister(KeyValue keyValue) {
+        weight -= keyValue.getWeight();
+        if (!keyValue.hasExpiration()) {
+            entriesWithoutExpiration--;
+        }
+    }
+
+}
@@ -9,6 +9,7 @@
  */
 package org.zowe.apiml.caching.service.inmemory;
 
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.zowe.apiml.caching.model.KeyValue;
 import org.zowe.apiml.caching.service.*;
@@ -16,14 +17,37 @@ import org.zowe.apiml.caching.service.inmemory.config.InMemoryConfig;
 import org.zowe.apiml.message.core.MessageService;
 import org.zowe.apiml.message.log.ApimlLogger;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Storage keeping the entries in the memory of the service.
+ *
+ * The entries of each service are kept in a concurrent map, so the requests can be served in parallel. The amount of
+ * all the entries and their weight in bytes is counted on every insert and removal, the size check doesn't need to
+ * iterate the storage. The storage is bounded by the amount of entries and optionally by the bytes, the eviction
+ * strategy removes entries until the new one fits into both limits.
+ *
+ * Entries with time to live are indexed by their expiration, so the expired ones are removed without scanning all
+ * the entries.
+ *
+ * The strategies {@code lru} and {@code tinyLfu} track the usage of the entries, so the entry to evict is chosen
+ * without scanning the storage. The hits, misses and evictions are counted for the statistics.
+ */
 @Slf4j
 public class InMemoryStorage implements Storage {
     private Map<String, Map<String, KeyValue>> storage;
+    private final NavigableSet<Expiration> expirations = new ConcurrentSkipListSet<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong weight = new AtomicLong();
     private EvictionStrategy strategy = new DefaultEvictionStrategy();
+    private UsageTrackingStrategy usageTracking;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
     private InMemoryConfig config;
 
     public InMemoryStorage(InMemoryConfig inMemoryConfig, MessageService messageService) {
@@ -33,12 +57,27 @@ public class InMemoryStorage implements Storage {
     protected InMemoryStorage(InMemoryConfig inMemoryConfig, Map<String, Map<String, KeyValue>> storage, ApimlLogger apimlLogger) {
         this.storage = storage;
         this.config = inMemoryConfig;
+        storage.values().forEach(serviceStorage -> {
+            size.addAndGet(serviceStorage.size());
+            weight.addAndGet(weightOf(serviceStorage));
+        });
 
         String evictionStrategy = inMemoryConfig.getGeneralConfig().getEvictionStrategy();
         if (evictionStrategy.equals(Strategies.REJECT.getKey())) {
             strategy = new RejectStrategy(apimlLogger);
         } else if (evictionStrategy.equals(Strategies.REMOVE_OLDEST.getKey())) {
-            strategy = new RemoveOldestStrategy(storage);
+            strategy = new RemoveOldestStrategy(storage, this::evicted);
+        } else if (evictionStrategy.equals(Strategies.LRU.getKey())) {
+            usageTracking = new LruStrategy(storage, this::evicted);
+            strategy = usageTracking;
+        } else if (evictionStrategy.equals(Strategies.TINY_LFU.getKey())) {
+            usageTracking = new TinyLfuStrategy(storage, inMemoryConfig.getGeneralConfig().getMaxDataSize(), this::evicted);
+            strategy = usageTracking;
+        }
+
+        if (usageTracking != null) {
+            storage.forEach((serviceId, serviceStorage) ->
+                serviceStorage.keySet().forEach(key -> usageTracking.recordWrite(serviceId, key)));
         }
     }
 
@@ -46,17 +85,17 @@ public class InMemoryStorage implements Storage {
     public KeyValue create(String serviceId, KeyValue toCreate) {
         log.info("Writing record: {}|{}|{}", serviceId, toCreate.getKey(), toCreate.getValue());
 
-        storage.computeIfAbsent(serviceId, k -> new HashMap<>());
-        Map<String, KeyValue> serviceStorage = storage.get(serviceId);
-        if (serviceStorage.containsKey(toCreate.getKey())) {
-            throw new StorageException(Messages.DUPLICATE_KEY.getKey(), Messages.DUPLICATE_KEY.getStatus(), toCreate.getKey());
+        Map<String, KeyValue> serviceStorage = getServiceStorage(serviceId);
+        if (getValid(serviceId, serviceStorage, toCreate.getKey()) != null) {
+            throw duplicateKey(toCreate);
         }
 
-        if (aboveThreshold()) {
-            strategy.evict(toCreate.getKey());
-        }
+        evictIfAboveThreshold(toCreate, null);
 
-        serviceStorage.put(toCreate.getKey(), toCreate);
+        if (serviceStorage.putIfAbsent(toCreate.getKey(), toCreate) != null) {
+            throw duplicateKey(toCreate);
+        }
+        stored(serviceId, serviceStorage, toCreate);
 
         return toCreate;
     }
@@ -65,12 +104,13 @@ public class InMemoryStorage implements Storage {
     public KeyValue read(String serviceId, String key) {
         log.info("Reading Record: {}|{}|{}", serviceId, key, "-");
 
-        Map<String, KeyValue> serviceSpecificStorage = storage.get(serviceId);
-        if (serviceSpecificStorage == null || !serviceSpecificStorage.containsKey(key)) {
+        KeyValue keyValue = getValid(serviceId, storage.get(serviceId), key);
+        recordRead(serviceId, key, keyValue);
+        if (keyValue == null) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
         }
 
-        return serviceSpecificStorage.get(key);
+        return keyValue;
     }
 
     @Override
@@ -78,51 +118,322 @@ public class InMemoryStorage implements Storage {
         log.info("Updating Record: {}|{}|{}", serviceId, toUpdate.getKey(), toUpdate.getValue());
 
         String key = toUpdate.getKey();
-        if (isKeyNotInCache(serviceId, key)) {
+        Map<String, KeyValue> serviceStorage = storage.get(serviceId);
+        KeyValue replaced = getValid(serviceId, serviceStorage, key) == null ? null : serviceStorage.replace(key, toUpdate);
+        if (replaced == null) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
         }
 
-        Map<String, KeyValue> serviceStorage = storage.get(serviceId);
-
-        serviceStorage.put(key, toUpdate);
+        weight.addAndGet(toUpdate.getWeight() - replaced.getWeight());
+        written(serviceId, serviceStorage, toUpdate);
         return toUpdate;
     }
 
+    @Override
+    public KeyValue upsert(String serviceId, KeyValue toStore) {
+        log.info("Storing Record: {}|{}|{}", serviceId, toStore.getKey(), toStore.getValue());
+
+        Map<String, KeyValue> serviceStorage = getServiceStorage(serviceId);
+        evictIfAboveThreshold(toStore, getValid(serviceId, serviceStorage, toStore.getKey()));
+
+        put(serviceId, serviceStorage, toStore);
+        return toStore;
+    }
+
     @Override
     public KeyValue delete(String serviceId, String key) {
         log.info("Deleting Record: {}|{}|{}", serviceId, key, "-");
 
-        if (isKeyNotInCache(serviceId, key)) {
+        Map<String, KeyValue> serviceSpecificStorage = storage.get(serviceId);
+        KeyValue removed = getValid(serviceId, serviceSpecificStorage, key) == null ? null : remove(serviceId, serviceSpecificStorage, key);
+        if (removed == null) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
         }
 
+        return removed;
+    }
+
+    @Override
+    public Map<String, KeyValue> readBatch(String serviceId, Collection<String> keys) {
+        log.info("Reading Records: {}|{}|{}", serviceId, keys, "-");
+
+        Map<String, KeyValue> result = new HashMap<>();
+        Map<String, KeyValue> serviceSpecificStorage = storage.get(serviceId);
+        if (serviceSpecificStorage == null) {
+            missCount.addAndGet(keys.size());
+            return result;
+        }
+
+        for (String key : keys) {
+            KeyValue keyValue = getValid(serviceId, serviceSpecificStorage, key);
+            recordRead(serviceId, key, keyValue);
+            if (keyValue != null) {
+                result.put(key, keyValue);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void upsertBatch(String serviceId, Collection<KeyValue> toStore) {
+        log.info("Writing Records: {}|{}", serviceId, toStore.size());
+
+        Map<String, KeyValue> serviceStorage = getServiceStorage(serviceId);
+        for (KeyValue keyValue : toStore) {
+            evictIfAboveThreshold(keyValue, getValid(serviceId, serviceStorage, keyValue.getKey()));
+
+            put(serviceId, serviceStorage, keyValue);
+        }
+    }
+
+    @Override
+    public void deleteBatch(String serviceId, Collection<String> toDelete) {
+        log.info("Deleting Records: {}|{}|{}", serviceId, toDelete, "-");
+
         Map<String, KeyValue> serviceSpecificStorage = storage.get(serviceId);
-        return serviceSpecificStorage.remove(key);
+        if (serviceSpecificStorage != null) {
+            toDelete.forEach(key -> remove(serviceId, serviceSpecificStorage, key));
+        }
     }
 
     @Override
     public Map<String, KeyValue> readForService(String serviceId) {
-        return storage.get(serviceId);
+        Map<String, KeyValue> serviceSpecificStorage = storage.get(serviceId);
+        if (serviceSpecificStorage == null) {
+            return null;
+        }
+
+        Map<String, KeyValue> result = new HashMap<>(serviceSpecificStorage);
+        result.values().removeIf(KeyValue::isExpired);
+        return result;
     }
 
     @Override
     public void deleteForService(String serviceId) {
-        storage.remove(serviceId);
+        Map<String, KeyValue> serviceSpecificStorage = storage.remove(serviceId);
+        if (serviceSpecificStorage != null) {
+            // the entries are removed one by one, so each of them is subtracted from the counters exactly once, even
+            // if it is written concurrently (see removeIfDetached)
+            new ArrayList<>(serviceSpecificStorage.keySet()).forEach(key -> remove(serviceId, serviceSpecificStorage, key));
+        }
     }
 
-    private boolean isKeyNotInCache(String serviceId, String keyToTest) {
-        Map<String, KeyValue> serviceSpecificStorage = storage.get(serviceId);
-        return serviceSpecificStorage == null || serviceSpecificStorage.get(keyToTest) == null;
+    @Override
+    public void removeExpired() {
+        long now = System.currentTimeMillis();
+        Expiration expiration;
+        while ((expiration = expirations.pollFirst()) != null) {
+            if (expiration.getExpiresAt() > now) {
+                expirations.add(expiration);
+                break;
+            }
+
+            Map<String, KeyValue> serviceSpecificStorage = storage.get(expiration.getServiceId());
+            if (serviceSpecificStorage != null) {
+                // the entry could have been replaced since it was indexed
+                KeyValue keyValue = serviceSpecificStorage.get(expiration.getKey());
+                if (keyValue != null && keyValue.isExpired()) {
+                    remove(expiration.getServiceId(), serviceSpecificStorage, expiration.getKey(), keyValue);
+                }
+            }
+        }
+    }
+
+    private Map<String, KeyValue> getServiceStorage(String serviceId) {
+        return storage.computeIfAbsent(serviceId, k -> new ConcurrentHashMap<>());
     }
 
-    private boolean aboveThreshold() {
-        int currentSize = 0;
-        for (Map.Entry<String, Map<String, KeyValue>> serviceStorage: storage.entrySet()) {
-            currentSize += serviceStorage.getValue().size();
+    private void put(String serviceId, Map<String, KeyValue> serviceStorage, KeyValue keyValue) {
+        KeyValue replaced = serviceStorage.put(keyValue.getKey(), keyValue);
+        if (replaced == null) {
+            stored(serviceId, serviceStorage, keyValue);
+        } else {
+            weight.addAndGet(keyValue.getWeight() - replaced.getWeight());
+            written(serviceId, serviceStorage, keyValue);
         }
+    }
+
+    private void stored(String serviceId, Map<String, KeyValue> serviceStorage, KeyValue keyValue) {
+        size.incrementAndGet();
+        weight.addAndGet(keyValue.getWeight());
+        written(serviceId, serviceStorage, keyValue);
+    }
 
-        log.info("Current Size {}.", currentSize);
+    private void written(String serviceId, Map<String, KeyValue> serviceStorage, KeyValue keyValue) {
+        indexExpiration(serviceId, keyValue);
+        if (usageTracking != null) {
+            usageTracking.recordWrite(serviceId, keyValue.getKey());
+        }
+        removeIfDetached(serviceId, serviceStorage, keyValue);
+    }
 
-        return currentSize >= config.getGeneralConfig().getMaxDataSize();
+    /**
+     * The storage of the service could have been removed by {@link #deleteForService(String)} while the entry was
+     * written into it. Such entry is not reachable anymore, so it is removed and not counted.
+     */
+    private void removeIfDetached(String serviceId, Map<String, KeyValue> serviceStorage, KeyValue keyValue) {
+        if (storage.get(serviceId) != serviceStorage) {
+            remove(serviceId, serviceStorage, keyValue.getKey(), keyValue);
+        }
+    }
+
+    private void recordRead(String serviceId, String key, KeyValue keyValue) {
+        if (keyValue == null) {
+            missCount.incrementAndGet();
+            return;
+        }
+
+        hitCount.incrementAndGet();
+        if (usageTracking != null) {
+            usageTracking.recordRead(serviceId, key);
+        }
+    }
+
+    private void evicted(KeyValue keyValue) {
+        size.decrementAndGet();
+        weight.addAndGet(-keyValue.getWeight());
+        evictionCount.incrementAndGet();
+    }
+
+    private void indexExpiration(String serviceId, KeyValue keyValue) {
+        if (keyValue.hasExpiration()) {
+            expirations.add(new Expiration(keyValue.getExpiresAt(), serviceId, keyValue.getKey()));
+        }
+    }
+
+    private KeyValue remove(String serviceId, Map<String, KeyValue> serviceStorage, String key) {
+        KeyValue removed = serviceStorage.remove(key);
+        if (removed != null) {
+            removed(serviceId, removed);
+        }
+        return removed;
+    }
+
+    private void remove(String serviceId, Map<String, KeyValue> serviceStorage, String key, KeyValue keyValue) {
+        if (serviceStorage.remove(key, keyValue)) {
+            removed(serviceId, keyValue);
+        }
+    }
+
+    private void removed(String serviceId, KeyValue keyValue) {
+        size.decrementAndGet();
+        weight.addAndGet(-keyValue.getWeight());
+        if (usageTracking != null) {
+            usageTracking.recordRemoval(serviceId, keyValue.getKey());
+        }
+    }
+
+    private static long weightOf(Map<String, KeyValue> serviceStorage) {
+        long result = 0;
+        for (KeyValue keyValue : serviceStorage.values()) {
+            result += keyValue.getWeight();
+        }
+        return result;
+    }
+
+    private StorageException duplicateKey(KeyValue keyValue) {
+        return new StorageException(Messages.DUPLICATE_KEY.getKey(), Messages.DUPLICATE_KEY.getStatus(), keyValue.getKey());
+    }
+
+    /**
+     * @return entry stored under the key or null if there is none or it is expired, the expired entry is removed
+     */
+    private KeyValue getValid(String serviceId, Map<String, KeyValue> serviceSpecificStorage, String key) {
+        if (serviceSpecificStorage == null) {
+            return null;
+        }
+
+        KeyValue keyValue = serviceSpecificStorage.get(key);
+        if (keyValue != null && keyValue.isExpired()) {
+            remove(serviceId, serviceSpecificStorage, key, keyValue);
+            return null;
+        }
+        return keyValue;
+    }
+
+    /**
+     * Make space for the entry to store, evict the entries while the storage would be above any of the limits.
+     *
+     * @param toStore  entry to store
+     * @param replaced valid entry which is going to be replaced or null if the entry is new
+     */
+    private void evictIfAboveThreshold(KeyValue toStore, KeyValue replaced) {
+        long maxSizeInBytes = config.getGeneralConfig().getMaxSizeInBytes();
+        if (maxSizeInBytes > 0 && toStore.getWeight() > maxSizeInBytes) {
+            throw new StorageException(Messages.INSUFFICIENT_STORAGE.getKey(), Messages.INSUFFICIENT_STORAGE.getStatus());
+        }
+
+        boolean isNew = replaced == null;
+        long addedWeight = toStore.getWeight() - (isNew ? 0 : replaced.getWeight());
+        if (aboveThreshold(isNew, addedWeight)) {
+            removeExpired();
+            while (aboveThreshold(isNew, addedWeight)) {
+                if (!strategy.evict(toStore.getKey())) {
+                    // the strategy didn't remove anything, there is no point to try again
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean aboveThreshold(boolean isNew, long addedWeight) {
+        int currentSize = size.get();
+        long currentWeight = weight.get();
+        log.debug("Current Size {}, current weight {} bytes.", currentSize, currentWeight);
+
+        if (isNew && currentSize >= config.getGeneralConfig().getMaxDataSize()) {
+            return true;
+        }
+
+        long maxSizeInBytes = config.getGeneralConfig().getMaxSizeInBytes();
+        return maxSizeInBytes > 0 && addedWeight > 0 && currentWeight + addedWeight > maxSizeInBytes;
+    }
+
+    /**
+     * @return amount of all the entries in the storage
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * @return approximate amount of bytes occupied by all the entries in the storage
+     */
+    public long getSizeInBytes() {
+        return weight.get();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Key of entry with its expiration, ordered by the expiration
+     */
+    @Value
+    static class Expiration implements Comparable<Expiration> {
+        long expiresAt;
+        String serviceId;
+        String key;
+
+        @Override
+        public int compareTo(Expiration other) {
+            int result = Long.compare(expiresAt, other.expiresAt);
+            if (result == 0) {
+                result = serviceId.compareTo(other.serviceId);
+            }
+            if (result == 0) {
+                result = key.compareTo(other.key);
+            }
+            return result;
+        }
     }
 }
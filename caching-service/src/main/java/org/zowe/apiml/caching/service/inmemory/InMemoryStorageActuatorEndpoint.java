@@ -0,0 +1,39 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.caching.service.inmemory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint with statistics of the usage of {@link InMemoryStorage}.
+ */
+@Endpoint(id = "inmemorystorage")
+@RequiredArgsConstructor
+public class InMemoryStorageActuatorEndpoint {
+
+    private final InMemoryStorage storage;
+
+    @ReadOperation
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("size", (long) storage.getSize());
+        result.put("sizeInBytes", storage.getSizeInBytes());
+        result.put("hits", storage.getHitCount());
+        result.put("misses", storage.getMissCount());
+        result.put("evictions", storage.getEvictionCount());
+        return result;
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.caching.service.inmemory;
+
+import org.zowe.apiml.caching.model.KeyValue;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Evicts the least recently used entry. The entries are kept in a linked map ordered by the access, so the least
+ * recently used one is always the head of the map.
+ */
+public class LruStrategy extends UsageTrackingStrategy {
+    private final Map<EntryKey, Boolean> accessOrder = new LinkedHashMap<>(16, 0.75f, true);
+
+    public LruStrategy(Map<String, Map<String, KeyValue>> storage, Consumer<KeyValue> evictionListener) {
+        super(storage, evictionListener);
+    }
+
+    @Override
+    public synchronized void recordWrite(String serviceId, String key) {
+        accessOrder.put(new EntryKey(serviceId, key), Boolean.TRUE);
+    }
+
+    @Override
+    public synchronized void recordRead(String serviceId, String key) {
+        accessOrder.get(new EntryKey(serviceId, key));
+    }
+
+    @Override
+    public synchronized void recordRemoval(String serviceId, String key) {
+        accessOrder.remove(new EntryKey(serviceId, key));
+    }
+
+    @Override
+    protected synchronized EntryKey selectVictim() {
+        Iterator<EntryKey> iterator = accessOrder.keySet().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+
+        EntryKey victim = iterator.next();
+        iterator.remove();
+        return victim;
+    }
+}
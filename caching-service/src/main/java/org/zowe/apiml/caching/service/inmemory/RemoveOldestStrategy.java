@@ -15,14 +15,20 @@ import org.zowe.apiml.caching.model.KeyValue;
 import org.zowe.apiml.caching.service.EvictionStrategy;
 
 import java.util.Map;
+import java.util.function.Consumer;
 
 @RequiredArgsConstructor
 @Slf4j
 public class RemoveOldestStrategy implements EvictionStrategy {
     private final Map<String, Map<String, KeyValue>> storage;
+    private final Consumer<KeyValue> evictionListener;
+
+    public RemoveOldestStrategy(Map<String, Map<String, KeyValue>> storage) {
+        this(storage, evicted -> { });
+    }
 
     @Override
-    public void evict(String key) {
+    public boolean evict(String key) {
         KeyValue oldest = null;
         Map<String, KeyValue> mapStoringOldest = null;
         for (Map.Entry<String, Map<String, KeyValue>> serviceStorage: storage.entrySet()) {
@@ -45,8 +51,10 @@ public class RemoveOldestStrategy implements EvictionStrategy {
             }
         }
 
-        if (oldest != null) {
-            mapStoringOldest.remove(oldest.getKey());
+        if (oldest != null && mapStoringOldest.remove(oldest.getKey(), oldest)) {
+            evictionListener.accept(oldest);
+            return true;
         }
+        return false;
     }
 }
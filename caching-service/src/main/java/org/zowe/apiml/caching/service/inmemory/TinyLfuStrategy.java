@@ -0,0 +1,111 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.caching.service.inmemory;
+
+import org.zowe.apiml.caching.model.KeyValue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Frequency based eviction in the style of W-TinyLFU. New entries are placed into a small admission window (1% of
+ * the capacity) and the rest of the entries lives in the main area, both are ordered by the access. When the storage
+ * is full and the window is full as well, the least recently used entry of the window competes with the least recently
+ * used entry of the main area and the one with lower estimated frequency of use is evicted. The frequency is
+ * estimated by {@link FrequencySketch}.
+ *
+ * Entries used just once don't push out the popular ones, while a burst of new entries still has a chance to stay.
+ */
+public class TinyLfuStrategy extends UsageTrackingStrategy {
+    private final Map<EntryKey, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<EntryKey, Boolean> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private final int capacity;
+    private final int maxWindowSize;
+
+    public TinyLfuStrategy(Map<String, Map<String, KeyValue>> storage, int capacity, Consumer<KeyValue> evictionListener) {
+        super(storage, evictionListener);
+        this.sketch = new FrequencySketch(capacity);
+        this.capacity = capacity;
+        this.maxWindowSize = Math.max(1, capacity / 100);
+    }
+
+    @Override
+    public synchronized void recordWrite(String serviceId, String key) {
+        EntryKey entryKey = new EntryKey(serviceId, key);
+        sketch.increment(entryKey);
+        if (window.get(entryKey) != null || main.get(entryKey) != null) {
+            return;
+        }
+
+        window.put(entryKey, Boolean.TRUE);
+        if (window.size() > maxWindowSize) {
+            EntryKey candidate = eldest(window);
+            EntryKey victim = eldest(main);
+            // the entry leaving the window is admitted without a competition only if there is a free space, otherwise
+            // it stays in the window as the next candidate to evict unless it is used more than the main victim
+            if ((window.size() + main.size() <= capacity) || (victim == null)
+                || (sketch.frequency(candidate) > sketch.frequency(victim))
+            ) {
+                window.remove(candidate);
+                main.put(candidate, Boolean.TRUE);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void recordRead(String serviceId, String key) {
+        EntryKey entryKey = new EntryKey(serviceId, key);
+        sketch.increment(entryKey);
+        if (window.get(entryKey) == null) {
+            main.get(entryKey);
+        }
+    }
+
+    @Override
+    public synchronized void recordRemoval(String serviceId, String key) {
+        EntryKey entryKey = new EntryKey(serviceId, key);
+        window.remove(entryKey);
+        main.remove(entryKey);
+    }
+
+    @Override
+    protected synchronized EntryKey selectVictim() {
+        EntryKey candidate = eldest(window);
+        EntryKey victim = eldest(main);
+
+        if (victim == null) {
+            if (candidate != null) {
+                window.remove(candidate);
+            }
+            return candidate;
+        }
+
+        if ((candidate == null) || (window.size() < maxWindowSize)) {
+            main.remove(victim);
+            return victim;
+        }
+
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            window.remove(candidate);
+            main.remove(victim);
+            main.put(candidate, Boolean.TRUE);
+            return victim;
+        }
+
+        window.remove(candidate);
+        return candidate;
+    }
+
+    private EntryKey eldest(Map<EntryKey, Boolean> area) {
+        return area.isEmpty() ? null : area.keySet().iterator().next();
+    }
+}
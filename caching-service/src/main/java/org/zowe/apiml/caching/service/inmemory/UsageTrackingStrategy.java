@@ -0,0 +1,65 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.caching.service.inmemory;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.zowe.apiml.caching.model.KeyValue;
+import org.zowe.apiml.caching.service.EvictionStrategy;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Eviction strategy which tracks the usage of the entries of {@link InMemoryStorage}, so the entry to evict is chosen
+ * in constant time without scanning the storage. The storage reports every write, read and removal of an entry.
+ */
+@RequiredArgsConstructor
+public abstract class UsageTrackingStrategy implements EvictionStrategy {
+    private final Map<String, Map<String, KeyValue>> storage;
+    private final Consumer<KeyValue> evictionListener;
+
+    public abstract void recordWrite(String serviceId, String key);
+
+    public abstract void recordRead(String serviceId, String key);
+
+    public abstract void recordRemoval(String serviceId, String key);
+
+    /**
+     * Choose the entry to evict and stop tracking it.
+     *
+     * @return the entry to evict or null if no entry is tracked
+     */
+    protected abstract EntryKey selectVictim();
+
+    @Override
+    public synchronized boolean evict(String key) {
+        EntryKey victim;
+        while ((victim = selectVictim()) != null) {
+            // the entry could have been removed from the storage in the meantime, then the next one is chosen
+            Map<String, KeyValue> serviceStorage = storage.get(victim.getServiceId());
+            KeyValue removed = serviceStorage == null ? null : serviceStorage.remove(victim.getKey());
+            if (removed != null) {
+                evictionListener.accept(removed);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Identification of the entry across all the services
+     */
+    @Value
+    static class EntryKey {
+        String serviceId;
+        String key;
+    }
+}
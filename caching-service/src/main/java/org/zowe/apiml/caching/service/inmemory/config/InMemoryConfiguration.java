@@ -13,8 +13,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.zowe.apiml.caching.service.Storage;
 import org.zowe.apiml.caching.service.inmemory.InMemoryStorage;
+import org.zowe.apiml.caching.service.inmemory.InMemoryStorageActuatorEndpoint;
 import org.zowe.apiml.message.core.MessageService;
 import org.zowe.apiml.message.log.ApimlLogger;
 
@@ -25,9 +25,15 @@ public class InMemoryConfiguration {
 
     @ConditionalOnProperty(name = "caching.storage.mode", havingValue = "inMemory", matchIfMissing = true)
     @Bean
-    public Storage inMemory(MessageService messageService) {
+    public InMemoryStorage inMemory(MessageService messageService) {
         ApimlLogger.of(InMemoryConfig.class, messageService).log("org.zowe.apiml.cache.usingInMemory");
 
         return new InMemoryStorage(inMemoryConfig, messageService);
     }
+
+    @ConditionalOnProperty(name = "caching.storage.mode", havingValue = "inMemory", matchIfMissing = true)
+    @Bean
+    public InMemoryStorageActuatorEndpoint inMemoryStorageActuatorEndpoint(InMemoryStorage inMemory) {
+        return new InMemoryStorageActuatorEndpoint(inMemory);
+    }
 }
@@ -9,10 +9,14 @@
  */
 package org.zowe.apiml.caching.service.redis;
 
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.Range;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisCommandExecutionException;
 import io.lettuce.core.RedisFuture;
 import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.codec.StringCodec;
 import io.lettuce.core.masterreplica.MasterReplica;
@@ -29,15 +33,20 @@ import org.zowe.apiml.caching.service.redis.exceptions.RetryableRedisException;
 import org.zowe.apiml.message.log.ApimlLogger;
 
 import javax.annotation.PreDestroy;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ExecutionException;
 
 /**
  * Class used to connect to and operate on a Redis instance or cluster.
  * Contains the CRUD operations enacted on Redis with serialized read and write.
+ * <p>
+ * Entries of a service are stored in one hash. Redis cannot expire single fields of a hash, so keys of entries with
+ * time to live are indexed in a sorted set of the service scored by their expiration, and the expired ones are removed
+ * by {@link #removeExpired(String)}. The index is written in the same pipeline or script as the entry, it does not add
+ * a round trip. It is only a hint for the removal, which always checks the current entry.
+ * <p>
+ * Operations which depend on the current value of an entry (create replacing an expired entry, removal of expired
+ * entries) are executed by Lua scripts, so the check and the write are atomic.
  */
 @AllArgsConstructor
 @NoArgsConstructor
@@ -49,6 +58,31 @@ public class RedisOperator {
     private StatefulRedisMasterReplicaConnection<String, String> redisConnection;
     private RedisAsyncCommands<String, String> redis;
 
+    static final String EXPIRATIONS_SUFFIX = ":expirations";
+
+    /**
+     * Write the entry (ARGV[1] field, ARGV[2] value) only if the current value is ARGV[3] (empty = no entry), and
+     * index it with the expiration ARGV[4] (empty = no expiration) in the same step.
+     */
+    static final String CREATE_SCRIPT =
+        "local current = redis.call('hget', KEYS[1], ARGV[1]) " +
+        "if (current or '') ~= ARGV[3] then return 0 end " +
+        "redis.call('hset', KEYS[1], ARGV[1], ARGV[2]) " +
+        "if ARGV[4] ~= '' then redis.call('zadd', KEYS[2], ARGV[4], ARGV[1]) end " +
+        "return 1";
+
+    /**
+     * Delete the fields (odd ARGV) only if they still have the given values (even ARGV).
+     */
+    static final String DELETE_IF_CURRENT_SCRIPT =
+        "local deleted = 0 " +
+        "for i = 1, #ARGV, 2 do " +
+        "if redis.call('hget', KEYS[1], ARGV[i]) == ARGV[i + 1] then " +
+        "deleted = deleted + redis.call('hdel', KEYS[1], ARGV[i]) " +
+        "end " +
+        "end " +
+        "return deleted";
+
     public RedisOperator(RedisClient redisClient, RedisURI redisUri, ApimlLogger apimlLog) {
         try {
             this.redisClient = redisClient;
@@ -72,17 +106,27 @@ public class RedisOperator {
     }
 
     /**
-     * Creates a given entry in Redis.
+     * Creates a given entry in Redis. An expired entry with the same key is replaced.
      *
      * @param entryToAdd RedisEntry containing the service ID for which to create the entry, and the key and value.
      * @return true if the key does not exist for the service ID and the entry was created, otherwise false.
      */
     public boolean create(RedisEntry entryToAdd) throws RedisOutOfMemoryException {
+        String serviceId = entryToAdd.getServiceId();
         KeyValue toAdd = entryToAdd.getEntry();
 
         try {
-            RedisFuture<Boolean> result = redis.hsetnx(entryToAdd.getServiceId(), toAdd.getKey(), entryToAdd.getEntryAsString());
-            return result.get();
+            String value = entryToAdd.getEntryAsString();
+            if (createIfCurrent(serviceId, toAdd, value, null)) {
+                return true;
+            }
+
+            // an expired entry is replaced only if it was not changed meanwhile, e.g. by a concurrent create
+            String current = redis.hget(serviceId, toAdd.getKey()).get();
+            if (isValid(current)) {
+                return false;
+            }
+            return createIfCurrent(serviceId, toAdd, value, current);
         } catch (ExecutionException e) {
             handleWriteOperationExecutionException(e);
         } catch (InterruptedException e) {
@@ -105,13 +149,15 @@ public class RedisOperator {
         KeyValue toUpdate = entryToUpdate.getEntry();
 
         try {
-            boolean exists = redis.hexists(serviceId, toUpdate.getKey()).get();
-            if (!exists) {
+            if (!isValid(redis.hget(serviceId, toUpdate.getKey()).get())) {
                 return false;
             }
 
-            boolean result = redis.hset(serviceId, toUpdate.getKey(), entryToUpdate.getEntryAsString()).get();
-            return !result; // hset returns false if field already exists and value was updated
+            RedisFuture<Boolean> result = redis.hset(serviceId, toUpdate.getKey(), entryToUpdate.getEntryAsString());
+            RedisFuture<Long> indexed = indexExpiration(serviceId, toUpdate);
+            boolean updated = !result.get(); // hset returns false if field already exists and value was updated
+            await(indexed);
+            return updated;
         } catch (ExecutionException e) {
             handleWriteOperationExecutionException(e);
         } catch (InterruptedException e) {
@@ -123,6 +169,28 @@ public class RedisOperator {
         return false;
     }
 
+    /**
+     * Stores a given entry in Redis in one HSET command. An existing entry is overwritten.
+     *
+     * @param entryToStore RedisEntry containing the service ID and key to store, with the value.
+     */
+    public void set(RedisEntry entryToStore) throws RedisOutOfMemoryException {
+        KeyValue toStore = entryToStore.getEntry();
+
+        try {
+            RedisFuture<Boolean> result = redis.hset(entryToStore.getServiceId(), toStore.getKey(), entryToStore.getEntryAsString());
+            RedisFuture<Long> indexed = indexExpiration(entryToStore.getServiceId(), toStore);
+            result.get();
+            await(indexed);
+        } catch (ExecutionException e) {
+            handleWriteOperationExecutionException(e);
+        } catch (InterruptedException e) {
+            handleInterruptedException(e);
+        } catch (RedisEntryException e) {
+            log.warn("Error storing entry: {}|{}. Error: {}", entryToStore.getServiceId(), toStore.getKey(), e.getMessage());
+        }
+    }
+
     /**
      * Retrieve an entry for a given service with the corresponding key.
      *
@@ -161,6 +229,73 @@ public class RedisOperator {
         return Collections.emptyList();
     }
 
+    /**
+     * Retrieves entries for a given service with the corresponding keys in one HMGET command.
+     *
+     * @return List of RedisEntry instances for existing keys. If there are no such entries an empty List is returned.
+     */
+    public List<RedisEntry> getBatch(String serviceId, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            List<io.lettuce.core.KeyValue<String, String>> result = redis.hmget(serviceId, keys.toArray(new String[0])).get();
+
+            List<RedisEntry> entries = new ArrayList<>();
+            for (io.lettuce.core.KeyValue<String, String> entry : result) {
+                if (!entry.hasValue()) {
+                    continue;
+                }
+
+                try {
+                    entries.add(new RedisEntry(serviceId, entry.getValue()));
+                } catch (RedisEntryException e) {
+                    log.warn("Error retrieving entry: {}|{}. Error: {}", serviceId, entry.getKey(), e.getMessage());
+                }
+            }
+            return entries;
+        } catch (InterruptedException e) {
+            handleInterruptedException(e);
+        } catch (ExecutionException e) {
+            throw new RetryableRedisException(e);
+        }
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * Stores all given entries of a service in one HSET command. Existing entries are overwritten.
+     *
+     * @param serviceId      service ID for which to store the entries
+     * @param entriesToStore RedisEntry instances to store
+     */
+    public void setBatch(String serviceId, Collection<RedisEntry> entriesToStore) throws RedisOutOfMemoryException {
+        if (entriesToStore.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<String, String> fields = new LinkedHashMap<>();
+            List<KeyValue> keyValues = new ArrayList<>(entriesToStore.size());
+            for (RedisEntry entry : entriesToStore) {
+                fields.put(entry.getEntry().getKey(), entry.getEntryAsString());
+                keyValues.add(entry.getEntry());
+            }
+
+            RedisFuture<Long> result = redis.hset(serviceId, fields);
+            RedisFuture<Long> indexed = indexExpiration(serviceId, keyValues);
+            result.get();
+            await(indexed);
+        } catch (ExecutionException e) {
+            handleWriteOperationExecutionException(e);
+        } catch (InterruptedException e) {
+            handleInterruptedException(e);
+        } catch (RedisEntryException e) {
+            log.warn("Error storing entries for service {}. Error: {}", serviceId, e.getMessage());
+        }
+    }
+
     private List<RedisEntry> collectEntries(String serviceId, Map<String, String> redisEntries) {
         List<RedisEntry> entries = new ArrayList<>();
 
@@ -193,6 +328,27 @@ public class RedisOperator {
         return false;
     }
 
+    /**
+     * Deletes all entries with the given keys for a given service in one HDEL command.
+     *
+     * @return number of deleted entries.
+     */
+    public long deleteBatch(String serviceId, Collection<String> toDelete) {
+        if (toDelete.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            return redis.hdel(serviceId, toDelete.toArray(new String[0])).get();
+        } catch (InterruptedException e) {
+            handleInterruptedException(e);
+        } catch (ExecutionException e) {
+            throw new RetryableRedisException(e);
+        }
+
+        return 0;
+    }
+
     /**
      * Deletes all entries for a given service.
      *
@@ -200,7 +356,7 @@ public class RedisOperator {
      */
     public boolean delete(String serviceId) {
         try {
-            long recordsDeleted = redis.del(serviceId).get();
+            long recordsDeleted = redis.del(serviceId, serviceId + EXPIRATIONS_SUFFIX).get();
             return recordsDeleted >= 1;
         } catch (InterruptedException e) {
             handleInterruptedException(e);
@@ -211,6 +367,147 @@ public class RedisOperator {
         return false;
     }
 
+    /**
+     * Removes the expired entries of a given service. Only the entries indexed as expired are checked, the entry
+     * is removed only if its current value is expired, as it could have been replaced in the meantime. Entries which
+     * are not expired yet are indexed again with their current expiration.
+     *
+     * @return number of removed entries.
+     */
+    public long removeExpired(String serviceId) {
+        String expirationsKey = serviceId + EXPIRATIONS_SUFFIX;
+        try {
+            List<String> candidates = redis.zrangebyscore(expirationsKey, Range.create(0, System.currentTimeMillis())).get();
+            if (candidates.isEmpty()) {
+                return 0;
+            }
+
+            redis.zrem(expirationsKey, candidates.toArray(new String[0])).get();
+
+            // fields and values of the expired entries, the entry is deleted only if it was not replaced meanwhile
+            List<String> expired = new ArrayList<>();
+            List<KeyValue> notExpired = new ArrayList<>();
+            for (io.lettuce.core.KeyValue<String, String> value : redis.hmget(serviceId, candidates.toArray(new String[0])).get()) {
+                if (!value.hasValue()) {
+                    continue;
+                }
+
+                try {
+                    KeyValue entry = new RedisEntry(serviceId, value.getValue()).getEntry();
+                    if (entry.isExpired()) {
+                        expired.add(value.getKey());
+                        expired.add(value.getValue());
+                    } else if (entry.hasExpiration()) {
+                        notExpired.add(entry);
+                    }
+                } catch (RedisEntryException e) {
+                    log.warn("Error retrieving entry: {}|{}. Error: {}", serviceId, value.getKey(), e.getMessage());
+                }
+            }
+            await(indexExpiration(serviceId, notExpired));
+            if (expired.isEmpty()) {
+                return 0;
+            }
+
+            Long deleted = redis.<Long>eval(DELETE_IF_CURRENT_SCRIPT, ScriptOutputType.INTEGER,
+                new String[] {serviceId}, expired.toArray(new String[0])).get();
+            return deleted == null ? 0 : deleted;
+        } catch (InterruptedException e) {
+            handleInterruptedException(e);
+        } catch (ExecutionException e) {
+            throw new RetryableRedisException(e);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Retrieves IDs of all services which have entries with time to live. The keys are iterated by SCAN, so Redis
+     * is not blocked.
+     */
+    public List<String> getServicesWithExpiration() {
+        List<String> serviceIds = new ArrayList<>();
+        ScanArgs scanArgs = ScanArgs.Builder.matches("*" + EXPIRATIONS_SUFFIX);
+        try {
+            KeyScanCursor<String> cursor = redis.scan(scanArgs).get();
+            while (true) {
+                for (String key : cursor.getKeys()) {
+                    serviceIds.add(key.substring(0, key.length() - EXPIRATIONS_SUFFIX.length()));
+                }
+                if (cursor.isFinished()) {
+                    break;
+                }
+                cursor = redis.scan(cursor, scanArgs).get();
+            }
+        } catch (InterruptedException e) {
+            handleInterruptedException(e);
+        } catch (ExecutionException e) {
+            throw new RetryableRedisException(e);
+        }
+
+        return serviceIds;
+    }
+
+    /**
+     * Writes the entry and its index by {@link #CREATE_SCRIPT} if the current value is still the expected one.
+     *
+     * @param expected expected current value, null if there should be no entry
+     * @return true if the entry was written
+     */
+    private boolean createIfCurrent(String serviceId, KeyValue toAdd, String value, String expected) throws ExecutionException, InterruptedException {
+        String expiresAt = toAdd.hasExpiration() ? String.valueOf(toAdd.getExpiresAt()) : "";
+        Long created = redis.<Long>eval(CREATE_SCRIPT, ScriptOutputType.INTEGER,
+            new String[] {serviceId, serviceId + EXPIRATIONS_SUFFIX},
+            toAdd.getKey(), value, expected == null ? "" : expected, expiresAt).get();
+        return (created != null) && (created == 1);
+    }
+
+    /**
+     * @return true if the serialized entry exists and it is not expired.
+     */
+    private boolean isValid(String redisValue) {
+        if (redisValue == null) {
+            return false;
+        }
+
+        try {
+            return !new RedisEntry(null, redisValue).getEntry().isExpired();
+        } catch (RedisEntryException e) {
+            // the entry exists, only its content cannot be read
+            return true;
+        }
+    }
+
+    /**
+     * Sends the index of the expiration without waiting for it, so it is pipelined with the write of the entry.
+     *
+     * @return future of the command, or null if the entry does not expire.
+     */
+    private RedisFuture<Long> indexExpiration(String serviceId, KeyValue keyValue) {
+        return indexExpiration(serviceId, Collections.singletonList(keyValue));
+    }
+
+    private RedisFuture<Long> indexExpiration(String serviceId, Collection<KeyValue> keyValues) {
+        List<Object> scoresAndValues = new ArrayList<>();
+        for (KeyValue keyValue : keyValues) {
+            if (keyValue.hasExpiration()) {
+                scoresAndValues.add((double) keyValue.getExpiresAt());
+                scoresAndValues.add(keyValue.getKey());
+            }
+        }
+
+        if (scoresAndValues.isEmpty()) {
+            return null;
+        }
+        return redis.zadd(serviceId + EXPIRATIONS_SUFFIX, scoresAndValues.toArray());
+    }
+
+    private void await(RedisFuture<?> future) throws ExecutionException, InterruptedException {
+        if (future != null) {
+            future.get();
+        }
+    }
+
     private void handleWriteOperationExecutionException(ExecutionException e) throws RedisOutOfMemoryException {
         Throwable cause = e.getCause();
         if (cause instanceof RedisCommandExecutionException && cause.getMessage().contains("maxmemory")) {
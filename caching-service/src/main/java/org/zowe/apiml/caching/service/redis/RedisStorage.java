@@ -18,9 +18,7 @@ import org.zowe.apiml.caching.service.StorageException;
 import org.zowe.apiml.caching.service.redis.exceptions.RedisOutOfMemoryException;
 import org.zowe.apiml.caching.service.redis.exceptions.RetryableRedisException;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Class handles requests from controller and orchestrates operations on the low level RedisOperator class.
@@ -29,6 +27,9 @@ import java.util.Map;
  * configured memory, or there is not enough memory available and a no eviction policy is used, an error message is returned to the user.
  * If another entry will be evicted to make space for a create or update operation, no warning is logged and the eviction
  * is left to Redis.
+ * <p>
+ * Expired entries are ignored on read and replaced on create. They are removed periodically by {@link #removeExpired()},
+ * so the writes do not wait for it.
  */
 @Slf4j
 public class RedisStorage implements Storage {
@@ -64,7 +65,7 @@ public class RedisStorage implements Storage {
         log.info("Reading entry: {}|{}", serviceId, key);
 
         RedisEntry result = redis.get(serviceId, key);
-        if (result == null) {
+        if (result == null || result.getEntry().isExpired()) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
         }
         return result.getEntry();
@@ -88,6 +89,20 @@ public class RedisStorage implements Storage {
         return toUpdate;
     }
 
+    @Override
+    @Retryable(value = RetryableRedisException.class)
+    public KeyValue upsert(String serviceId, KeyValue toStore) {
+        log.info("Storing entry: {}|{}|{}", serviceId, toStore.getKey(), toStore.getValue());
+
+        RedisEntry entryToStore = new RedisEntry(serviceId, toStore);
+        try {
+            redis.set(entryToStore);
+        } catch (RedisOutOfMemoryException e) {
+            throw new StorageException(Messages.INSUFFICIENT_STORAGE.getKey(), Messages.INSUFFICIENT_STORAGE.getStatus());
+        }
+        return toStore;
+    }
+
     @Override
     @Retryable(value = RetryableRedisException.class)
     public KeyValue delete(String serviceId, String toDelete) {
@@ -102,6 +117,44 @@ public class RedisStorage implements Storage {
         return entryToDelete.getEntry();
     }
 
+    @Override
+    @Retryable(value = RetryableRedisException.class)
+    public Map<String, KeyValue> readBatch(String serviceId, Collection<String> keys) {
+        log.info("Reading entries: {}|{}", serviceId, keys);
+
+        Map<String, KeyValue> readResult = new HashMap<>();
+        for (RedisEntry redisEntry : redis.getBatch(serviceId, keys)) {
+            if (redisEntry.getEntry().isExpired()) {
+                continue;
+            }
+            readResult.put(redisEntry.getEntry().getKey(), redisEntry.getEntry());
+        }
+        return readResult;
+    }
+
+    @Override
+    @Retryable(value = RetryableRedisException.class)
+    public void upsertBatch(String serviceId, Collection<KeyValue> toStore) {
+        log.info("Storing entries: {}|{}", serviceId, toStore.size());
+
+        List<RedisEntry> entriesToStore = new ArrayList<>(toStore.size());
+        toStore.forEach(keyValue -> entriesToStore.add(new RedisEntry(serviceId, keyValue)));
+        try {
+            redis.setBatch(serviceId, entriesToStore);
+        } catch (RedisOutOfMemoryException e) {
+            throw new StorageException(Messages.INSUFFICIENT_STORAGE.getKey(), Messages.INSUFFICIENT_STORAGE.getStatus());
+        }
+    }
+
+    @Override
+    @Retryable(value = RetryableRedisException.class)
+    public void deleteBatch(String serviceId, Collection<String> toDelete) {
+        log.info("Deleting entries: {}|{}", serviceId, toDelete);
+
+        long deleted = redis.deleteBatch(serviceId, toDelete);
+        log.info("Deleted {} entries for {}", deleted, serviceId);
+    }
+
     @Override
     @Retryable(value = RetryableRedisException.class)
     public Map<String, KeyValue> readForService(String serviceId) {
@@ -111,6 +164,9 @@ public class RedisStorage implements Storage {
         Map<String, KeyValue> readResult = new HashMap<>();
 
         for (RedisEntry redisEntry : redisResult) {
+            if (redisEntry.getEntry().isExpired()) {
+                continue;
+            }
             readResult.put(redisEntry.getEntry().getKey(), redisEntry.getEntry());
         }
         return readResult;
@@ -126,4 +182,12 @@ public class RedisStorage implements Storage {
             log.info("No entries were deleted for {}", serviceId);
         }
     }
+
+    @Override
+    public void removeExpired() {
+        for (String serviceId : redis.getServicesWithExpiration()) {
+            long removed = redis.removeExpired(serviceId);
+            log.debug("Removed {} expired entries for {}", removed, serviceId);
+        }
+    }
 }
@@ -50,6 +50,7 @@ public class VsamFile implements Closeable {
     private static final String ERROR_INITIALIZING_STORAGE_MESSAGE_KEY = "org.zowe.apiml.cache.errorInitializingStorage";
     private static final String STORAGE_TYPE = "VSAM";
     private static final Pattern REGEX_CORRECT_FILENAME = Pattern.compile("^//'.*'");
+    private static final byte[] IGNORED_KEY = {0x40}; // the key is not used to locate the first record
 
     public VsamFile(VsamConfig config, VsamConfig.VsamOptions options, ApimlLogger apimlLogger) {
         this(config, options, false, apimlLogger);
@@ -111,17 +112,38 @@ public class VsamFile implements Closeable {
     }
 
     public Optional<VsamRecord> create(VsamRecord vsamRec) {
+        return create(vsamRec, () -> { });
+    }
+
+    /**
+     * Create the record. An expired record with the same key is replaced by it.
+     *
+     * @param vsamRec      record to create
+     * @param beforeCreate action run before a new record is written, e.g. eviction of another record. It is not run
+     *                     when an expired record is replaced, the number of records does not change then
+     * @return the created record, empty if a valid record with the same key exists
+     */
+    public Optional<VsamRecord> create(VsamRecord vsamRec, Runnable beforeCreate) {
         log.info("Attempting to create record: {}", vsamRec);
 
         return recordOperation(vsamRec, new RecordHandler() {
             @Override
-            public Optional<VsamRecord> handleRecordFound() {
-                log.info("The record already exists and will not be created. Use update instead.");
-                return Optional.empty();
+            public Optional<VsamRecord> handleRecordFound() throws VsamRecordException, ZFileException {
+                byte[] recBuf = new byte[vsamConfig.getRecordLength()];
+                zfile.read(recBuf);
+                if (!isExpired(recBuf)) {
+                    log.info("The record already exists and will not be created. Use update instead.");
+                    return Optional.empty();
+                }
+
+                log.info("Replacing expired record: {}", vsamRec);
+                zfile.update(vsamRec.getBytes());
+                return Optional.of(vsamRec);
             }
 
             @Override
             public Optional<VsamRecord> handleNoRecordFound() throws VsamRecordException, ZFileException {
+                beforeCreate.run();
                 log.info("Writing Record: {}", vsamRec);
                 zfile.write(vsamRec.getBytes());
                 return Optional.of(vsamRec);
@@ -157,6 +179,37 @@ public class VsamFile implements Closeable {
         });
     }
 
+    /**
+     * Update the record if it exists, otherwise create it. The record is located just once.
+     *
+     * @param vsamRec      record to store
+     * @param beforeCreate action run before a new record is written, e.g. eviction of another record
+     * @return the stored record
+     */
+    public Optional<VsamRecord> upsert(VsamRecord vsamRec, Runnable beforeCreate) {
+        log.info("Attempting to upsert record: {}", vsamRec);
+
+        return recordOperation(vsamRec, new RecordHandler() {
+            @Override
+            public Optional<VsamRecord> handleRecordFound() throws VsamRecordException, ZFileException {
+                byte[] recBuf = new byte[vsamConfig.getRecordLength()];
+                zfile.read(recBuf); //has to be read before update
+                log.info("Will update record: {}", vsamRec);
+                int nUpdated = zfile.update(vsamRec.getBytes());
+                log.info("ZFile.update return value: {}", nUpdated);
+                return Optional.of(vsamRec);
+            }
+
+            @Override
+            public Optional<VsamRecord> handleNoRecordFound() throws VsamRecordException, ZFileException {
+                beforeCreate.run();
+                log.info("Writing Record: {}", vsamRec);
+                zfile.write(vsamRec.getBytes());
+                return Optional.of(vsamRec);
+            }
+        });
+    }
+
     public Optional<VsamRecord> delete(VsamRecord vsamRec) {
         log.info("Attempting to delete record: {}", vsamRec);
 
@@ -206,11 +259,19 @@ public class VsamFile implements Closeable {
         return returned;
     }
 
-    public void deleteForService(String serviceId) {
+    /**
+     * Delete all the records of the service.
+     *
+     * @return number of deleted records
+     */
+    public int deleteForService(String serviceId) {
+        int[] deleted = {0};
         serviceWideOperation(serviceId, (zfile, vsamRec) -> {
             log.debug("Delete the record");
             zfile.delrec();
+            deleted[0]++;
         });
+        return deleted[0];
     }
 
     private void serviceWideOperation(String serviceId, ServiceWideOperation operation) {
@@ -283,24 +344,79 @@ public class VsamFile implements Closeable {
         return Optional.of(arrayToStoreIn);
     }
 
+    /**
+     * Delete all the expired records in the file. The file has no index of the expiration, so the whole file is read
+     * sequentially. It is not limited by the number of records, otherwise the expired records at the end of a big file
+     * would never be removed. The size of the file is limited by the eviction anyway.
+     *
+     * @return number of deleted records
+     */
+    public int deleteExpired() {
+        int deleted = 0;
+
+        try {
+            rewind();
+            byte[] recBuf = new byte[vsamConfig.getRecordLength()];
+
+            while (zfile.read(recBuf) != -1) {
+                if (isExpired(recBuf)) {
+                    zfile.delrec();
+                    deleted++;
+                }
+            }
+        } catch (ZFileException e) {
+            log.info(e.toString());
+        }
+        return deleted;
+    }
+
+    private boolean isExpired(byte[] recBuf) {
+        try {
+            return new VsamRecord(vsamConfig, recBuf).getKeyValue().isExpired();
+        } catch (VsamRecordException e) {
+            log.info(VSAM_RECORD_ERROR_MESSAGE, e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Check that the opened file can still be used, i.e. it can be positioned at its first record. The dataset could
+     * have been closed or reallocated while the file was waiting in the pool.
+     *
+     * @return true if the file can be used by the next operation
+     */
+    public boolean isUsable() {
+        if (zfile == null) {
+            return false;
+        }
+
+        try {
+            rewind();
+            return true;
+        } catch (ZFileException e) {
+            log.debug("The opened VSAM file cannot be used anymore: {}", e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Count all the records in the file. The whole file is read, the result is used as the true size of the storage
+     * (at the start and after the removal of the expired records), so it cannot be limited by the number of records.
+     *
+     * @return number of records in the file
+     */
     public Integer countAllRecords() {
         int recordsCounter = 0;
 
         try {
+            rewind();
             byte[] recBuf = new byte[vsamConfig.getRecordLength()];
 
-            int overflowProtection = 10000;
             while (zfile.read(recBuf) != -1) {
 
                 log.trace("RecBuf: {}", recBuf); //NOSONAR
 
                 recordsCounter += 1;
-
-                overflowProtection--;
-                if (overflowProtection <= 0) {
-                    log.info("Maximum number of records retrieved, stopping the retrieval");
-                    break;
-                }
             }
         } catch (ZFileException e) {
             log.info(e.toString());
@@ -308,6 +424,13 @@ public class VsamFile implements Closeable {
         return recordsCounter;
     }
 
+    /**
+     * Position the file at the first record, the opened file could have been used by previous operations.
+     */
+    private void rewind() throws ZFileException {
+        zfile.locate(IGNORED_KEY, ZFileConstants.LOCATE_KEY_FIRST);
+    }
+
     @SuppressWarnings({"squid:S1130", "squid:S1192"})
     private ZFile openZfile() throws VsamRecordException {
         return zFileProducer.openZfile();
@@ -0,0 +1,158 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.caching.service.vsam;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.zowe.apiml.caching.service.StorageException;
+import org.zowe.apiml.caching.service.vsam.config.VsamConfig;
+import org.zowe.apiml.message.log.ApimlLogger;
+
+import java.io.Closeable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Pool of opened VSAM files, so the operations don't open and close the dataset every time. The files are kept
+ * separately for each mode of opening (READ, WRITE).
+ *
+ * A borrowed file is used only by the thread executing the operation and it is returned into the pool afterwards.
+ * Files idle for longer than the configured time are closed and a fresh one is opened. A file which failed with
+ * {@link RetryableVsamException} is closed together with all the idle files of the same mode, so the retry of the
+ * operation opens the dataset again. Only the files which were idle for a while are checked to be usable (see
+ * {@link VsamFile#isUsable()}) before they are borrowed, so the frequent operations don't pay for the check.
+ *
+ * The pool size 0 means the file is opened and closed for each operation.
+ */
+@Slf4j
+public class VsamFilePool implements Closeable {
+    private final VsamConfig vsamConfig;
+    private final VsamFileProducer producer;
+    private final ApimlLogger apimlLog;
+    private final Map<VsamConfig.VsamOptions, BlockingDeque<IdleFile>> idleFiles = new EnumMap<>(VsamConfig.VsamOptions.class);
+
+    public VsamFilePool(VsamConfig vsamConfig, VsamFileProducer producer, ApimlLogger apimlLog) {
+        this.vsamConfig = vsamConfig;
+        this.producer = producer;
+        this.apimlLog = apimlLog;
+
+        for (VsamConfig.VsamOptions options : VsamConfig.VsamOptions.values()) {
+            idleFiles.put(options, new LinkedBlockingDeque<>(Math.max(1, vsamConfig.getPoolSize())));
+        }
+    }
+
+    /**
+     * Execute the operation with the file from the pool.
+     *
+     * @param options   mode the file has to be opened in
+     * @param operation operation to execute with the file
+     * @return result of the operation
+     */
+    public <T> T execute(VsamConfig.VsamOptions options, Function<VsamFile, T> operation) {
+        VsamFile file = borrow(options);
+        try {
+            T result = operation.apply(file);
+            release(options, file);
+            return result;
+        } catch (StorageException e) {
+            // the request was refused, the file itself is fine
+            release(options, file);
+            throw e;
+        } catch (RetryableVsamException e) {
+            log.debug("Operation on VSAM file failed, the opened files in mode {} are discarded: {}", options, e.getMessage());
+            file.close();
+            invalidate(options);
+            throw e;
+        } catch (RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Execute the operation without result with the file from the pool.
+     *
+     * @param options   mode the file has to be opened in
+     * @param operation operation to execute with the file
+     */
+    public void run(VsamConfig.VsamOptions options, Consumer<VsamFile> operation) {
+        execute(options, file -> {
+            operation.accept(file);
+            return null;
+        });
+    }
+
+    /**
+     * Close all the idle files of the mode.
+     */
+    public void invalidate(VsamConfig.VsamOptions options) {
+        IdleFile idleFile;
+        while ((idleFile = idleFiles.get(options).pollFirst()) != null) {
+            idleFile.getFile().close();
+        }
+    }
+
+    /**
+     * @return amount of the opened files waiting in the pool for the mode
+     */
+    public int getIdleCount(VsamConfig.VsamOptions options) {
+        return idleFiles.get(options).size();
+    }
+
+    @Override
+    public void close() {
+        for (VsamConfig.VsamOptions options : VsamConfig.VsamOptions.values()) {
+            invalidate(options);
+        }
+    }
+
+    private VsamFile borrow(VsamConfig.VsamOptions options) {
+        IdleFile idleFile;
+        while ((idleFile = idleFiles.get(options).pollFirst()) != null) {
+            if (isHealthy(idleFile) && (isRecentlyUsed(idleFile) || idleFile.getFile().isUsable())) {
+                return idleFile.getFile();
+            }
+            idleFile.getFile().close();
+        }
+
+        return producer.newVsamFile(vsamConfig, options, apimlLog);
+    }
+
+    private void release(VsamConfig.VsamOptions options, VsamFile file) {
+        BlockingDeque<IdleFile> idle = idleFiles.get(options);
+        if (vsamConfig.getPoolSize() <= 0 || !idle.offerFirst(new IdleFile(file, System.currentTimeMillis()))) {
+            file.close();
+        }
+
+        // the least recently used files are at the end, close them when they are idle for too long
+        IdleFile eldest = idle.peekLast();
+        if (eldest != null && !isHealthy(eldest) && idle.removeLastOccurrence(eldest)) {
+            eldest.getFile().close();
+        }
+    }
+
+    private boolean isHealthy(IdleFile idleFile) {
+        return System.currentTimeMillis() - idleFile.getReleased() < vsamConfig.getPoolMaxIdleTime();
+    }
+
+    private boolean isRecentlyUsed(IdleFile idleFile) {
+        return System.currentTimeMillis() - idleFile.getReleased() < vsamConfig.getPoolValidateAfterIdleTime();
+    }
+
+    @Value
+    private static class IdleFile {
+        VsamFile file;
+        long released;
+    }
+}
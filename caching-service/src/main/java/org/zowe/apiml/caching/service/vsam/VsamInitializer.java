@@ -29,10 +29,16 @@ import org.zowe.apiml.zfile.ZFileException;
 @Slf4j
 public class VsamInitializer {
 
+    /**
+     * Open the VSAM file, verify the records can be written and count the stored records.
+     *
+     * @return number of records in the file
+     */
     @Retryable(value = UnsupportedOperationException.class, maxAttempts = 10)
-    public void storageWarmup(VsamConfig config, ApimlLogger apimlLogger) {
+    public int storageWarmup(VsamConfig config, ApimlLogger apimlLogger) {
         try (VsamFile file = new VsamFile(config, VsamConfig.VsamOptions.WRITE, true, apimlLogger)) {
             log.info("Vsam file open successful");
+            return file.countAllRecords();
         }
     }
 
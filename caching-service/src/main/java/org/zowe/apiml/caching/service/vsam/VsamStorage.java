@@ -16,23 +16,32 @@ import org.zowe.apiml.caching.service.*;
 import org.zowe.apiml.caching.service.vsam.config.VsamConfig;
 import org.zowe.apiml.message.log.ApimlLogger;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class handles requests from controller and orchestrates operations on the low level VSAM File class
+ *
+ * The opened VSAM files are reused across the operations through {@link VsamFilePool}.
+ *
+ * The number of records is counted when the storage starts and then it is adjusted by the writes and deletes, so
+ * the writes don't have to read the whole file to decide about the eviction. The file can be shared by more instances
+ * of the service, the count is therefore reconciled with the file whenever the expired records are removed.
  */
 @Slf4j
 public class VsamStorage implements Storage {
 
     private VsamConfig vsamConfig;
     private EvictionStrategyProducer evictionStrategyProducer;
-    private VsamFileProducer producer = new VsamFileProducer();
+    private VsamFilePool pool;
     private ApimlLogger apimlLog;
+    private final AtomicInteger recordCount = new AtomicInteger();
 
     public VsamStorage(VsamConfig vsamConfig, VsamInitializer vsamInitializer, ApimlLogger apimlLog, EvictionStrategyProducer evictionStrategyProducer) {
+        this(vsamConfig, vsamInitializer, new VsamFileProducer(), apimlLog, evictionStrategyProducer);
+    }
+
+    public VsamStorage(VsamConfig vsamConfig, VsamInitializer vsamInitializer, VsamFileProducer producer, ApimlLogger apimlLog, EvictionStrategyProducer evictionStrategyProducer) {
         log.info("Using VSAM storage for the cached data");
 
         this.apimlLog = apimlLog;
@@ -46,15 +55,11 @@ public class VsamStorage implements Storage {
 
         this.vsamConfig = vsamConfig;
         this.evictionStrategyProducer = evictionStrategyProducer;
+        this.pool = new VsamFilePool(vsamConfig, producer, apimlLog);
 
         log.info("Using Vsam configuration: {}", vsamConfig);
-        vsamInitializer.storageWarmup(vsamConfig, apimlLog);
-    }
-
-    public VsamStorage(VsamConfig vsamConfig, VsamInitializer vsamInitializer, VsamFileProducer producer, ApimlLogger apimlLogger, EvictionStrategyProducer evictionStrategyProducer) {
-        this(vsamConfig, vsamInitializer, apimlLogger, evictionStrategyProducer);
-
-        this.producer = producer;
+        recordCount.set(vsamInitializer.storageWarmup(vsamConfig, apimlLog));
+        log.info("Current Size {}.", recordCount.get());
     }
 
     private EvictionStrategy provideStrategy(VsamFile file) {
@@ -65,24 +70,17 @@ public class VsamStorage implements Storage {
     @Retryable(value = {RetryableVsamException.class, IllegalStateException.class, UnsupportedOperationException.class})
     public KeyValue create(String serviceId, KeyValue toCreate) {
         log.info("Writing record: {}|{}|{}", serviceId, toCreate.getKey(), toCreate.getValue());
-        KeyValue result = null;
-
-        try (VsamFile file = producer.newVsamFile(vsamConfig, VsamConfig.VsamOptions.WRITE, apimlLog)) {
-            toCreate.setServiceId(serviceId);
-            VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, toCreate);
-            int currentSize = file.countAllRecords();
-            log.info("Current Size {}.", currentSize);
-
-            if (aboveThreshold(currentSize)) {
-                EvictionStrategy strategy = provideStrategy(file);
-                log.info("Evicting record using the {} strategy", vsamConfig.getGeneralConfig().getEvictionStrategy());
-                strategy.evict(toCreate.getKey());
-            }
-            Optional<VsamRecord> returned = file.create(vsamRec);
-            if (returned.isPresent()) {
-                result = returned.get().getKeyValue();
-            }
-        }
+
+        toCreate.setServiceId(serviceId);
+        VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, toCreate);
+        // the replacement of an expired record does not change the count
+        KeyValue result = pool.execute(VsamConfig.VsamOptions.WRITE, file -> file.create(vsamRec, () -> {
+                if (aboveThreshold()) {
+                    evict(file, toCreate.getKey());
+                }
+                recordCount.incrementAndGet();
+            }).map(VsamRecord::getKeyValue).orElse(null)
+        );
 
         if (result == null) {
             throw new StorageException(Messages.DUPLICATE_KEY.getKey(), Messages.DUPLICATE_KEY.getStatus(), toCreate.getKey(), serviceId);
@@ -91,7 +89,10 @@ public class VsamStorage implements Storage {
         return result;
     }
 
-    private boolean aboveThreshold(int currentSize) {
+    private boolean aboveThreshold() {
+        int currentSize = recordCount.get();
+        log.debug("Current Size {}.", currentSize);
+
         return currentSize >= vsamConfig.getGeneralConfig().getMaxDataSize();
     }
 
@@ -99,17 +100,13 @@ public class VsamStorage implements Storage {
     @Retryable(value = {RetryableVsamException.class})
     public KeyValue read(String serviceId, String key) {
         log.info("Reading Record: {}|{}|{}", serviceId, key, "-");
-        KeyValue result = null;
-
-        try (VsamFile file = producer.newVsamFile(vsamConfig, VsamConfig.VsamOptions.READ, apimlLog)) {
 
-            VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, new KeyValue(key, "", serviceId));
-
-            Optional<VsamRecord> returned = file.read(vsamRec);
-            if (returned.isPresent()) {
-                result = returned.get().getKeyValue();
-            }
-        }
+        VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, new KeyValue(key, "", serviceId));
+        KeyValue result = pool.execute(VsamConfig.VsamOptions.READ, file -> file.read(vsamRec)
+            .map(VsamRecord::getKeyValue)
+            .filter(keyValue -> !keyValue.isExpired())
+            .orElse(null)
+        );
 
         if (result == null) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
@@ -122,61 +119,136 @@ public class VsamStorage implements Storage {
     @Retryable(value = {RetryableVsamException.class, IllegalStateException.class, UnsupportedOperationException.class})
     public KeyValue update(String serviceId, KeyValue toUpdate) {
         log.info("Updating Record: {}|{}|{}", serviceId, toUpdate.getKey(), toUpdate.getValue());
-        KeyValue result = null;
 
-        try (VsamFile file = producer.newVsamFile(vsamConfig, VsamConfig.VsamOptions.WRITE, apimlLog)) {
-            toUpdate.setServiceId(serviceId);
-            VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, toUpdate);
+        toUpdate.setServiceId(serviceId);
+        VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, toUpdate);
+        KeyValue result = pool.execute(VsamConfig.VsamOptions.WRITE, file -> file.update(vsamRec)
+            .map(VsamRecord::getKeyValue)
+            .orElse(null)
+        );
 
-            Optional<VsamRecord> returned = file.update(vsamRec);
-            if (returned.isPresent()) {
-                result = returned.get().getKeyValue();
-            }
+        if (result == null) {
+            throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), toUpdate.getKey(), serviceId);
         }
 
+        return result;
+    }
+
+    @Override
+    @Retryable(value = {RetryableVsamException.class, IllegalStateException.class, UnsupportedOperationException.class})
+    public KeyValue upsert(String serviceId, KeyValue toStore) {
+        log.info("Storing Record: {}|{}|{}", serviceId, toStore.getKey(), toStore.getValue());
+
+        toStore.setServiceId(serviceId);
+        VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, toStore);
+        KeyValue result = pool.execute(VsamConfig.VsamOptions.WRITE, file -> file.upsert(vsamRec, () -> {
+                if (aboveThreshold()) {
+                    evict(file, toStore.getKey());
+                }
+                recordCount.incrementAndGet();
+            }).map(VsamRecord::getKeyValue).orElse(null)
+        );
+
         if (result == null) {
-            throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), toUpdate.getKey(), serviceId);
+            throw new StorageException(Messages.INTERNAL_SERVER_ERROR.getKey(), Messages.INTERNAL_SERVER_ERROR.getStatus(),
+                vsamConfig.getFileName(), "Record was not stored", toStore.getKey());
         }
 
         return result;
     }
 
+    private void evict(VsamFile file, String key) {
+        EvictionStrategy strategy = provideStrategy(file);
+        log.info("Evicting record using the {} strategy", vsamConfig.getGeneralConfig().getEvictionStrategy());
+        if (strategy.evict(key)) {
+            recordCount.decrementAndGet();
+        }
+    }
+
     @Override
     @Retryable(value = {RetryableVsamException.class, IllegalStateException.class, UnsupportedOperationException.class})
     public KeyValue delete(String serviceId, String toDelete) {
 
         log.info("Deleting Record: {}|{}|{}", serviceId, toDelete, "-");
-        KeyValue result = null;
 
-        try (VsamFile file = producer.newVsamFile(vsamConfig, VsamConfig.VsamOptions.WRITE, apimlLog)) {
-
-            VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, new KeyValue(toDelete, "", serviceId));
-
-            Optional<VsamRecord> returned = file.delete(vsamRec);
-            if (returned.isPresent()) {
-                result = returned.get().getKeyValue();
-            }
-        }
+        VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, new KeyValue(toDelete, "", serviceId));
+        KeyValue result = pool.execute(VsamConfig.VsamOptions.WRITE, file -> file.delete(vsamRec)
+            .map(VsamRecord::getKeyValue)
+            .orElse(null)
+        );
 
         if (result == null) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), toDelete, serviceId);
         }
 
+        recordCount.decrementAndGet();
         return result;
     }
 
+    @Override
+    @Retryable(value = {RetryableVsamException.class})
+    public Map<String, KeyValue> readBatch(String serviceId, Collection<String> keys) {
+        log.info("Reading Records: {}|{}|{}", serviceId, keys, "-");
+        Map<String, KeyValue> result = new HashMap<>();
+
+        pool.run(VsamConfig.VsamOptions.READ, file -> {
+            for (String key : keys) {
+                VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, new KeyValue(key, "", serviceId));
+                file.read(vsamRec)
+                    .map(VsamRecord::getKeyValue)
+                    .filter(keyValue -> !keyValue.isExpired())
+                    .ifPresent(keyValue -> result.put(key, keyValue));
+            }
+        });
+
+        return result;
+    }
+
+    @Override
+    @Retryable(value = {RetryableVsamException.class, IllegalStateException.class, UnsupportedOperationException.class})
+    public void upsertBatch(String serviceId, Collection<KeyValue> toStore) {
+        log.info("Writing Records: {}|{}", serviceId, toStore.size());
+
+        pool.run(VsamConfig.VsamOptions.WRITE, file -> {
+            for (KeyValue keyValue : toStore) {
+                keyValue.setServiceId(serviceId);
+                VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, keyValue);
+                file.upsert(vsamRec, () -> {
+                    if (aboveThreshold()) {
+                        evict(file, keyValue.getKey());
+                    }
+                    recordCount.incrementAndGet();
+                });
+            }
+        });
+    }
+
+    @Override
+    @Retryable(value = {RetryableVsamException.class, IllegalStateException.class, UnsupportedOperationException.class})
+    public void deleteBatch(String serviceId, Collection<String> toDelete) {
+        log.info("Deleting Records: {}|{}|{}", serviceId, toDelete, "-");
+
+        pool.run(VsamConfig.VsamOptions.WRITE, file -> {
+            for (String key : toDelete) {
+                VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, new KeyValue(key, "", serviceId));
+                if (file.delete(vsamRec).isPresent()) {
+                    recordCount.decrementAndGet();
+                }
+            }
+        });
+    }
+
     @Override
     public Map<String, KeyValue> readForService(String serviceId) {
 
         log.info("Reading All Records: {}|{}|{}", serviceId, "-", "-");
         Map<String, KeyValue> result = new HashMap<>();
-        List<VsamRecord> returned;
-
-        try (VsamFile file = producer.newVsamFile(vsamConfig, VsamConfig.VsamOptions.READ, apimlLog)) {
-            returned = file.readForService(serviceId);
-        }
+        List<VsamRecord> returned = pool.execute(VsamConfig.VsamOptions.READ, file -> file.readForService(serviceId));
 
-        returned.forEach(vsamRecord -> result.put(vsamRecord.getKeyValue().getKey(), vsamRecord.getKeyValue()));
+        returned.stream()
+            .map(VsamRecord::getKeyValue)
+            .filter(keyValue -> !keyValue.isExpired())
+            .forEach(keyValue -> result.put(keyValue.getKey(), keyValue));
 
         return result;
     }
@@ -185,8 +257,37 @@ public class VsamStorage implements Storage {
     public void deleteForService(String serviceId) {
         log.info("Deleting All Records: {}|{}|{}", serviceId, "-", "-");
 
-        try (VsamFile file = producer.newVsamFile(vsamConfig, VsamConfig.VsamOptions.WRITE, apimlLog)) {
-            file.deleteForService(serviceId);
-        }
+        int deleted = pool.execute(VsamConfig.VsamOptions.WRITE, file -> file.deleteForService(serviceId));
+        recordCount.addAndGet(-deleted);
+    }
+
+    @Override
+    public void removeExpired() {
+        log.info("Deleting Expired Records");
+
+        int currentSize = pool.execute(VsamConfig.VsamOptions.WRITE, file -> {
+            int deleted = file.deleteExpired();
+            log.info("Deleted {} expired records", deleted);
+
+            // reconcile the count with the changes done by other instances sharing the file
+            return file.countAllRecords();
+        });
+
+        log.info("Current Size {}.", currentSize);
+        recordCount.set(currentSize);
+    }
+
+    /**
+     * @return number of records in the file as known to this instance
+     */
+    public int getRecordCount() {
+        return recordCount.get();
+    }
+
+    /**
+     * Close all the opened VSAM files, it is called when the storage is destroyed.
+     */
+    public void close() {
+        pool.close();
     }
 }
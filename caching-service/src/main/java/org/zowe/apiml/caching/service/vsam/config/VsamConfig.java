@@ -37,6 +37,12 @@ public class VsamConfig {
     private int recordLength;
     @Value("${caching.storage.vsam.encoding:" + ZFileConstants.DEFAULT_EBCDIC_CODE_PAGE + "}")
     private String encoding;
+    @Value("${caching.storage.vsam.pool.size:4}")
+    private int poolSize;
+    @Value("${caching.storage.vsam.pool.maxIdleTimeInMillis:60000}")
+    private long poolMaxIdleTime;
+    @Value("${caching.storage.vsam.pool.validateAfterIdleTimeInMillis:5000}")
+    private long poolValidateAfterIdleTime;
 
     public enum VsamOptions {
         READ("rb,type=record"),
@@ -26,8 +26,7 @@ import org.zowe.apiml.message.core.MessageService;
 import org.zowe.apiml.message.yaml.YamlMessageService;
 
 import javax.servlet.http.HttpServletRequest;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -195,6 +194,44 @@ class CachingControllerTest {
         }
     }
 
+    @Nested
+    class WhenUpsertKey {
+        @Test
+        void givenValidKeyValue_thenResponseNoContent() {
+            when(mockStorage.upsert(SERVICE_ID, KEY_VALUE)).thenReturn(KEY_VALUE);
+
+            ResponseEntity<?> response = underTest.upsert(KEY, KEY_VALUE, mockRequest);
+            assertThat(response.getStatusCode(), is(HttpStatus.NO_CONTENT));
+            assertThat(response.getBody(), is(nullValue()));
+            verify(mockStorage).upsert(SERVICE_ID, KEY_VALUE);
+        }
+
+        @Test
+        void givenNegativeTimeToLive_thenResponseBadRequest() {
+            KeyValue keyValue = new KeyValue(KEY, VALUE);
+            keyValue.setTtl(-1L);
+
+            ResponseEntity<?> response = underTest.upsert(KEY, keyValue, mockRequest);
+            assertThat(response.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+            verify(mockStorage, never()).upsert(any(), any());
+        }
+
+        @Test
+        void givenKeyInPathDiffersFromPayload_thenResponseBadRequest() {
+            ResponseEntity<?> response = underTest.upsert("otherKey", KEY_VALUE, mockRequest);
+            assertThat(response.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+            verify(mockStorage, never()).upsert(any(), any());
+        }
+
+        @Test
+        void givenStorageIsFull_thenResponseInsufficientStorage() {
+            when(mockStorage.upsert(SERVICE_ID, KEY_VALUE)).thenThrow(new StorageException(Messages.INSUFFICIENT_STORAGE.getKey(), Messages.INSUFFICIENT_STORAGE.getStatus()));
+
+            ResponseEntity<?> response = underTest.upsert(KEY, KEY_VALUE, mockRequest);
+            assertThat(response.getStatusCode(), is(Messages.INSUFFICIENT_STORAGE.getStatus()));
+        }
+    }
+
     @Nested
     class WhenDeleteKey {
         @Test
@@ -308,4 +345,69 @@ class CachingControllerTest {
             assertThat(result, is(values));
         }
     }
+
+    @Nested
+    class WhenBatchOperations {
+        private final List<String> keys = Arrays.asList(KEY, "key2");
+
+        @Test
+        void givenStorageReturnsValues_whenReadBatch_thenReturnProperValues() {
+            Map<String, KeyValue> values = new HashMap<>();
+            values.put(KEY, KEY_VALUE);
+            when(mockStorage.readBatch(SERVICE_ID, keys)).thenReturn(values);
+
+            ResponseEntity<?> response = underTest.readBatch(keys, mockRequest);
+            assertThat(response.getStatusCode(), is(HttpStatus.OK));
+            assertThat(response.getBody(), is(values));
+        }
+
+        @Test
+        void givenNoKeys_whenReadBatch_thenResponseBadRequest() {
+            ResponseEntity<?> response = underTest.readBatch(null, mockRequest);
+            assertThat(response.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+        }
+
+        @Test
+        void givenKeyValues_whenUpsertBatch_thenResponseNoContent() {
+            List<KeyValue> keyValues = Arrays.asList(KEY_VALUE, new KeyValue("key2", VALUE));
+
+            ResponseEntity<?> response = underTest.upsertBatch(keyValues, mockRequest);
+            assertThat(response.getStatusCode(), is(HttpStatus.NO_CONTENT));
+            verify(mockStorage).upsertBatch(SERVICE_ID, keyValues);
+        }
+
+        @Test
+        void givenInvalidKeyValue_whenUpsertBatch_thenResponseBadRequest() {
+            List<KeyValue> keyValues = Arrays.asList(KEY_VALUE, new KeyValue("key2", null));
+
+            ResponseEntity<?> response = underTest.upsertBatch(keyValues, mockRequest);
+            assertThat(response.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+            verify(mockStorage, never()).upsertBatch(any(), any());
+        }
+
+        @Test
+        void givenStorageIsFull_whenUpsertBatch_thenResponseInsufficientStorage() {
+            List<KeyValue> keyValues = Collections.singletonList(KEY_VALUE);
+            doThrow(new StorageException(Messages.INSUFFICIENT_STORAGE.getKey(), Messages.INSUFFICIENT_STORAGE.getStatus()))
+                .when(mockStorage).upsertBatch(SERVICE_ID, keyValues);
+
+            ResponseEntity<?> response = underTest.upsertBatch(keyValues, mockRequest);
+            assertThat(response.getStatusCode(), is(HttpStatus.INSUFFICIENT_STORAGE));
+        }
+
+        @Test
+        void givenKeys_whenDeleteBatch_thenResponseNoContent() {
+            ResponseEntity<?> response = underTest.deleteBatch(keys, mockRequest);
+            assertThat(response.getStatusCode(), is(HttpStatus.NO_CONTENT));
+            verify(mockStorage).deleteBatch(SERVICE_ID, keys);
+        }
+
+        @Test
+        void givenNoCertificate_whenDeleteBatch_thenReturnUnauthorized() {
+            when(mockRequest.getHeader("X-Certificate-DistinguishedName")).thenReturn(null);
+
+            ResponseEntity<?> response = underTest.deleteBatch(keys, mockRequest);
+            assertThat(response.getStatusCode(), is(HttpStatus.UNAUTHORIZED));
+        }
+    }
 }
@@ -0,0 +1,35 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.caching.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.Mockito.*;
+
+class ExpiredEntriesSweeperTest {
+
+    private final Storage storage = mock(Storage.class);
+    private final ExpiredEntriesSweeper underTest = new ExpiredEntriesSweeper(storage);
+
+    @Test
+    void givenStorage_whenSweep_thenExpiredEntriesAreRemoved() {
+        underTest.sweep();
+
+        verify(storage).removeExpired();
+    }
+
+    @Test
+    void givenStorageFails_whenSweep_thenNoExceptionIsThrown() {
+        doThrow(new RuntimeException("failure")).when(storage).removeExpired();
+
+        assertDoesNotThrow(underTest::sweep);
+    }
+}
@@ -16,8 +16,10 @@ import org.junit.jupiter.api.Test;
 import org.zowe.apiml.caching.model.KeyValue;
 import org.zowe.apiml.caching.service.StorageException;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -39,11 +41,11 @@ class InfinispanStorageTest {
     @Nested
     class WhenEntryDoesntExist {
 
-        Map<String, KeyValue> serviceStore;
+        ServiceEntries serviceStore;
 
         @BeforeEach
         void createEmptyStore() {
-            serviceStore = new HashMap<>();
+            serviceStore = new ServiceEntries();
         }
 
         @Test
@@ -69,6 +71,14 @@ class InfinispanStorageTest {
             verify(cache, times(0)).put(serviceId1, serviceStore);
         }
 
+        @Test
+        void whenUpsert_thenEntryIsCreated() {
+            when(cache.computeIfAbsent(any(), any())).thenReturn(serviceStore);
+            storage.upsert(serviceId1, TO_CREATE);
+            verify(cache, times(1)).put(serviceId1, serviceStore);
+            assertEquals(TO_CREATE, serviceStore.get(TO_CREATE.getKey()));
+        }
+
         @Test
         void whenUpdate_thenCacheIsUpdated() {
 
@@ -81,12 +91,12 @@ class InfinispanStorageTest {
 
     @Nested
     class WhenEntryExists {
-        Map<String, KeyValue> serviceStore;
+        ServiceEntries serviceStore;
 
         @BeforeEach
         void createStoreWithEntry() {
-            serviceStore = new HashMap<>();
-            serviceStore.put(TO_CREATE.getKey(), TO_CREATE);
+            serviceStore = new ServiceEntries();
+            serviceStore.putEntry(TO_CREATE);
         }
 
         @Test
@@ -111,6 +121,14 @@ class InfinispanStorageTest {
             assertEquals("val2", serviceStore.get(TO_CREATE.getKey()).getValue());
         }
 
+        @Test
+        void whenUpsert_thenEntryIsReplaced() {
+            when(cache.computeIfAbsent(any(), any())).thenReturn(serviceStore);
+            storage.upsert(serviceId1, TO_UPDATE);
+            verify(cache, times(1)).put(serviceId1, serviceStore);
+            assertEquals("val2", serviceStore.get(TO_CREATE.getKey()).getValue());
+        }
+
         @Test
         void whenDelete_thenCacheIsUpdated() {
 
@@ -123,5 +141,132 @@ class InfinispanStorageTest {
 
     }
 
+    @Nested
+    class WhenBatchOperations {
+
+        ServiceEntries serviceStore;
+
+        @BeforeEach
+        void createStore() {
+            serviceStore = new ServiceEntries();
+            serviceStore.putEntry(TO_CREATE);
+        }
+
+        @Test
+        void whenReadBatch_thenOnlyExistingAreReturned() {
+            when(cache.get(serviceId1)).thenReturn(serviceStore);
+            Map<String, KeyValue> result = storage.readBatch(serviceId1, Arrays.asList(TO_CREATE.getKey(), "missing"));
+            assertEquals(1, result.size());
+            assertEquals(TO_CREATE, result.get(TO_CREATE.getKey()));
+        }
+
+        @Test
+        void whenUpsertBatch_thenCacheIsUpdatedOnce() {
+            when(cache.computeIfAbsent(any(), any())).thenReturn(serviceStore);
+            storage.upsertBatch(serviceId1, Arrays.asList(TO_UPDATE, new KeyValue("key2", "val3")));
+            verify(cache, times(1)).put(serviceId1, serviceStore);
+            assertEquals("val2", serviceStore.get(TO_UPDATE.getKey()).getValue());
+            assertEquals("val3", serviceStore.get("key2").getValue());
+        }
+
+        @Test
+        void whenDeleteBatch_thenCacheIsUpdatedOnce() {
+            when(cache.get(serviceId1)).thenReturn(serviceStore);
+            storage.deleteBatch(serviceId1, Arrays.asList(TO_CREATE.getKey(), "missing"));
+            verify(cache, times(1)).put(serviceId1, serviceStore);
+            assertTrue(serviceStore.isEmpty());
+        }
+    }
+
+    @Nested
+    class WhenEntryHasTimeToLive {
+
+        ServiceEntries serviceStore;
+        KeyValue expired;
+
+        @BeforeEach
+        void createStoreWithExpiredEntry() {
+            expired = new KeyValue("expired", "val1", "0");
+            expired.setTtl(1L);
+            serviceStore = new ServiceEntries();
+            serviceStore.putEntry(expired);
+        }
+
+        @Test
+        void whenRead_thenExpiredEntryIsNotReturned() {
+            when(cache.get(serviceId1)).thenReturn(serviceStore);
+            assertThrows(StorageException.class, () -> storage.read(serviceId1, "expired"));
+            assertTrue(storage.readForService(serviceId1).isEmpty());
+        }
+
+        @Test
+        void whenCreate_thenExpiredEntryIsReplaced() {
+            when(cache.computeIfAbsent(any(), any())).thenReturn(serviceStore);
+            storage.create(serviceId1, new KeyValue("expired", "val2"));
+            assertEquals("val2", serviceStore.get("expired").getValue());
+        }
+
+        @Test
+        void whenAllEntriesExpire_thenServiceMapIsStoredWithLifespan() {
+            KeyValue withTtl = new KeyValue("key", "val");
+            withTtl.setTtl(60L);
+            when(cache.computeIfAbsent(any(), any())).thenReturn(serviceStore);
+            storage.upsert(serviceId1, withTtl);
+
+            assertNull(serviceStore.get("expired"));
+            verify(cache).put(eq(serviceId1), eq(serviceStore), anyLong(), eq(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Nested
+    class WhenBoundedByBytes {
+        ServiceEntries serviceStore;
+
+        @BeforeEach
+        void createStore() {
+            serviceStore = new ServiceEntries();
+            when(cache.computeIfAbsent(any(), any())).thenReturn(serviceStore);
+        }
+
+        @Test
+        void givenMapOfServiceFitsIntoLimit_thenItIsStored() {
+            storage = new InfinispanStorage(cache, TO_CREATE.getWeight());
+            storage.create(serviceId1, TO_CREATE);
+            verify(cache, times(1)).put(serviceId1, serviceStore);
+        }
+
+        @Test
+        void givenMapOfServiceIsHeavierThanLimit_thenExceptionIsThrown() {
+            storage = new InfinispanStorage(cache, TO_CREATE.getWeight());
+            serviceStore.putEntry(new KeyValue("other", "value"));
 
+            assertThrows(StorageException.class, () -> storage.upsert(serviceId1, TO_CREATE));
+            verify(cache, never()).put(any(), any());
+        }
+
+        @Test
+        void givenEntryIsDeleted_thenItsWeightIsReleased() {
+            storage = new InfinispanStorage(cache, TO_CREATE.getWeight());
+            KeyValue other = new KeyValue("other", "value");
+            serviceStore.putEntry(other);
+            when(cache.get(serviceId1)).thenReturn(serviceStore);
+
+            storage.delete(serviceId1, other.getKey());
+            storage.upsert(serviceId1, TO_CREATE);
+
+            assertEquals(TO_CREATE.getWeight(), serviceStore.getWeight());
+            verify(cache, times(2)).put(serviceId1, serviceStore);
+        }
+
+        @Test
+        void givenMapStoredWithoutWeight_thenItIsWeighedOnce() {
+            Map<String, KeyValue> storedMap = new HashMap<>();
+            storedMap.put("other", new KeyValue("other", "value"));
+            when(cache.computeIfAbsent(any(), any())).thenReturn(storedMap);
+            storage = new InfinispanStorage(cache, TO_CREATE.getWeight());
+
+            assertThrows(StorageException.class, () -> storage.upsert(serviceId1, TO_CREATE));
+            verify(cache, never()).put(any(), any());
+        }
+    }
 }
@@ -20,8 +20,13 @@ import org.zowe.apiml.caching.service.inmemory.config.InMemoryConfig;
 import org.zowe.apiml.message.core.MessageService;
 import org.zowe.apiml.message.log.ApimlLogger;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -140,6 +145,38 @@ class InMemoryStorageTest {
         }
     }
 
+    @Nested
+    class WhenValueIsUpserted {
+        @Test
+        void givenThereIsNoValueForService_thenItIsStored() {
+            underTest.upsert(serviceId, new KeyValue("username", "ValidName"));
+
+            KeyValue result = testingStorage.get(serviceId).get("username");
+            assertThat(result.getValue(), is("ValidName"));
+        }
+
+        @Test
+        void givenThereIsValueForService_thenItIsReplaced() {
+            underTest.upsert(serviceId, new KeyValue("username", "Name 1"));
+            underTest.upsert(serviceId, new KeyValue("username", "ValidName"));
+
+            KeyValue result = testingStorage.get(serviceId).get("username");
+            assertThat(result.getValue(), is("ValidName"));
+        }
+
+        @Test
+        void givenTheStorageIsFullAndStrategyIsReject_thenOnlyExistingKeyCanBeStored() {
+            config.getGeneralConfig().setMaxDataSize(1);
+            underTest = new InMemoryStorage(config, testingStorage, ApimlLogger.empty());
+            underTest.upsert(serviceId, new KeyValue("key", "willFit"));
+            underTest.upsert(serviceId, new KeyValue("key", "replaced"));
+            assertThat(testingStorage.get(serviceId).get("key").getValue(), is("replaced"));
+
+            KeyValue wontFit = new KeyValue("newKey", "wontFit");
+            assertThrows(StorageException.class, () -> underTest.upsert(serviceId, wontFit));
+        }
+    }
+
     @Nested
     class WhenValueIsRetrieved {
         @Test
@@ -214,5 +251,314 @@ class InMemoryStorageTest {
 
             assertThat(testingStorage.containsKey("username"), is(false));
         }
+
+        @Test
+        void givenServiceHasStoredValues_thenTheyAreNotCounted() {
+            underTest.create(serviceId, new KeyValue("key1", "value1"));
+            underTest.create(serviceId, new KeyValue("key2", "value2"));
+
+            underTest.deleteForService(serviceId);
+
+            assertThat(underTest.getSize(), is(0));
+            assertThat(underTest.getSizeInBytes(), is(0L));
+        }
+
+        @Test
+        void givenValueIsWrittenConcurrently_thenItIsNotCounted() {
+            Map<String, KeyValue> serviceStorage = new HashMap<String, KeyValue>() {
+                @Override
+                public KeyValue put(String key, KeyValue value) {
+                    // the storage of the service is removed after the writer obtained it
+                    underTest.deleteForService(serviceId);
+                    return super.put(key, value);
+                }
+            };
+            testingStorage.put(serviceId, serviceStorage);
+
+            underTest.upsert(serviceId, new KeyValue("key", "value"));
+
+            assertThat(serviceStorage.isEmpty(), is(true));
+            assertThat(underTest.getSize(), is(0));
+            assertThat(underTest.getSizeInBytes(), is(0L));
+        }
+    }
+
+    @Nested
+    class WhenBatchOperations {
+        @Test
+        void givenSomeKeysExist_whenReadBatch_thenOnlyExistingAreReturned() {
+            underTest.create(serviceId, new KeyValue("key1", "value1"));
+            underTest.create(serviceId, new KeyValue("key2", "value2"));
+
+            Map<String, KeyValue> result = underTest.readBatch(serviceId, Arrays.asList("key1", "key3"));
+            assertThat(result.size(), is(1));
+            assertThat(result.get("key1").getValue(), is("value1"));
+        }
+
+        @Test
+        void givenUnknownService_whenReadBatch_thenEmptyMapIsReturned() {
+            assertThat(underTest.readBatch("unknown", Arrays.asList("key1")).isEmpty(), is(true));
+        }
+
+        @Test
+        void givenExistingAndNewKeys_whenUpsertBatch_thenAllAreStored() {
+            underTest.create(serviceId, new KeyValue("key1", "value1"));
+
+            underTest.upsertBatch(serviceId, Arrays.asList(new KeyValue("key1", "updated"), new KeyValue("key2", "created")));
+
+            assertThat(testingStorage.get(serviceId).get("key1").getValue(), is("updated"));
+            assertThat(testingStorage.get(serviceId).get("key2").getValue(), is("created"));
+        }
+
+        @Test
+        void givenTheStorageIsFullAndStrategyIsReject_whenUpsertBatch_thenExceptionIsRaised() {
+            config.getGeneralConfig().setMaxDataSize(1);
+            underTest.create(serviceId, new KeyValue("key1", "value1"));
+
+            List<KeyValue> toStore = Arrays.asList(new KeyValue("key1", "updated"), new KeyValue("key2", "created"));
+            assertThrows(StorageException.class, () -> underTest.upsertBatch(serviceId, toStore));
+        }
+
+        @Test
+        void givenKeys_whenDeleteBatch_thenTheyAreRemoved() {
+            underTest.create(serviceId, new KeyValue("key1", "value1"));
+            underTest.create(serviceId, new KeyValue("key2", "value2"));
+
+            underTest.deleteBatch(serviceId, Arrays.asList("key1", "unknown"));
+
+            assertThat(testingStorage.get(serviceId).containsKey("key1"), is(false));
+            assertThat(testingStorage.get(serviceId).containsKey("key2"), is(true));
+        }
+    }
+
+    @Nested
+    class WhenValueHasTimeToLive {
+        private KeyValue expired() {
+            KeyValue keyValue = new KeyValue("expired", "value", "0");
+            keyValue.setTtl(1L);
+            return keyValue;
+        }
+
+        @Test
+        void givenValueIsExpired_thenItIsNotReturned() {
+            underTest.create(serviceId, expired());
+
+            assertThrows(StorageException.class, () -> underTest.read(serviceId, "expired"));
+            assertThat(underTest.readForService(serviceId).isEmpty(), is(true));
+            assertThat(underTest.readBatch(serviceId, Arrays.asList("expired")).isEmpty(), is(true));
+        }
+
+        @Test
+        void givenValueIsExpired_thenItCanBeCreatedAgain() {
+            underTest.create(serviceId, expired());
+            underTest.create(serviceId, new KeyValue("expired", "fresh"));
+
+            assertThat(underTest.read(serviceId, "expired").getValue(), is("fresh"));
+        }
+
+        @Test
+        void givenValueIsNotExpired_thenItIsReturned() {
+            KeyValue keyValue = new KeyValue("valid", "value");
+            keyValue.setTtl(3600L);
+            underTest.create(serviceId, keyValue);
+
+            assertThat(underTest.read(serviceId, "valid"), is(keyValue));
+        }
+
+        @Test
+        void givenExpiredValues_whenRemoveExpired_thenOnlyExpiredAreRemoved() {
+            underTest.create(serviceId, expired());
+            underTest.create(serviceId, new KeyValue("valid", "value"));
+
+            underTest.removeExpired();
+
+            assertThat(testingStorage.get(serviceId).containsKey("expired"), is(false));
+            assertThat(testingStorage.get(serviceId).containsKey("valid"), is(true));
+        }
+
+        @Test
+        void givenTheStorageIsFullOfExpiredValues_thenNewValueFitsWithoutEviction() {
+            config.getGeneralConfig().setMaxDataSize(1);
+            underTest = new InMemoryStorage(config, testingStorage, ApimlLogger.empty());
+            underTest.create(serviceId, expired());
+
+            underTest.create(serviceId, new KeyValue("key", "willFit"));
+            assertThat(underTest.read(serviceId, "key").getValue(), is("willFit"));
+        }
+    }
+
+    @Nested
+    class WhenCountingSize {
+        @Test
+        void givenEntriesAreStoredAndRemoved_thenSizeIsKeptWithoutScanning() {
+            underTest.create(serviceId, new KeyValue("key1", "value"));
+            underTest.upsert(serviceId, new KeyValue("key1", "replaced"));
+            underTest.upsert("otherService", new KeyValue("key2", "value"));
+            underTest.upsertBatch(serviceId, Arrays.asList(new KeyValue("key3", "value"), new KeyValue("key4", "value")));
+            assertThat(underTest.getSize(), is(4));
+
+            underTest.delete(serviceId, "key1");
+            underTest.deleteBatch(serviceId, Arrays.asList("key3", "missing"));
+            assertThat(underTest.getSize(), is(2));
+
+            underTest.deleteForService("otherService");
+            assertThat(underTest.getSize(), is(1));
+        }
+
+        @Test
+        void givenStorageWithEntries_thenInitialSizeIsCounted() {
+            Map<String, KeyValue> serviceStorage = new HashMap<>();
+            serviceStorage.put("key", new KeyValue("key", "value"));
+            testingStorage.put(serviceId, serviceStorage);
+
+            underTest = new InMemoryStorage(config, testingStorage, ApimlLogger.empty());
+            assertThat(underTest.getSize(), is(1));
+        }
+
+        @Test
+        void givenConcurrentWriters_thenNoEntryIsLost() throws InterruptedException {
+            config.getGeneralConfig().setMaxDataSize(100000);
+            underTest = new InMemoryStorage(config, mock(MessageService.class));
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 1000; i++) {
+                String key = "key" + i;
+                executor.execute(() -> underTest.create(serviceId, new KeyValue(key, "value")));
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+
+            assertThat(underTest.getSize(), is(1000));
+            assertThat(underTest.readForService(serviceId).size(), is(1000));
+        }
+    }
+
+    @Nested
+    class WhenTrackingUsage {
+        private void useStrategy(Strategies strategy) {
+            config.getGeneralConfig().setEvictionStrategy(strategy.getKey());
+            config.getGeneralConfig().setMaxDataSize(2);
+            underTest = new InMemoryStorage(config, testingStorage, ApimlLogger.empty());
+        }
+
+        @Test
+        void givenStrategyIsLru_thenLeastRecentlyUsedIsEvicted() {
+            useStrategy(Strategies.LRU);
+            underTest.create(serviceId, new KeyValue("key1", "value"));
+            underTest.create(serviceId, new KeyValue("key2", "value"));
+            underTest.read(serviceId, "key1");
+
+            underTest.create(serviceId, new KeyValue("key3", "value"));
+
+            assertThat(testingStorage.get(serviceId).containsKey("key1"), is(true));
+            assertThat(testingStorage.get(serviceId).containsKey("key2"), is(false));
+            assertThat(underTest.getSize(), is(2));
+            assertThat(underTest.getEvictionCount(), is(1L));
+        }
+
+        @Test
+        void givenStrategyIsTinyLfu_thenStorageStaysWithinCapacity() {
+            useStrategy(Strategies.TINY_LFU);
+            for (int i = 0; i < 10; i++) {
+                underTest.upsert(serviceId, new KeyValue("key" + i, "value"));
+            }
+
+            assertThat(testingStorage.get(serviceId).size(), is(2));
+            assertThat(underTest.getSize(), is(2));
+            assertThat(underTest.getEvictionCount(), is(8L));
+        }
+
+        @Test
+        void givenEntriesWereRemoved_thenTheyAreNotEvictedAgain() {
+            useStrategy(Strategies.LRU);
+            underTest.create("otherService", new KeyValue("key1", "value"));
+            underTest.create(serviceId, new KeyValue("key2", "value"));
+            underTest.deleteForService("otherService");
+            underTest.create(serviceId, new KeyValue("key3", "value"));
+
+            underTest.create(serviceId, new KeyValue("key4", "value"));
+
+            assertThat(testingStorage.get(serviceId).containsKey("key2"), is(false));
+            assertThat(testingStorage.get(serviceId).containsKey("key3"), is(true));
+            assertThat(underTest.getEvictionCount(), is(1L));
+        }
+
+        @Test
+        void givenReads_thenHitsAndMissesAreCounted() {
+            underTest.create(serviceId, new KeyValue("key", "value"));
+
+            underTest.read(serviceId, "key");
+            assertThrows(StorageException.class, () -> underTest.read(serviceId, "missing"));
+            underTest.readBatch(serviceId, Arrays.asList("key", "missing"));
+            underTest.readBatch("otherService", Arrays.asList("key", "missing"));
+
+            assertThat(underTest.getHitCount(), is(2L));
+            assertThat(underTest.getMissCount(), is(4L));
+        }
+    }
+
+    @Nested
+    class WhenBoundedByBytes {
+        private final KeyValue small = new KeyValue("small", "value");
+
+        private void useStrategy(Strategies strategy, long maxSizeInBytes) {
+            config.getGeneralConfig().setEvictionStrategy(strategy.getKey());
+            config.getGeneralConfig().setMaxDataSize(100);
+            config.getGeneralConfig().setMaxSizeInBytes(maxSizeInBytes);
+            underTest = new InMemoryStorage(config, testingStorage, ApimlLogger.empty());
+        }
+
+        @Test
+        void givenEntriesAreStoredAndRemoved_thenWeightIsCounted() {
+            KeyValue first = new KeyValue("key1", "value");
+            KeyValue replacement = new KeyValue("key1", "much longer value");
+            KeyValue second = new KeyValue("key2", "value");
+
+            underTest.create(serviceId, first);
+            underTest.upsert(serviceId, second);
+            assertThat(underTest.getSizeInBytes(), is(first.getWeight() + second.getWeight()));
+
+            underTest.update(serviceId, replacement);
+            assertThat(underTest.getSizeInBytes(), is(replacement.getWeight() + second.getWeight()));
+
+            underTest.delete(serviceId, "key2");
+            assertThat(underTest.getSizeInBytes(), is(replacement.getWeight()));
+
+            underTest.deleteForService(serviceId);
+            assertThat(underTest.getSizeInBytes(), is(0L));
+        }
+
+        @Test
+        void givenHeavyEntry_thenAsManyEntriesAsNeededAreEvicted() {
+            useStrategy(Strategies.LRU, 3 * small.getWeight());
+            underTest.create(serviceId, new KeyValue("key1", "value"));
+            underTest.create(serviceId, new KeyValue("key2", "value"));
+            underTest.create(serviceId, new KeyValue("key3", "value"));
+
+            char[] heavyValue = new char[(int) small.getWeight() / 2];
+            Arrays.fill(heavyValue, 'x');
+            underTest.create(serviceId, new KeyValue("heavy", new String(heavyValue)));
+
+            assertThat(testingStorage.get(serviceId).containsKey("key1"), is(false));
+            assertThat(testingStorage.get(serviceId).containsKey("key2"), is(false));
+            assertThat(testingStorage.get(serviceId).containsKey("key3"), is(true));
+            assertThat(underTest.getEvictionCount(), is(2L));
+            assertThat(underTest.getSizeInBytes() <= 3 * small.getWeight(), is(true));
+        }
+
+        @Test
+        void givenEntryHeavierThanLimit_thenExceptionIsThrown() {
+            useStrategy(Strategies.LRU, small.getWeight() - 1);
+
+            assertThrows(StorageException.class, () -> underTest.create(serviceId, small));
+        }
+
+        @Test
+        void givenStrategyIsReject_thenExceptionIsThrownWhenBytesAreExhausted() {
+            useStrategy(Strategies.REJECT, small.getWeight());
+            underTest.create(serviceId, small);
+
+            KeyValue other = new KeyValue("other", "value");
+            assertThrows(StorageException.class, () -> underTest.create(serviceId, other));
+        }
     }
 }
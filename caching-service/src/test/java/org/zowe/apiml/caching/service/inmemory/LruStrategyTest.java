@@ -0,0 +1,104 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.caching.service.inmemory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.caching.model.KeyValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class LruStrategyTest {
+    private LruStrategy underTest;
+    private Map<String, KeyValue> dataForStorage;
+    private List<KeyValue> evicted;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Map<String, KeyValue>> storage = new ConcurrentHashMap<>();
+        dataForStorage = new ConcurrentHashMap<>();
+        storage.put("test-service", dataForStorage);
+        evicted = new ArrayList<>();
+        underTest = new LruStrategy(storage, evicted::add);
+
+        store("key1");
+        store("key2");
+        store("key3");
+    }
+
+    private void store(String key) {
+        dataForStorage.put(key, new KeyValue(key, "value"));
+        underTest.recordWrite("test-service", key);
+    }
+
+    @Test
+    void givenNoAccess_thenLeastRecentlyWrittenIsEvicted() {
+        underTest.evict("key4");
+
+        assertThat(dataForStorage.containsKey("key1"), is(false));
+        assertThat(evicted.size(), is(1));
+        assertThat(evicted.get(0).getKey(), is("key1"));
+    }
+
+    @Test
+    void givenEntryWasRead_thenItIsNotEvicted() {
+        underTest.recordRead("test-service", "key1");
+
+        underTest.evict("key4");
+
+        assertThat(dataForStorage.containsKey("key1"), is(true));
+        assertThat(dataForStorage.containsKey("key2"), is(false));
+    }
+
+    @Test
+    void givenEntryWasRewritten_thenItIsNotEvicted() {
+        underTest.recordWrite("test-service", "key1");
+
+        underTest.evict("key4");
+
+        assertThat(dataForStorage.containsKey("key1"), is(true));
+        assertThat(dataForStorage.containsKey("key2"), is(false));
+    }
+
+    @Test
+    void givenEntryWasRemoved_thenNextOneIsEvicted() {
+        dataForStorage.remove("key1");
+        underTest.recordRemoval("test-service", "key1");
+
+        underTest.evict("key4");
+
+        assertThat(dataForStorage.containsKey("key2"), is(false));
+        assertThat(dataForStorage.size(), is(1));
+    }
+
+    @Test
+    void givenEntryDisappearedFromStorage_thenNextOneIsEvicted() {
+        dataForStorage.remove("key1");
+
+        underTest.evict("key4");
+
+        assertThat(dataForStorage.containsKey("key2"), is(false));
+        assertThat(evicted.size(), is(1));
+    }
+
+    @Test
+    void givenNoEntry_thenNothingIsEvicted() {
+        underTest = new LruStrategy(new ConcurrentHashMap<>(), evicted::add);
+
+        assertThat(underTest.evict("key"), is(false));
+        assertThat(evicted.isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.caching.service.inmemory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.caching.model.KeyValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class TinyLfuStrategyTest {
+    private static final int CAPACITY = 100;
+
+    private TinyLfuStrategy underTest;
+    private Map<String, KeyValue> dataForStorage;
+    private List<KeyValue> evicted;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Map<String, KeyValue>> storage = new ConcurrentHashMap<>();
+        dataForStorage = new ConcurrentHashMap<>();
+        storage.put("test-service", dataForStorage);
+        evicted = new ArrayList<>();
+        underTest = new TinyLfuStrategy(storage, CAPACITY, evicted::add);
+    }
+
+    private void store(String key) {
+        if (dataForStorage.size() >= CAPACITY) {
+            underTest.evict(key);
+        }
+        dataForStorage.put(key, new KeyValue(key, "value"));
+        underTest.recordWrite("test-service", key);
+    }
+
+    @Test
+    void givenFullStorage_thenOneEntryIsEvictedPerInsert() {
+        for (int i = 0; i < CAPACITY * 3; i++) {
+            store("key" + i);
+        }
+
+        assertThat(dataForStorage.size(), is(CAPACITY));
+        assertThat(evicted.size(), is(CAPACITY * 2));
+    }
+
+    @Test
+    void givenPopularEntries_thenOneTimeEntriesDoNotPushThemOut() {
+        for (int i = 0; i < CAPACITY; i++) {
+            store("popular" + i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < CAPACITY; i++) {
+                underTest.recordRead("test-service", "popular" + i);
+            }
+        }
+
+        for (int i = 0; i < CAPACITY * 5; i++) {
+            store("scan" + i);
+        }
+
+        long popularLeft = dataForStorage.keySet().stream().filter(key -> key.startsWith("popular")).count();
+        assertThat(popularLeft >= CAPACITY - 2, is(true));
+    }
+
+    @Test
+    void givenWindowEntryIsUsedMoreThanMainVictim_thenItIsAdmitted() {
+        for (int i = 0; i < CAPACITY; i++) {
+            store("key" + i);
+        }
+        // the last stored entry is in the window, the first one is the victim in the main area
+        for (int i = 0; i < 3; i++) {
+            underTest.recordRead("test-service", "key" + (CAPACITY - 1));
+        }
+
+        store("newKey");
+
+        assertThat(dataForStorage.containsKey("key" + (CAPACITY - 1)), is(true));
+        assertThat(dataForStorage.containsKey("key0"), is(false));
+    }
+
+    @Test
+    void givenNoFreeSpace_thenWindowEntryIsNotAdmittedWithoutCompetition() {
+        // the storage holds more entries than the capacity, e.g. it was filled before the tracking started
+        for (int i = 0; i < CAPACITY; i++) {
+            dataForStorage.put("key" + i, new KeyValue("key" + i, "value"));
+            underTest.recordWrite("test-service", "key" + i);
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < CAPACITY - 1; i++) {
+                underTest.recordRead("test-service", "key" + i);
+            }
+        }
+        dataForStorage.put("extra", new KeyValue("extra", "value"));
+        underTest.recordWrite("test-service", "extra");
+
+        underTest.evict("newKey");
+
+        assertThat(evicted.size(), is(1));
+        assertThat(evicted.get(0).getKey(), is("key" + (CAPACITY - 1)));
+        assertThat(dataForStorage.containsKey("key0"), is(true));
+    }
+
+    @Test
+    void givenRemovedEntry_thenItIsNotSelected() {
+        store("key1");
+        store("key2");
+        dataForStorage.remove("key1");
+        underTest.recordRemoval("test-service", "key1");
+
+        underTest.evict("key3");
+
+        assertThat(evicted.size(), is(1));
+        assertThat(evicted.get(0).getKey(), is("key2"));
+        assertThat(dataForStorage.isEmpty(), is(true));
+    }
+}
@@ -9,9 +9,11 @@
  */
 package org.zowe.apiml.caching.service.redis;
 
+import io.lettuce.core.Range;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisCommandExecutionException;
 import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.masterreplica.StatefulRedisMasterReplicaConnection;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,9 +27,7 @@ import org.zowe.apiml.caching.service.redis.exceptions.RedisEntryException;
 import org.zowe.apiml.caching.service.redis.exceptions.RedisOutOfMemoryException;
 import org.zowe.apiml.caching.service.redis.exceptions.RetryableRedisException;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ExecutionException;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -35,6 +35,7 @@ import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -61,28 +62,72 @@ class RedisOperatorTest {
         underTest = new RedisOperator(redisClient, redisConnection, redisCommands);
     }
 
+    private static String serializedExpiredEntry() {
+        return "{\"key\":\"key\",\"value\":\"old\",\"created\":\"0\",\"ttl\":1}";
+    }
+
     @Nested
     class whenCreating {
 
         @Mock
-        private RedisFuture<Boolean> future;
+        private RedisFuture<Long> future;
+
+        @Mock
+        private RedisFuture<Long> replaceFuture;
+
+        @Mock
+        private RedisFuture<String> currentFuture;
 
         @BeforeEach
         void mockRedisCommand() {
-            when(redisCommands.hsetnx(any(), any(), any())).thenReturn(future);
+            when(redisCommands.<Long>eval(eq(RedisOperator.CREATE_SCRIPT), eq(ScriptOutputType.INTEGER), any(String[].class),
+                eq(KEY), eq(VALID_SERIALIZED_ENTRY), eq(""), eq(""))).thenReturn(future);
+        }
+
+        private void givenCurrentEntry(String current) throws ExecutionException, InterruptedException {
+            when(redisCommands.hget(SERVICE_ID, KEY)).thenReturn(currentFuture);
+            when(currentFuture.get()).thenReturn(current);
         }
 
         @Test
         void givenNewEntry_thenReturnTrue() throws ExecutionException, InterruptedException, RedisOutOfMemoryException {
-            when(future.get()).thenReturn(true);
+            when(future.get()).thenReturn(1L);
 
             boolean result = underTest.create(REDIS_ENTRY);
             assertTrue(result);
+            verify(redisCommands).eval(RedisOperator.CREATE_SCRIPT, ScriptOutputType.INTEGER,
+                new String[] {SERVICE_ID, SERVICE_ID + RedisOperator.EXPIRATIONS_SUFFIX}, KEY, VALID_SERIALIZED_ENTRY, "", "");
         }
 
         @Test
         void givenExistingEntry_thenReturnFalse() throws ExecutionException, InterruptedException, RedisOutOfMemoryException {
-            when(future.get()).thenReturn(false);
+            when(future.get()).thenReturn(0L);
+            givenCurrentEntry(VALID_SERIALIZED_ENTRY);
+
+            boolean result = underTest.create(REDIS_ENTRY);
+            assertFalse(result);
+            verify(redisCommands, never()).zadd(any(), any(Object[].class));
+        }
+
+        @Test
+        void givenExpiredEntry_thenReplaceItIfNotChanged() throws ExecutionException, InterruptedException, RedisOutOfMemoryException {
+            when(future.get()).thenReturn(0L);
+            givenCurrentEntry(serializedExpiredEntry());
+            when(redisCommands.<Long>eval(eq(RedisOperator.CREATE_SCRIPT), eq(ScriptOutputType.INTEGER), any(String[].class),
+                eq(KEY), eq(VALID_SERIALIZED_ENTRY), eq(serializedExpiredEntry()), eq(""))).thenReturn(replaceFuture);
+            when(replaceFuture.get()).thenReturn(1L);
+
+            boolean result = underTest.create(REDIS_ENTRY);
+            assertTrue(result);
+        }
+
+        @Test
+        void givenExpiredEntryReplacedConcurrently_thenReturnFalse() throws ExecutionException, InterruptedException, RedisOutOfMemoryException {
+            when(future.get()).thenReturn(0L);
+            givenCurrentEntry(serializedExpiredEntry());
+            when(redisCommands.<Long>eval(eq(RedisOperator.CREATE_SCRIPT), eq(ScriptOutputType.INTEGER), any(String[].class),
+                eq(KEY), eq(VALID_SERIALIZED_ENTRY), eq(serializedExpiredEntry()), eq(""))).thenReturn(replaceFuture);
+            when(replaceFuture.get()).thenReturn(0L);
 
             boolean result = underTest.create(REDIS_ENTRY);
             assertFalse(result);
@@ -122,6 +167,41 @@ class RedisOperatorTest {
         assertFalse(result);
     }
 
+    @Nested
+    class whenSetting {
+
+        @Mock
+        private RedisFuture<Boolean> future;
+
+        @BeforeEach
+        void mockRedisCommand() {
+            when(redisCommands.hset(any(), any(), any())).thenReturn(future);
+        }
+
+        @Test
+        void givenEntry_thenSetItWithoutExistenceCheck() throws ExecutionException, InterruptedException, RedisOutOfMemoryException {
+            when(future.get()).thenReturn(true);
+
+            underTest.set(REDIS_ENTRY);
+            verify(redisCommands, times(1)).hset(SERVICE_ID, KEY, VALID_SERIALIZED_ENTRY);
+            verify(redisCommands, never()).hexists(any(), any());
+        }
+
+        @Test
+        void givenRedisOutOfMemory_thenThrowOutOfMemoryException() throws ExecutionException, InterruptedException {
+            when(future.get()).thenThrow(new ExecutionException(new RedisCommandExecutionException("maxmemory")));
+
+            assertThrows(RedisOutOfMemoryException.class, () -> underTest.set(REDIS_ENTRY));
+        }
+
+        @Test
+        void givenExecutionException_thenThrowRetryException() throws ExecutionException, InterruptedException {
+            when(future.get()).thenThrow(new ExecutionException(new Exception()));
+
+            assertThrows(RetryableRedisException.class, () -> underTest.set(REDIS_ENTRY));
+        }
+    }
+
     @Nested
     class whenUpdating {
 
@@ -129,15 +209,15 @@ class RedisOperatorTest {
         private RedisFuture<Boolean> setFuture;
 
         @Mock
-        private RedisFuture<Boolean> existsFuture;
+        private RedisFuture<String> currentFuture;
 
         @Test
         void givenExistingEntry_thenUpdateEntry() throws ExecutionException, InterruptedException, RedisOutOfMemoryException {
             when(redisCommands.hset(any(), any(), any())).thenReturn(setFuture);
             when(setFuture.get()).thenReturn(false);
 
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenReturn(true);
+            when(redisCommands.hget(any(), any())).thenReturn(currentFuture);
+            when(currentFuture.get()).thenReturn(VALID_SERIALIZED_ENTRY);
 
             boolean result = underTest.update(REDIS_ENTRY);
             assertTrue(result);
@@ -148,8 +228,8 @@ class RedisOperatorTest {
             when(redisCommands.hset(any(), any(), any())).thenReturn(setFuture);
             when(setFuture.get()).thenReturn(true);
 
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenReturn(true);
+            when(redisCommands.hget(any(), any())).thenReturn(currentFuture);
+            when(currentFuture.get()).thenReturn(VALID_SERIALIZED_ENTRY);
 
             boolean result = underTest.update(REDIS_ENTRY);
             assertFalse(result);
@@ -157,36 +237,46 @@ class RedisOperatorTest {
 
         @Test
         void givenNotExistingEntry_thenDontUpdateEntry() throws ExecutionException, InterruptedException, RedisOutOfMemoryException {
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenReturn(false);
+            when(redisCommands.hget(any(), any())).thenReturn(currentFuture);
+            when(currentFuture.get()).thenReturn(null);
 
             boolean result = underTest.update(REDIS_ENTRY);
             assertFalse(result);
         }
 
+        @Test
+        void givenExpiredEntry_thenDontUpdateEntry() throws ExecutionException, InterruptedException, RedisOutOfMemoryException {
+            when(redisCommands.hget(any(), any())).thenReturn(currentFuture);
+            when(currentFuture.get()).thenReturn(serializedExpiredEntry());
+
+            boolean result = underTest.update(REDIS_ENTRY);
+            assertFalse(result);
+            verify(redisCommands, never()).hset(any(), any(), any());
+        }
+
         @Test
         void givenRedisOutOfMemory_thenThrowOutOfMemoryException() throws ExecutionException, InterruptedException {
             when(redisCommands.hset(any(), any(), any())).thenReturn(setFuture);
             when(setFuture.get()).thenThrow(new ExecutionException(new RedisCommandExecutionException("maxmemory")));
 
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenReturn(true);
+            when(redisCommands.hget(any(), any())).thenReturn(currentFuture);
+            when(currentFuture.get()).thenReturn(VALID_SERIALIZED_ENTRY);
 
             assertThrows(RedisOutOfMemoryException.class, () -> underTest.update(REDIS_ENTRY));
         }
 
         @Test
         void givenInterruptedException_thenThrowRetryException() throws ExecutionException, InterruptedException {
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenThrow(new InterruptedException());
+            when(redisCommands.hget(any(), any())).thenReturn(currentFuture);
+            when(currentFuture.get()).thenThrow(new InterruptedException());
 
             assertThrows(RetryableRedisException.class, () -> underTest.update(REDIS_ENTRY));
         }
 
         @Test
         void givenExecutionException_thenThrowRetryException() throws ExecutionException, InterruptedException {
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenThrow(new ExecutionException(new Exception()));
+            when(redisCommands.hget(any(), any())).thenReturn(currentFuture);
+            when(currentFuture.get()).thenThrow(new ExecutionException(new Exception()));
 
             assertThrows(RetryableRedisException.class, () -> underTest.update(REDIS_ENTRY));
         }
@@ -198,8 +288,8 @@ class RedisOperatorTest {
             when(entry.getEntry()).thenReturn(KEY_VALUE);
             when(entry.getEntryAsString()).thenThrow(new RedisEntryException("error"));
 
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenReturn(true);
+            when(redisCommands.hget(any(), any())).thenReturn(currentFuture);
+            when(currentFuture.get()).thenReturn(VALID_SERIALIZED_ENTRY);
 
             boolean result = underTest.update(entry);
             assertFalse(result);
@@ -404,8 +494,8 @@ class RedisOperatorTest {
 
     @Test
     void givenRedisExecutionExceptionNotOutOfMemory_thenThrowRetryableRedisException() throws ExecutionException, InterruptedException {
-        RedisFuture<Boolean> future = (RedisFuture<Boolean>) mock(RedisFuture.class);
-        when(redisCommands.hsetnx(any(), any(), any())).thenReturn(future);
+        RedisFuture<Long> future = (RedisFuture<Long>) mock(RedisFuture.class);
+        when(redisCommands.<Long>eval(any(), any(), any(String[].class), any())).thenReturn(future);
         when(future.get()).thenThrow(new ExecutionException(new RedisCommandExecutionException("error")));
 
         assertThrows(RetryableRedisException.class, () -> underTest.create(REDIS_ENTRY));
@@ -448,4 +538,68 @@ class RedisOperatorTest {
             verify(redisClient, times(0)).shutdown();
         }
     }
+
+    @Nested
+    class whenRemovingExpired {
+
+        @Mock
+        private RedisFuture<List<String>> candidatesFuture;
+
+        @Mock
+        private RedisFuture<Long> zremFuture;
+
+        @Mock
+        private RedisFuture<List<io.lettuce.core.KeyValue<String, String>>> valuesFuture;
+
+        @Mock
+        private RedisFuture<Long> deleteFuture;
+
+        @BeforeEach
+        void mockRedisCommand() {
+            when(redisCommands.zrangebyscore(eq(SERVICE_ID + RedisOperator.EXPIRATIONS_SUFFIX), any(Range.class))).thenReturn(candidatesFuture);
+        }
+
+        @Test
+        void givenNoExpiredCandidates_thenNothingIsRemoved() throws ExecutionException, InterruptedException {
+            when(candidatesFuture.get()).thenReturn(Collections.emptyList());
+
+            assertThat(underTest.removeExpired(SERVICE_ID), is(0L));
+            verify(redisCommands, never()).hdel(any(), any());
+        }
+
+        @Test
+        void givenExpiredAndReplacedCandidates_thenOnlyExpiredAreRemoved() throws ExecutionException, InterruptedException {
+            String expiredEntry = "{\"key\":\"expired\",\"value\":\"value\",\"created\":\"0\",\"ttl\":1}";
+            when(candidatesFuture.get()).thenReturn(Arrays.asList("expired", KEY));
+            when(redisCommands.zrem(any(), any())).thenReturn(zremFuture);
+            when(redisCommands.hmget(any(), any())).thenReturn(valuesFuture);
+            when(valuesFuture.get()).thenReturn(Arrays.asList(
+                io.lettuce.core.KeyValue.just("expired", expiredEntry),
+                io.lettuce.core.KeyValue.just(KEY, VALID_SERIALIZED_ENTRY)
+            ));
+            when(redisCommands.<Long>eval(any(), any(), any(String[].class), any())).thenReturn(deleteFuture);
+            when(deleteFuture.get()).thenReturn(1L);
+
+            assertThat(underTest.removeExpired(SERVICE_ID), is(1L));
+            // the entry is deleted only if it still has the expired value
+            verify(redisCommands).eval(RedisOperator.DELETE_IF_CURRENT_SCRIPT, ScriptOutputType.INTEGER,
+                new String[] {SERVICE_ID}, "expired", expiredEntry);
+            verify(redisCommands, never()).hdel(any(), any());
+        }
+
+        @Test
+        void givenCandidateWithLaterExpiration_thenItIsIndexedAgain() throws ExecutionException, InterruptedException, RedisEntryException {
+            KeyValue keyValue = new KeyValue(KEY, VALUE);
+            keyValue.setTtl(60L);
+            String entry = new RedisEntry(SERVICE_ID, keyValue).getEntryAsString();
+            when(candidatesFuture.get()).thenReturn(Collections.singletonList(KEY));
+            when(redisCommands.zrem(any(), any())).thenReturn(zremFuture);
+            when(redisCommands.hmget(any(), any())).thenReturn(valuesFuture);
+            when(valuesFuture.get()).thenReturn(Collections.singletonList(io.lettuce.core.KeyValue.just(KEY, entry)));
+
+            assertThat(underTest.removeExpired(SERVICE_ID), is(0L));
+            verify(redisCommands).zadd(SERVICE_ID + RedisOperator.EXPIRATIONS_SUFFIX, new Object[] {(double) keyValue.getExpiresAt(), KEY});
+            verify(redisCommands, never()).eval(any(), any(), any(String[].class), any());
+        }
+    }
 }
@@ -17,10 +17,7 @@ import org.zowe.apiml.caching.service.Messages;
 import org.zowe.apiml.caching.service.StorageException;
 import org.zowe.apiml.caching.service.redis.exceptions.RedisOutOfMemoryException;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -82,6 +79,16 @@ public class RedisStorageTest {
             assertThat(result, is(KEY_VALUE));
         }
 
+        @Test
+        void givenExpiredKey_thenThrowException() {
+            KeyValue expired = new KeyValue(KEY, VALUE, "0");
+            expired.setTtl(1L);
+            when(redisOperator.get(anyString(), anyString())).thenReturn(new RedisEntry(SERVICE_ID, expired));
+            StorageException e = assertThrows(StorageException.class, () -> underTest.read(SERVICE_ID, KEY));
+
+            assertThat(e.getKey(), is(Messages.KEY_NOT_IN_CACHE.getKey()));
+        }
+
         @Test
         void givenNotExistingKey_thenThrowException() {
             when(redisOperator.get(anyString(), anyString())).thenReturn(null);
@@ -117,6 +124,25 @@ public class RedisStorageTest {
         }
     }
 
+    @Nested
+    class whenUpsert {
+        @Test
+        void givenKey_thenSetEntry() throws RedisOutOfMemoryException {
+            KeyValue result = underTest.upsert(SERVICE_ID, KEY_VALUE);
+            assertThat(result, is(KEY_VALUE));
+            verify(redisOperator, times(1)).set(any());
+            verify(redisOperator, never()).update(any());
+        }
+
+        @Test
+        void givenRedisOutOfMemory_thenThrowException() throws RedisOutOfMemoryException {
+            doThrow(new RedisOutOfMemoryException(new Exception())).when(redisOperator).set(any());
+            StorageException e = assertThrows(StorageException.class, () -> underTest.upsert(SERVICE_ID, KEY_VALUE));
+
+            assertThat(e.getKey(), is(Messages.INSUFFICIENT_STORAGE.getKey()));
+        }
+    }
+
     @Nested
     class whenDelete {
         @Test
@@ -176,4 +202,62 @@ public class RedisStorageTest {
             assertDoesNotThrow(() -> underTest.deleteForService(SERVICE_ID));
         }
     }
+
+    @Nested
+    class whenBatchOperations {
+        @Test
+        void givenKeys_whenReadBatch_thenReturnFoundEntries() {
+            List<String> keys = Arrays.asList(KEY, "missing");
+            when(redisOperator.getBatch(SERVICE_ID, keys)).thenReturn(Collections.singletonList(REDIS_ENTRY));
+
+            Map<String, KeyValue> result = underTest.readBatch(SERVICE_ID, keys);
+            assertThat(result.size(), is(1));
+            assertThat(result.get(KEY), is(KEY_VALUE));
+        }
+
+        @Test
+        void givenEntries_whenUpsertBatch_thenAllAreSetAtOnce() throws RedisOutOfMemoryException {
+            underTest.upsertBatch(SERVICE_ID, Arrays.asList(KEY_VALUE, new KeyValue("key2", VALUE)));
+
+            verify(redisOperator, times(1)).setBatch(eq(SERVICE_ID), argThat(entries -> entries.size() == 2));
+        }
+
+        @Test
+        void givenRedisOutOfMemory_whenUpsertBatch_thenThrowException() throws RedisOutOfMemoryException {
+            doThrow(new RedisOutOfMemoryException(new Exception())).when(redisOperator).setBatch(any(), any());
+            List<KeyValue> toStore = Collections.singletonList(KEY_VALUE);
+
+            StorageException e = assertThrows(StorageException.class, () -> underTest.upsertBatch(SERVICE_ID, toStore));
+            assertThat(e.getKey(), is(Messages.INSUFFICIENT_STORAGE.getKey()));
+        }
+
+        @Test
+        void givenKeys_whenDeleteBatch_thenAllAreDeletedAtOnce() {
+            List<String> keys = Arrays.asList(KEY, "key2");
+            underTest.deleteBatch(SERVICE_ID, keys);
+
+            verify(redisOperator, times(1)).deleteBatch(SERVICE_ID, keys);
+        }
+    }
+
+    @Nested
+    class whenRemoveExpired {
+        @Test
+        void givenWrite_thenExpiredEntriesAreNotRemovedByIt() throws RedisOutOfMemoryException {
+            when(redisOperator.create(any())).thenReturn(true);
+            underTest.create(SERVICE_ID, KEY_VALUE);
+            underTest.upsert(SERVICE_ID, KEY_VALUE);
+
+            verify(redisOperator, never()).removeExpired(any());
+        }
+
+        @Test
+        void givenServicesWithExpiration_thenExpiredEntriesOfAllAreRemoved() {
+            when(redisOperator.getServicesWithExpiration()).thenReturn(Arrays.asList("service1", "service2"));
+            underTest.removeExpired();
+
+            verify(redisOperator).removeExpired("service1");
+            verify(redisOperator).removeExpired("service2");
+        }
+    }
 }
@@ -59,7 +59,7 @@ class RemoveOldestStrategyTest {
         void givenThereAreNoItems_thenNothingIsRemoved() throws ZFileException {
             when(file.readBytes(any())).thenReturn(Optional.empty());
 
-            underTest.evict("new-key");
+            assertThat(underTest.evict("new-key"), is(false));
             verify(file, times(0)).delete(recordArgumentCaptor.capture());
         }
 
@@ -72,7 +72,7 @@ class RemoveOldestStrategyTest {
             when(file.readBytes(any())).thenReturn(Optional.of(fullRecord1.getBytes()));
             when(file.delete(any())).thenReturn(Optional.of(fullRecord1));
 
-            underTest.evict("new-key");
+            assertThat(underTest.evict("new-key"), is(true));
             verify(file).delete(recordArgumentCaptor.capture());
 
             VsamRecord deleted = recordArgumentCaptor.getValue();
@@ -0,0 +1,181 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.caching.service.vsam;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.caching.config.GeneralConfig;
+import org.zowe.apiml.caching.service.Messages;
+import org.zowe.apiml.caching.service.StorageException;
+import org.zowe.apiml.caching.service.vsam.config.VsamConfig;
+import org.zowe.apiml.message.log.ApimlLogger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class VsamFilePoolTest {
+    private VsamFilePool underTest;
+    private VsamConfig vsamConfig;
+    private VsamFileProducer producer;
+    private VsamFile firstFile;
+    private VsamFile secondFile;
+
+    @BeforeEach
+    void setUp() {
+        vsamConfig = new VsamConfig(new GeneralConfig());
+        vsamConfig.setPoolSize(2);
+        vsamConfig.setPoolMaxIdleTime(60000);
+        vsamConfig.setPoolValidateAfterIdleTime(60000);
+
+        producer = mock(VsamFileProducer.class);
+        firstFile = mock(VsamFile.class);
+        secondFile = mock(VsamFile.class);
+        when(producer.newVsamFile(any(), any(), any())).thenReturn(firstFile, secondFile);
+
+        underTest = new VsamFilePool(vsamConfig, producer, ApimlLogger.empty());
+    }
+
+    @Nested
+    class WhenOperationSucceeds {
+        @Test
+        void thenTheFileIsReusedWithoutOpening() {
+            underTest.run(VsamConfig.VsamOptions.WRITE, file -> file.deleteForService("service"));
+            int result = underTest.execute(VsamConfig.VsamOptions.WRITE, VsamFile::countAllRecords);
+
+            assertThat(result, is(0));
+            verify(producer, times(1)).newVsamFile(any(), eq(VsamConfig.VsamOptions.WRITE), any());
+            verify(firstFile, never()).close();
+            verify(firstFile, never()).isUsable();
+            assertThat(underTest.getIdleCount(VsamConfig.VsamOptions.WRITE), is(1));
+        }
+
+        @Test
+        void thenTheFilesAreKeptPerMode() {
+            underTest.run(VsamConfig.VsamOptions.WRITE, file -> file.deleteForService("service"));
+            underTest.run(VsamConfig.VsamOptions.READ, file -> file.readForService("service"));
+
+            verify(producer).newVsamFile(any(), eq(VsamConfig.VsamOptions.WRITE), any());
+            verify(producer).newVsamFile(any(), eq(VsamConfig.VsamOptions.READ), any());
+            verify(firstFile).deleteForService("service");
+            verify(secondFile).readForService("service");
+        }
+
+        @Test
+        void givenConcurrentOperations_thenEachGetsOwnFile() {
+            underTest.run(VsamConfig.VsamOptions.READ, outer ->
+                underTest.run(VsamConfig.VsamOptions.READ, inner -> assertThat(inner == outer, is(false)))
+            );
+
+            assertThat(underTest.getIdleCount(VsamConfig.VsamOptions.READ), is(2));
+        }
+
+        @Test
+        void givenPoolIsDisabled_thenTheFileIsClosed() {
+            vsamConfig.setPoolSize(0);
+            underTest = new VsamFilePool(vsamConfig, producer, ApimlLogger.empty());
+
+            underTest.run(VsamConfig.VsamOptions.WRITE, file -> file.deleteForService("service"));
+
+            verify(firstFile).close();
+            assertThat(underTest.getIdleCount(VsamConfig.VsamOptions.WRITE), is(0));
+        }
+
+        @Test
+        void givenTheFileWasIdleForTooLong_thenNewOneIsOpened() {
+            vsamConfig.setPoolMaxIdleTime(0);
+
+            underTest.run(VsamConfig.VsamOptions.WRITE, file -> file.deleteForService("service"));
+            underTest.run(VsamConfig.VsamOptions.WRITE, file -> file.deleteForService("service"));
+
+            verify(firstFile).close();
+            verify(secondFile).deleteForService("service");
+        }
+
+        @Test
+        void givenTheFileWasIdleForAWhile_thenItIsCheckedAndReused() {
+            vsamConfig.setPoolValidateAfterIdleTime(0);
+            when(firstFile.isUsable()).thenReturn(true);
+
+            underTest.run(VsamConfig.VsamOptions.WRITE, file -> file.deleteForService("service"));
+            underTest.run(VsamConfig.VsamOptions.WRITE, file -> file.deleteForService("service"));
+
+            verify(firstFile).isUsable();
+            verify(firstFile, times(2)).deleteForService("service");
+            verify(producer, times(1)).newVsamFile(any(), any(), any());
+        }
+
+        @Test
+        void givenTheFileIsNotUsable_thenNewOneIsOpened() {
+            vsamConfig.setPoolValidateAfterIdleTime(0);
+            underTest.run(VsamConfig.VsamOptions.WRITE, file -> file.deleteForService("service"));
+            when(firstFile.isUsable()).thenReturn(false);
+
+            underTest.run(VsamConfig.VsamOptions.WRITE, file -> file.deleteForService("service"));
+
+            verify(firstFile).close();
+            verify(firstFile, times(1)).deleteForService("service");
+            verify(secondFile).deleteForService("service");
+        }
+    }
+
+    @Nested
+    class WhenOperationFails {
+        @Test
+        void givenRetryableException_thenOpenedFilesAreDiscarded() {
+            underTest.run(VsamConfig.VsamOptions.WRITE, outer ->
+                underTest.run(VsamConfig.VsamOptions.WRITE, inner -> { })
+            );
+            doThrow(new RetryableVsamException(new RuntimeException("broken"))).when(firstFile).deleteForService(any());
+
+            assertThrows(RetryableVsamException.class,
+                () -> underTest.run(VsamConfig.VsamOptions.WRITE, file -> file.deleteForService("service")));
+
+            verify(firstFile).close();
+            verify(secondFile).close();
+            assertThat(underTest.getIdleCount(VsamConfig.VsamOptions.WRITE), is(0));
+        }
+
+        @Test
+        void givenStorageException_thenTheFileIsReturned() {
+            StorageException exception = new StorageException(Messages.INSUFFICIENT_STORAGE.getKey(), Messages.INSUFFICIENT_STORAGE.getStatus());
+
+            assertThrows(StorageException.class, () -> underTest.run(VsamConfig.VsamOptions.WRITE, file -> {
+                throw exception;
+            }));
+
+            verify(firstFile, never()).close();
+            assertThat(underTest.getIdleCount(VsamConfig.VsamOptions.WRITE), is(1));
+        }
+
+        @Test
+        void givenOtherException_thenTheFileIsClosed() {
+            assertThrows(IllegalStateException.class, () -> underTest.run(VsamConfig.VsamOptions.WRITE, file -> {
+                throw new IllegalStateException("failure");
+            }));
+
+            verify(firstFile).close();
+            assertThat(underTest.getIdleCount(VsamConfig.VsamOptions.WRITE), is(0));
+        }
+    }
+
+    @Test
+    void whenPoolIsClosed_thenIdleFilesAreClosed() {
+        underTest.run(VsamConfig.VsamOptions.WRITE, file -> file.deleteForService("service"));
+
+        underTest.close();
+
+        verify(firstFile).close();
+    }
+}
@@ -31,6 +31,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class VsamFileTest {
@@ -171,6 +172,36 @@ class VsamFileTest {
         }
     }
 
+    @Nested
+    class whenUpsertingRecord {
+        @Test
+        void givenExistingRecord_thenItIsUpdatedWithoutCreation() throws UnsupportedEncodingException, ZFileException, VsamRecordException {
+            VsamRecord toStore = defaultVsamRecord();
+            Runnable beforeCreate = mock(Runnable.class);
+
+            when(zFile.locate(toStore.getKeyBytes(), ZFileConstants.LOCATE_KEY_EQ)).thenReturn(true);
+            when(zFile.read(any())).thenAnswer(prepareAnswer(1));
+
+            assertTrue(underTest.upsert(toStore, beforeCreate).isPresent());
+            verify(zFile).update(any());
+            verify(zFile, never()).write(any());
+            verify(beforeCreate, never()).run();
+        }
+
+        @Test
+        void givenRecordDoesntExist_thenItIsCreated() throws UnsupportedEncodingException, ZFileException, VsamRecordException {
+            VsamRecord toStore = defaultVsamRecord();
+            Runnable beforeCreate = mock(Runnable.class);
+
+            when(zFile.locate(toStore.getKeyBytes(), ZFileConstants.LOCATE_KEY_EQ)).thenReturn(false);
+
+            assertTrue(underTest.upsert(toStore, beforeCreate).isPresent());
+            verify(beforeCreate).run();
+            verify(zFile).write(any());
+            verify(zFile, never()).update(any());
+        }
+    }
+
     @Nested
     class whenDeletingRecord {
         @Test
@@ -246,6 +277,40 @@ class VsamFileTest {
             when(zFile.locate(key.getKeyBytes(VALID_SERVICE_ID, createdKey), ZFileConstants.LOCATE_KEY_EQ)).thenReturn(false);
             assertTrue(underTest.create(toCreate).isPresent());
         }
+
+        @Test
+        void givenNewRecord_thenActionBeforeCreateIsRun() throws UnsupportedEncodingException, ZFileException {
+            VsamRecord toCreate = defaultVsamRecord();
+            String createdKey = toCreate.getKeyValue().getKey();
+            Runnable beforeCreate = mock(Runnable.class);
+
+            when(zFile.locate(key.getKeyBytes(VALID_SERVICE_ID, createdKey), ZFileConstants.LOCATE_KEY_EQ)).thenReturn(false);
+            assertTrue(underTest.create(toCreate, beforeCreate).isPresent());
+
+            verify(beforeCreate).run();
+            verify(zFile).write(any());
+        }
+
+        @Test
+        void givenExpiredRecord_thenItIsReplacedWithoutActionBeforeCreate() throws UnsupportedEncodingException, ZFileException {
+            VsamRecord toCreate = defaultVsamRecord();
+            String createdKey = toCreate.getKeyValue().getKey();
+            KeyValue expired = new KeyValue(createdKey, "value", "0");
+            expired.setTtl(1L);
+            byte[] expiredBytes = new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, expired).getBytes();
+            Runnable beforeCreate = mock(Runnable.class);
+
+            when(zFile.locate(key.getKeyBytes(VALID_SERVICE_ID, createdKey), ZFileConstants.LOCATE_KEY_EQ)).thenReturn(true);
+            when(zFile.read(any())).thenAnswer(invocation -> {
+                byte[] arrayToPopulate = invocation.getArgument(0);
+                System.arraycopy(expiredBytes, 0, arrayToPopulate, 0, arrayToPopulate.length);
+                return arrayToPopulate.length;
+            });
+            assertTrue(underTest.create(toCreate, beforeCreate).isPresent());
+
+            verify(zFile).update(any());
+            verify(beforeCreate, never()).run();
+        }
     }
 
     @Nested
@@ -326,6 +391,47 @@ class VsamFileTest {
         }
     }
 
+    @Nested
+    class whenCheckingUsability {
+        @Test
+        void givenFileCanBePositioned_thenItIsUsable() throws ZFileException {
+            assertTrue(underTest.isUsable());
+
+            verify(zFile).locate(any(byte[].class), eq(ZFileConstants.LOCATE_KEY_FIRST));
+        }
+
+        @Test
+        void givenPositioningFails_thenItIsNotUsable() throws ZFileException {
+            when(zFile.locate(any(byte[].class), eq(ZFileConstants.LOCATE_KEY_FIRST)))
+                .thenThrow(new ZFileException("", "", "", 0, 0, 0, new byte[]{}, 0, 0, 0, 0, 0));
+
+            assertFalse(underTest.isUsable());
+        }
+    }
+
+    @Nested
+    class whenDeletingExpiredRecords {
+        @Test
+        void givenExpiredAndValidRecords_thenOnlyExpiredAreDeleted() throws ZFileException {
+            KeyValue expired = new KeyValue("expired", "value", "0");
+            expired.setTtl(1L);
+            List<VsamRecord> records = new ArrayList<>();
+            records.add(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, expired));
+            records.add(defaultVsamRecord());
+            when(zFile.read(any())).thenAnswer(invocation -> {
+                byte[] arrayToPopulate = invocation.getArgument(0);
+                if (records.isEmpty()) {
+                    return -1;
+                }
+                System.arraycopy(records.remove(0).getBytes(), 0, arrayToPopulate, 0, arrayToPopulate.length);
+                return arrayToPopulate.length;
+            });
+
+            assertThat(underTest.deleteExpired(), is(1));
+            verify(zFile, times(1)).delrec();
+        }
+    }
+
     @Nested
     class whenCountingRecords {
         @Test
@@ -351,6 +457,14 @@ class VsamFileTest {
 
             assertThat(result, is(1));
         }
+
+        @Test
+        void givenManyRecords_thenAllAreCounted() throws ZFileException {
+            int[] remaining = {20000};
+            when(zFile.read(any())).thenAnswer(invocation -> remaining[0]-- > 0 ? 1 : -1);
+
+            assertThat(underTest.countAllRecords(), is(20000));
+        }
     }
 
     @Nested
@@ -20,10 +20,7 @@ import org.zowe.apiml.caching.service.Strategies;
 import org.zowe.apiml.caching.service.vsam.config.VsamConfig;
 import org.zowe.apiml.message.log.ApimlLogger;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -38,6 +35,8 @@ class VsamStorageTest {
 
     private VsamFileProducer producer;
     private VsamConfig vsamConfiguration;
+    private VsamInitializer initializer;
+    private EvictionStrategyProducer evictionStrategyProducer;
 
     @BeforeEach
     void setUp() {
@@ -49,14 +48,19 @@ class VsamStorageTest {
         vsamConfiguration.setRecordLength(512);
         vsamConfiguration.setKeyLength(64);
 
-        VsamInitializer initializer = mock(VsamInitializer.class);
+        initializer = mock(VsamInitializer.class);
         producer = mock(VsamFileProducer.class);
 
-        EvictionStrategyProducer evictionStrategyProducer = mock(EvictionStrategyProducer.class);
+        evictionStrategyProducer = mock(EvictionStrategyProducer.class);
         when(evictionStrategyProducer.evictionStrategy(any())).thenReturn(new RejectStrategy(apimlLogger));
         underTest = new VsamStorage(vsamConfiguration, initializer, producer, apimlLogger, evictionStrategyProducer);
     }
 
+    private void givenRecordCount(int recordCount) {
+        when(initializer.storageWarmup(any(), any())).thenReturn(recordCount);
+        underTest = new VsamStorage(vsamConfiguration, initializer, producer, apimlLogger, evictionStrategyProducer);
+    }
+
     @Test
     void givenNoInvalidFilename_whenCreateVsamStorage_thenThrowException() {
         VsamInitializer initializer = mock(VsamInitializer.class);
@@ -78,8 +82,7 @@ class VsamStorageTest {
             KeyValue record = new KeyValue("key-1", "value-1", "1");
             record.setServiceId(VALID_SERVICE_ID);
             VsamFile returnedFile = mock(VsamFile.class);
-            when(returnedFile.countAllRecords()).thenReturn(60);
-            when(returnedFile.create(any())).thenReturn(
+            when(returnedFile.create(any(), any())).thenReturn(
                 Optional.of(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record))
             );
             when(producer.newVsamFile(any(), any(), any())).thenReturn(returnedFile);
@@ -93,7 +96,6 @@ class VsamStorageTest {
             KeyValue record = new KeyValue("key-1", "value-1", "1");
             record.setServiceId(VALID_SERVICE_ID);
             VsamFile returnedFile = mock(VsamFile.class);
-            when(returnedFile.countAllRecords()).thenReturn(60);
             when(producer.newVsamFile(any(), any(), any())).thenReturn(returnedFile);
 
             assertThrows(StorageException.class, () -> {
@@ -107,8 +109,12 @@ class VsamStorageTest {
             record.setServiceId(VALID_SERVICE_ID);
 
             VsamFile returnedFile = mock(VsamFile.class);
-            when(returnedFile.countAllRecords()).thenReturn(200);
+            givenRecordCount(200);
             when(producer.newVsamFile(any(), any(), any())).thenReturn(returnedFile);
+            when(returnedFile.create(any(), any())).thenAnswer(invocation -> {
+                ((Runnable) invocation.getArgument(1)).run();
+                return Optional.of(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record));
+            });
 
             assertThrows(StorageException.class, () -> {
                 underTest.create(VALID_SERVICE_ID, record);
@@ -133,6 +139,19 @@ class VsamStorageTest {
             assertThat(result, is(record));
         }
 
+        @Test
+        void givenKeyIsExpired_thenExceptionIsThrown() {
+            KeyValue record = new KeyValue("key-1", "value-1", "0");
+            record.setTtl(1L);
+            VsamFile returnedFile = mock(VsamFile.class);
+            when(producer.newVsamFile(any(), any(), any())).thenReturn(returnedFile);
+
+            when(returnedFile.read(any())).thenReturn(
+                Optional.of(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record))
+            );
+            assertThrows(StorageException.class, () -> underTest.read(VALID_SERVICE_ID, "key-1"));
+        }
+
         @Test
         void givenKeyIsntInCache_thenExceptionIsThrown() {
             VsamFile returnedFile = mock(VsamFile.class);
@@ -181,6 +200,41 @@ class VsamStorageTest {
         }
     }
 
+    @Nested
+    class WhenItemIsUpserted {
+        private VsamFile returnedFile;
+
+        @BeforeEach
+        void setUp() {
+            returnedFile = mock(VsamFile.class);
+            when(producer.newVsamFile(any(), any(), any())).thenReturn(returnedFile);
+        }
+
+        @Test
+        void givenValidServiceIdKeyValue_thenItIsProperlyReturned() {
+            KeyValue record = new KeyValue("key-1", "value-1", "1");
+            when(returnedFile.upsert(any(), any())).thenReturn(
+                Optional.of(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record))
+            );
+
+            KeyValue result = underTest.upsert(VALID_SERVICE_ID, record);
+            assertThat(result, is(record));
+            verify(producer, times(1)).newVsamFile(any(), any(), any());
+        }
+
+        @Test
+        void givenTheSizeWasExceededAndTheKeyIsNew_thenTheExceptionIsThrownInReject() {
+            KeyValue record = new KeyValue("key-1", "value-1", "1");
+            givenRecordCount(200);
+            when(returnedFile.upsert(any(), any())).thenAnswer(invocation -> {
+                ((Runnable) invocation.getArgument(1)).run();
+                return Optional.empty();
+            });
+
+            assertThrows(StorageException.class, () -> underTest.upsert(VALID_SERVICE_ID, record));
+        }
+    }
+
     @Nested
     class WhenItemIsDeleted {
         @Test
@@ -250,4 +304,169 @@ class VsamStorageTest {
             verify(returnedFile).deleteForService(VALID_SERVICE_ID);
         }
     }
+
+    @Nested
+    class WhenBatchOperations {
+        private VsamFile returnedFile;
+
+        @BeforeEach
+        void setUp() {
+            returnedFile = mock(VsamFile.class);
+            when(producer.newVsamFile(any(), any(), any())).thenReturn(returnedFile);
+        }
+
+        @Test
+        void givenSomeKeysExist_whenReadBatch_thenOnlyExistingAreReturnedUsingOneFile() {
+            KeyValue record = new KeyValue("key-1", "value-1", "1");
+            when(returnedFile.read(any())).thenReturn(
+                Optional.of(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record)),
+                Optional.empty()
+            );
+
+            Map<String, KeyValue> result = underTest.readBatch(VALID_SERVICE_ID, Arrays.asList("key-1", "key-2"));
+            assertThat(result.size(), is(1));
+            assertThat(result.get("key-1"), is(record));
+            verify(producer, times(1)).newVsamFile(any(), any(), any());
+        }
+
+        @Test
+        void givenKeys_whenUpsertBatch_thenAllAreUpsertedUsingOneFile() {
+            KeyValue existing = new KeyValue("key-1", "value-1", "1");
+            KeyValue created = new KeyValue("key-2", "value-2", "1");
+
+            underTest.upsertBatch(VALID_SERVICE_ID, Arrays.asList(existing, created));
+
+            verify(returnedFile, times(2)).upsert(any(), any());
+            verify(returnedFile, never()).countAllRecords();
+            verify(producer, times(1)).newVsamFile(any(), any(), any());
+        }
+
+        @Test
+        void givenTheSizeWasExceeded_whenUpsertBatch_thenTheExceptionIsThrownInReject() {
+            givenRecordCount(200);
+            when(returnedFile.upsert(any(), any())).thenAnswer(invocation -> {
+                ((Runnable) invocation.getArgument(1)).run();
+                return Optional.empty();
+            });
+            List<KeyValue> toStore = Collections.singletonList(new KeyValue("key-1", "value-1", "1"));
+
+            assertThrows(StorageException.class, () -> underTest.upsertBatch(VALID_SERVICE_ID, toStore));
+        }
+
+        @Test
+        void givenKeys_whenDeleteBatch_thenAllAreDeletedUsingOneFile() {
+            underTest.deleteBatch(VALID_SERVICE_ID, Arrays.asList("key-1", "key-2"));
+
+            verify(returnedFile, times(2)).delete(any());
+            verify(producer, times(1)).newVsamFile(any(), any(), any());
+        }
+    }
+
+    @Test
+    void givenExpiredRecords_whenRemoveExpired_thenTheyAreDeletedUsingOneFile() {
+        VsamFile returnedFile = mock(VsamFile.class);
+        when(producer.newVsamFile(any(), any(), any())).thenReturn(returnedFile);
+
+        underTest.removeExpired();
+
+        verify(returnedFile).deleteExpired();
+        verify(returnedFile).close();
+    }
+
+    @Nested
+    class WhenCountingRecords {
+        private VsamFile returnedFile;
+
+        @BeforeEach
+        void setUp() {
+            returnedFile = mock(VsamFile.class);
+            when(producer.newVsamFile(any(), any(), any())).thenReturn(returnedFile);
+            givenRecordCount(10);
+        }
+
+        @Test
+        void givenRecordsAreCreatedAndDeleted_thenCountIsAdjustedWithoutReadingTheFile() {
+            KeyValue record = new KeyValue("key-1", "value-1", "1");
+            Optional<VsamRecord> vsamRecord = Optional.of(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record));
+            when(returnedFile.create(any(), any())).thenAnswer(invocation -> {
+                ((Runnable) invocation.getArgument(1)).run();
+                return vsamRecord;
+            });
+            when(returnedFile.upsert(any(), any())).thenAnswer(invocation -> {
+                ((Runnable) invocation.getArgument(1)).run();
+                return vsamRecord;
+            });
+            when(returnedFile.delete(any())).thenReturn(vsamRecord);
+            when(returnedFile.deleteForService(VALID_SERVICE_ID)).thenReturn(3);
+
+            underTest.create(VALID_SERVICE_ID, record);
+            underTest.upsert(VALID_SERVICE_ID, new KeyValue("key-2", "value-2", "1"));
+            assertThat(underTest.getRecordCount(), is(12));
+
+            underTest.delete(VALID_SERVICE_ID, "key-1");
+            underTest.deleteForService(VALID_SERVICE_ID);
+            assertThat(underTest.getRecordCount(), is(8));
+
+            verify(returnedFile, never()).countAllRecords();
+        }
+
+        @Test
+        void givenCreateReplacingExpiredRecord_thenCountIsNotChanged() {
+            KeyValue record = new KeyValue("key-1", "value-1", "1");
+            when(returnedFile.create(any(), any())).thenReturn(
+                Optional.of(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record))
+            );
+
+            underTest.create(VALID_SERVICE_ID, record);
+
+            assertThat(underTest.getRecordCount(), is(10));
+        }
+
+        @Test
+        void givenUpsertOfExistingRecord_thenCountIsNotChanged() {
+            KeyValue record = new KeyValue("key-1", "value-1", "1");
+            when(returnedFile.upsert(any(), any())).thenReturn(
+                Optional.of(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record))
+            );
+
+            underTest.upsert(VALID_SERVICE_ID, record);
+
+            assertThat(underTest.getRecordCount(), is(10));
+        }
+
+        @Test
+        void givenStrategyEvictedRecord_thenCountIsNotChangedByTheNewOne() {
+            givenEviction(true);
+
+            assertThat(underTest.getRecordCount(), is(100));
+        }
+
+        @Test
+        void givenStrategyRemovedNothing_thenCountIsIncreasedByTheNewOne() {
+            givenEviction(false);
+
+            assertThat(underTest.getRecordCount(), is(101));
+        }
+
+        private void givenEviction(boolean evicted) {
+            when(evictionStrategyProducer.evictionStrategy(any())).thenReturn(key -> evicted);
+            givenRecordCount(100);
+            KeyValue record = new KeyValue("key-1", "value-1", "1");
+            when(returnedFile.create(any(), any())).thenAnswer(invocation -> {
+                ((Runnable) invocation.getArgument(1)).run();
+                return Optional.of(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record));
+            });
+
+            underTest.create(VALID_SERVICE_ID, record);
+        }
+
+        @Test
+        void whenExpiredRecordsAreRemoved_thenCountIsReconciledWithTheFile() {
+            when(returnedFile.countAllRecords()).thenReturn(42);
+
+            underTest.removeExpired();
+
+            assertThat(underTest.getRecordCount(), is(42));
+        }
+    }
 }
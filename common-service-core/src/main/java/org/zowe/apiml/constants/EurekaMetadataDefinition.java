@@ -43,6 +43,10 @@ public final class EurekaMetadataDefinition {
     public static final String AUTHENTICATION_APPLID = "apiml.authentication.applid";
     public static final String AUTHENTICATION_SSO = "apiml.authentication.sso";
     public static final String AUTHENTICATION_HEADERS = "apiml.authentication.headers";
+
+    public static final String WEBSOCKET_COMPRESSION_CLIENT = "apiml.websocket.compression.client";
+    public static final String WEBSOCKET_COMPRESSION_SERVICE = "apiml.websocket.compression.service";
+    public static final String WEBSOCKET_MERGE_MESSAGES_WINDOW = "apiml.websocket.mergeMessagesWindowInMillis";
     //v1
     public static final String ROUTES_V1 = "routed-services";
     public static final String ROUTES_GATEWAY_URL_V1 = "gateway-url";
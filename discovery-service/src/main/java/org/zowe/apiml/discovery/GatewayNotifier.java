@@ -19,9 +19,13 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
+import org.apache.http.client.HttpClient;
 import org.apache.logging.log4j.util.BiConsumer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 import org.zowe.apiml.message.core.MessageService;
@@ -31,11 +35,8 @@ import org.zowe.apiml.util.EurekaUtils;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
-import java.util.Collections;
-import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.Consumer;
 
 /**
@@ -45,6 +46,11 @@ import java.util.function.Consumer;
  * <p>
  * Purpose of this bean is at first in notification Gateways about new and removed services and process at least
  * evicting of caches there.
+ * <p>
+ * All Gateways are notified in parallel and each call is limited by a timeout, so one unavailable Gateway does not
+ * delay the others. The timeout is set on the HTTP connection, so a call to an unavailable Gateway releases its
+ * thread. If more services changed meanwhile (ie. many instances are registering), their caches are evicted by one
+ * call to each Gateway.
  */
 @Component
 @Slf4j
@@ -54,18 +60,82 @@ public class GatewayNotifier implements Runnable {
 
     private static final String DISTRIBUTE_PATH = "/gateway/auth/distribute/";  // NOSONAR: URL is always using / to separate path segments
     private static final String CACHE_PATH = "/gateway/cache/services";  // NOSONAR: URL is always using / to separate path segments
+    private static final String SERVICE_IDS_PARAM = "serviceIds";
+
+    /**
+     * Maximum amount of notifications processed together
+     */
+    static final int MAX_BATCH_SIZE = 100;
 
     private final ApimlLogger apimlLogger;
 
     private final RestTemplate restTemplate;
 
+    /**
+     * Gateways store invalidated tokens in Caching Service, a new Gateway reads them itself
+     */
+    @Value("${apiml.security.tokenInvalidation.shared:false}")
+    private boolean tokenInvalidationShared;
+
+    private final long timeoutInMillis;
+    // backstop for a call which does not finish even with the timeouts of the connection
+    private final long awaitInMillis;
+
     private boolean stopped;
     private BlockingQueue<Notification> queue = new LinkedBlockingQueue<>();
+    // waiting notifications, to check duplicities without iterating the queue
+    private final Set<Notification> pending = ConcurrentHashMap.newKeySet();
     private final ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+    private final ExecutorService notifyExecutor;
 
-    public GatewayNotifier(@Qualifier("restTemplateWithKeystore") RestTemplate restTemplate, MessageService messageService) {
+    /**
+     * @param httpClient      client to call Gateways (with client certificate)
+     * @param messageService  service to log messages
+     * @param threads         amount of threads to notify Gateways in parallel
+     * @param timeoutInMillis connect and read timeout of a call to a Gateway
+     */
+    @Autowired
+    public GatewayNotifier(
+        @Qualifier("secureHttpClientWithKeystore") HttpClient httpClient,
+        MessageService messageService,
+        @Value("${apiml.discovery.gatewayNotification.threads:8}") int threads,
+        @Value("${apiml.discovery.gatewayNotification.timeoutInMillis:30000}") long timeoutInMillis
+    ) {
+        this(createRestTemplate(httpClient, timeoutInMillis), messageService, threads, timeoutInMillis);
+    }
+
+    /**
+     * @param restTemplate    template to call Gateways, it should be limited by the timeout
+     * @param messageService  service to log messages
+     * @param threads         amount of threads to notify Gateways in parallel
+     * @param timeoutInMillis connect and read timeout of a call to a Gateway
+     */
+    GatewayNotifier(RestTemplate restTemplate, MessageService messageService, int threads, long timeoutInMillis) {
         this.restTemplate = restTemplate;
         this.apimlLogger = ApimlLogger.of(GatewayNotifier.class, messageService);
+        this.timeoutInMillis = timeoutInMillis;
+        // the lease of a connection, the connect and the read could each take up to the timeout
+        this.awaitInMillis = 3 * timeoutInMillis;
+
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+            threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "GatewayNotifier");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.notifyExecutor = threadPoolExecutor;
+    }
+
+    private static RestTemplate createRestTemplate(HttpClient httpClient, long timeoutInMillis) {
+        final int timeout = (int) Math.min(Integer.MAX_VALUE, timeoutInMillis);
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        factory.setConnectionRequestTimeout(timeout);
+        factory.setConnectTimeout(timeout);
+        factory.setReadTimeout(timeout);
+        return new RestTemplate(factory);
     }
 
     @PostConstruct
@@ -77,6 +147,7 @@ public class GatewayNotifier implements Runnable {
     @PreDestroy
     public void preDestroy() {
         this.stopped = true;
+        notifyExecutor.shutdown();
     }
 
     private EurekaServerContext getServerContext() {
@@ -98,7 +169,7 @@ public class GatewayNotifier implements Runnable {
     }
 
     protected void addToQueue(Notification notification) {
-        if (!queue.contains(notification)) {
+        if (pending.add(notification)) {
             queue.add(notification);
         }
     }
@@ -137,16 +208,22 @@ public class GatewayNotifier implements Runnable {
      * tokens to a Gateway which is new, because meanwhile the Gateway was down, anybody can make logout and this
      * information is stored in other instance of Gateway. After this call those Gateway, which were up, will notify
      * this newly registered gateway.
+     * <p>
+     * If Gateways share invalidated tokens via Caching Service, there is nothing to distribute.
      *
      * @param instanceId instance ID of newly registered Gateway
      */
     public void distributeInvalidatedCredentials(String instanceId) {
+        if (tokenInvalidationShared) return;
+
         final Notification notification = new Notification(null, instanceId, Type.DISTRIBUTE_INVALIDATED_CREDENTIALS);
         addToQueue(notification);
     }
 
     /**
-     * Process to send notification to gateways
+     * Process to send notification to gateways. The gateways are called in parallel and the method waits until all
+     * calls finish or time out. The calls are limited by the timeouts of the connection, waiting for them is only
+     * a backstop.
      *
      * @param instanceId instance ID of notified Gateway to reduce call - don't call itself
      * @param call       function to make a call
@@ -154,10 +231,33 @@ public class GatewayNotifier implements Runnable {
     private void notify(String instanceId, Consumer<InstanceInfo> call) {
         final List<InstanceInfo> gatewayInstances = getGatewayInstances();
 
+        final Map<InstanceInfo, Future<?>> calls = new LinkedHashMap<>();
         for (final InstanceInfo instanceInfo : gatewayInstances) {
             // don't notify service itself, it is not required
             if (StringUtils.equalsIgnoreCase(instanceId, instanceInfo.getInstanceId())) continue;
-            call.accept(instanceInfo);
+            calls.put(instanceInfo, notifyExecutor.submit(() -> call.accept(instanceInfo)));
+        }
+
+        await(calls);
+    }
+
+    private void await(Map<InstanceInfo, Future<?>> calls) {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(awaitInMillis);
+        for (final Map.Entry<InstanceInfo, Future<?>> call : calls.entrySet()) {
+            try {
+                call.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                call.getValue().cancel(true);
+                log.debug("The Gateway {} was not notified in {} ms", call.getKey().getInstanceId(), awaitInMillis);
+                apimlLogger.log("org.zowe.apiml.discovery.gateway.notify.timeout", EurekaUtils.getUrl(call.getKey()), awaitInMillis);
+            } catch (ExecutionException e) {
+                log.debug("Unexpected exception on notification of the Gateway {}", call.getKey().getInstanceId(), e);
+            } catch (InterruptedException e) {
+                log.debug("Thread for Gateway notification was interrupted", e);
+                calls.values().forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                return;
+            }
         }
     }
 
@@ -185,6 +285,36 @@ public class GatewayNotifier implements Runnable {
         });
     }
 
+    /**
+     * Evict caches of more services by one call to each Gateway. The Gateway with the same instance ID as the updated
+     * instance is not notified about it.
+     *
+     * @param notifications notifications of type SERVICE_UPDATED or SERVICE_CANCEL_REGISTRATION
+     */
+    protected void evictCachesProcess(List<Notification> notifications) {
+        notify(null, instanceInfo -> {
+            final Set<String> serviceIds = new LinkedHashSet<>();
+            boolean all = false;
+            for (final Notification notification : notifications) {
+                if (StringUtils.equalsIgnoreCase(notification.instanceId, instanceInfo.getInstanceId())) continue;
+                if (notification.serviceId == null) {
+                    all = true;
+                } else {
+                    serviceIds.add(notification.serviceId);
+                }
+            }
+            if (!all && serviceIds.isEmpty()) return;
+
+            final String url = all ? getServiceUrl(null, instanceInfo) : getServicesUrl(serviceIds, instanceInfo);
+            try {
+                restTemplate.delete(url);
+            } catch (Exception e) {
+                log.debug("Cannot notify the Gateway {} about changed services", url, e);
+                apimlLogger.log("org.zowe.apiml.discovery.services.gateway.notify", url, serviceIds);
+            }
+        });
+    }
+
     protected void distributeInvalidatedCredentialsProcess(String instanceId) {
         notify(instanceId, instanceInfo -> {
             final StringBuilder url = new StringBuilder();
@@ -203,6 +333,7 @@ public class GatewayNotifier implements Runnable {
 
     /**
      * Implementation of asynchronous thread, which checking the queue of notification request and then process them.
+     * All waiting notifications are taken together, the cache evictions of many services are sent in one call.
      */
     @Override
     public void run() {
@@ -210,7 +341,12 @@ public class GatewayNotifier implements Runnable {
             try {
                 Notification notification = queue.poll(10, TimeUnit.SECONDS);
                 if (notification != null) {
-                    notification.process();
+                    final List<Notification> notifications = new ArrayList<>();
+                    notifications.add(notification);
+                    queue.drainTo(notifications, MAX_BATCH_SIZE - 1);
+                    // a change coming from now has to be notified again
+                    notifications.forEach(pending::remove);
+                    process(notifications);
                 }
             } catch (InterruptedException e) {
                 log.debug("Thread for Gateway notification was interrupted", e);
@@ -221,6 +357,30 @@ public class GatewayNotifier implements Runnable {
         }
     }
 
+    protected void process(List<Notification> notifications) {
+        final List<Notification> cacheEvictions = new ArrayList<>();
+        for (final Notification notification : notifications) {
+            if (notification.type.cacheEviction) {
+                cacheEvictions.add(notification);
+            } else {
+                notification.process();
+            }
+        }
+
+        if (cacheEvictions.size() == 1) {
+            cacheEvictions.get(0).process();
+        } else if (!cacheEvictions.isEmpty()) {
+            evictCachesProcess(cacheEvictions);
+        }
+    }
+
+    private String getServicesUrl(Collection<String> serviceIds, InstanceInfo instanceInfo) {
+        if (serviceIds.size() == 1) {
+            return getServiceUrl(serviceIds.iterator().next(), instanceInfo);
+        }
+        return getServiceUrl(null, instanceInfo) + '?' + SERVICE_IDS_PARAM + '=' + String.join(",", serviceIds);
+    }
+
     private String getServiceUrl(String serviceId, InstanceInfo instanceInfo) {
         final StringBuilder url = new StringBuilder();
         url.append(EurekaUtils.getUrl(instanceInfo))
@@ -252,20 +412,25 @@ public class GatewayNotifier implements Runnable {
      * All supported types of notification by bean GatewayNotifier
      */
     @AllArgsConstructor
-    private enum Type {
+    enum Type {
 
-        SERVICE_UPDATED((gatewayNotifier, notification) ->
+        SERVICE_UPDATED(true, (gatewayNotifier, notification) ->
             gatewayNotifier.serviceUpdatedProcess(notification.serviceId, notification.instanceId)
         ),
 
-        SERVICE_CANCEL_REGISTRATION(((gatewayNotifier, notification) ->
+        SERVICE_CANCEL_REGISTRATION(true, ((gatewayNotifier, notification) ->
             gatewayNotifier.serviceCancelRegistrationProcess(notification.serviceId))
         ),
 
-        DISTRIBUTE_INVALIDATED_CREDENTIALS((gatewayNotifier, notification) ->
+        DISTRIBUTE_INVALIDATED_CREDENTIALS(false, (gatewayNotifier, notification) ->
             gatewayNotifier.distributeInvalidatedCredentialsProcess(notification.instanceId)
         );
 
+        /**
+         * Notification only evicts caches of the service, it could be sent together with others
+         */
+        private final boolean cacheEviction;
+
         /**
          * Realize mapping of notification to method which process it
          */
@@ -15,8 +15,12 @@ import com.netflix.eureka.EurekaServerContextHolder;
 import com.netflix.eureka.registry.AwsInstanceRegistry;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import lombok.Getter;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestTemplate;
 import org.zowe.apiml.message.core.Message;
 import org.zowe.apiml.message.core.MessageService;
@@ -27,6 +31,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.awaitility.Awaitility.await;
@@ -36,6 +42,7 @@ import static org.mockito.Mockito.*;
 class GatewayNotifierTest {
 
     private static final int TIMEOUT_ASYNC_CALL_SEC = 5;
+    private static final long TIMEOUT_MILLIS = 500;
 
     private PeerAwareInstanceRegistry registry;
 
@@ -221,6 +228,108 @@ class GatewayNotifierTest {
         verify(messageService, times(1)).createMessage(messageKey, gatewayUrl, targetInstanceId);
     }
 
+    @Test
+    void givenSharedTokenInvalidation_whenDistributeInvalidatedCredentials_thenNoGatewayIsCalled() {
+        ReflectionTestUtils.setField(gatewayNotifierSync, "tokenInvalidationShared", true);
+
+        gatewayNotifierSync.distributeInvalidatedCredentials("host:gateway:1433");
+
+        verifyZeroInteractions(registry, restTemplate);
+    }
+
+    @Test
+    void givenMoreServiceChanges_thenEachGatewayIsNotifiedOnce() {
+        List<InstanceInfo> instances = Arrays.asList(
+            createInstanceInfo("GATEWAY", "hostname1", 1000, 1433, true),
+            createInstanceInfo("GATEWAY", "hostname2", 1000, 0, false)
+        );
+        Application application = mock(Application.class);
+        when(application.getInstances()).thenReturn(instances);
+        when(registry.getApplication("GATEWAY")).thenReturn(application);
+
+        gatewayNotifierSync.process(Arrays.asList(
+            gatewayNotifierSync.new Notification("service1", "host:service1:123", GatewayNotifier.Type.SERVICE_UPDATED),
+            gatewayNotifierSync.new Notification("service2", null, GatewayNotifier.Type.SERVICE_CANCEL_REGISTRATION),
+            // the gateway instance itself is not notified about itself
+            gatewayNotifierSync.new Notification("GATEWAY", "hostname1:GATEWAY:1433", GatewayNotifier.Type.SERVICE_UPDATED)
+        ));
+
+        verify(restTemplate, times(1)).delete("https://hostname1:1433/gateway/cache/services?serviceIds=service1,service2");
+        verify(restTemplate, times(1)).delete("http://hostname2:1000/gateway/cache/services?serviceIds=service1,service2,GATEWAY");
+        verify(restTemplate, times(2)).delete(anyString());
+    }
+
+    @Test
+    void givenChangeOfAllServices_thenAllCachesAreEvicted() {
+        InstanceInfo gatewayInstance = createInstanceInfo("GATEWAY", "hostname1", 1000, 1433, true);
+        Application application = mock(Application.class);
+        when(application.getInstances()).thenReturn(Collections.singletonList(gatewayInstance));
+        when(registry.getApplication("GATEWAY")).thenReturn(application);
+
+        gatewayNotifierSync.process(Arrays.asList(
+            gatewayNotifierSync.new Notification("service1", null, GatewayNotifier.Type.SERVICE_UPDATED),
+            gatewayNotifierSync.new Notification(null, null, GatewayNotifier.Type.SERVICE_UPDATED)
+        ));
+
+        verify(restTemplate, times(1)).delete("https://hostname1:1433/gateway/cache/services");
+        verify(restTemplate, times(1)).delete(anyString());
+    }
+
+    @Test
+    void givenSlowGateway_thenOtherGatewaysAreNotified() throws InterruptedException {
+        final String messageKey = "org.zowe.apiml.discovery.gateway.notify.timeout";
+        when(messageService.createMessage(messageKey, "https://slow:1433", 3 * TIMEOUT_MILLIS)).thenReturn(createMessage(messageKey));
+        List<InstanceInfo> instances = Arrays.asList(
+            createInstanceInfo("GATEWAY", "slow", 1000, 1433, true),
+            createInstanceInfo("GATEWAY", "fast", 1000, 1433, true)
+        );
+        Application application = mock(Application.class);
+        when(application.getInstances()).thenReturn(instances);
+        when(registry.getApplication("GATEWAY")).thenReturn(application);
+        CountDownLatch slowGateway = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            slowGateway.await();
+            return null;
+        }).when(restTemplate).delete("https://slow:1433/gateway/cache/services/service");
+
+        try {
+            gatewayNotifierSync.serviceUpdated("service", null);
+
+            verify(restTemplate, times(1)).delete("https://fast:1433/gateway/cache/services/service");
+            verify(messageService, times(1)).createMessage(messageKey, "https://slow:1433", 3 * TIMEOUT_MILLIS);
+        } finally {
+            slowGateway.countDown();
+        }
+    }
+
+    @Test
+    void givenHttpClient_thenCallsAreLimitedByTimeout() {
+        GatewayNotifier gatewayNotifier = new GatewayNotifier(mock(HttpClient.class), messageService, 1, TIMEOUT_MILLIS);
+        RestTemplate template = (RestTemplate) ReflectionTestUtils.getField(gatewayNotifier, "restTemplate");
+        RequestConfig requestConfig = (RequestConfig) ReflectionTestUtils.getField(template.getRequestFactory(), "requestConfig");
+
+        assertEquals(HttpComponentsClientHttpRequestFactory.class, template.getRequestFactory().getClass());
+        assertEquals(TIMEOUT_MILLIS, requestConfig.getConnectionRequestTimeout());
+        assertEquals(TIMEOUT_MILLIS, requestConfig.getConnectTimeout());
+        assertEquals(TIMEOUT_MILLIS, requestConfig.getSocketTimeout());
+        gatewayNotifier.preDestroy();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenSameNotificationIsWaiting_thenItIsQueuedOnce() {
+        GatewayNotifier gatewayNotifier = new GatewayNotifier(restTemplate, messageService, 1, TIMEOUT_MILLIS);
+        BlockingQueue<GatewayNotifier.Notification> queue =
+            (BlockingQueue<GatewayNotifier.Notification>) ReflectionTestUtils.getField(gatewayNotifier, "queue");
+
+        gatewayNotifier.serviceUpdated("service", "instance");
+        gatewayNotifier.serviceUpdated("service", "instance");
+        gatewayNotifier.serviceUpdated("service2", "instance");
+
+        assertEquals(2, queue.size());
+        gatewayNotifier.preDestroy();
+    }
+
     @Test
     void testAsynchronousTreatment() {
         GatewayNotifierHandler gatewayNotifier = new GatewayNotifierHandler(restTemplate, messageService);
@@ -242,7 +351,7 @@ class GatewayNotifierTest {
     private static class GatewayNotifierSync extends GatewayNotifier {
 
         public GatewayNotifierSync(RestTemplate restTemplate, MessageService messageService) {
-            super(restTemplate, messageService);
+            super(restTemplate, messageService, 4, TIMEOUT_MILLIS);
         }
 
         public void afterPropertiesSet() {
@@ -262,7 +371,7 @@ class GatewayNotifierTest {
         private String lastCall;
 
         public GatewayNotifierHandler(RestTemplate restTemplate, MessageService messageService) {
-            super(restTemplate, messageService);
+            super(restTemplate, messageService, 4, TIMEOUT_MILLIS);
         }
 
         public void serviceUpdatedProcess(String serviceId, String instanceId) {
@@ -0,0 +1,90 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.security.service;
+
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.GenericApplicationContext;
+import org.zowe.apiml.security.SecurityUtils;
+import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
+import org.zowe.apiml.security.common.token.TokenAuthentication;
+
+import java.security.Key;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creation and validation of the Zowe JWT tokens. The service is created without the Spring proxies, so the
+ * caches of the validation are not applied and each call parses and verifies the token.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class AuthenticationServiceBenchmark {
+
+    private static final String USER = "user";
+    private static final String DOMAIN = "domain";
+    private static final String LTPA = "ltpaToken";
+
+    private GenericApplicationContext applicationContext;
+    private AuthenticationService authenticationService;
+    private String jwtToken;
+
+    @Setup
+    public void setUp() {
+        KeyPair keyPair = SecurityUtils.generateKeyPair("RSA", 2048);
+        Key privateKey = keyPair.getPrivate();
+        JwtParser jwtParser = Jwts.parserBuilder().setSigningKey(keyPair.getPublic()).build();
+        JwtSecurity jwtSecurity = new JwtSecurity(null, null) {
+            @Override
+            public SignatureAlgorithm getSignatureAlgorithm() {
+                return SignatureAlgorithm.RS256;
+            }
+
+            @Override
+            public Key getJwtSecret() {
+                return privateKey;
+            }
+
+            @Override
+            public JwtParser getJwtParser() {
+                return jwtParser;
+            }
+        };
+
+        applicationContext = new GenericApplicationContext();
+        applicationContext.refresh();
+        authenticationService = new AuthenticationService(
+            applicationContext, new AuthConfigurationProperties(), jwtSecurity, null, null, null, null, null
+        );
+        applicationContext.getBeanFactory().registerSingleton("authenticationService", authenticationService);
+        authenticationService.afterPropertiesSet();
+
+        jwtToken = authenticationService.createJwtToken(USER, DOMAIN, LTPA);
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public String createJwtToken() {
+        return authenticationService.createJwtToken(USER, DOMAIN, LTPA);
+    }
+
+    @Benchmark
+    public TokenAuthentication validateJwtToken() {
+        return authenticationService.validateJwtToken(jwtToken);
+    }
+
+}
@@ -15,10 +15,15 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 
 /**
  * Client for interaction with Caching Service
@@ -31,12 +36,26 @@ import org.springframework.web.client.RestTemplate;
 @SuppressWarnings({"squid:S1192"}) // literals are repeating in debug logs only
 public class CachingServiceClient {
 
+    /**
+     * Caching Service stores the keys of the gateway under a namespace given by its certificate. This header
+     * separates the keys of one consumer in the gateway into its own namespace.
+     */
+    static final String SERVICE_ID_HEADER = "X-CS-Service-ID";
+
     private final RestTemplate restTemplate;
     private final String gatewayProtocolHostPort;
+    private final String namespace;
     @Value("${apiml.cachingServiceClient.apiPath}")
     private static final String CACHING_API_PATH = "/cachingservice/api/v1/cache"; //NOSONAR parametrization provided by @Value annotation
 
     public CachingServiceClient(RestTemplate restTemplate, String gatewayProtocolHostPort) {
+        this(restTemplate, gatewayProtocolHostPort, null);
+    }
+
+    /**
+     * @param namespace name of the separate namespace in Caching Service, null to use the namespace of the gateway
+     */
+    public CachingServiceClient(RestTemplate restTemplate, String gatewayProtocolHostPort, String namespace) {
         if (gatewayProtocolHostPort == null || gatewayProtocolHostPort.isEmpty()) {
             throw new IllegalStateException("gatewayProtocolHostPort has to have value in format <protocol>://<host>:<port> and not be null");
         }
@@ -45,7 +64,15 @@ public class CachingServiceClient {
         }
         this.restTemplate = restTemplate;
         this.gatewayProtocolHostPort = gatewayProtocolHostPort;
+        this.namespace = namespace;
+    }
 
+    private HttpHeaders createHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        if (namespace != null) {
+            headers.add(SERVICE_ID_HEADER, namespace);
+        }
+        return headers;
     }
 
     /**
@@ -56,7 +83,7 @@ public class CachingServiceClient {
 
     public void create(KeyValue kv) throws CachingServiceClientException {
         try {
-            restTemplate.exchange(gatewayProtocolHostPort + CACHING_API_PATH, HttpMethod.POST, new HttpEntity<KeyValue>(kv, new HttpHeaders()), String.class);
+            restTemplate.exchange(gatewayProtocolHostPort + CACHING_API_PATH, HttpMethod.POST, new HttpEntity<KeyValue>(kv, createHeaders()), String.class);
         } catch (RestClientException e) {
             throw new CachingServiceClientException("Unable to create keyValue: " + kv.toString() + ", caused by: " + e.getMessage(), e);
         }
@@ -71,7 +98,7 @@ public class CachingServiceClient {
      */
     public KeyValue read(String key) throws CachingServiceClientException {
         try {
-            ResponseEntity<KeyValue> response = restTemplate.exchange(gatewayProtocolHostPort + CACHING_API_PATH + "/" + key, HttpMethod.GET, new HttpEntity<KeyValue>(null, new HttpHeaders()), KeyValue.class);
+            ResponseEntity<KeyValue> response = restTemplate.exchange(gatewayProtocolHostPort + CACHING_API_PATH + "/" + key, HttpMethod.GET, new HttpEntity<KeyValue>(null, createHeaders()), KeyValue.class);
             if (response != null && response.hasBody()) { //NOSONAR tests return null
                 return response.getBody();
             } else {
@@ -82,6 +109,23 @@ public class CachingServiceClient {
         }
     }
 
+    /**
+     * Reads all {@link KeyValue}s stored by Gateway in Caching Service
+     * @return map of keys to {@link KeyValue}, empty if there is no key
+     * @throws CachingServiceClientException when http response from caching is not 2xx, such as connect exception
+     */
+    public Map<String, KeyValue> readAll() throws CachingServiceClientException {
+        try {
+            ResponseEntity<Map<String, KeyValue>> response = restTemplate.exchange(gatewayProtocolHostPort + CACHING_API_PATH, HttpMethod.GET, new HttpEntity<KeyValue>(null, createHeaders()), new ParameterizedTypeReference<Map<String, KeyValue>>() {});
+            if (response != null && response.hasBody()) { //NOSONAR tests return null
+                return response.getBody();
+            }
+            return Collections.emptyMap();
+        } catch (RestClientException e) {
+            throw new CachingServiceClientException("Unable to read all keys, caused by: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Updates {@link KeyValue} in Caching Service
      * @param kv {@link KeyValue} to update
@@ -89,12 +133,38 @@ public class CachingServiceClient {
      */
     public void update(KeyValue kv) throws CachingServiceClientException {
         try {
-            restTemplate.exchange(gatewayProtocolHostPort + CACHING_API_PATH, HttpMethod.PUT, new HttpEntity<KeyValue>(kv, new HttpHeaders()), String.class);
+            restTemplate.exchange(gatewayProtocolHostPort + CACHING_API_PATH, HttpMethod.PUT, new HttpEntity<KeyValue>(kv, createHeaders()), String.class);
         } catch (RestClientException e) {
             throw new CachingServiceClientException("Unable to update keyValue: " + kv.toString() + ", caused by: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Creates or updates {@link KeyValue} in Caching Service in one request
+     * @param kv {@link KeyValue} to store
+     * @throws CachingServiceClientException when http response from caching is not 2xx, such as connect exception or insufficient storage
+     */
+    public void upsert(KeyValue kv) throws CachingServiceClientException {
+        try {
+            restTemplate.exchange(gatewayProtocolHostPort + CACHING_API_PATH + "/" + kv.getKey(), HttpMethod.PUT, new HttpEntity<KeyValue>(kv, createHeaders()), String.class);
+        } catch (RestClientException e) {
+            throw new CachingServiceClientException("Unable to store keyValue: " + kv.toString() + ", caused by: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates or updates multiple {@link KeyValue}s in Caching Service in one request
+     * @param kvs {@link KeyValue}s to store
+     * @throws CachingServiceClientException when http response from caching is not 2xx, such as connect exception or insufficient storage
+     */
+    public void upsertBatch(List<KeyValue> kvs) throws CachingServiceClientException {
+        try {
+            restTemplate.exchange(gatewayProtocolHostPort + CACHING_API_PATH + "/batch", HttpMethod.PUT, new HttpEntity<List<KeyValue>>(kvs, createHeaders()), String.class);
+        } catch (RestClientException e) {
+            throw new CachingServiceClientException("Unable to store " + kvs.size() + " keyValues, caused by: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Deletes {@link KeyValue} from Caching Service
      * @param key Key to delete
@@ -102,14 +172,15 @@ public class CachingServiceClient {
      */
     public void delete(String key) throws CachingServiceClientException {
         try {
-            restTemplate.exchange(gatewayProtocolHostPort + CACHING_API_PATH + "/" + key, HttpMethod.DELETE, new HttpEntity<KeyValue>(null, new HttpHeaders()), String.class);
+            restTemplate.exchange(gatewayProtocolHostPort + CACHING_API_PATH + "/" + key, HttpMethod.DELETE, new HttpEntity<KeyValue>(null, createHeaders()), String.class);
         } catch (RestClientException e) {
             throw new CachingServiceClientException("Unable to delete key: " + key + ", caused by: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Data POJO that represents entry in caching service
+     * Data POJO that represents entry in caching service. The entry can have optional time to live in seconds, it
+     * is removed by caching service then.
      */
     @RequiredArgsConstructor
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
@@ -117,6 +188,12 @@ public class CachingServiceClient {
     static class KeyValue {
         private final String key;
         private final String value;
+        private Long ttl;
+
+        KeyValue(String key, String value, long ttl) {
+            this(key, value);
+            this.ttl = ttl;
+        }
 
         @JsonCreator
         public KeyValue() {
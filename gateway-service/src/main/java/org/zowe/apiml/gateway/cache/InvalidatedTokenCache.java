@@ -0,0 +1,346 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.zowe.apiml.gateway.cache.TokenValidationCache.TokenKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of invalidated JWT tokens shared by all instances of Gateway via Caching Service. It replaces the local
+ * EhCache region, which had to be synchronized by calls between all instances of Gateway.
+ *
+ * - an invalidated token is stored in Caching Service under the hash of the token with time to live equal to the
+ *   expiration of the token, so Caching Service removes it once it cannot be used anyway
+ * - each instance keeps the hashes of all invalidated tokens in memory, so the check of a token is answered without
+ *   any call to Caching Service
+ * - the hashes are refreshed periodically by one call to Caching Service. Results of validation of tokens invalidated
+ *   on other instances meanwhile are evicted from {@link TokenValidationCache}
+ * - tokens invalidated on this instance are used immediately. If Caching Service is not available, they are stored
+ *   again on the next refresh
+ *
+ * The cache is exposed via {@link org.springframework.cache.CacheManager}, so it is used by the cache annotations
+ * the same way as the EhCache region.
+ */
+@Slf4j
+public class InvalidatedTokenCache implements Cache {
+
+    public static final String KEY_PREFIX = "invalidatedJwtToken.";
+    public static final long DEFAULT_REFRESH_INTERVAL = 5000;
+
+    private final String name;
+    private final CachingServiceClient cachingServiceClient;
+    private final TokenValidationCache tokenValidationCache;
+    private final ScheduledExecutorService executor;
+
+    // hashes of invalidated tokens with their expiration, replaced on each refresh
+    private volatile Map<TokenKey, Long> tokens = new ConcurrentHashMap<>();
+    // tokens invalidated on this instance, which were not read back from Caching Service yet
+    private final Map<TokenKey, Pending> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong lookupCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshFailedCount = new AtomicLong();
+    private final AtomicLong storeFailedCount = new AtomicLong();
+
+    /**
+     * @param name                 name of cache used in the cache annotations
+     * @param cachingServiceClient client of Caching Service
+     * @param tokenValidationCache cache of validation results to evict tokens invalidated on other instances, could
+     *                             be null
+     * @param refreshInterval      time in milliseconds between two reads of invalidated tokens from Caching Service,
+     *                             zero or negative value disables the periodical refresh
+     */
+    public InvalidatedTokenCache(
+        String name,
+        CachingServiceClient cachingServiceClient,
+        TokenValidationCache tokenValidationCache,
+        long refreshInterval
+    ) {
+        this.name = name;
+        this.cachingServiceClient = cachingServiceClient;
+        this.tokenValidationCache = tokenValidationCache;
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "InvalidatedTokenCache");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (refreshInterval > 0) {
+            this.executor.scheduleWithFixedDelay(this::refresh, 0, refreshInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        lookupCount.incrementAndGet();
+        final Long expireAt = tokens.get(TokenKey.of((String) key));
+        if ((expireAt == null) || (expireAt <= System.currentTimeMillis())) {
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+        return new SimpleValueWrapper(Boolean.TRUE);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) {
+            return null;
+        }
+
+        Object value = wrapper.get();
+        if ((type != null) && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Store the token as invalidated. The value is not stored, any record means the token is invalidated (except
+     * the value false, which means the invalidation was not successful).
+     */
+    @Override
+    public void put(Object key, Object value) {
+        if (!(key instanceof String) || (value == null) || Boolean.FALSE.equals(value)) {
+            return;
+        }
+
+        final String token = (String) key;
+        final long now = System.currentTimeMillis();
+        final long maxExpireAt = now + TokenValidationCache.DEFAULT_MAX_TIME_TO_LIVE;
+        final long expireAt = Math.min(maxExpireAt, TokenValidationCache.getExpiration(token, maxExpireAt));
+        if (expireAt <= now) {
+            // the token is expired, it cannot be used anyway
+            return;
+        }
+
+        final TokenKey tokenKey = TokenKey.of(token);
+        final Pending record = new Pending(expireAt);
+        // pending has to be updated first, see refresh
+        pending.put(tokenKey, record);
+        tokens.put(tokenKey, expireAt);
+
+        try {
+            cachingServiceClient.upsert(toKeyValue(tokenKey, expireAt, now));
+            record.stored = true;
+        } catch (CachingServiceClientException e) {
+            storeFailedCount.incrementAndGet();
+            log.debug("Cannot store invalidated token in Caching Service, it will be retried: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        if (!(key instanceof String)) {
+            return;
+        }
+
+        final TokenKey tokenKey = TokenKey.of((String) key);
+        pending.remove(tokenKey);
+        tokens.remove(tokenKey);
+        try {
+            cachingServiceClient.delete(KEY_PREFIX + tokenKey.toHex());
+        } catch (CachingServiceClientException e) {
+            log.debug("Cannot remove invalidated token from Caching Service: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Remove all tokens known by this instance. Tokens in Caching Service are not removed, so tokens invalidated by
+     * other instances are read again on the next refresh.
+     */
+    @Override
+    public void clear() {
+        pending.clear();
+        tokens = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Store pending tokens in Caching Service and read all invalidated tokens from there. The map of tokens is replaced
+     * by the current ones, so the expired ones are not kept anymore.
+     */
+    public void refresh() {
+        final long now = System.currentTimeMillis();
+        storePending(now);
+
+        final Map<String, CachingServiceClient.KeyValue> records;
+        try {
+            records = cachingServiceClient.readAll();
+        } catch (CachingServiceClientException | RuntimeException e) {
+            // the background thread must survive any error, the current tokens are used until the next refresh
+            refreshFailedCount.incrementAndGet();
+            log.debug("Cannot read invalidated tokens from Caching Service: {}", e.getMessage());
+            return;
+        }
+
+        final Map<TokenKey, Long> current = new ConcurrentHashMap<>(Math.max(16, records.size() * 2));
+        for (final Map.Entry<String, CachingServiceClient.KeyValue> entry : records.entrySet()) {
+            if (!entry.getKey().startsWith(KEY_PREFIX) || (entry.getValue() == null)) continue;
+
+            final long expireAt = NumberUtils.toLong(entry.getValue().getValue());
+            if (expireAt <= now) continue;
+
+            try {
+                current.put(TokenKey.fromHex(entry.getKey().substring(KEY_PREFIX.length())), expireAt);
+            } catch (NumberFormatException e) {
+                log.debug("Invalid key of invalidated token in Caching Service: {}", entry.getKey());
+            }
+        }
+
+        for (final Map.Entry<TokenKey, Pending> entry : pending.entrySet()) {
+            final long expireAt = entry.getValue().expireAt;
+            if (current.containsKey(entry.getKey()) || (expireAt <= now)) {
+                pending.remove(entry.getKey(), entry.getValue());
+            } else {
+                current.put(entry.getKey(), expireAt);
+            }
+        }
+
+        // the validation results of tokens invalidated on other instances are not valid anymore
+        final Map<TokenKey, Long> previous = tokens;
+        if (tokenValidationCache != null) {
+            for (final TokenKey tokenKey : current.keySet()) {
+                if (!previous.containsKey(tokenKey)) {
+                    tokenValidationCache.evict(tokenKey);
+                }
+            }
+        }
+
+        tokens = current;
+        // tokens invalidated meanwhile could be stored in the previous map only
+        for (final Map.Entry<TokenKey, Pending> entry : pending.entrySet()) {
+            current.put(entry.getKey(), entry.getValue().expireAt);
+        }
+
+        refreshCount.incrementAndGet();
+    }
+
+    private void storePending(long now) {
+        final List<TokenKey> keys = new ArrayList<>();
+        final List<CachingServiceClient.KeyValue> keyValues = new ArrayList<>();
+        for (final Map.Entry<TokenKey, Pending> entry : pending.entrySet()) {
+            final Pending record = entry.getValue();
+            if (record.stored || (record.expireAt <= now)) continue;
+
+            keys.add(entry.getKey());
+            keyValues.add(toKeyValue(entry.getKey(), record.expireAt, now));
+        }
+
+        if (keyValues.isEmpty()) {
+            return;
+        }
+
+        try {
+            cachingServiceClient.upsertBatch(keyValues);
+            for (final TokenKey tokenKey : keys) {
+                final Pending record = pending.get(tokenKey);
+                if (record != null) record.stored = true;
+            }
+        } catch (CachingServiceClientException | RuntimeException e) {
+            storeFailedCount.incrementAndGet();
+            log.debug("Cannot store {} invalidated tokens in Caching Service: {}", keyValues.size(), e.getMessage());
+        }
+    }
+
+    private CachingServiceClient.KeyValue toKeyValue(TokenKey tokenKey, long expireAt, long now) {
+        final long ttl = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(expireAt - now + 999));
+        return new CachingServiceClient.KeyValue(KEY_PREFIX + tokenKey.toHex(), String.valueOf(expireAt), ttl);
+    }
+
+    /**
+     * Stop the background thread.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getSize() {
+        return tokens.size();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getLookupCount() {
+        return lookupCount.get();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    public long getRefreshFailedCount() {
+        return refreshFailedCount.get();
+    }
+
+    public long getStoreFailedCount() {
+        return storeFailedCount.get();
+    }
+
+    @RequiredArgsConstructor
+    private static class Pending {
+
+        private final long expireAt;
+        private volatile boolean stored;
+
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint with statistics of the shared cache of invalidated JWT tokens.
+ */
+@Endpoint(id = "invalidatedtokens")
+@RequiredArgsConstructor
+public class InvalidatedTokenCacheActuatorEndpoint {
+
+    private final InvalidatedTokenCache invalidatedTokenCache;
+
+    @ReadOperation
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("size", (long) invalidatedTokenCache.getSize());
+        result.put("pending", (long) invalidatedTokenCache.getPendingCount());
+        result.put("lookups", invalidatedTokenCache.getLookupCount());
+        result.put("hits", invalidatedTokenCache.getHitCount());
+        result.put("refreshes", invalidatedTokenCache.getRefreshCount());
+        result.put("refreshFailures", invalidatedTokenCache.getRefreshFailedCount());
+        result.put("storeFailures", invalidatedTokenCache.getStoreFailedCount());
+        return result;
+    }
+
+}
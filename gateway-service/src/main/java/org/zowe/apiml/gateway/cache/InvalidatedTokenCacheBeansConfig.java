@@ -0,0 +1,55 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+import org.zowe.apiml.gateway.config.CacheConfig;
+import org.zowe.apiml.product.gateway.GatewayConfigProperties;
+
+/**
+ * Setup for caching service backed cache of invalidated tokens. Without it invalidated tokens are stored in the local
+ * EhCache of each instance and distributed by calls between the instances.
+ *
+ * The tokens are stored in their own namespace of Caching Service, so the periodical read of all of them does not
+ * download the records of other consumers (ie. load balancer).
+ */
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "apiml.security.tokenInvalidation.shared", havingValue = "true")
+public class InvalidatedTokenCacheBeansConfig {
+
+    static final String NAMESPACE = "invalidatedTokens";
+
+    private final GatewayConfigProperties gatewayConfigProperties;
+
+    @Value("${apiml.security.tokenInvalidation.refreshIntervalInMillis:" + InvalidatedTokenCache.DEFAULT_REFRESH_INTERVAL + "}")
+    private long refreshInterval;
+
+    @Bean(destroyMethod = "shutdown")
+    public InvalidatedTokenCache invalidatedTokenCache(@Qualifier("restTemplateWithKeystore") RestTemplate restTemplate, TokenValidationCache tokenValidationCache) {
+        String gatewayUri = String.format("%s://%s", gatewayConfigProperties.getScheme(), gatewayConfigProperties.getHostname());
+        CachingServiceClient cachingServiceClient = new CachingServiceClient(restTemplate, gatewayUri, NAMESPACE);
+        return new InvalidatedTokenCache(CacheConfig.CACHE_INVALIDATED_JWT_TOKENS,
+            cachingServiceClient, tokenValidationCache, refreshInterval);
+    }
+
+    @Bean
+    public InvalidatedTokenCacheActuatorEndpoint invalidatedTokenCacheActuatorEndpoint(InvalidatedTokenCache invalidatedTokenCache) {
+        return new InvalidatedTokenCacheActuatorEndpoint(invalidatedTokenCache);
+    }
+
+}
@@ -13,9 +13,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.Getter;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpStatus;
-import org.springframework.web.client.HttpClientErrorException;
 import org.zowe.apiml.gateway.ribbon.loadbalancer.model.LoadBalancerCacheRecord;
 
 import java.util.Map;
@@ -27,19 +26,52 @@ import java.util.concurrent.ConcurrentHashMap;
  *
  * Supports optional CachingServiceClient inject through constructor, which gives acts as remote cache. Remote cache
  * entries have preference to local ones.
+ *
+ * Records read from or written to the remote cache are also kept for a short time in a near cache, so repeated
+ * requests of the same user don't need to call the remote cache each time.
+ *
+ * If {@link LoadBalancerCacheWriteBehind} is provided, records are written to the remote cache asynchronously.
  */
 @Getter
 @Slf4j
 public class LoadBalancerCache {
     private final Map<String, LoadBalancerCacheRecord> localCache;
     private final CachingServiceClient remoteCache;
+    private final Map<String, NearCacheEntry> nearCache;
+    private final long nearCacheTimeToLive;
+    private final LoadBalancerCacheWriteBehind writeBehind;
     private final ObjectMapper mapper = new ObjectMapper();
 
     public static final String LOAD_BALANCER_KEY_PREFIX = "lb.";
+    public static final long DEFAULT_NEAR_CACHE_TIME_TO_LIVE = 5000;
+    private static final int NEAR_CACHE_CLEANUP_THRESHOLD = 10000;
 
     public LoadBalancerCache(CachingServiceClient cachingServiceClient) {
+        this(cachingServiceClient, DEFAULT_NEAR_CACHE_TIME_TO_LIVE);
+    }
+
+    /**
+     * @param cachingServiceClient client of remote cache, it could be null to use only local cache
+     * @param nearCacheTimeToLive  time in milliseconds how long are records of remote cache kept in near cache, zero
+     *                             or negative value disables the near cache
+     */
+    public LoadBalancerCache(CachingServiceClient cachingServiceClient, long nearCacheTimeToLive) {
+        this(cachingServiceClient, nearCacheTimeToLive, null);
+    }
+
+    /**
+     * @param cachingServiceClient client of remote cache, it could be null to use only local cache
+     * @param nearCacheTimeToLive  time in milliseconds how long are records of remote cache kept in near cache, zero
+     *                             or negative value disables the near cache
+     * @param writeBehind          buffer to write records to remote cache asynchronously, it could be null to write
+     *                             records synchronously
+     */
+    public LoadBalancerCache(CachingServiceClient cachingServiceClient, long nearCacheTimeToLive, LoadBalancerCacheWriteBehind writeBehind) {
         this.remoteCache = cachingServiceClient;
+        this.nearCacheTimeToLive = nearCacheTimeToLive;
+        this.writeBehind = writeBehind;
         localCache = new ConcurrentHashMap<>();
+        nearCache = new ConcurrentHashMap<>();
         mapper.registerModule(new JavaTimeModule());
     }
 
@@ -55,6 +87,7 @@ public class LoadBalancerCache {
     public boolean store(String user, String service, LoadBalancerCacheRecord loadBalancerCacheRecord) {
         if (remoteCache != null) {
             storeToRemoteCache(user, service, loadBalancerCacheRecord);
+            storeToNearCache(getKey(user, service), loadBalancerCacheRecord);
         }
         localCache.put(getKey(user, service), loadBalancerCacheRecord);
         log.debug("Stored record to local cache for user: {}, service: {}, record: {}", user, service, loadBalancerCacheRecord);
@@ -63,41 +96,28 @@ public class LoadBalancerCache {
 
     private void storeToRemoteCache(String user, String service, LoadBalancerCacheRecord loadBalancerCacheRecord) {
         try {
-        String serializedRecord = mapper.writeValueAsString(loadBalancerCacheRecord);
-        CachingServiceClient.KeyValue toStore = new CachingServiceClient.KeyValue(getKey(user, service), serializedRecord);
-            createToRemoteCache(user, service, loadBalancerCacheRecord, toStore);
-        } catch (JsonProcessingException e) {
-            log.debug("Failed to serialize record for user: {}, service: {}, record {},  with exception: {}", user, service, loadBalancerCacheRecord, e);
-        }
-    }
-
-    private void createToRemoteCache(String user, String service, LoadBalancerCacheRecord loadBalancerCacheRecord, CachingServiceClient.KeyValue toStore) {
-        try {
-        remoteCache.create(toStore);
-        log.debug("Created record to remote cache for user: {}, service: {}, record: {}", user, service, loadBalancerCacheRecord);
-        } catch (CachingServiceClientException createException) {
-            if (isCausedByCacheConflict(createException)) {
-                updateToRemoteCache(user, service, loadBalancerCacheRecord, toStore);
+            String serializedRecord = mapper.writeValueAsString(loadBalancerCacheRecord);
+            CachingServiceClient.KeyValue toStore = new CachingServiceClient.KeyValue(getKey(user, service), serializedRecord);
+            if (writeBehind != null) {
+                writeBehind.enqueue(toStore);
+                log.debug("Enqueued record to remote cache for user: {}, service: {}, record: {}", user, service, loadBalancerCacheRecord);
             } else {
-                log.debug("Failed to create record for user: {}, service: {}, record {}, with exception: {}", user, service, loadBalancerCacheRecord, createException);
+                upsertToRemoteCache(user, service, loadBalancerCacheRecord, toStore);
             }
+        } catch (JsonProcessingException e) {
+            log.debug("Failed to serialize record for user: {}, service: {}, record {},  with exception: {}", user, service, loadBalancerCacheRecord, e);
         }
     }
 
-    private void updateToRemoteCache(String user, String service, LoadBalancerCacheRecord loadBalancerCacheRecord, CachingServiceClient.KeyValue toStore) {
+    private void upsertToRemoteCache(String user, String service, LoadBalancerCacheRecord loadBalancerCacheRecord, CachingServiceClient.KeyValue toStore) {
         try {
-            remoteCache.update(toStore);
-            log.debug("Updated record to remote cache for user: {}, service: {}, record: {}", user, service, loadBalancerCacheRecord);
-        } catch (CachingServiceClientException updateException) {
-            log.debug("Failed to update record for user: {}, service: {}, record {}, with exception: {}", user, service, loadBalancerCacheRecord, updateException);
+            remoteCache.upsert(toStore);
+            log.debug("Stored record to remote cache for user: {}, service: {}, record: {}", user, service, loadBalancerCacheRecord);
+        } catch (CachingServiceClientException e) {
+            log.debug("Failed to store record for user: {}, service: {}, record {}, with exception: {}", user, service, loadBalancerCacheRecord, e);
         }
     }
 
-    private boolean isCausedByCacheConflict(CachingServiceClientException e) {
-        return e.getCause() instanceof HttpClientErrorException &&
-            ((HttpClientErrorException) e.getCause()).getStatusCode().equals(HttpStatus.CONFLICT);
-    }
-
     /**
      * Retrieve information about selected instance for combination of User and Service.
      *
@@ -107,11 +127,21 @@ public class LoadBalancerCache {
      */
     public LoadBalancerCacheRecord retrieve(String user, String service) {
         if (remoteCache != null) {
+            NearCacheEntry nearCacheEntry = nearCache.get(getKey(user, service));
+            if (nearCacheEntry != null) {
+                if (!nearCacheEntry.isExpired()) {
+                    log.debug("Retrieved record from near cache for user: {}, service: {}, record: {}", user, service, nearCacheEntry.getRecord());
+                    return nearCacheEntry.getRecord();
+                }
+                nearCache.remove(getKey(user, service), nearCacheEntry);
+            }
+
             try {
                 CachingServiceClient.KeyValue kv = remoteCache.read(getKey(user, service));
                 if (kv != null) {
                     LoadBalancerCacheRecord loadBalancerCacheRecord = mapper.readValue(kv.getValue(), LoadBalancerCacheRecord.class);
                     log.debug("Retrieved record from remote cache for user: {}, service: {}, record: {}", user, service, loadBalancerCacheRecord);
+                    storeToNearCache(getKey(user, service), loadBalancerCacheRecord);
                     return loadBalancerCacheRecord;
                 }
             } catch (CachingServiceClientException e) {
@@ -132,6 +162,10 @@ public class LoadBalancerCache {
      * @param service Service towards which is the user routed
      */
     public void delete(String user, String service) {
+        nearCache.remove(getKey(user, service));
+        if (writeBehind != null) {
+            writeBehind.cancel(getKey(user, service));
+        }
         if (remoteCache != null) {
             try {
                 remoteCache.delete(getKey(user, service));
@@ -144,7 +178,31 @@ public class LoadBalancerCache {
         log.debug("Deleted record from local cache for user: {}, service: {}", user, service);
     }
 
+    private void storeToNearCache(String key, LoadBalancerCacheRecord loadBalancerCacheRecord) {
+        if (nearCacheTimeToLive <= 0) {
+            return;
+        }
+
+        if (nearCache.size() >= NEAR_CACHE_CLEANUP_THRESHOLD) {
+            nearCache.values().removeIf(NearCacheEntry::isExpired);
+        }
+        nearCache.put(key, new NearCacheEntry(loadBalancerCacheRecord, System.currentTimeMillis() + nearCacheTimeToLive));
+    }
+
     private String getKey(String user, String service) {
         return LOAD_BALANCER_KEY_PREFIX + user + ":" + service;
     }
+
+    /**
+     * Record of remote cache with the time of its expiration in the near cache
+     */
+    @Value
+    static class NearCacheEntry {
+        LoadBalancerCacheRecord record;
+        long expiresAt;
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
 }
@@ -0,0 +1,38 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint with statistics of write-behind of the load balancer cache into the Caching Service.
+ */
+@Endpoint(id = "loadbalancercache")
+@RequiredArgsConstructor
+public class LoadBalancerCacheActuatorEndpoint {
+
+    private final LoadBalancerCacheWriteBehind writeBehind;
+
+    @ReadOperation
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("pending", (long) writeBehind.getPendingCount());
+        result.put("flushed", writeBehind.getFlushedCount());
+        result.put("dropped", writeBehind.getDroppedCount());
+        result.put("failed", writeBehind.getFailedCount());
+        return result;
+    }
+
+}
@@ -11,7 +11,9 @@
 package org.zowe.apiml.gateway.cache;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -27,6 +29,15 @@ public class LoadBalancerCacheBeansConfig {
 
     private final GatewayConfigProperties gatewayConfigProperties;
 
+    @Value("${apiml.loadBalancer.nearCacheTimeToLiveInMillis:" + LoadBalancerCache.DEFAULT_NEAR_CACHE_TIME_TO_LIVE + "}")
+    private long nearCacheTimeToLive;
+
+    @Value("${apiml.loadBalancer.writeBehind.maxPendingRecords:10000}")
+    private int writeBehindMaxPendingRecords;
+
+    @Value("${apiml.loadBalancer.writeBehind.flushIntervalInMillis:1000}")
+    private long writeBehindFlushInterval;
+
     @Bean
     @ConditionalOnProperty(name = "apiml.loadBalancer.distribute", havingValue = "true")
     public CachingServiceClient cachingServiceClient(@Qualifier("restTemplateWithKeystore") RestTemplate restTemplate) {
@@ -34,10 +45,22 @@ public class LoadBalancerCacheBeansConfig {
         return new CachingServiceClient(restTemplate, gatewayUri);
     }
 
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = {"apiml.loadBalancer.distribute", "apiml.loadBalancer.writeBehind.enabled"}, havingValue = "true")
+    public LoadBalancerCacheWriteBehind loadBalancerCacheWriteBehind(CachingServiceClient cachingServiceClient) {
+        return new LoadBalancerCacheWriteBehind(cachingServiceClient, writeBehindMaxPendingRecords, writeBehindFlushInterval);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = {"apiml.loadBalancer.distribute", "apiml.loadBalancer.writeBehind.enabled"}, havingValue = "true")
+    public LoadBalancerCacheActuatorEndpoint loadBalancerCacheActuatorEndpoint(LoadBalancerCacheWriteBehind writeBehind) {
+        return new LoadBalancerCacheActuatorEndpoint(writeBehind);
+    }
+
     @Bean
     @ConditionalOnProperty(name = "apiml.loadBalancer.distribute", havingValue = "true")
-    public LoadBalancerCache loadBalancerCacheWithRemoteCache(CachingServiceClient cachingServiceClient) {
-        return new LoadBalancerCache(cachingServiceClient);
+    public LoadBalancerCache loadBalancerCacheWithRemoteCache(CachingServiceClient cachingServiceClient, ObjectProvider<LoadBalancerCacheWriteBehind> writeBehind) {
+        return new LoadBalancerCache(cachingServiceClient, nearCacheTimeToLive, writeBehind.getIfAvailable());
     }
 
     @Bean
@@ -0,0 +1,143 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer for records of {@link LoadBalancerCache} stored to the Caching Service. Records are not written
+ * in the request thread, but they are collected and flushed in batches by a background thread. Each flush is one
+ * batch request to the Caching Service.
+ *
+ * Pending records are coalesced by key (the last writer wins), so frequent updates of the same record are written
+ * just once per flush. The amount of pending records is bounded, records over the limit are dropped (they still
+ * stay in the local cache of the gateway).
+ */
+@Slf4j
+public class LoadBalancerCacheWriteBehind {
+
+    private final CachingServiceClient remoteCache;
+    private final int maxPendingRecords;
+    private final Map<String, CachingServiceClient.KeyValue> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong flushedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * @param remoteCache       client of Caching Service to write records into
+     * @param maxPendingRecords maximum amount of records waiting to be flushed
+     * @param flushInterval     time in milliseconds between two flushes
+     */
+    public LoadBalancerCacheWriteBehind(CachingServiceClient remoteCache, int maxPendingRecords, long flushInterval) {
+        if (remoteCache == null) {
+            throw new IllegalStateException("CachingServiceClient instance cannot be null");
+        }
+        this.remoteCache = remoteCache;
+        this.maxPendingRecords = maxPendingRecords;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LoadBalancerCacheWriteBehind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Enqueue record to be written into Caching Service. Any pending record with the same key is replaced.
+     *
+     * @param keyValue record to write
+     * @return true if the record was enqueued, false if it was dropped because of full queue
+     */
+    public boolean enqueue(CachingServiceClient.KeyValue keyValue) {
+        if (!pending.containsKey(keyValue.getKey()) && (pending.size() >= maxPendingRecords)) {
+            droppedCount.incrementAndGet();
+            log.debug("Write-behind queue is full, record was dropped: {}", keyValue);
+            return false;
+        }
+
+        pending.put(keyValue.getKey(), keyValue);
+        return true;
+    }
+
+    /**
+     * Remove pending record, it is used when the record is deleted before it was flushed.
+     *
+     * @param key key of record
+     */
+    public void cancel(String key) {
+        pending.remove(key);
+    }
+
+    /**
+     * Write all pending records into Caching Service.
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<CachingServiceClient.KeyValue> batch = new ArrayList<>(pending.size());
+        for (String key : new ArrayList<>(pending.keySet())) {
+            CachingServiceClient.KeyValue keyValue = pending.remove(key);
+            if (keyValue != null) {
+                batch.add(keyValue);
+            }
+        }
+
+        log.debug("Flushing {} records to remote cache", batch.size());
+        try {
+            remoteCache.upsertBatch(batch);
+            flushedCount.addAndGet(batch.size());
+        } catch (CachingServiceClientException e) {
+            failedCount.addAndGet(batch.size());
+            log.debug("Failed to flush {} records to remote cache, with exception: {}", batch.size(), e);
+        } catch (RuntimeException e) {
+            // the background thread must survive any error to keep flushing
+            failedCount.addAndGet(batch.size());
+            log.debug("Unexpected error during flushing {} records to remote cache: {}", batch.size(), e);
+        }
+    }
+
+    /**
+     * Stop the background thread, the remaining records are flushed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        flush();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getFlushedCount() {
+        return flushedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+}
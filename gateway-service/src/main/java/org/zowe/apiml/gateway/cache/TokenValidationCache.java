@@ -0,0 +1,381 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.cache;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.zowe.apiml.security.common.token.TokenAuthentication;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of results of JWT token validation. It replaces the generic EhCache region, which was too small for many
+ * concurrent users and thrashed.
+ *
+ * - the cache is split into shards, each shard is a LRU map with its own lock, so lookups of different tokens don't
+ *   contend
+ * - tokens are stored as a 128-bit hash (SHA-256 prefix), validation results of {@link TokenAuthentication} are stored
+ *   as username and the flag only, the object is rebuilt from the token in the lookup
+ * - each record expires at the expiration of the token (claim exp), but not later than the maximum time to live
+ *
+ * The cache is exposed via {@link org.springframework.cache.CacheManager}, so it is used by the cache annotations
+ * the same way as the EhCache regions.
+ */
+public class TokenValidationCache implements Cache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 100000;
+    public static final int DEFAULT_SHARDS = 16;
+    public static final long DEFAULT_MAX_TIME_TO_LIVE = 86400000L;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private static final JwtParser UNSIGNED_JWT_PARSER = Jwts.parserBuilder().build();
+
+    private final String name;
+    private final long maxTimeToLive;
+    private final Shard[] shards;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
+
+    /**
+     * @param name          name of cache used in the cache annotations
+     * @param maxEntries    maximum amount of records in the whole cache
+     * @param shards        amount of shards, it is rounded to the power of two
+     * @param maxTimeToLive maximum time in milliseconds to keep a record (if the token expires later)
+     */
+    public TokenValidationCache(String name, int maxEntries, int shards, long maxTimeToLive) {
+        this.name = name;
+        this.maxTimeToLive = maxTimeToLive;
+
+        int shardCount = Integer.highestOneBit(Math.max(1, shards));
+        int shardCapacity = Math.max(1, maxEntries / shardCount);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            this.shards[i] = new Shard(shardCapacity);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        final TokenKey tokenKey = TokenKey.of((String) key);
+        final Record record = shardOf(tokenKey).get(tokenKey);
+        if (record == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+        return new SimpleValueWrapper(record.toValue((String) key));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) {
+            return null;
+        }
+
+        Object value = wrapper.get();
+        if ((type != null) && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (!(key instanceof String)) {
+            return;
+        }
+
+        final String token = (String) key;
+        final TokenKey tokenKey = TokenKey.of(token);
+        if (value == null) {
+            shardOf(tokenKey).remove(tokenKey);
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        final long expireAt = Math.min(now + maxTimeToLive, getExpiration(token, now + maxTimeToLive));
+        if (expireAt <= now) {
+            shardOf(tokenKey).remove(tokenKey);
+            return;
+        }
+
+        shardOf(tokenKey).put(tokenKey, Record.of(token, value, expireAt));
+    }
+
+    @Override
+    public void evict(Object key) {
+        if (key instanceof String) {
+            TokenKey tokenKey = TokenKey.of((String) key);
+            shardOf(tokenKey).remove(tokenKey);
+        }
+    }
+
+    /**
+     * Remove the record of the token with the hash, it is used when only the hash of the token is known (ie. token was
+     * invalidated on another instance).
+     *
+     * @param tokenKey hash of the token
+     */
+    void evict(TokenKey tokenKey) {
+        shardOf(tokenKey).remove(tokenKey);
+    }
+
+    @Override
+    public void clear() {
+        for (Shard shard : shards) {
+            shard.clear();
+        }
+    }
+
+    public int getSize() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public long getExpirationCount() {
+        return expirationCount.get();
+    }
+
+    private Shard shardOf(TokenKey key) {
+        return shards[key.hashCode() & (shards.length - 1)];
+    }
+
+    /**
+     * Read the expiration of the token without verification of the signature (it was already verified before the
+     * result was stored).
+     *
+     * @param token JWT token
+     * @param defaultValue value to return if the token does not contain any expiration or cannot be parsed
+     * @return time of expiration in milliseconds
+     */
+    static long getExpiration(String token, long defaultValue) {
+        final int index = token.indexOf('.');
+        final int index2 = token.indexOf('.', index + 1);
+        final String withoutSign = (index2 > 0) ? token.substring(0, index2 + 1) : token;
+
+        Claims claims;
+        try {
+            claims = UNSIGNED_JWT_PARSER.parseClaimsJwt(withoutSign).getBody();
+        } catch (ExpiredJwtException e) {
+            claims = e.getClaims();
+        } catch (JwtException | IllegalArgumentException e) {
+            return defaultValue;
+        }
+
+        Date expiration = claims.getExpiration();
+        return (expiration == null) ? defaultValue : expiration.getTime();
+    }
+
+    /**
+     * Hash of token, the first 128 bits of SHA-256 are enough to distinguish tokens and they are much smaller than the
+     * token itself.
+     */
+    @Getter
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    static final class TokenKey {
+
+        private final long high;
+        private final long low;
+
+        static TokenKey of(String token) {
+            MessageDigest digest = DIGEST.get();
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+            return new TokenKey(hash.getLong(), hash.getLong());
+        }
+
+        /**
+         * @param hex hash in the format of {@link #toHex()}
+         * @return the hash
+         * @throws NumberFormatException if the value is not a valid hash
+         */
+        static TokenKey fromHex(String hex) {
+            if (hex.length() != 32) {
+                throw new NumberFormatException("Invalid length of token hash: " + hex);
+            }
+            return new TokenKey(Long.parseUnsignedLong(hex.substring(0, 16), 16), Long.parseUnsignedLong(hex.substring(16), 16));
+        }
+
+        /**
+         * @return the hash as 32 hexadecimal characters, it could be used as a key in a remote cache
+         */
+        String toHex() {
+            return String.format("%016x%016x", high, low);
+        }
+
+    }
+
+    @RequiredArgsConstructor
+    private static class Record {
+
+        private final String username;
+        private final boolean authenticated;
+        private final Object value;
+        private final long expireAt;
+
+        static Record of(String token, Object value, long expireAt) {
+            if (value instanceof TokenAuthentication) {
+                TokenAuthentication tokenAuthentication = (TokenAuthentication) value;
+                if (token.equals(tokenAuthentication.getCredentials())) {
+                    // the token is not stored twice, it is available as the key on each lookup
+                    return new Record(tokenAuthentication.getPrincipal(), tokenAuthentication.isAuthenticated(), null, expireAt);
+                }
+            }
+            return new Record(null, false, value, expireAt);
+        }
+
+        Object toValue(String token) {
+            if (value != null) {
+                return value;
+            }
+
+            TokenAuthentication tokenAuthentication = new TokenAuthentication(username, token);
+            tokenAuthentication.setAuthenticated(authenticated);
+            return tokenAuthentication;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+
+    }
+
+    private class Shard {
+
+        private final Map<TokenKey, Record> records;
+
+        Shard(int capacity) {
+            this.records = new LinkedHashMap<TokenKey, Record>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 8237536012472213519L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<TokenKey, Record> eldest) {
+                    if (size() <= capacity) {
+                        return false;
+                    }
+
+                    if (eldest.getValue().isExpired(System.currentTimeMillis())) {
+                        expirationCount.incrementAndGet();
+                    } else {
+                        evictionCount.incrementAndGet();
+                    }
+                    return true;
+                }
+
+            };
+        }
+
+        synchronized Record get(TokenKey key) {
+            Record record = records.get(key);
+            if ((record != null) && record.isExpired(System.currentTimeMillis())) {
+                records.remove(key);
+                expirationCount.incrementAndGet();
+                return null;
+            }
+            return record;
+        }
+
+        synchronized void put(TokenKey key, Record record) {
+            records.put(key, record);
+        }
+
+        synchronized void remove(TokenKey key) {
+            records.remove(key);
+        }
+
+        synchronized void clear() {
+            records.clear();
+        }
+
+        synchronized int size() {
+            return records.size();
+        }
+
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint with statistics of the cache of JWT token validation results.
+ */
+@Endpoint(id = "tokenvalidationcache")
+@RequiredArgsConstructor
+public class TokenValidationCacheActuatorEndpoint {
+
+    private final TokenValidationCache tokenValidationCache;
+
+    @ReadOperation
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("size", (long) tokenValidationCache.getSize());
+        result.put("hits", tokenValidationCache.getHitCount());
+        result.put("misses", tokenValidationCache.getMissCount());
+        result.put("evictions", tokenValidationCache.getEvictionCount());
+        result.put("expirations", tokenValidationCache.getExpirationCount());
+        return result;
+    }
+
+}
@@ -9,19 +9,28 @@
  */
 package org.zowe.apiml.gateway.config;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.ehcache.EhCacheCacheManager;
 import org.springframework.cache.ehcache.EhCacheManagerFactoryBean;
 import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.support.CompositeCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
 import org.zowe.apiml.cache.CompositeKeyGenerator;
 import org.zowe.apiml.cache.CompositeKeyGeneratorWithoutLast;
+import org.zowe.apiml.gateway.cache.InvalidatedTokenCache;
+import org.zowe.apiml.gateway.cache.TokenValidationCache;
+import org.zowe.apiml.gateway.cache.TokenValidationCacheActuatorEndpoint;
 import org.zowe.apiml.util.CacheUtils;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Spring configuration to use EhCache. This context is using from application and also from tests.
@@ -32,6 +41,8 @@ public class CacheConfig {
 
     public static final String COMPOSITE_KEY_GENERATOR = "compositeKeyGenerator";
     public static final String COMPOSITE_KEY_GENERATOR_WITHOUT_LAST = "compositeKeyGeneratorWithoutLast";
+    public static final String CACHE_VALIDATION_JWT_TOKEN = "validationJwtToken";
+    public static final String CACHE_INVALIDATED_JWT_TOKENS = "invalidatedJwtTokens";
 
     private static final String EHCACHE_STORAGE_ENV_PARAM_NAME = "ehcache.disk.store.dir";
     private static final String APIML_CACHE_STORAGE_LOCATION_ENV_PARAM_NAME = "apiml.cache.storage.location";
@@ -46,11 +57,42 @@ public class CacheConfig {
         }
     }
 
+    @Value("${apiml.security.tokenValidationCache.maxEntries:" + TokenValidationCache.DEFAULT_MAX_ENTRIES + "}")
+    private int tokenValidationCacheMaxEntries;
+
+    @Value("${apiml.security.tokenValidationCache.shards:" + TokenValidationCache.DEFAULT_SHARDS + "}")
+    private int tokenValidationCacheShards;
+
+    /**
+     * Cache manager with the dedicated cache of validation results of JWT tokens and optionally the shared cache of
+     * invalidated tokens (see {@link InvalidatedTokenCache}), all other caches are provided by EhCache (see
+     * ehcache.xml).
+     */
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(ObjectProvider<InvalidatedTokenCache> invalidatedTokenCache) {
         net.sf.ehcache.CacheManager cache = ehCacheCacheManager().getObject();
         assert cache != null;
-        return new EhCacheCacheManager(cache);
+
+        List<org.springframework.cache.Cache> tokenCaches = new ArrayList<>();
+        tokenCaches.add(tokenValidationCache());
+        invalidatedTokenCache.ifAvailable(tokenCaches::add);
+
+        SimpleCacheManager tokenCacheManager = new SimpleCacheManager();
+        tokenCacheManager.setCaches(tokenCaches);
+        tokenCacheManager.afterPropertiesSet();
+
+        return new CompositeCacheManager(tokenCacheManager, new EhCacheCacheManager(cache));
+    }
+
+    @Bean
+    public TokenValidationCache tokenValidationCache() {
+        return new TokenValidationCache(CACHE_VALIDATION_JWT_TOKEN,
+            tokenValidationCacheMaxEntries, tokenValidationCacheShards, TokenValidationCache.DEFAULT_MAX_TIME_TO_LIVE);
+    }
+
+    @Bean
+    public TokenValidationCacheActuatorEndpoint tokenValidationCacheActuatorEndpoint(TokenValidationCache tokenValidationCache) {
+        return new TokenValidationCacheActuatorEndpoint(tokenValidationCache);
     }
 
     @Bean
@@ -19,6 +19,7 @@ import org.bouncycastle.util.io.pem.PemObject;
 import org.bouncycastle.util.io.pem.PemWriter;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.*;
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
 import org.zowe.apiml.gateway.security.service.JwtSecurity;
@@ -54,6 +55,7 @@ public class AuthController {
 
     public static final String CONTROLLER_PATH = "/gateway/auth";  // NOSONAR: URL is always using / to separate path segments
     public static final String INVALIDATE_PATH = "/invalidate/**";  // NOSONAR
+    public static final String INVALIDATE_BATCH_PATH = "/invalidate/batch";  // NOSONAR
     public static final String DISTRIBUTE_PATH = "/distribute/**";  // NOSONAR
     public static final String PUBLIC_KEYS_PATH = "/keys/public";  // NOSONAR
     public static final String ALL_PUBLIC_KEYS_PATH = PUBLIC_KEYS_PATH + "/all";
@@ -77,6 +79,24 @@ public class AuthController {
 
     }
 
+    /**
+     * Invalidate many tokens in one call. It is used by other instances of Gateway to distribute the invalidated
+     * tokens. Tokens which are not valid anymore (ie. expired) are skipped.
+     */
+    @PostMapping(path = INVALIDATE_BATCH_PATH)
+    @HystrixCommand
+    public void invalidateJwtTokens(@RequestBody List<String> jwtTokens, HttpServletResponse response) {
+        boolean invalidated = true;
+        for (final String jwtToken : jwtTokens) {
+            try {
+                invalidated &= authenticationService.invalidateJwtToken(jwtToken, false);
+            } catch (AuthenticationException e) {
+                // the token cannot be used anyway
+            }
+        }
+        response.setStatus(invalidated ? SC_OK : SC_SERVICE_UNAVAILABLE);
+    }
+
     @GetMapping(path = DISTRIBUTE_PATH)
     @HystrixCommand
     public void distributeInvalidate(HttpServletRequest request, HttpServletResponse response) {
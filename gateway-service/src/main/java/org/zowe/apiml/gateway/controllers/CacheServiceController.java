@@ -14,6 +14,7 @@ import lombok.AllArgsConstructor;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.zowe.apiml.gateway.discovery.ApimlDiscoveryClient;
 import org.zowe.apiml.gateway.security.service.ServiceCacheEvict;
@@ -24,6 +25,9 @@ import java.util.List;
  * This controller allows control the caches about services. The main purpose is to evict cached data
  * about services when a update happened in discovery service. Discovery service notifies about any
  * change to be sure that cache on gateway is still valid.
+ * <p>
+ * Changes of many services can be notified in one call (query parameter serviceIds), the registry is then fetched only
+ * once.
  */
 @AllArgsConstructor
 @RestController
@@ -31,6 +35,7 @@ import java.util.List;
 public class CacheServiceController {
 
     public static final String CONTROLLER_PATH = "/gateway/cache/services";  // NOSONAR: URL is always using / to separate path segments
+    public static final String SERVICE_IDS_PARAM = "serviceIds";
 
     private final List<ServiceCacheEvict> toEvict;
     private final ApimlDiscoveryClient discoveryClient;
@@ -42,6 +47,13 @@ public class CacheServiceController {
         discoveryClient.fetchRegistry();
     }
 
+    @DeleteMapping(path = "", params = SERVICE_IDS_PARAM)
+    @HystrixCommand
+    public void evictServices(@RequestParam(SERVICE_IDS_PARAM) List<String> serviceIds) {
+        serviceIds.forEach(serviceId -> toEvict.forEach(s -> s.evictCacheService(serviceId)));
+        discoveryClient.fetchRegistry();
+    }
+
     @DeleteMapping(path = "/{serviceId}")
     @HystrixCommand
     public void evict(@PathVariable("serviceId") String serviceId) {
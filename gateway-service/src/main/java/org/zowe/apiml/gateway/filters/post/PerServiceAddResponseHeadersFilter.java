@@ -13,13 +13,9 @@ import com.netflix.zuul.ZuulFilter;
 import com.netflix.zuul.context.RequestContext;
 import com.netflix.zuul.exception.ZuulException;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.lang3.StringUtils;
-import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.stereotype.Component;
-
-import java.util.List;
-import java.util.Map;
+import org.zowe.apiml.gateway.metadata.service.ServicePolicyRegistry;
 
 import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.*;
 
@@ -30,7 +26,7 @@ import static org.springframework.cloud.netflix.zuul.filters.support.FilterConst
 @RequiredArgsConstructor
 public class PerServiceAddResponseHeadersFilter extends ZuulFilter {
 
-    private final DiscoveryClient discoveryClient;
+    private final ServicePolicyRegistry servicePolicyRegistry;
 
     @Override
     public String filterType() {
@@ -51,24 +47,8 @@ public class PerServiceAddResponseHeadersFilter extends ZuulFilter {
     public Object run() throws ZuulException {
         RequestContext context = RequestContext.getCurrentContext();
         String serviceId = (String) context.get(SERVICE_ID_KEY);
-        List<ServiceInstance> serviceInstances = discoveryClient.getInstances(serviceId);
-
-        if (serviceInstances != null && !serviceInstances.isEmpty()) {
-            ServiceInstance serviceInstance = serviceInstances.get(0);
-            Map<String, String> metadata = serviceInstance.getMetadata();
-
-            String headersToAdd = metadata.get("apiml.response.headers");
-            if (headersToAdd != null && !headersToAdd.trim().isEmpty()) {
-                String[] headerValuePairs = StringUtils.stripAll(headersToAdd.split(","));
-
-                for (String headerValuePair : headerValuePairs) {
-                    String[] headerValue = StringUtils.stripAll(headerValuePair.split(":", 2)); // separate header name and header value
-                    String header = headerValue[0];
-                    String value = headerValue.length > 1 ? headerValue[1] : "";
-
-                    context.addZuulResponseHeader(header, value);
-                }
-            }
+        for (Pair<String, String> header : servicePolicyRegistry.getPolicy(serviceId).getResponseHeaders()) {
+            context.addZuulResponseHeader(header.getKey(), header.getValue());
         }
 
         return null;
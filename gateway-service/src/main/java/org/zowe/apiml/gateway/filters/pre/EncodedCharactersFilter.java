@@ -18,13 +18,12 @@ import com.netflix.zuul.ZuulFilter;
 import com.netflix.zuul.context.RequestContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.netflix.zuul.filters.support.FilterConstants;
 import org.springframework.http.HttpStatus;
+import org.zowe.apiml.gateway.metadata.service.ServicePolicy;
+import org.zowe.apiml.gateway.metadata.service.ServicePolicyRegistry;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.*;
 
@@ -40,9 +39,9 @@ import static org.springframework.cloud.netflix.zuul.filters.support.FilterConst
 @Slf4j
 public class EncodedCharactersFilter extends ZuulFilter {
 
-    private final DiscoveryClient discoveryClient;
+    private final ServicePolicyRegistry servicePolicyRegistry;
     private final MessageService messageService;
-    public static final String METADATA_KEY = "apiml.enableUrlEncodedCharacters";
+    public static final String METADATA_KEY = ServicePolicy.ENCODED_CHARACTERS_KEY;
     private static final List<String> PROHIBITED_CHARACTERS =
         Arrays.asList("%2e", "%2E", ";", "%3b", "%3B", "%2f", "%2F", "\\", "%5c", "%5C", "%25", "%");
 
@@ -58,24 +57,10 @@ public class EncodedCharactersFilter extends ZuulFilter {
 
     @Override
     public boolean shouldFilter() {
-        boolean shouldFilter = true;
-
         RequestContext context = RequestContext.getCurrentContext();
         final String serviceId = (String) context.get(SERVICE_ID_KEY);
 
-        List<ServiceInstance> instanceList = discoveryClient.getInstances(serviceId);
-
-        List<Map<String, String>> enabledList = instanceList.stream()
-            .map(ServiceInstance::getMetadata)
-            .filter(metadata -> metadata.get(METADATA_KEY) == null
-                || String.valueOf(true).equalsIgnoreCase(metadata.get(METADATA_KEY)))
-            .collect(Collectors.toList());
-
-        if (enabledList.size() == instanceList.size()) {
-            shouldFilter = false;
-        }
-
-        return shouldFilter;
+        return !servicePolicyRegistry.getPolicy(serviceId).isEncodedCharactersAllowed();
     }
 
     @Override
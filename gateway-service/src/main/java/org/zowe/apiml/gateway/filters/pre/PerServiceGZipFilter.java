@@ -10,104 +10,113 @@
 package org.zowe.apiml.gateway.filters.pre;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
-import org.zowe.apiml.gzip.GZipResponseUtils;
-import org.zowe.apiml.gzip.GZipResponseWrapper;
+import org.zowe.apiml.gateway.metadata.service.ServicePolicy;
+import org.zowe.apiml.gateway.metadata.service.ServicePolicyRegistry;
+import org.zowe.apiml.gzip.*;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.zip.GZIPOutputStream;
+import java.util.*;
 
 /**
  * This filter will wrap the response object in GZipResponseWrapper for future compression. Once the response is
- * retrieved from service, it will be written to the GZipOutputStream. It will also add the Content-Encoding header.
+ * retrieved from service, it will be written to the stream of the codec negotiated with the client (gzip or
+ * deflate). It will also add the Content-Encoding header. The response already encoded by the service is passed
+ * through without compression.
+ * The compressed response is buffered up to the configured threshold, bigger responses are streamed to the client
+ * as they arrive without the Content-Length.
  */
 @Component
 @RequiredArgsConstructor
 public class PerServiceGZipFilter extends OncePerRequestFilter {
 
-    private final DiscoveryClient discoveryClient;
+    public static final int DEFAULT_BUFFER_THRESHOLD = 1024 * 1024;
 
-    @Override
-    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        if (requiresCompression(request)) {
-            final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
-            final GZIPOutputStream compressedStream = new GZIPOutputStream(compressed);
-
-            final GZipResponseWrapper gzipWrapper = new GZipResponseWrapper(response, compressedStream);
-            gzipWrapper.setDisableFlushBuffer(true);
-            filterChain.doFilter(request, gzipWrapper);
-            gzipWrapper.flush();
-            compressedStream.close();
-            if (response.isCommitted()) {
-                return;
-            }
-
-            switch (gzipWrapper.getStatus()) {
-                case HttpServletResponse.SC_NO_CONTENT:
-                case HttpServletResponse.SC_RESET_CONTENT:
-                case HttpServletResponse.SC_NOT_MODIFIED:
-                    return;
-                default:
-            }
-            byte[] compressedBytes = compressed.toByteArray();
-            boolean shouldGzippedBodyBeZero = GZipResponseUtils.shouldGzippedBodyBeZero(compressedBytes);
-            boolean shouldBodyBeZero = GZipResponseUtils.shouldBodyBeZero(gzipWrapper.getStatus());
-            if (shouldGzippedBodyBeZero || shouldBodyBeZero) {
-                // No reason to add GZIP headers or write body if no content was written or status code specifies no
-                // content
-                response.setContentLength(0);
-                return;
-            }
+    private final ServicePolicyRegistry servicePolicyRegistry;
 
-            // Write the zipped body
-            GZipResponseUtils.addGzipHeader(response);
+    /**
+     * Maximum size of compressed response kept in memory. Bigger responses are streamed with chunked encoding.
+     */
+    @Value("${apiml.gateway.compression.bufferThreshold:" + DEFAULT_BUFFER_THRESHOLD + "}")
+    private int bufferThreshold = DEFAULT_BUFFER_THRESHOLD;
 
-            response.setContentLength(compressedBytes.length);
+    /**
+     * Supported codecs in the order of preference
+     */
+    private final List<CompressionCodec> codecs = Arrays.asList(StandardCompressionCodec.values());
 
-            response.getOutputStream().write(compressedBytes);
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        Optional<ServicePolicy> policy = getPolicyForUri(request.getRequestURI());
+        Optional<CompressionCodec> codec = policy
+            .filter(p -> p.requestsCompression(request.getRequestURI()))
+            .flatMap(p -> negotiateCodec(request));
 
+        if (codec.isPresent()) {
+            compress(request, response, filterChain, codec.get(), policy.get().getCompressionLevel());
         } else {
             filterChain.doFilter(request, response);
         }
-
     }
 
-    /**
-     * The compression is requested when the Client specifies the Accept-Encoding header and there is valid Instance for
-     * the service and the Instance specifies that it is interested in compression and either specify no pattern for the
-     * and matcher or the URL matches the path.
-     *
-     * @param request The request to verify
-     */
-    boolean requiresCompression(HttpServletRequest request) {
-        String requestUri = request.getRequestURI();
-        boolean acceptsCompression = requestAcceptsCompression(request);
-        Optional<ServiceInstance> validInstance = getInstanceInfoForUri(requestUri);
-        if (!validInstance.isPresent()) {
-            return false;
+    private void compress(
+        HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+        CompressionCodec codec, int level
+    ) throws ServletException, IOException {
+        // small responses are buffered to be sent with Content-Length, bigger ones are streamed in chunks
+        final ThresholdOutputStream compressed = new ThresholdOutputStream(bufferThreshold, () -> {
+            GZipResponseUtils.addContentEncodingHeader(response, codec.getEncoding());
+            return response.getOutputStream();
+        });
+        // the codec is created with the first byte of body, it is not needed for passed through or empty responses
+        final LazyOutputStream compressedStream = new LazyOutputStream(() -> codec.compress(compressed, level));
+
+        final GZipResponseWrapper gzipWrapper = new GZipResponseWrapper(response, compressedStream);
+        gzipWrapper.setDisableFlushBuffer(true);
+        filterChain.doFilter(request, gzipWrapper);
+        gzipWrapper.flush();
+        compressedStream.close();
+        if (gzipWrapper.isPassthrough() || compressed.isStreaming() || response.isCommitted()) {
+            return;
         }
-        boolean serviceRequestsCompression = serviceOnRouteRequestsCompression(validInstance.get(), requestUri);
 
-        return acceptsCompression && serviceRequestsCompression;
+        switch (gzipWrapper.getStatus()) {
+            case HttpServletResponse.SC_NO_CONTENT:
+            case HttpServletResponse.SC_RESET_CONTENT:
+            case HttpServletResponse.SC_NOT_MODIFIED:
+                return;
+            default:
+        }
+        byte[] compressedBytes = compressed.toByteArray();
+        boolean shouldCompressedBodyBeZero = !compressedStream.isOpened() || codec.isEmpty(compressedBytes);
+        boolean shouldBodyBeZero = GZipResponseUtils.shouldBodyBeZero(gzipWrapper.getStatus());
+        if (shouldCompressedBodyBeZero || shouldBodyBeZero) {
+            // No reason to add encoding headers or write body if no content was written or status code specifies no
+            // content
+            response.setContentLength(0);
+            return;
+        }
+
+        // Write the compressed body
+        GZipResponseUtils.addContentEncodingHeader(response, codec.getEncoding());
+
+        response.setContentLength(compressedBytes.length);
+
+        response.getOutputStream().write(compressedBytes);
     }
 
     // Verify non versioned APIs
-    Optional<ServiceInstance> getInstanceInfoForUri(String requestUri) {
+    Optional<ServicePolicy> getPolicyForUri(String requestUri) {
         // Compress only if there is valid instance with relevant metadata.
         String[] uriParts = requestUri.split("/");
-        List<ServiceInstance> instances;
+        ServicePolicy policy;
         if (uriParts.length < 2) {
             return Optional.empty();
         }
@@ -115,47 +124,56 @@ public class PerServiceGZipFilter extends OncePerRequestFilter {
             if (uriParts.length < 4) {
                 return Optional.empty();
             }
-            instances = discoveryClient.getInstances(uriParts[3]);
+            policy = servicePolicyRegistry.getPolicy(uriParts[3]);
         } else {
-            instances = discoveryClient.getInstances(uriParts[1]);
+            policy = servicePolicyRegistry.getPolicy(uriParts[1]);
         }
-        if (instances == null || instances.isEmpty()) {
+        if (!policy.isAvailable()) {
             return Optional.empty();
         }
 
-        return Optional.of(instances.get(0));
+        return Optional.of(policy);
     }
 
-    boolean requestAcceptsCompression(HttpServletRequest request) {
+    /**
+     * Select the codec by the Accept-Encoding header of the request. The codec with the highest quality is used, if
+     * more codecs have the same quality, the first one in {@link #codecs} is preferred.
+     *
+     * @param request The request to verify
+     * @return the codec to use or empty if the client does not accept any of them
+     */
+    Optional<CompressionCodec> negotiateCodec(HttpServletRequest request) {
         String encodingHeader = request.getHeader("Accept-Encoding");
         if (encodingHeader == null) {
-            return false;
-        } else return encodingHeader.contains("gzip");
-    }
-
-    boolean serviceOnRouteRequestsCompression(ServiceInstance instance, String requestUri) {
-        Map<String, String> metadata = instance.getMetadata();
-        boolean allowCompressionForService = "true".equals(metadata.get("apiml.response.compress"));
-        if (!allowCompressionForService) {
-            return false;
+            return Optional.empty();
         }
 
-        String routesToCompress = metadata.get("apiml.response.compressRoutes");
-        if (routesToCompress == null) {
-            return true;
+        Map<String, Double> accepted = new HashMap<>();
+        for (String token : encodingHeader.split(",")) {
+            String[] parts = token.split(";");
+            accepted.put(parts[0].trim().toLowerCase(), getQuality(parts));
         }
 
-        String[] setOfRoutesToMatch = routesToCompress.split(",");
-        AntPathMatcher matcher = new AntPathMatcher();
-        for (String pattern: setOfRoutesToMatch) {
-            if (!pattern.startsWith("/")) {
-                pattern = "/" + pattern;
-            }
-            if (matcher.match(pattern, requestUri)) {
-                return true;
+        CompressionCodec selected = null;
+        double selectedQuality = 0;
+        for (CompressionCodec codec : codecs) {
+            double quality = accepted.getOrDefault(codec.getEncoding(), accepted.getOrDefault("*", 0.0));
+            if (quality > selectedQuality) {
+                selected = codec;
+                selectedQuality = quality;
             }
         }
 
-        return false;
+        return Optional.ofNullable(selected);
+    }
+
+    private double getQuality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                return NumberUtils.toDouble(parameter.substring(2), 0);
+            }
+        }
+        return 1;
     }
 }
@@ -13,15 +13,11 @@ import com.netflix.zuul.ZuulFilter;
 import com.netflix.zuul.context.RequestContext;
 import com.netflix.zuul.exception.ZuulException;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.netflix.zuul.filters.ProxyRequestHelper;
 import org.springframework.cloud.netflix.zuul.filters.ZuulProperties;
 import org.springframework.stereotype.Component;
-
-import java.util.List;
+import org.zowe.apiml.gateway.metadata.service.ServicePolicyRegistry;
 
 import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.*;
 
@@ -29,12 +25,12 @@ import static org.springframework.cloud.netflix.zuul.filters.support.FilterConst
 @RequiredArgsConstructor
 public class PerServiceIgnoreHeaderFilter extends ZuulFilter {
 
-    private final DiscoveryClient discoveryClient;
+    private final ServicePolicyRegistry servicePolicyRegistry;
     private final ProxyRequestHelper proxyRequestHelper;
 
     @Autowired
-    public PerServiceIgnoreHeaderFilter(DiscoveryClient discoveryClient, ZuulProperties zuulProperties) {
-        this.discoveryClient = discoveryClient;
+    public PerServiceIgnoreHeaderFilter(ServicePolicyRegistry servicePolicyRegistry, ZuulProperties zuulProperties) {
+        this.servicePolicyRegistry = servicePolicyRegistry;
         this.proxyRequestHelper = new ProxyRequestHelper(zuulProperties);
     }
 
@@ -57,16 +53,10 @@ public class PerServiceIgnoreHeaderFilter extends ZuulFilter {
     public Object run() throws ZuulException {
         RequestContext context = RequestContext.getCurrentContext();
         String serviceId = (String) context.get(SERVICE_ID_KEY);
-        List<ServiceInstance> serviceInstances = discoveryClient.getInstances(serviceId);
-
-        if (serviceInstances != null && !serviceInstances.isEmpty()) {
-            ServiceInstance serviceInstance = serviceInstances.get(0);
-            String headersToIgnore = serviceInstance.getMetadata().get("apiml.headersToIgnore");
+        String[] headersToIgnore = servicePolicyRegistry.getPolicy(serviceId).getHeadersToIgnore();
 
-            if (headersToIgnore != null && !headersToIgnore.trim().isEmpty()) {
-                String[] headers = StringUtils.stripAll(headersToIgnore.split(","));
-                proxyRequestHelper.addIgnoredHeaders(headers);
-            }
+        if (headersToIgnore.length > 0) {
+            proxyRequestHelper.addIgnoredHeaders(headersToIgnore);
         }
 
         return null;
@@ -0,0 +1,173 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.metadata.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.*;
+import java.util.zip.Deflater;
+
+/**
+ * Immutable routing policy of one service, derived from the metadata of its instances. It is built once per registry
+ * refresh by {@link ServicePolicyRegistry}, so filters don't need to parse the raw metadata on each request.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ServicePolicy {
+
+    public static final String ENCODED_CHARACTERS_KEY = "apiml.enableUrlEncodedCharacters";
+    public static final String COMPRESS_KEY = "apiml.response.compress";
+    public static final String COMPRESS_ROUTES_KEY = "apiml.response.compressRoutes";
+    public static final String COMPRESS_LEVEL_KEY = "apiml.response.compressLevel";
+    public static final String HEADERS_TO_IGNORE_KEY = "apiml.headersToIgnore";
+    public static final String RESPONSE_HEADERS_KEY = "apiml.response.headers";
+
+    public static final ServicePolicy EMPTY = new ServicePolicy(
+        false, true, false, Collections.emptyList(), Deflater.DEFAULT_COMPRESSION, new String[0], Collections.emptyList()
+    );
+
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+    /**
+     * At least one instance of the service is registered
+     */
+    boolean available;
+
+    /**
+     * All instances allow encoded characters in the URL (it is the default)
+     */
+    boolean encodedCharactersAllowed;
+
+    /**
+     * The service asks for compression of responses
+     */
+    boolean compressionEnabled;
+
+    /**
+     * Normalized patterns of routes to compress, empty list means all routes
+     */
+    List<String> compressRoutes;
+
+    /**
+     * Compression level (0-9) requested by the service, {@link Deflater#DEFAULT_COMPRESSION} if not set
+     */
+    int compressionLevel;
+
+    /**
+     * Request headers which should not be passed to the service
+     */
+    String[] headersToIgnore;
+
+    /**
+     * Headers (name and value) to add to each response of the service
+     */
+    List<Pair<String, String>> responseHeaders;
+
+    /**
+     * Build the policy from the instances of one service. The encoded characters policy is pessimistic (all instances
+     * have to allow them), the other values are taken from the first instance.
+     *
+     * @param instances all instances of the service
+     * @return policy of the service
+     */
+    public static ServicePolicy of(List<ServiceInstance> instances) {
+        if (instances == null || instances.isEmpty()) {
+            return EMPTY;
+        }
+
+        boolean encodedCharactersAllowed = instances.stream()
+            .map(ServiceInstance::getMetadata)
+            .allMatch(metadata -> metadata.get(ENCODED_CHARACTERS_KEY) == null
+                || String.valueOf(true).equalsIgnoreCase(metadata.get(ENCODED_CHARACTERS_KEY)));
+
+        Map<String, String> metadata = instances.get(0).getMetadata();
+        return new ServicePolicy(
+            true,
+            encodedCharactersAllowed,
+            "true".equals(metadata.get(COMPRESS_KEY)),
+            parseCompressRoutes(metadata.get(COMPRESS_ROUTES_KEY)),
+            parseCompressionLevel(metadata.get(COMPRESS_LEVEL_KEY)),
+            parseHeadersToIgnore(metadata.get(HEADERS_TO_IGNORE_KEY)),
+            parseResponseHeaders(metadata.get(RESPONSE_HEADERS_KEY))
+        );
+    }
+
+    /**
+     * @param requestUri URI of the request
+     * @return true if the service asks for compression of the response on this route
+     */
+    public boolean requestsCompression(String requestUri) {
+        if (!compressionEnabled) {
+            return false;
+        }
+
+        if (compressRoutes.isEmpty()) {
+            return true;
+        }
+
+        for (String pattern : compressRoutes) {
+            if (MATCHER.match(pattern, requestUri)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static List<String> parseCompressRoutes(String routesToCompress) {
+        if (routesToCompress == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> patterns = new ArrayList<>();
+        for (String pattern : routesToCompress.split(",")) {
+            patterns.add(pattern.startsWith("/") ? pattern : "/" + pattern);
+        }
+        return Collections.unmodifiableList(patterns);
+    }
+
+    private static int parseCompressionLevel(String level) {
+        int value = NumberUtils.toInt(StringUtils.trim(level), Deflater.DEFAULT_COMPRESSION);
+        if ((value < Deflater.NO_COMPRESSION) || (value > Deflater.BEST_COMPRESSION)) {
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+        return value;
+    }
+
+    private static String[] parseHeadersToIgnore(String headersToIgnore) {
+        if (headersToIgnore == null || headersToIgnore.trim().isEmpty()) {
+            return new String[0];
+        }
+
+        return StringUtils.stripAll(headersToIgnore.split(","));
+    }
+
+    private static List<Pair<String, String>> parseResponseHeaders(String headersToAdd) {
+        if (headersToAdd == null || headersToAdd.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Pair<String, String>> headers = new ArrayList<>();
+        for (String headerValuePair : StringUtils.stripAll(headersToAdd.split(","))) {
+            String[] headerValue = StringUtils.stripAll(headerValuePair.split(":", 2)); // separate header name and header value
+            headers.add(Pair.of(headerValue[0], headerValue.length > 1 ? headerValue[1] : ""));
+        }
+        return Collections.unmodifiableList(headers);
+    }
+
+}
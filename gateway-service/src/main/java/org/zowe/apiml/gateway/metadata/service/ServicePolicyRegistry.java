@@ -0,0 +1,119 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.metadata.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.stereotype.Service;
+import org.zowe.apiml.auth.Authentication;
+import org.zowe.apiml.eurekaservice.client.util.EurekaMetadataParser;
+
+import java.util.*;
+
+/**
+ * Registry of {@link ServicePolicy} for all registered services. The policies are built on each refresh of the
+ * registry and published as one immutable snapshot, so the lookup in filters does not touch the discovery client
+ * nor parse any metadata.
+ *
+ * If the snapshot doesn't contain the service yet (it was registered after the last refresh), the policy is computed
+ * from the discovery client on demand.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ServicePolicyRegistry extends RefreshEventListener {
+
+    private final DiscoveryClient discoveryClient;
+    private final EurekaMetadataParser eurekaMetadataParser;
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap(), Collections.emptyMap());
+
+    @Override
+    public void refresh() {
+        Map<String, ServicePolicy> policies = new HashMap<>();
+        Map<String, InstanceAuthentication> authentications = new HashMap<>();
+
+        for (String serviceId : discoveryClient.getServices()) {
+            List<ServiceInstance> instances = discoveryClient.getInstances(serviceId);
+            policies.put(serviceId.toLowerCase(), ServicePolicy.of(instances));
+
+            for (ServiceInstance instance : instances) {
+                if (instance.getInstanceId() != null) {
+                    authentications.put(instance.getInstanceId(), new InstanceAuthentication(
+                        instance.getMetadata(), eurekaMetadataParser.parseAuthentication(instance.getMetadata())
+                    ));
+                }
+            }
+        }
+
+        snapshot = new Snapshot(Collections.unmodifiableMap(policies), Collections.unmodifiableMap(authentications));
+        log.debug("Policies of {} services were refreshed", policies.size());
+    }
+
+    /**
+     * @param serviceId id of service
+     * @return policy of the service, {@link ServicePolicy#EMPTY} if there is no instance of the service
+     */
+    public ServicePolicy getPolicy(String serviceId) {
+        if (serviceId == null) {
+            return ServicePolicy.EMPTY;
+        }
+
+        ServicePolicy policy = snapshot.getPolicies().get(serviceId.toLowerCase());
+        if (policy != null) {
+            return policy;
+        }
+
+        return ServicePolicy.of(discoveryClient.getInstances(serviceId));
+    }
+
+    /**
+     * Return the parsed authentication of the instance. The value is used only if the snapshot was built from the same
+     * metadata as provided, otherwise (the instance was changed after the last refresh) the method returns null and
+     * the caller has to parse the metadata itself.
+     *
+     * @param instanceId id of instance
+     * @param metadata current metadata of the instance
+     * @return parsed authentication or null if it is not available in the snapshot
+     */
+    public Authentication getAuthentication(String instanceId, Map<String, String> metadata) {
+        if (instanceId == null) {
+            return null;
+        }
+
+        InstanceAuthentication authentication = snapshot.getAuthentications().get(instanceId);
+        if ((authentication == null) || (authentication.getMetadata() != metadata)) {
+            return null;
+        }
+
+        return authentication.getAuthentication();
+    }
+
+    @Value
+    private static class Snapshot {
+
+        Map<String, ServicePolicy> policies;
+        Map<String, InstanceAuthentication> authentications;
+
+    }
+
+    @Value
+    private static class InstanceAuthentication {
+
+        Map<String, String> metadata;
+        Authentication authentication;
+
+    }
+
+}
@@ -61,7 +61,32 @@ public class LoadBalancerRuleAdapter extends ClientConfigEnabledRoundRobinRule {
     @Override
     public Server choose(Object key) {
         log.debug("Choosing server: {}", key);
+        List<Server> allServers = applyPredicates();
+        log.debug("Running Zuul predicates");
+        Optional<Server> server = zuulPredicate.chooseRoundRobinAfterFiltering(allServers, key); //NOSONAR following zuul's api
+        if (server.isPresent()) {
+            log.debug("Selected server: {}", server.get());
+            return server.get();
+        } else {
+            log.debug("Did not select any server");
+            return null;
+        }
+    }
+
+    /**
+     * Returns all servers which could be chosen for the current request (they match all predicates and Zuul's
+     * availability), so the caller can choose one by another strategy than round robin.
+     *
+     * @param key key of load balancer
+     * @return list of eligible servers
+     */
+    public List<Server> getEligibleServers(Object key) {
+        return zuulPredicate.getEligibleServers(applyPredicates(), key);
+    }
+
+    private List<Server> applyPredicates() {
         ILoadBalancer lb = getLoadBalancer();
+        // the context is shared by all predicates and servers, predicates can memoize per-request data in it
         LoadBalancingContext ctx = new LoadBalancingContext(instanceInfo.getAppName(), instanceInfo);
         List<Server> allServers = lb.getAllServers();
         log.debug("Path: {}, List of servers from LoadBalancer: {}", ctx.getPath() ,allServers);
@@ -79,15 +104,7 @@ public class LoadBalancerRuleAdapter extends ClientConfigEnabledRoundRobinRule {
                 .collect(Collectors.toList());
             log.debug("List of servers after predicate: {}", allServers);
         }
-        log.debug("Running Zuul predicates");
-        Optional<Server> server = zuulPredicate.chooseRoundRobinAfterFiltering(allServers, key); //NOSONAR following zuul's api
-        if (server.isPresent()) {
-            log.debug("Selected server: {}", server.get());
-            return server.get();
-        } else {
-            log.debug("Did not select any server");
-            return null;
-        }
+        return allServers;
     }
 
     @Override
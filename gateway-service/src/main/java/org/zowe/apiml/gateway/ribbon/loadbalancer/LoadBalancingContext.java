@@ -12,13 +12,21 @@ package org.zowe.apiml.gateway.ribbon.loadbalancer;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.zuul.context.RequestContext;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
 /**
  * Provides information about the request to individual load balancing predicates
  * so they can decide which server to select
+ *
+ * The context is created once per server selection and is shared by all predicates and servers, so it can also be
+ * used to memoize values which are expensive to resolve (ie. remote cache lookups).
  */
 @Getter
 public class LoadBalancingContext {
@@ -26,6 +34,8 @@ public class LoadBalancingContext {
     private final InstanceInfo instanceInfo;
     private RequestContext requestContext;
     private SecurityContext securityContext;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Object> attributes = new HashMap<>();
 
     public LoadBalancingContext(String key, InstanceInfo instanceInfo) {
         this.key = key;
@@ -34,6 +44,19 @@ public class LoadBalancingContext {
         this.securityContext = SecurityContextHolder.getContext();
     }
 
+    /**
+     * Returns value stored under the key. If there is no such value yet, it is computed by the supplier and remembered
+     * for the rest of the server selection.
+     *
+     * @param key      identification of the value
+     * @param supplier supplier of the value, it is called at most once per context and key
+     * @return value stored under the key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T computeIfAbsent(String key, Supplier<T> supplier) {
+        return (T) attributes.computeIfAbsent(key, k -> supplier.get());
+    }
+
     public String getPath() {
         return requestContext.getRequest() == null ? "" : requestContext.getRequest().getServletPath();
     }
@@ -29,46 +29,58 @@ import static org.springframework.cloud.netflix.zuul.filters.support.FilterConst
  * Based on the authentication information decide which instance should be used.
  * If the user is authenticated and already has routing information stored in cache, use the information.
  * <p>
- * There is also terrible overhead as this happens for all instance ids.
+ * The preferred instance is resolved only once per server selection and memoized in the {@link LoadBalancingContext},
+ * so the cache (possibly remote) is not called for every instance id.
  */
 @RequiredArgsConstructor
 @Slf4j
 public class AuthenticationBasedPredicate extends RequestAwarePredicate {
+    static final String PREFERRED_INSTANCE_KEY = AuthenticationBasedPredicate.class.getName() + ".preferredInstance";
+
     private final RequestAuthenticationService authenticationService;
     private final LoadBalancerCache cache;
     private final int expirationTime;
 
     @Override
     public boolean apply(LoadBalancingContext context, DiscoveryEnabledServer server) {
+        Optional<String> preferredInstanceId = context.computeIfAbsent(PREFERRED_INSTANCE_KEY, () -> resolvePreferredInstance(context));
+        if (!preferredInstanceId.isPresent()) {
+            return true;
+        }
+
+        return server.getInstanceInfo().getInstanceId().equalsIgnoreCase(preferredInstanceId.get());
+    }
+
+    private Optional<String> resolvePreferredInstance(LoadBalancingContext context) {
         RequestContext requestContext = context.getRequestContext();
         String instanceId = context.getInstanceInfo().getInstanceId();
         String serviceId = (String) requestContext.get(SERVICE_ID_KEY);
         if (serviceId == null) {
             // This should never happen
-            return true;
+            return Optional.empty();
         }
 
         Optional<String> authenticatedUser = authenticationService.getPrincipalFromRequest(requestContext.getRequest());
 
         if (!authenticatedUser.isPresent()) {
             log.debug("No authentication present on request, not filtering instance: {}", instanceId);
-            return true;
+            return Optional.empty();
         }
 
         String username = authenticatedUser.get();
         LoadBalancerCacheRecord loadBalancerCacheRecord = cache.retrieve(username, serviceId);
         if (loadBalancerCacheRecord == null || loadBalancerCacheRecord.getInstanceId() == null) {
             log.debug("No preference exists, not filtering instance: {}", instanceId);
-            return true;
+            return Optional.empty();
         }
 
         if (isTooOld(loadBalancerCacheRecord.getCreationTime())) {
             cache.delete(username, serviceId);
             log.debug("Expired preference exists and was deleted. not filtering instance: {}", instanceId);
-            return true;
+            return Optional.empty();
         }
 
-        return server.getInstanceInfo().getInstanceId().equalsIgnoreCase(loadBalancerCacheRecord.getInstanceId());
+        return Optional.of(loadBalancerCacheRecord.getInstanceId());
     }
 
     @Override
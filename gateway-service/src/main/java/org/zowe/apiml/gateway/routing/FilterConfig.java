@@ -17,6 +17,7 @@ import org.springframework.context.annotation.Configuration;
 import org.zowe.apiml.gateway.cache.LoadBalancerCache;
 import org.zowe.apiml.gateway.filters.post.*;
 import org.zowe.apiml.gateway.filters.pre.*;
+import org.zowe.apiml.gateway.metadata.service.ServicePolicyRegistry;
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
 import org.zowe.apiml.gateway.security.service.RequestAuthenticationService;
 import org.zowe.apiml.message.core.MessageService;
@@ -31,9 +32,9 @@ public class FilterConfig {
     }
 
     @Bean
-    public EncodedCharactersFilter encodedCharactersFilter(DiscoveryClient discovery,
+    public EncodedCharactersFilter encodedCharactersFilter(ServicePolicyRegistry servicePolicyRegistry,
                                                            MessageService messageService) {
-        return new EncodedCharactersFilter(discovery, messageService);
+        return new EncodedCharactersFilter(servicePolicyRegistry, messageService);
     }
 
     @Bean
@@ -9,12 +9,18 @@
  */
 package org.zowe.apiml.gateway.security.config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.web.client.RestTemplate;
 import org.zowe.apiml.gateway.security.login.Providers;
+import org.zowe.apiml.gateway.security.service.PassTicketActuatorEndpoint;
+import org.zowe.apiml.gateway.security.service.PassTicketManager;
+import org.zowe.apiml.gateway.security.service.TokenInvalidationDistributor;
 import org.zowe.apiml.gateway.security.service.zosmf.ZosmfService;
 import org.zowe.apiml.passticket.PassTicketService;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
@@ -46,6 +52,40 @@ public class ComponentsConfiguration {
         return new PassTicketService();
     }
 
+    /**
+     * Keeps PassTickets of active users and refreshes them ahead of their expiration, so the request processing
+     * doesn't wait for the generation. By default a ticket is used for the configured PassTicket timeout and it is
+     * refreshed until the user doesn't call any service for the same time.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public PassTicketManager passTicketManager(
+        PassTicketService passTicketService,
+        AuthConfigurationProperties authConfigurationProperties,
+        @Value("${apiml.security.passTicket.refreshIntervalInMillis:30000}") long refreshInterval,
+        @Value("${apiml.security.passTicket.idleTimeoutInMillis:0}") long idleTimeout
+    ) {
+        long ticketLifetime = authConfigurationProperties.getPassTicket().getTimeout() * 1000L;
+        return new PassTicketManager(passTicketService, ticketLifetime, refreshInterval,
+            (idleTimeout > 0) ? idleTimeout : ticketLifetime);
+    }
+
+    @Bean
+    public PassTicketActuatorEndpoint passTicketActuatorEndpoint(PassTicketManager passTicketManager) {
+        return new PassTicketActuatorEndpoint(passTicketManager);
+    }
+
+    /**
+     * Distributes invalidated tokens to other instances of Gateway. The calls are authenticated by client certificate.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public TokenInvalidationDistributor tokenInvalidationDistributor(
+        @Qualifier("restTemplateWithKeystore") RestTemplate restTemplate,
+        @Value("${apiml.security.tokenInvalidation.threads:" + TokenInvalidationDistributor.DEFAULT_THREADS + "}") int threads,
+        @Value("${apiml.security.tokenInvalidation.batchSize:" + TokenInvalidationDistributor.DEFAULT_BATCH_SIZE + "}") int batchSize
+    ) {
+        return new TokenInvalidationDistributor(restTemplate, threads, batchSize);
+    }
+
     @Bean
     @Lazy
     public Providers loginProviders(
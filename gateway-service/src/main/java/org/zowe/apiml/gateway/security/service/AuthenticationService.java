@@ -13,6 +13,7 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.EurekaClient;
 import com.netflix.discovery.shared.Application;
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.io.Serializer;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,22 +25,20 @@ import org.springframework.context.annotation.*;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 import org.zowe.apiml.constants.ApimlConstants;
-import org.zowe.apiml.gateway.controllers.AuthController;
+import org.zowe.apiml.gateway.cache.InvalidatedTokenCache;
 import org.zowe.apiml.gateway.security.service.zosmf.ZosmfService;
 import org.zowe.apiml.product.constants.CoreService;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 import org.zowe.apiml.security.common.token.*;
 import org.zowe.apiml.util.CacheUtils;
-import org.zowe.apiml.util.EurekaUtils;
 
 import javax.annotation.PostConstruct;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import java.util.*;
 
+import static org.zowe.apiml.gateway.config.CacheConfig.CACHE_INVALIDATED_JWT_TOKENS;
 import static org.zowe.apiml.gateway.security.service.zosmf.ZosmfService.TokenType.JWT;
 import static org.zowe.apiml.gateway.security.service.zosmf.ZosmfService.TokenType.LTPA;
 
@@ -56,7 +55,6 @@ public class AuthenticationService {
     private static final String LTPA_CLAIM_NAME = "ltpa";
     private static final String DOMAIN_CLAIM_NAME = "dom";
     private static final String CACHE_VALIDATION_JWT_TOKEN = "validationJwtToken";
-    private static final String CACHE_INVALIDATED_JWT_TOKENS = "invalidatedJwtTokens";
 
     private static final String TOKEN_IS_NOT_VALID_DUE_TO = "Token is not valid due to: {}.";
 
@@ -65,9 +63,13 @@ public class AuthenticationService {
     private final JwtSecurity jwtSecurityInitializer;
     private final ZosmfService zosmfService;
     private final EurekaClient discoveryClient;
-    private final RestTemplate restTemplate;
     private final CacheManager cacheManager;
     private final CacheUtils cacheUtils;
+    private final TokenInvalidationDistributor tokenInvalidationDistributor;
+
+    // parser without any key and JSON serializer are thread-safe, they are not built for each token
+    private final JwtParser unsignedJwtParser = Jwts.parserBuilder().build();
+    private final Serializer<Map<String, ?>> jwtSerializer = loadJwtSerializer();
 
     // to force calling inside methods with aspects - ie. ehCache aspect
     private AuthenticationService meAsProxy;
@@ -99,9 +101,21 @@ public class AuthenticationService {
             .setIssuer(authConfigurationProperties.getTokenProperties().getIssuer())
             .setId(UUID.randomUUID().toString())
             .signWith(jwtSecurityInitializer.getJwtSecret(), jwtSecurityInitializer.getSignatureAlgorithm())
+            .serializeToJsonWith(jwtSerializer)
             .compact();
     }
 
+    /**
+     * JWT builder looks for the JSON serializer on each token, the service lookup is done just once instead.
+     */
+    @SuppressWarnings("unchecked")
+    private static Serializer<Map<String, ?>> loadJwtSerializer() {
+        for (Serializer<?> serializer : ServiceLoader.load(Serializer.class, AuthenticationService.class.getClassLoader())) {
+            return (Serializer<Map<String, ?>>) serializer;
+        }
+        throw new IllegalStateException("There is no JSON serializer for JWT tokens on the classpath");
+    }
+
     /**
      * Method will invalidate jwtToken. It could be called from two reasons:
      * - on logout phase (distribute = true)
@@ -114,12 +128,16 @@ public class AuthenticationService {
     @CacheEvict(value = CACHE_VALIDATION_JWT_TOKEN, key = "#jwtToken")
     @Cacheable(value = CACHE_INVALIDATED_JWT_TOKENS, key = "#jwtToken", condition = "#jwtToken != null")
     public Boolean invalidateJwtToken(String jwtToken, boolean distribute) {
+        // the validation result of the current request is not valid anymore
+        ParsedJwtToken.forget(jwtToken);
+
         /*
-         * until ehCache is not distributed, send to other instances invalidation request
+         * until ehCache is not distributed, send to other instances invalidation request. The shared cache (Caching
+         * Service) is visible to all instances, there is nothing to send.
          */
         boolean isInvalidatedOnAnotherInstance = false;
         if (distribute) {
-            isInvalidatedOnAnotherInstance = invalidateTokenOnAnotherInstance(jwtToken);
+            isInvalidatedOnAnotherInstance = isInvalidationShared() || invalidateTokenOnAnotherInstance(jwtToken);
             if (!isInvalidatedOnAnotherInstance) {
                 return Boolean.FALSE;
             }
@@ -149,6 +167,13 @@ public class AuthenticationService {
         return Boolean.TRUE;
     }
 
+    /**
+     * @return true if invalidated tokens are stored in Caching Service and shared by all instances
+     */
+    private boolean isInvalidationShared() {
+        return cacheManager.getCache(CACHE_INVALIDATED_JWT_TOKENS) instanceof InvalidatedTokenCache;
+    }
+
     private boolean invalidateTokenOnAnotherInstance(String jwtToken) {
         final Application application = discoveryClient.getApplication(CoreService.GATEWAY.getServiceId());
         // wrong state, gateway have to exists (at least this current instance), return false like unsuccessful
@@ -157,18 +182,16 @@ public class AuthenticationService {
         }
 
         final String myInstanceId = discoveryClient.getApplicationInfoManager().getInfo().getInstanceId();
+        final List<InstanceInfo> otherInstances = new ArrayList<>();
         for (final InstanceInfo instanceInfo : application.getInstances()) {
             if (StringUtils.equals(myInstanceId, instanceInfo.getInstanceId())) continue;
 
-            final String url = EurekaUtils.getUrl(instanceInfo) + AuthController.CONTROLLER_PATH + "/invalidate/" + jwtToken;
-            try {
-                restTemplate.delete(url);
-            } catch (HttpClientErrorException e) {
-                log.debug("Problem invalidating token on another instance url " + url, e);
-            }
-
+            otherInstances.add(instanceInfo);
         }
 
+        // other instances are notified asynchronously, the logout doesn't wait for them
+        tokenInvalidationDistributor.invalidate(otherInstances, jwtToken);
+
         return Boolean.TRUE;
     }
 
@@ -205,12 +228,22 @@ public class AuthenticationService {
     }
 
     private Claims validateAndParseLocalJwtToken(String jwtToken) {
+        final ParsedJwtToken parsed = ParsedJwtToken.of(jwtToken);
+        if ((parsed != null) && (parsed.getVerifiedClaims() != null)) {
+            return parsed.getVerifiedClaims();
+        }
+
         try {
-            return Jwts.parserBuilder()
-                .setSigningKey(jwtSecurityInitializer.getJwtPublicKey())
-                .build()
+            final JwtParser jwtParser = jwtSecurityInitializer.getJwtParser();
+            if (jwtParser == null) {
+                throw new IllegalStateException("The public key to verify JWT tokens is not available");
+            }
+
+            final Claims claims = jwtParser
                 .parseClaimsJws(jwtToken)
                 .getBody();
+            if (parsed != null) parsed.setVerifiedClaims(claims);
+            return claims;
         } catch (RuntimeException exception) {
             throw handleJwtParserException(exception);
         }
@@ -287,12 +320,11 @@ public class AuthenticationService {
         final InstanceInfo instanceInfo = application.getByInstanceId(toInstanceId);
         if (instanceInfo == null) return false;
 
-        final String url = EurekaUtils.getUrl(instanceInfo) + AuthController.CONTROLLER_PATH + "/invalidate/{}";
+        // the new instance reads the shared invalidated tokens itself
+        if (isInvalidationShared()) return true;
 
         final Collection<String> invalidated = cacheUtils.getAllRecords(cacheManager, CACHE_INVALIDATED_JWT_TOKENS);
-        for (final String invalidatedToken : invalidated) {
-            restTemplate.delete(url, invalidatedToken);
-        }
+        tokenInvalidationDistributor.distribute(instanceInfo, invalidated);
 
         return true;
     }
@@ -309,8 +341,17 @@ public class AuthenticationService {
         if (token == null) {
             throw new TokenNotValidException("Null token.");
         }
+
+        // the token was already validated during processing of this request
+        final ParsedJwtToken parsed = ParsedJwtToken.of(token.getCredentials());
+        if ((parsed != null) && (parsed.getValidation() != null)) {
+            return parsed.getValidation();
+        }
+
         parseJwtToken(token.getCredentials()); // throws on expired token, this needs to happen before cache, which is in the next line
-        return meAsProxy.validateJwtToken( token.getCredentials());
+        final TokenAuthentication validation = meAsProxy.validateJwtToken(token.getCredentials());
+        if (parsed != null) parsed.setValidation(validation);
+        return validation;
     }
 
     /**
@@ -339,31 +380,54 @@ public class AuthenticationService {
      * @return the query response
      */
     public QueryResponse parseJwtToken(String jwtToken) {
-        /*
-         * Removes signature, because of z/OSMF we don't have key to verify certificate and
-         * we just need to read claim. Verification is realized via REST call to z/OSMF.
-         * JWT library doesn't parse signed key without verification.
-         */
-        final String withoutSign = removeSign(jwtToken);
+        final ParsedJwtToken parsed = ParsedJwtToken.of(jwtToken);
+        if ((parsed != null) && (parsed.getQueryResponse() != null)) {
+            return parsed.getQueryResponse();
+        }
 
         // parse to claims and construct QueryResponse
         try {
-            Claims claims = Jwts.parserBuilder()
-                .build()
-                .parseClaimsJwt(withoutSign)
-                .getBody();
-            return new QueryResponse(
+            Claims claims = parseClaimsWithoutSign(jwtToken, parsed);
+            final QueryResponse queryResponse = new QueryResponse(
                 claims.get(DOMAIN_CLAIM_NAME, String.class),
                 claims.getSubject(),
                 claims.getIssuedAt(),
                 claims.getExpiration(),
                 QueryResponse.Source.valueByIssuer(claims.getIssuer())
             );
+            if (parsed != null) parsed.setQueryResponse(queryResponse);
+            return queryResponse;
         } catch (RuntimeException exception) {
             throw handleJwtParserException(exception);
         }
     }
 
+    /**
+     * Read the claims of the token without verification of the signature. Claims are read just once per request,
+     * see {@link ParsedJwtToken}.
+     *
+     * @param jwtToken the JWT token
+     * @param parsed holder of the token in the current request, could be null
+     * @return claims of the token
+     */
+    private Claims parseClaimsWithoutSign(String jwtToken, ParsedJwtToken parsed) {
+        if ((parsed != null) && (parsed.getClaims() != null)) {
+            return parsed.getClaims();
+        }
+
+        /*
+         * Removes signature, because of z/OSMF we don't have key to verify certificate and
+         * we just need to read claim. Verification is realized via REST call to z/OSMF.
+         * JWT library doesn't parse signed key without verification.
+         */
+        final String withoutSign = removeSign(jwtToken);
+        final Claims claims = unsignedJwtParser
+            .parseClaimsJwt(withoutSign)
+            .getBody();
+        if (parsed != null) parsed.setClaims(claims);
+        return claims;
+    }
+
     /**
      * This method validates if JWT token is valid and if yes, then get claim from LTPA token.
      * For purpose, when is not needed validation, you can use method {@link #getLtpaToken(String)}
@@ -383,15 +447,9 @@ public class AuthenticationService {
      * @throws TokenNotValidException if the JWT token is not valid
      */
     public String getLtpaToken(String jwtToken) {
-        // remove sign to avoid validation of sign
-        final String withoutSign = removeSign(jwtToken);
-
-        // parse to claims and construct QueryResponse
+        // the sign is removed to avoid validation of sign
         try {
-            return Jwts.parserBuilder()
-                .build()
-                .parseClaimsJwt(withoutSign)
-                .getBody()
+            return parseClaimsWithoutSign(jwtToken, ParsedJwtToken.of(jwtToken))
                 .get(LTPA_CLAIM_NAME, String.class);
         } catch (RuntimeException exception) {
             throw handleJwtParserException(exception);
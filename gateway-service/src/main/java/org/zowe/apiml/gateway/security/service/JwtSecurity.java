@@ -16,6 +16,8 @@ import com.netflix.discovery.EurekaEventListener;
 import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.RSAKey;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
@@ -73,6 +75,7 @@ public class JwtSecurity {
     private SignatureAlgorithm signatureAlgorithm;
     private Key jwtSecret;
     private PublicKey jwtPublicKey;
+    private volatile JwtParser jwtParser;
 
     private final Providers providers;
     private final ZosmfListener zosmfListener;
@@ -161,6 +164,8 @@ public class JwtSecurity {
         try {
             jwtSecret = SecurityUtils.loadKey(config);
             jwtPublicKey = SecurityUtils.loadPublicKey(config);
+            // the parser is immutable and thread-safe, it is built once per loaded key
+            jwtParser = (jwtPublicKey == null) ? null : Jwts.parserBuilder().setSigningKey(jwtPublicKey).build();
         } catch (HttpsConfigError er) {
             apimlLog.log("org.zowe.apiml.gateway.jwtInitConfigError", er.getCode(), er.getMessage());
         }
@@ -219,6 +224,13 @@ public class JwtSecurity {
         return jwtPublicKey;
     }
 
+    /**
+     * @return parser verifying the signature by the loaded public key, null if the key is not available
+     */
+    public JwtParser getJwtParser() {
+        return jwtParser;
+    }
+
     public JWKSet getPublicKeyInSet() {
         final List<JWK> keys = new LinkedList<>();
 
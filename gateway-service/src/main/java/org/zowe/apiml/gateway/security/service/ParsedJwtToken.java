@@ -0,0 +1,103 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.security.service;
+
+import io.jsonwebtoken.Claims;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.zowe.apiml.security.common.token.QueryResponse;
+import org.zowe.apiml.security.common.token.TokenAuthentication;
+
+/**
+ * Results of parsing and validation of the JWT token of the current request. The holder is stored as an attribute of
+ * the request, so the token is parsed just once even if it is used by several filters and authentication schemes
+ * during the request processing.
+ *
+ * Outside of a request (no request attributes bound to the thread) there is no holder and the caller has to process
+ * the token itself.
+ */
+@Getter
+@Setter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class ParsedJwtToken {
+
+    static final String ATTRIBUTE_NAME = ParsedJwtToken.class.getName();
+
+    private final String token;
+
+    /**
+     * Claims read without verification of the signature
+     */
+    private Claims claims;
+
+    /**
+     * Result of {@link AuthenticationService#parseJwtToken(String)}
+     */
+    private QueryResponse queryResponse;
+
+    /**
+     * Claims of the Zowe token with verified signature
+     */
+    private Claims verifiedClaims;
+
+    /**
+     * Result of the token validation
+     */
+    private TokenAuthentication validation;
+
+    /**
+     * Return the holder of the token in the current request. If the request holds any other token, it is replaced.
+     *
+     * @param token JWT token
+     * @return holder of the token or null if there is no request or token
+     */
+    public static ParsedJwtToken of(String token) {
+        if (token == null) {
+            return null;
+        }
+
+        final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+
+        final Object current = attributes.getAttribute(ATTRIBUTE_NAME, RequestAttributes.SCOPE_REQUEST);
+        if ((current instanceof ParsedJwtToken) && token.equals(((ParsedJwtToken) current).token)) {
+            return (ParsedJwtToken) current;
+        }
+
+        final ParsedJwtToken created = new ParsedJwtToken(token);
+        attributes.setAttribute(ATTRIBUTE_NAME, created, RequestAttributes.SCOPE_REQUEST);
+        return created;
+    }
+
+    /**
+     * Remove the holder of the token from the current request, ie. because the token was invalidated.
+     *
+     * @param token JWT token
+     */
+    public static void forget(String token) {
+        final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+
+        final Object current = attributes.getAttribute(ATTRIBUTE_NAME, RequestAttributes.SCOPE_REQUEST);
+        if ((current instanceof ParsedJwtToken) && ((ParsedJwtToken) current).token.equals(token)) {
+            attributes.removeAttribute(ATTRIBUTE_NAME, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+}
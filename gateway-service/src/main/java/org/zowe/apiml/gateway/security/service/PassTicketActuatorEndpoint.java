@@ -0,0 +1,42 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.security.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint with statistics of PassTickets generated and reused by {@link PassTicketManager}.
+ */
+@Endpoint(id = "passtickets")
+@RequiredArgsConstructor
+public class PassTicketActuatorEndpoint {
+
+    private final PassTicketManager passTicketManager;
+
+    @ReadOperation
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("entries", (long) passTicketManager.getEntryCount());
+        result.put("hits", passTicketManager.getHitCount());
+        result.put("generated", passTicketManager.getGeneratedCount());
+        result.put("refreshed", passTicketManager.getRefreshedCount());
+        result.put("failed", passTicketManager.getFailedCount());
+        result.put("generationTimeAverage", passTicketManager.getGenerationTimeAverage());
+        result.put("generationTimeMax", passTicketManager.getGenerationTimeMax());
+        return result;
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.security.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.zowe.apiml.passticket.IRRPassTicketGenerationException;
+import org.zowe.apiml.passticket.PassTicketService;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the last generated PassTicket for each pair of user ID and APPLID. The request thread generates a PassTicket
+ * only if there is no valid one yet. Tickets of active users are regenerated by a background thread once they pass
+ * the half of their lifetime, so in the steady state no request waits for the generation. Entries which were not
+ * used for the idle timeout are removed.
+ *
+ * Generation of the ticket for the same user ID and APPLID is single-flight: concurrent requests wait for the one
+ * generation instead of calling SAF multiple times.
+ */
+@Slf4j
+public class PassTicketManager {
+
+    private final PassTicketService passTicketService;
+    private final long ticketLifetime;
+    private final long idleTimeout;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong generatedCount = new AtomicLong();
+    private final AtomicLong refreshedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong generationTimeTotal = new AtomicLong();
+    private final AtomicLong generationTimeMax = new AtomicLong();
+
+    /**
+     * @param passTicketService service to generate PassTickets
+     * @param ticketLifetime    time in milliseconds how long a generated PassTicket could be used
+     * @param refreshInterval   time in milliseconds between two checks of tickets to refresh
+     * @param idleTimeout       time in milliseconds after the last use when the ticket is not refreshed anymore
+     */
+    public PassTicketManager(PassTicketService passTicketService, long ticketLifetime, long refreshInterval, long idleTimeout) {
+        this.passTicketService = passTicketService;
+        this.ticketLifetime = ticketLifetime;
+        this.idleTimeout = idleTimeout;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PassTicketManager");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::refresh, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Return a valid PassTicket for the user and APPLID. If there is no valid ticket yet, it is generated.
+     *
+     * @param userId user ID
+     * @param applId APPLID of the service
+     * @return PassTicket with its expiration
+     * @throws IRRPassTicketGenerationException if the PassTicket cannot be generated
+     */
+    public PassTicket getPassTicket(String userId, String applId) throws IRRPassTicketGenerationException {
+        Entry entry = entries.computeIfAbsent(new Key(userId, applId), Entry::new);
+        entry.lastUsed = System.currentTimeMillis();
+
+        PassTicket passTicket = entry.passTicket;
+        if (isValid(passTicket)) {
+            hitCount.incrementAndGet();
+            return passTicket;
+        }
+
+        synchronized (entry) {
+            // other thread could generate the ticket meanwhile
+            passTicket = entry.passTicket;
+            if (isValid(passTicket)) {
+                hitCount.incrementAndGet();
+                return passTicket;
+            }
+
+            return generate(entry);
+        }
+    }
+
+    /**
+     * Regenerate tickets of active users which passed the half of their lifetime and remove the idle ones.
+     */
+    public void refresh() {
+        final long now = System.currentTimeMillis();
+        for (Entry entry : entries.values()) {
+            if (now - entry.lastUsed > idleTimeout) {
+                entries.remove(entry.key, entry);
+                continue;
+            }
+
+            PassTicket passTicket = entry.passTicket;
+            if ((passTicket != null) && (now < passTicket.getRefreshAt())) {
+                continue;
+            }
+
+            synchronized (entry) {
+                if (entry.passTicket != passTicket) {
+                    // ticket was regenerated by a request meanwhile
+                    continue;
+                }
+
+                try {
+                    generate(entry);
+                    refreshedCount.incrementAndGet();
+                } catch (IRRPassTicketGenerationException | RuntimeException e) {
+                    // the background thread must survive any error, the current ticket stays until its expiration
+                    log.debug("Cannot refresh PassTicket for user ID {} and APPLID {}: {}",
+                        entry.key.getUserId(), entry.key.getApplId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the background thread.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private boolean isValid(PassTicket passTicket) {
+        return (passTicket != null) && (System.currentTimeMillis() < passTicket.getExpireAt());
+    }
+
+    private PassTicket generate(Entry entry) throws IRRPassTicketGenerationException {
+        final long start = System.currentTimeMillis();
+        final String value;
+        try {
+            value = passTicketService.generate(entry.key.getUserId(), entry.key.getApplId());
+        } catch (IRRPassTicketGenerationException | RuntimeException e) {
+            failedCount.incrementAndGet();
+            throw e;
+        }
+
+        final long duration = System.currentTimeMillis() - start;
+        generatedCount.incrementAndGet();
+        generationTimeTotal.addAndGet(duration);
+        generationTimeMax.accumulateAndGet(duration, Math::max);
+
+        PassTicket passTicket = new PassTicket(value, start + ticketLifetime / 2, start + ticketLifetime);
+        entry.passTicket = passTicket;
+        return passTicket;
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getGeneratedCount() {
+        return generatedCount.get();
+    }
+
+    public long getRefreshedCount() {
+        return refreshedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getGenerationTimeAverage() {
+        long count = generatedCount.get();
+        return (count == 0) ? 0 : generationTimeTotal.get() / count;
+    }
+
+    public long getGenerationTimeMax() {
+        return generationTimeMax.get();
+    }
+
+    @Value
+    public static class PassTicket {
+
+        String value;
+        long refreshAt;
+        long expireAt;
+
+    }
+
+    @Value
+    private static class Key {
+
+        String userId;
+        String applId;
+
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry {
+
+        private final Key key;
+        private volatile long lastUsed;
+        private volatile PassTicket passTicket;
+
+    }
+
+}
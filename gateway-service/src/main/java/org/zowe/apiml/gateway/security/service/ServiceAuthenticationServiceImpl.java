@@ -26,6 +26,7 @@ import org.zowe.apiml.auth.Authentication;
 import org.zowe.apiml.eurekaservice.client.util.EurekaMetadataParser;
 import org.zowe.apiml.gateway.cache.RetryIfExpired;
 import org.zowe.apiml.gateway.config.CacheConfig;
+import org.zowe.apiml.gateway.metadata.service.ServicePolicyRegistry;
 import org.zowe.apiml.gateway.security.service.schema.AbstractAuthenticationScheme;
 import org.zowe.apiml.gateway.security.service.schema.AuthenticationCommand;
 import org.zowe.apiml.gateway.security.service.schema.AuthenticationSchemeFactory;
@@ -72,8 +73,15 @@ public class ServiceAuthenticationServiceImpl implements ServiceAuthenticationSe
     private final AuthenticationService authenticationService;
     private final CacheManager cacheManager;
     private final CacheUtils cacheUtils;
+    private final ServicePolicyRegistry servicePolicyRegistry;
 
     public Authentication getAuthentication(InstanceInfo instanceInfo) {
+        // the parsed value is reused if the instance was not changed since the last refresh of the registry
+        Authentication authentication = servicePolicyRegistry.getAuthentication(instanceInfo.getInstanceId(), instanceInfo.getMetadata());
+        if (authentication != null) {
+            return authentication;
+        }
+
         return eurekaMetadataParser.parseAuthentication(instanceInfo.getMetadata());
     }
 
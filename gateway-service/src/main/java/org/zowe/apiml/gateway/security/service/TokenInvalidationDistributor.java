@@ -0,0 +1,140 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.security.service;
+
+import com.netflix.appinfo.InstanceInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.zowe.apiml.gateway.controllers.AuthController;
+import org.zowe.apiml.util.EurekaUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Sends invalidated JWT tokens to other instances of Gateway.
+ *
+ * - invalidation of one token (logout) is sent asynchronously and to all instances in parallel, so the logout does
+ *   not wait for the other instances
+ * - the list of all invalidated tokens (a new instance was registered) is sent in batches, many tokens per call
+ *
+ * If the other instance doesn't support batches yet (older version), tokens are sent one by one.
+ */
+@Slf4j
+public class TokenInvalidationDistributor {
+
+    public static final int DEFAULT_THREADS = 4;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private static final int MAX_PENDING_TASKS = 1000;
+
+    private final RestTemplate restTemplate;
+    private final int batchSize;
+    private final ExecutorService executor;
+
+    /**
+     * @param restTemplate template to call other instances (with client certificate)
+     * @param threads      amount of threads to notify other instances in parallel
+     * @param batchSize    maximum amount of tokens sent in one call
+     */
+    public TokenInvalidationDistributor(RestTemplate restTemplate, int threads, int batchSize) {
+        this.restTemplate = restTemplate;
+        this.batchSize = Math.max(1, batchSize);
+
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+            threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_PENDING_TASKS),
+            runnable -> {
+                Thread thread = new Thread(runnable, "TokenInvalidationDistributor");
+                thread.setDaemon(true);
+                return thread;
+            },
+            // if there is too many pending notifications, the caller sends it itself (back-pressure)
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.executor = threadPoolExecutor;
+    }
+
+    /**
+     * Invalidate the token on the instances. The method does not wait for the result, each instance is notified in a
+     * separate task.
+     *
+     * @param instances instances to notify
+     * @param jwtToken  invalidated token
+     */
+    public void invalidate(Collection<InstanceInfo> instances, String jwtToken) {
+        for (final InstanceInfo instanceInfo : instances) {
+            final String url = getGatewayAuthUrl(instanceInfo) + "/invalidate/" + jwtToken;
+            executor.execute(() -> {
+                try {
+                    restTemplate.delete(url);
+                } catch (RestClientException e) {
+                    log.debug("Problem invalidating token on another instance url " + url, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Send all tokens to the instance in batches. The method waits until all tokens are sent.
+     *
+     * @param instanceInfo instance to notify
+     * @param jwtTokens    invalidated tokens
+     */
+    public void distribute(InstanceInfo instanceInfo, Collection<String> jwtTokens) {
+        final String url = getGatewayAuthUrl(instanceInfo);
+
+        List<String> batch = new ArrayList<>(Math.min(batchSize, jwtTokens.size()));
+        for (final String jwtToken : jwtTokens) {
+            batch.add(jwtToken);
+            if (batch.size() == batchSize) {
+                sendBatch(url, batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            sendBatch(url, batch);
+        }
+    }
+
+    private void sendBatch(String url, List<String> batch) {
+        try {
+            restTemplate.postForEntity(url + AuthController.INVALIDATE_BATCH_PATH, batch, Void.class);
+        } catch (HttpClientErrorException e) {
+            if ((e.getStatusCode() != HttpStatus.NOT_FOUND) && (e.getStatusCode() != HttpStatus.METHOD_NOT_ALLOWED)) {
+                throw e;
+            }
+
+            // the instance does not support batches yet
+            for (final String jwtToken : batch) {
+                restTemplate.delete(url + "/invalidate/{}", jwtToken);
+            }
+        }
+    }
+
+    private String getGatewayAuthUrl(InstanceInfo instanceInfo) {
+        return EurekaUtils.getUrl(instanceInfo) + AuthController.CONTROLLER_PATH;
+    }
+
+    /**
+     * Stop the threads, pending notifications are still sent.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+}
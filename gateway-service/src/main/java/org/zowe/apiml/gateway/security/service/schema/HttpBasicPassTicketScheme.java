@@ -19,8 +19,8 @@ import org.apache.http.HttpRequest;
 import org.apache.http.message.BasicHeader;
 import org.springframework.stereotype.Component;
 import org.zowe.apiml.gateway.security.service.PassTicketException;
+import org.zowe.apiml.gateway.security.service.PassTicketManager;
 import org.zowe.apiml.passticket.IRRPassTicketGenerationException;
-import org.zowe.apiml.passticket.PassTicketService;
 import org.zowe.apiml.auth.Authentication;
 import org.zowe.apiml.auth.AuthenticationScheme;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
@@ -33,21 +33,20 @@ import java.util.function.Supplier;
 
 /**
  * This bean support PassTicket. Bean is responsible for getting PassTicket from
- * SAF and generating new authentication header in request.
+ * SAF and generating new authentication header in request. PassTickets are provided
+ * by {@link PassTicketManager}, which reuses and refreshes them ahead of expiration.
  */
 @Component
 public class HttpBasicPassTicketScheme implements AbstractAuthenticationScheme {
 
-    private final PassTicketService passTicketService;
-    private final AuthConfigurationProperties authConfigurationProperties;
+    private final PassTicketManager passTicketManager;
     private final String cookieName;
 
     public HttpBasicPassTicketScheme(
-        PassTicketService passTicketService,
+        PassTicketManager passTicketManager,
         AuthConfigurationProperties authConfigurationProperties
     ) {
-        this.passTicketService = passTicketService;
-        this.authConfigurationProperties = authConfigurationProperties;
+        this.passTicketManager = passTicketManager;
         cookieName = authConfigurationProperties.getCookieProperties().getCookieName();
     }
 
@@ -58,7 +57,6 @@ public class HttpBasicPassTicketScheme implements AbstractAuthenticationScheme {
 
     @Override
     public AuthenticationCommand createCommand(Authentication authentication, Supplier<QueryResponse> tokenSupplier) {
-        final long before = System.currentTimeMillis();
         final QueryResponse token = tokenSupplier.get();
 
         if (token == null) {
@@ -67,20 +65,19 @@ public class HttpBasicPassTicketScheme implements AbstractAuthenticationScheme {
 
         final String applId = authentication.getApplid();
         final String userId = token.getUserId();
-        String passTicket;
+        PassTicketManager.PassTicket passTicket;
         try {
-            passTicket = passTicketService.generate(userId, applId);
+            passTicket = passTicketManager.getPassTicket(userId, applId);
         } catch (IRRPassTicketGenerationException e) {
             throw new PassTicketException(
                 String.format("Could not generate PassTicket for user ID %s and APPLID %s", userId, applId), e
             );
         }
         final String encoded = Base64.getEncoder()
-            .encodeToString((userId + ":" + passTicket).getBytes(StandardCharsets.UTF_8));
+            .encodeToString((userId + ":" + passTicket.getValue()).getBytes(StandardCharsets.UTF_8));
         final String value = "Basic " + encoded;
 
-        final long expiredAt = Math.min(before + authConfigurationProperties.getPassTicket().getTimeout() * 1000,
-            token.getExpiration().getTime());
+        final long expiredAt = Math.min(passTicket.getExpireAt(), token.getExpiration().getTime());
 
         return new PassTicketCommand(value, cookieName, expiredAt);
     }
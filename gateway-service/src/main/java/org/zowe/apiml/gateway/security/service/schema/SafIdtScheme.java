@@ -11,10 +11,18 @@ package org.zowe.apiml.gateway.security.service.schema;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.zuul.context.RequestContext;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Component;
 import org.zowe.apiml.auth.Authentication;
 import org.zowe.apiml.auth.AuthenticationScheme;
+import org.zowe.apiml.cache.EntryExpiration;
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
 import org.zowe.apiml.gateway.security.service.saf.SafIdtProvider;
 import org.zowe.apiml.security.common.token.QueryResponse;
@@ -27,12 +35,25 @@ import java.util.function.Supplier;
 /**
  * The scheme allowing for the safIdt authentication scheme.
  * It adds new header with the SAF IDT token in case of valid JWT provided.
+ * <p>
+ * Generated tokens are cached by the user and APPLID of the service until the expiration of the token (the cache
+ * itself is bounded by its size and time to live). Concurrent requests of the same user are waiting for the one
+ * generation of the token.
+ * <p>
+ * As for the PassTickets, the token is regenerated once it passed the half of its lifetime, so the service doesn't get
+ * a token which expires while the request is processed. If the regeneration fails, the current token is used until
+ * its expiration.
  */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class SafIdtScheme implements AbstractAuthenticationScheme {
+
+    public static final String CACHE_SAF_IDT = "safIdtTokens";
+
     private final AuthenticationService authenticationService;
     private final SafIdtProvider safIdtProvider;
+    private final CacheManager cacheManager;
 
     @Override
     public AuthenticationScheme getScheme() {
@@ -45,12 +66,136 @@ public class SafIdtScheme implements AbstractAuthenticationScheme {
         final QueryResponse queryResponse = tokenSupplier.get();
         final Date expiration = queryResponse == null ? null : queryResponse.getExpiration();
         final Long expirationTime = expiration == null ? null : expiration.getTime();
-        return new SafIdtCommand(expirationTime);
+        final String applid = authentication == null ? null : authentication.getApplid();
+        return new SafIdtCommand(expirationTime, applid);
+    }
+
+    Optional<String> getSafIdt(String username, String applid) {
+        final Cache cache = cacheManager.getCache(CACHE_SAF_IDT);
+        if (cache == null) {
+            return safIdtProvider.generate(username);
+        }
+
+        final SafIdtKey key = new SafIdtKey(username, applid);
+        SafIdtToken token = getOrGenerate(cache, key);
+        if (token.isToRefresh()) {
+            token = refresh(cache, key, token);
+        }
+
+        if (token.getValue() == null) {
+            // the user has no rights to get the token now, it could change
+            cache.evict(key);
+        }
+
+        return Optional.ofNullable(token.getValue());
+    }
+
+    private SafIdtToken getOrGenerate(Cache cache, SafIdtKey key) {
+        try {
+            // the loader is called once per key, other threads wait for its result
+            return cache.get(key, () -> createToken(safIdtProvider.generate(key.getUsername()).orElse(null)));
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private SafIdtToken refresh(Cache cache, SafIdtKey key, SafIdtToken current) {
+        final Cache.ValueWrapper cached = cache.get(key);
+        if ((cached == null) || (cached.get() == current)) {
+            // otherwise the token was already refreshed by another request
+            cache.evict(key);
+        }
+
+        try {
+            return getOrGenerate(cache, key);
+        } catch (RuntimeException e) {
+            if (current.isExpired()) {
+                throw e;
+            }
+
+            log.debug("Cannot refresh SAF IDT token of user {}, the current one is used until its expiration: {}",
+                key.getUsername(), e.getMessage());
+            cache.putIfAbsent(key, current);
+            return current;
+        }
+    }
+
+    private static SafIdtToken createToken(String safIdt) {
+        final long now = System.currentTimeMillis();
+        final Claims claims = getClaims(safIdt);
+        final Date expiration = claims == null ? null : claims.getExpiration();
+        if (expiration == null) {
+            return new SafIdtToken(safIdt, null, null);
+        }
+
+        final Date issuedAt = claims.getIssuedAt();
+        final long issued = issuedAt == null ? now : Math.min(now, issuedAt.getTime());
+        final long expireAt = expiration.getTime();
+        return new SafIdtToken(safIdt, issued + (expireAt - issued) / 2, expireAt);
+    }
+
+    /**
+     * Read the claims of the SAF IDT token (it is a JWT token). The signature is not verified, the token was generated
+     * by the trusted provider.
+     *
+     * @param safIdt SAF IDT token
+     * @return claims of the token or null if they are not available
+     */
+    private static Claims getClaims(String safIdt) {
+        if (safIdt == null) {
+            return null;
+        }
+
+        try {
+            final String withoutSign = safIdt.substring(0, safIdt.lastIndexOf('.') + 1);
+            return Jwts.parserBuilder().build()
+                .parseClaimsJwt(withoutSign)
+                .getBody();
+        } catch (ExpiredJwtException e) {
+            return e.getClaims();
+        } catch (RuntimeException e) {
+            log.debug("Cannot read expiration of the SAF IDT token, it is cached by the cache settings only", e);
+            return null;
+        }
+    }
+
+    @Value
+    private static class SafIdtKey {
+
+        String username;
+        String applid;
+
+    }
+
+    @Value
+    private static class SafIdtToken implements EntryExpiration {
+
+        String value;
+        Long refreshAt;
+        Long expireAt;
+
+        @Override
+        public boolean isExpired() {
+            if (expireAt == null) return false;
+
+            return System.currentTimeMillis() > expireAt;
+        }
+
+        boolean isToRefresh() {
+            if (refreshAt == null) return false;
+
+            return System.currentTimeMillis() >= refreshAt;
+        }
+
     }
 
     @RequiredArgsConstructor
     public class SafIdtCommand extends AuthenticationCommand {
         private final Long expireAt;
+        private final String applid;
 
         @Override
         public void apply(InstanceInfo instanceInfo) {
@@ -60,8 +205,7 @@ public class SafIdtScheme implements AbstractAuthenticationScheme {
             jwtToken.ifPresent(token -> {
                 TokenAuthentication authentication = authenticationService.validateJwtToken(jwtToken.get());
                 if (authentication.isAuthenticated()) {
-                    // Get principal from the token?
-                    Optional<String> safIdt = safIdtProvider.generate(authentication.getPrincipal());
+                    Optional<String> safIdt = getSafIdt(authentication.getPrincipal(), applid);
 
                     safIdt.ifPresent(safToken -> context.addZuulRequestHeader("X-SAF-Token", safToken));
                 }
@@ -36,6 +36,7 @@ import javax.annotation.PostConstruct;
 import java.text.ParseException;
 import java.util.*;
 
+import static org.zowe.apiml.gateway.config.CacheConfig.CACHE_INVALIDATED_JWT_TOKENS;
 import static org.zowe.apiml.gateway.security.service.zosmf.ZosmfService.TokenType.JWT;
 import static org.zowe.apiml.gateway.security.service.zosmf.ZosmfService.TokenType.LTPA;
 
@@ -46,8 +47,6 @@ import static org.zowe.apiml.gateway.security.service.zosmf.ZosmfService.TokenTy
 @EnableAspectJAutoProxy(proxyTargetClass = true)
 public class ZosmfService extends AbstractZosmfService {
 
-    private static final String CACHE_INVALIDATED_JWT_TOKENS = "invalidatedJwtTokens";
-
     /**
      * Enumeration of supported security tokens
      */
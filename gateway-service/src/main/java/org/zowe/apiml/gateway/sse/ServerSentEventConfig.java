@@ -0,0 +1,68 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.sse;
+
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.JdkSslContext;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.net.ssl.SSLContext;
+import java.time.Duration;
+
+/**
+ * Client for Server-Sent Events streams of the services. All streams share one pool of connections (instead of
+ * a new client per stream) and use the same TLS configuration as other calls of Gateway.
+ */
+@Configuration
+public class ServerSentEventConfig {
+
+    @Value("${apiml.sse.maxConnections:1000}")
+    private int maxConnections;
+
+    @Value("${apiml.sse.pendingAcquireTimeoutInMillis:45000}")
+    private long pendingAcquireTimeout;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider sseConnectionProvider() {
+        return ConnectionProvider.builder("sse")
+            .maxConnections(maxConnections)
+            .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeout))
+            .build();
+    }
+
+    @Bean
+    @Qualifier("sseWebClient")
+    public WebClient sseWebClient(ConnectionProvider sseConnectionProvider, SSLContext secureSslContext) {
+        HttpClient httpClient = HttpClient.create(sseConnectionProvider)
+            .secure(sslContextSpec -> sslContextSpec.sslContext(new JdkSslContext(secureSslContext, true, ClientAuth.NONE)));
+
+        return WebClient.builder()
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .build();
+    }
+
+    @Bean
+    public ServerSentEventInstanceSelector serverSentEventInstanceSelector(
+        SpringClientFactory springClientFactory, DiscoveryClient discoveryClient
+    ) {
+        return new ServerSentEventInstanceSelector(springClientFactory, discoveryClient);
+    }
+
+}
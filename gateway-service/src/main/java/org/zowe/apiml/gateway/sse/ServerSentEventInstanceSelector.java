@@ -0,0 +1,111 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.sse;
+
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.Server;
+import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
+import com.netflix.zuul.context.RequestContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.netflix.eureka.EurekaDiscoveryClient;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.SERVICE_ID_KEY;
+
+/**
+ * Selects the instance for a Server-Sent Events stream by the same load balancer as routed requests, so the
+ * configured predicates (ie. sticky instance of the user) are applied to the streams too.
+ *
+ * Streams are not routed by Zuul, so its {@link RequestContext} (used by predicates) is prepared just for the
+ * selection. If there is no load balancer of the service, the first instance known by discovery client is used.
+ *
+ * When a stream is reconnected, the instance which failed is avoided as long as there is another instance.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ServerSentEventInstanceSelector {
+
+    private static final String DEFAULT_KEY = "default";
+
+    private final SpringClientFactory springClientFactory;
+    private final DiscoveryClient discoveryClient;
+
+    /**
+     * @param serviceId id of service
+     * @param request   request of the client
+     * @return selected instance or null if there is no available instance
+     */
+    public ServiceInstance choose(String serviceId, HttpServletRequest request) {
+        return choose(serviceId, request, null);
+    }
+
+    /**
+     * @param serviceId      id of service
+     * @param request        request of the client
+     * @param failedInstance instance which failed to serve the stream (or null), it is chosen only if there is no other
+     * @return selected instance or null if there is no available instance
+     */
+    public ServiceInstance choose(String serviceId, HttpServletRequest request, ServiceInstance failedInstance) {
+        ILoadBalancer loadBalancer = getLoadBalancer(serviceId);
+        if (loadBalancer == null) {
+            List<ServiceInstance> serviceInstances = discoveryClient.getInstances(serviceId);
+            return serviceInstances.stream()
+                .filter(instance -> !isSame(instance.getInstanceId(), failedInstance))
+                .findFirst()
+                .orElse(serviceInstances.isEmpty() ? null : serviceInstances.get(0));
+        }
+
+        RequestContext context = RequestContext.getCurrentContext();
+        try {
+            context.setRequest(request);
+            context.set(SERVICE_ID_KEY, serviceId);
+
+            Server server = loadBalancer.chooseServer(DEFAULT_KEY);
+            if (isSame(server, failedInstance)) {
+                server = loadBalancer.getReachableServers().stream()
+                    .filter(reachable -> !isSame(reachable, failedInstance))
+                    .findFirst()
+                    .orElse(server);
+            }
+            if (server instanceof DiscoveryEnabledServer) {
+                return new EurekaDiscoveryClient.EurekaServiceInstance(((DiscoveryEnabledServer) server).getInstanceInfo());
+            }
+            return null;
+        } finally {
+            context.unset();
+        }
+    }
+
+    private boolean isSame(Server server, ServiceInstance instance) {
+        return (server instanceof DiscoveryEnabledServer)
+            && isSame(((DiscoveryEnabledServer) server).getInstanceInfo().getId(), instance);
+    }
+
+    private boolean isSame(String instanceId, ServiceInstance instance) {
+        return (instance != null) && (instanceId != null) && instanceId.equals(instance.getInstanceId());
+    }
+
+    private ILoadBalancer getLoadBalancer(String serviceId) {
+        try {
+            return springClientFactory.getLoadBalancer(serviceId);
+        } catch (RuntimeException e) {
+            log.debug("Load balancer of service {} is not available", serviceId, e);
+            return null;
+        }
+    }
+
+}
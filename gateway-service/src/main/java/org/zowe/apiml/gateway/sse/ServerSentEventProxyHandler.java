@@ -12,14 +12,16 @@ package org.zowe.apiml.gateway.sse;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.zowe.apiml.message.core.Message;
 import org.zowe.apiml.message.core.MessageService;
@@ -27,30 +29,55 @@ import org.zowe.apiml.product.routing.RoutedService;
 import org.zowe.apiml.product.routing.RoutedServices;
 import org.zowe.apiml.product.routing.RoutedServicesUser;
 import org.zowe.apiml.util.UrlUtils;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Slf4j
 @Controller
 @Component("ServerSentEventProxyHandler")
 public class ServerSentEventProxyHandler implements RoutedServicesUser {
-    private final DiscoveryClient discovery;
+    static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE
+        = new ParameterizedTypeReference<ServerSentEvent<String>>() {
+    };
+
+    private final ServerSentEventInstanceSelector instanceSelector;
+    private final WebClient webClient;
     private final MessageService messageService;
+    private final int reconnectAttempts;
+    private final Duration reconnectDelay;
     private final Map<String, RoutedServices> routedServicesMap = new ConcurrentHashMap<>();
 
     @Autowired
-    public ServerSentEventProxyHandler(DiscoveryClient discovery, MessageService messageService) {
-        this.discovery = discovery;
+    public ServerSentEventProxyHandler(
+        ServerSentEventInstanceSelector instanceSelector,
+        @Qualifier("sseWebClient") WebClient webClient,
+        MessageService messageService,
+        @Value("${apiml.sse.reconnectAttempts:3}") int reconnectAttempts,
+        @Value("${apiml.sse.reconnectDelayInMillis:1000}") long reconnectDelay
+    ) {
+        this.instanceSelector = instanceSelector;
+        this.webClient = webClient;
         this.messageService = messageService;
+        this.reconnectAttempts = reconnectAttempts;
+        this.reconnectDelay = Duration.ofMillis(reconnectDelay);
     }
 
     @GetMapping("/**/sse/**")
@@ -68,7 +95,7 @@ public class ServerSentEventProxyHandler implements RoutedServicesUser {
         String majorVersion = getMajorVersion(uriParts);
         String path = uriParts.size() < 5 ? "" : uriParts.get(4);
 
-        ServiceInstance serviceInstance = findServiceInstance(serviceId);
+        ServiceInstance serviceInstance = instanceSelector.choose(serviceId, request);
         if (serviceInstance == null) {
             writeError(response, SseErrorMessages.INSTANCE_NOT_FOUND, serviceId);
             return null;
@@ -87,8 +114,27 @@ public class ServerSentEventProxyHandler implements RoutedServicesUser {
             return null;
         }
 
-        String targetUrl = getTargetUrl(serviceInstance, routedService.getServiceUrl(), path, request.getQueryString());
-        getSseStream(targetUrl).subscribe(consumer(emitter), emitter::completeWithError, emitter::complete);
+        String serviceUrl = routedService.getServiceUrl();
+        String queryString = request.getQueryString();
+        String targetUrl = getTargetUrl(serviceInstance, serviceUrl, path, queryString);
+        AtomicReference<ServiceInstance> currentInstance = new AtomicReference<>(serviceInstance);
+        Supplier<String> reconnectUrl = () -> {
+            // the stream failed on the current instance, another one is preferred for the reconnection
+            ServiceInstance nextInstance = instanceSelector.choose(serviceId, request, currentInstance.get());
+            if (nextInstance == null) {
+                return null;
+            }
+            currentInstance.set(nextInstance);
+            return getTargetUrl(nextInstance, serviceUrl, path, queryString);
+        };
+
+        Disposable subscription = getSseStream(targetUrl, request.getHeader(LAST_EVENT_ID), reconnectUrl)
+            .subscribe(consumer(emitter), emitter::completeWithError, emitter::complete);
+
+        // the client is gone, stop reading of the stream to release the connection
+        emitter.onCompletion(subscription::dispose);
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(error -> subscription.dispose());
 
         return emitter;
     }
@@ -104,15 +150,68 @@ public class ServerSentEventProxyHandler implements RoutedServicesUser {
         };
     }
 
+    /**
+     * Stream of events which survives failure of the instance. If the connection fails, the stream is reconnected
+     * to another instance selected by the load balancer. The ID of the last received event is sent, so the instance
+     * can continue where the previous one stopped.
+     *
+     * @param sseStreamUrl URL of the stream on the selected instance
+     * @param lastEventId  ID of the last event received by the client (or null)
+     * @param reconnectUrl provider of URL on a newly selected instance (null if there is no instance)
+     * @return stream of events
+     */
     // package protected for unit testing
-    Flux<ServerSentEvent<String>> getSseStream(String sseStreamUrl) {
-        WebClient client = WebClient.create(sseStreamUrl);
-        ParameterizedTypeReference<ServerSentEvent<String>> type
-            = new ParameterizedTypeReference<ServerSentEvent<String>>() {
-        };
-        return client.get()
+    Flux<ServerSentEvent<String>> getSseStream(String sseStreamUrl, String lastEventId, Supplier<String> reconnectUrl) {
+        AtomicReference<String> nextUrl = new AtomicReference<>(sseStreamUrl);
+        AtomicReference<String> currentLastEventId = new AtomicReference<>(lastEventId);
+        AtomicInteger failures = new AtomicInteger();
+
+        return Flux.defer(() -> {
+                String url = nextUrl.getAndSet(null);
+                if (url == null) {
+                    url = reconnectUrl.get();
+                }
+                if (url == null) {
+                    return Flux.error(new IllegalStateException("There is no available instance to reconnect the stream"));
+                }
+                return getSseStream(url, currentLastEventId.get());
+            })
+            .doOnNext(event -> {
+                // the stream works again, start counting of failures from the beginning
+                failures.set(0);
+                if (event.id() != null) {
+                    currentLastEventId.set(event.id());
+                }
+            })
+            .retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                Throwable error = signal.failure();
+                if (!isReconnectable(error) || (failures.incrementAndGet() > reconnectAttempts)) {
+                    return Mono.error(error);
+                }
+                log.debug("Server-Sent Events stream failed, reconnecting: {}", error.getMessage());
+                return Mono.delay(reconnectDelay);
+            })));
+    }
+
+    // package protected for unit testing
+    Flux<ServerSentEvent<String>> getSseStream(String sseStreamUrl, String lastEventId) {
+        WebClient.RequestHeadersSpec<?> request = webClient.get().uri(sseStreamUrl);
+        if (lastEventId != null) {
+            request = request.header(LAST_EVENT_ID, lastEventId);
+        }
+        return request
             .retrieve()
-            .bodyToFlux(type);
+            .bodyToFlux(SSE_TYPE);
+    }
+
+    /**
+     * Client errors (4xx) would repeat on any instance, other errors (5xx, network) are worth reconnecting.
+     */
+    private boolean isReconnectable(Throwable error) {
+        if (error instanceof WebClientResponseException) {
+            return ((WebClientResponseException) error).getRawStatusCode() >= 500;
+        }
+        return true;
     }
 
     private List<String> getUriParts(String uri) {
@@ -131,11 +230,6 @@ public class ServerSentEventProxyHandler implements RoutedServicesUser {
         return "sse".equals(uriParts.get(1)) ? uriParts.get(2) : uriParts.get(3);
     }
 
-    private ServiceInstance findServiceInstance(String serviceId) {
-        List<ServiceInstance> serviceInstances = this.discovery.getInstances(serviceId);
-        return serviceInstances.isEmpty() ? null : serviceInstances.get(0);
-    }
-
     private String getTargetUrl(ServiceInstance serviceInstance, String serviceUrl, String path, String queryParameterString) {
         String parameters = queryParameterString == null ? "" : "?" + queryParameterString;
         String protocol = serviceInstance.isSecure() ? "https" : "http";
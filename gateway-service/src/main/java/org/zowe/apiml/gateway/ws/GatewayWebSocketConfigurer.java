@@ -29,6 +29,8 @@ public class GatewayWebSocketConfigurer implements WebSocketConfigurer {
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         String webSocketPath = "/**/ws/**";    // NOSONAR
         log.debug("Registering WebSocket proxy handler to " + webSocketPath);
-        registry.addHandler(webSocketProxyServerHandler, webSocketPath);
+        registry.addHandler(webSocketProxyServerHandler, webSocketPath)
+            .addInterceptors(webSocketProxyServerHandler)
+            .setHandshakeHandler(new WebSocketProxyHandshakeHandler());
     }
 }
@@ -12,6 +12,7 @@ package org.zowe.apiml.gateway.ws;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -23,6 +24,8 @@ import java.util.Map.Entry;
 @Component
 @Endpoint(id = "websockets")
 public class WebSocketActuatorEndpoint {
+    static final String METRICS = "metrics";
+
     private WebSocketProxyServerHandler webSocketProxyServerHandler;
 
     @Autowired
@@ -46,9 +49,42 @@ public class WebSocketActuatorEndpoint {
             map.put("serviceUrl", currentSession.getClientUri());
             map.put("serviceSessionId", currentSession.getClientId());
 
+            addSendQueue(map, "Client", currentSession.getWebSocketServerSendQueue());
+            addSendQueue(map, "Service", currentSession.getWebSocketClientSendQueue());
+
             result.add(map);
         }
 
         return result;
     }
+
+    private void addSendQueue(Map<String, String> map, String target, WebSocketSendQueue sendQueue) {
+        if (sendQueue != null) {
+            map.put("queuedBytesTo" + target, String.valueOf(sendQueue.getQueuedBytes()));
+            map.put("droppedMessagesTo" + target, String.valueOf(sendQueue.getDroppedCount()));
+        }
+    }
+
+    /**
+     * Connection-level metrics of the proxy, available as /websockets/metrics.
+     */
+    @ReadOperation
+    public Map<String, Object> getMetrics(@Selector String name) {
+        if (!METRICS.equals(name)) {
+            return null;
+        }
+
+        long pending = webSocketProxyServerHandler.getRoutedSessions().values().stream()
+            .filter(session -> !session.isConnected())
+            .count();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("sessions", webSocketProxyServerHandler.getRoutedSessions().size());
+        metrics.put("pendingHandshakes", pending);
+        metrics.put("opened", webSocketProxyServerHandler.getOpenedCount());
+        metrics.put("rejected", webSocketProxyServerHandler.getRejectedCount());
+        metrics.put("closedBeforeConnected", webSocketProxyServerHandler.getClosedBeforeConnectedCount());
+        metrics.put("connectionsPerInstance", webSocketProxyServerHandler.getInstanceSelector().getConnections());
+        return metrics;
+    }
 }
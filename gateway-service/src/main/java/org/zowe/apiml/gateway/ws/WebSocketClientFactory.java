@@ -14,40 +14,211 @@ import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.client.jetty.JettyWebSocketClient;
 
 import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.zowe.apiml.constants.EurekaMetadataDefinition.*;
 
 /**
  * Factory for provisioning web socket client
  * <p>
- * Manages the client lifecycle
+ * Manages the client lifecycle. The handshakes with services run in a bounded pool of threads with a bounded queue, so
+ * the thread which accepted the connection from the client does not wait for the service. A handshake which is not
+ * completed in time is cancelled, it releases the thread of the pool. Another pool sends the proxied messages (see
+ * {@link WebSocketSendQueue}).
+ * <p>
+ * It also provides the {@link WebSocketProxySettings} of services, the configured defaults can be overridden by the
+ * metadata of the service.
  */
 @Component
 @Slf4j
 public class WebSocketClientFactory {
 
+    // closing of a session waiting for the peer could take a while, the other sessions should not wait for it
+    private static final int SEND_SCHEDULER_THREADS = 4;
+
     private final JettyWebSocketClient client;
+    private final ThreadPoolTaskExecutor handshakeExecutor;
+    private final ThreadPoolTaskExecutor sendExecutor;
+    private final ThreadPoolTaskScheduler sendScheduler;
+    private final long handshakeTimeout;
+
+    private final long sendQueueHighWatermark;
+    private final long sendQueueLowWatermark;
+    private final WebSocketSendQueue.OverflowPolicy sendQueueOverflowPolicy;
+    private final long sendTimeLimitInMillis;
 
-    public WebSocketClientFactory(SslContextFactory.Client jettyClientSslContextFactory) {
+    private final WebSocketProxySettings defaultSettings;
+
+    public WebSocketClientFactory(
+        SslContextFactory.Client jettyClientSslContextFactory,
+        @Value("${server.webSocket.connectTimeout:30000}") long connectTimeout,
+        @Value("${server.webSocket.handshakeTimeout:30000}") long handshakeTimeout,
+        @Value("${server.webSocket.handshakeThreads:16}") int handshakeThreads,
+        @Value("${server.webSocket.handshakeQueueCapacity:1000}") int handshakeQueueCapacity,
+        @Value("${server.webSocket.sendThreads:32}") int sendThreads,
+        @Value("${server.webSocket.sendQueue.highWatermark:1048576}") long sendQueueHighWatermark,
+        @Value("${server.webSocket.sendQueue.lowWatermark:262144}") long sendQueueLowWatermark,
+        @Value("${server.webSocket.sendQueue.overflowPolicy:CLOSE}") WebSocketSendQueue.OverflowPolicy sendQueueOverflowPolicy,
+        @Value("${server.webSocket.sendTimeLimitInMillis:10000}") long sendTimeLimitInMillis,
+        @Value("${server.webSocket.compression.client:true}") boolean clientCompression,
+        @Value("${server.webSocket.compression.service:true}") boolean serviceCompression,
+        @Value("${server.webSocket.mergeMessagesWindowInMillis:0}") long mergeMessagesWindowInMillis
+    ) {
+        this.sendQueueHighWatermark = sendQueueHighWatermark;
+        this.sendQueueLowWatermark = sendQueueLowWatermark;
+        this.sendQueueOverflowPolicy = sendQueueOverflowPolicy;
+        this.sendTimeLimitInMillis = sendTimeLimitInMillis;
+        this.handshakeTimeout = handshakeTimeout;
+        this.defaultSettings = new WebSocketProxySettings(clientCompression, serviceCompression, mergeMessagesWindowInMillis);
 
         log.debug("Creating Jetty WebSocket client, with SslFactory: {}",
             jettyClientSslContextFactory);
-        client = new JettyWebSocketClient(new WebSocketClient(new HttpClient(jettyClientSslContextFactory)));
+        HttpClient httpClient = new HttpClient(jettyClientSslContextFactory);
+        httpClient.setConnectTimeout(connectTimeout);
+
+        // a full queue rejects the handshake instead of delaying it for longer than the timeout
+        handshakeExecutor = createExecutor("WebSocketHandshake-", handshakeThreads, handshakeQueueCapacity);
+        // the amount of queued messages is limited by the send queues of the sessions
+        sendExecutor = createExecutor("WebSocketSend-", sendThreads, Integer.MAX_VALUE);
+
+        // it delays the sending of merged messages, closes sessions which do not accept a message in time and
+        // cancels handshakes which take too long, sending itself runs in sendExecutor
+        sendScheduler = new ThreadPoolTaskScheduler();
+        sendScheduler.setThreadNamePrefix("WebSocketSendTimer-");
+        sendScheduler.setPoolSize(SEND_SCHEDULER_THREADS);
+        sendScheduler.setDaemon(true);
+        sendScheduler.initialize();
+
+        client = new JettyWebSocketClient(new WebSocketClient(httpClient));
+        client.setTaskExecutor(handshakeExecutor);
         client.start();
     }
 
+    private ThreadPoolTaskExecutor createExecutor(String threadNamePrefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+
     JettyWebSocketClient getClientInstance() {
         return client;
     }
 
+    /**
+     * Cancel the handshake if it is not completed within the configured timeout. The cancellation interrupts the thread
+     * which waits for the service, the callbacks of the future receive a {@link java.util.concurrent.CancellationException}.
+     *
+     * @param handshake future of the handshake with the service
+     * @param <T>       type of the result
+     * @return the same future
+     */
+    <T> ListenableFuture<T> withHandshakeTimeout(ListenableFuture<T> handshake) {
+        if (handshakeTimeout <= 0) {
+            return handshake;
+        }
+
+        ScheduledFuture<?> timeout = sendScheduler.getScheduledExecutor()
+            .schedule(() -> handshake.cancel(true), handshakeTimeout, TimeUnit.MILLISECONDS);
+        handshake.addCallback(new ListenableFutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                timeout.cancel(false);
+            }
+
+            @Override
+            public void onFailure(Throwable ex) {
+                timeout.cancel(false);
+            }
+        });
+        return handshake;
+    }
+
+    /**
+     * @param session session to send messages to
+     * @return new queue of messages to the session with the configured limits
+     */
+    WebSocketSendQueue sendQueue(WebSocketSession session) {
+        return sendQueue(session, 0);
+    }
+
+    /**
+     * @param session                     session to send messages to
+     * @param mergeMessagesWindowInMillis time to collect text messages before they are sent as one message (0 = disabled)
+     * @return new queue of messages to the session with the configured limits
+     */
+    WebSocketSendQueue sendQueue(WebSocketSession session, long mergeMessagesWindowInMillis) {
+        return new WebSocketSendQueue(session, sendExecutor, sendQueueHighWatermark, sendQueueLowWatermark, sendQueueOverflowPolicy,
+            sendScheduler.getScheduledExecutor(), mergeMessagesWindowInMillis, sendTimeLimitInMillis);
+    }
+
+    /**
+     * @param serviceInstance selected instance of the service (or null if not known)
+     * @return settings of the proxied connection, the metadata of the instance override the configured defaults
+     */
+    WebSocketProxySettings getSettings(ServiceInstance serviceInstance) {
+        Map<String, String> metadata = serviceInstance == null ? null : serviceInstance.getMetadata();
+        if (metadata == null) {
+            metadata = Collections.emptyMap();
+        }
+
+        return new WebSocketProxySettings(
+            getBoolean(metadata, WEBSOCKET_COMPRESSION_CLIENT, defaultSettings.isClientCompression()),
+            getBoolean(metadata, WEBSOCKET_COMPRESSION_SERVICE, defaultSettings.isServiceCompression()),
+            getLong(metadata, WEBSOCKET_MERGE_MESSAGES_WINDOW, defaultSettings.getMergeMessagesWindowInMillis())
+        );
+    }
+
+    private boolean getBoolean(Map<String, String> metadata, String key, boolean defaultValue) {
+        String value = metadata.get(key);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.trim());
+    }
+
+    private long getLong(Map<String, String> metadata, String key, long defaultValue) {
+        String value = metadata.get(key);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            log.debug("Invalid value of metadata {}: {}", key, value);
+            return defaultValue;
+        }
+    }
+
     @PreDestroy
     private void closeClient() {
         if (client.isRunning()) {
             log.debug("Closing Jetty WebSocket client");
-            closeClient();
+            client.stop();
         }
+        handshakeExecutor.shutdown();
+        sendExecutor.shutdown();
+        sendScheduler.shutdown();
     }
 
 }
@@ -0,0 +1,160 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ws;
+
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.Server;
+import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
+import com.netflix.zuul.context.RequestContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.netflix.eureka.EurekaDiscoveryClient;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.gateway.ribbon.loadbalancer.LoadBalancerRuleAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.SERVICE_ID_KEY;
+
+/**
+ * Selects the instance of service for a new WebSocket connection. The candidates are the instances allowed by the load
+ * balancer of the service (predicates as sticky instance of the user are applied), and the one with the least open
+ * WebSocket connections is chosen. WebSocket connections are long living, so round robin would not spread them evenly.
+ *
+ * If the request is not known or there is no load balancer of the service, all instances from discovery client are
+ * the candidates.
+ */
+@Slf4j
+@Component
+public class WebSocketInstanceSelector {
+
+    private static final String DEFAULT_KEY = "default";
+
+    private final SpringClientFactory springClientFactory;
+    private final DiscoveryClient discoveryClient;
+
+    private final Map<String, Integer> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger offset = new AtomicInteger();
+
+    @Autowired
+    public WebSocketInstanceSelector(SpringClientFactory springClientFactory, DiscoveryClient discoveryClient) {
+        this.springClientFactory = springClientFactory;
+        this.discoveryClient = discoveryClient;
+    }
+
+    /**
+     * @param serviceId id of service
+     * @param request   handshake request of the client (or null if not available)
+     * @return selected instance or null if there is no available instance
+     */
+    public ServiceInstance choose(String serviceId, HttpServletRequest request) {
+        List<ServiceInstance> candidates = null;
+        if (request != null) {
+            candidates = getEligibleInstances(serviceId, request);
+        }
+        if (candidates == null) {
+            candidates = discoveryClient.getInstances(serviceId);
+        }
+
+        return getLeastConnected(candidates);
+    }
+
+    /**
+     * Remember a new open connection to the instance.
+     */
+    public void connected(ServiceInstance serviceInstance) {
+        connections.merge(getKey(serviceInstance), 1, Integer::sum);
+    }
+
+    /**
+     * Forget a closed connection to the instance (identified by {@link #getKey(ServiceInstance)}).
+     */
+    public void disconnected(String instanceKey) {
+        connections.computeIfPresent(instanceKey, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * @return amount of open connections per instance (host:port)
+     */
+    public Map<String, Integer> getConnections() {
+        return new TreeMap<>(connections);
+    }
+
+    public static String getKey(ServiceInstance serviceInstance) {
+        return serviceInstance.getHost() + ":" + serviceInstance.getPort();
+    }
+
+    private ServiceInstance getLeastConnected(List<ServiceInstance> candidates) {
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        // start on a different position each time, so instances with the same amount of connections take turns
+        int start = Math.floorMod(offset.getAndIncrement(), candidates.size());
+        ServiceInstance selected = null;
+        int minimum = Integer.MAX_VALUE;
+        for (int i = 0; i < candidates.size(); i++) {
+            ServiceInstance candidate = candidates.get((start + i) % candidates.size());
+            int count = connections.getOrDefault(getKey(candidate), 0);
+            if (count < minimum) {
+                selected = candidate;
+                minimum = count;
+            }
+        }
+        return selected;
+    }
+
+    private List<ServiceInstance> getEligibleInstances(String serviceId, HttpServletRequest request) {
+        ILoadBalancer loadBalancer = getLoadBalancer(serviceId);
+        if (loadBalancer == null) {
+            return null;
+        }
+
+        // predicates read the request from Zuul's context, the WebSocket handshake is not routed by Zuul
+        RequestContext context = RequestContext.getCurrentContext();
+        try {
+            context.setRequest(request);
+            context.set(SERVICE_ID_KEY, serviceId);
+
+            List<Server> servers;
+            if ((loadBalancer instanceof BaseLoadBalancer) && (((BaseLoadBalancer) loadBalancer).getRule() instanceof LoadBalancerRuleAdapter)) {
+                servers = ((LoadBalancerRuleAdapter) ((BaseLoadBalancer) loadBalancer).getRule()).getEligibleServers(DEFAULT_KEY);
+            } else {
+                Server server = loadBalancer.chooseServer(DEFAULT_KEY);
+                servers = server == null ? Collections.emptyList() : Collections.singletonList(server);
+            }
+
+            return servers.stream()
+                .filter(DiscoveryEnabledServer.class::isInstance)
+                .map(server -> new EurekaDiscoveryClient.EurekaServiceInstance(((DiscoveryEnabledServer) server).getInstanceInfo()))
+                .collect(Collectors.toList());
+        } finally {
+            context.unset();
+        }
+    }
+
+    private ILoadBalancer getLoadBalancer(String serviceId) {
+        try {
+            return springClientFactory.getLoadBalancer(serviceId);
+        } catch (RuntimeException e) {
+            log.debug("Load balancer of service {} is not available", serviceId, e);
+            return null;
+        }
+    }
+
+}
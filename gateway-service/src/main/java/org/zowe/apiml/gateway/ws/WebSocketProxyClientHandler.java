@@ -16,25 +16,35 @@ import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
 /**
- * Copies data from the client to the server session.
+ * Copies data from the client to the server session. The messages are queued, so the thread of the client is not
+ * blocked by a slow server session.
  */
 @Slf4j
 public class WebSocketProxyClientHandler extends AbstractWebSocketHandler {
-    private final WebSocketSession webSocketServerSession;
+    private final WebSocketSendQueue webSocketServerSendQueue;
 
-    public WebSocketProxyClientHandler(WebSocketSession webSocketServerSession) {
-        this.webSocketServerSession = webSocketServerSession;
+    public WebSocketProxyClientHandler(WebSocketSendQueue webSocketServerSendQueue) {
+        this.webSocketServerSendQueue = webSocketServerSendQueue;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        if (webSocketServerSendQueue.isClosed()) {
+            // the handshake was cancelled or the client left, nobody would read the session
+            log.debug("afterConnectionEstablished(session={}) after the client session was closed", session);
+            session.close(CloseStatus.GOING_AWAY);
+        }
     }
 
     @Override
     public void handleMessage(WebSocketSession session, WebSocketMessage<?> webSocketMessage) throws Exception {
         log.debug("handleMessage(session={},message={})", session, webSocketMessage);
-        webSocketServerSession.sendMessage(webSocketMessage);
+        webSocketServerSendQueue.send(webSocketMessage);
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         log.debug("afterConnectionClosed(session={},status={})", session, status);
-        webSocketServerSession.close(status);
+        webSocketServerSendQueue.close(status);
     }
 }
@@ -0,0 +1,97 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ws;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.server.HandshakeFailureException;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.zowe.apiml.gateway.ws.WebSocketRoutedSession.PERMESSAGE_DEFLATE;
+
+/**
+ * Handshake with the client of the gateway. If the compression is disabled for the service (see
+ * {@link WebSocketProxySettings}), permessage-deflate requested by the client is hidden. The servlet container
+ * negotiates the extensions from the headers of the request, so it is not enough to filter the extensions selected by
+ * Spring.
+ */
+public class WebSocketProxyHandshakeHandler extends DefaultHandshakeHandler {
+
+    @Override
+    public boolean doHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Map<String, Object> attributes) throws HandshakeFailureException {
+        Object settings = attributes.get(WebSocketProxyServerHandler.SETTINGS_ATTRIBUTE);
+        if ((settings instanceof WebSocketProxySettings) && !((WebSocketProxySettings) settings).isClientCompression()
+            && (request instanceof ServletServerHttpRequest)
+        ) {
+            request = new ServletServerHttpRequest(new WithoutCompressionRequest(((ServletServerHttpRequest) request).getServletRequest()));
+        }
+
+        return super.doHandshake(request, response, wsHandler, attributes);
+    }
+
+    static class WithoutCompressionRequest extends HttpServletRequestWrapper {
+
+        WithoutCompressionRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        private boolean isExtensionsHeader(String name) {
+            return WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS.equalsIgnoreCase(name);
+        }
+
+        private List<String> getFilteredExtensions(Enumeration<String> values) {
+            if (values == null) {
+                return Collections.emptyList();
+            }
+
+            return Collections.list(values).stream()
+                .map(value -> WebSocketExtension.parseExtensions(value).stream()
+                    .filter(extension -> !PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getExtensionName()))
+                    .map(WebSocketExtension::toString)
+                    .collect(Collectors.joining(", "))
+                )
+                .filter(value -> !value.isEmpty())
+                .collect(Collectors.toList());
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (!isExtensionsHeader(name)) {
+                return super.getHeader(name);
+            }
+
+            List<String> values = getFilteredExtensions(super.getHeaders(name));
+            return values.isEmpty() ? null : values.get(0);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (!isExtensionsHeader(name)) {
+                return super.getHeaders(name);
+            }
+
+            return Collections.enumeration(getFilteredExtensions(super.getHeaders(name)));
+        }
+
+    }
+
+}
@@ -13,13 +13,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.stereotype.Component;
-import org.springframework.web.socket.CloseStatus;
-import org.springframework.web.socket.SubProtocolCapable;
-import org.springframework.web.socket.WebSocketMessage;
-import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.*;
 import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
 import org.zowe.apiml.product.routing.RoutedService;
 import org.zowe.apiml.product.routing.RoutedServices;
 import org.zowe.apiml.product.routing.RoutedServicesUser;
@@ -30,16 +30,27 @@ import java.net.URI;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Handle initialization and management of routed WebSocket sessions. Copies
  * data from the current session (from client to the gateway) to the server that
  * provides the real WebSocket service.
+ * <p>
+ * The instance of the service is selected during the handshake with the client, while the HTTP request is available
+ * for the load balancer. The session to the instance is opened asynchronously.
+ * <p>
+ * The {@link WebSocketProxySettings} of the selected instance are stored in the attributes of the session, they are
+ * used in the handshake with the client and in the routed session.
  */
 @Component
 @Singleton
 @Slf4j
-public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implements RoutedServicesUser, SubProtocolCapable {
+public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implements RoutedServicesUser, SubProtocolCapable, HandshakeInterceptor {
+
+    static final String SERVICE_INSTANCE_ATTRIBUTE = WebSocketProxyServerHandler.class.getName() + ".serviceInstance";
+    static final String INSTANCE_KEY_ATTRIBUTE = WebSocketProxyServerHandler.class.getName() + ".instanceKey";
+    static final String SETTINGS_ATTRIBUTE = WebSocketProxyServerHandler.class.getName() + ".settings";
 
     @Value("${server.webSocket.supportedProtocols:-}")
     private List<String> subProtocols;
@@ -51,23 +62,27 @@ public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implem
 
     private final Map<String, WebSocketRoutedSession> routedSessions;
     private final Map<String, RoutedServices> routedServicesMap = new ConcurrentHashMap<>();
-    private final DiscoveryClient discovery;
+    private final WebSocketInstanceSelector instanceSelector;
     private final WebSocketRoutedSessionFactory webSocketRoutedSessionFactory;
     private final WebSocketClientFactory webSocketClientFactory;
     private static final String SEPARATOR = "/";
 
+    private final AtomicLong openedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong closedBeforeConnectedCount = new AtomicLong();
+
     @Autowired
-    public WebSocketProxyServerHandler(DiscoveryClient discovery, WebSocketClientFactory webSocketClientFactory) {
-        this.discovery = discovery;
+    public WebSocketProxyServerHandler(WebSocketInstanceSelector instanceSelector, WebSocketClientFactory webSocketClientFactory) {
+        this.instanceSelector = instanceSelector;
         this.webSocketClientFactory = webSocketClientFactory;
         this.routedSessions = new ConcurrentHashMap<>();  // Default
         this.webSocketRoutedSessionFactory = new WebSocketRoutedSessionFactoryImpl();
         log.debug("Creating WebSocketProxyServerHandler {} ", this);
     }
 
-    public WebSocketProxyServerHandler(DiscoveryClient discovery, WebSocketClientFactory webSocketClientFactory,
+    public WebSocketProxyServerHandler(WebSocketInstanceSelector instanceSelector, WebSocketClientFactory webSocketClientFactory,
                                        Map<String, WebSocketRoutedSession> routedSessions, WebSocketRoutedSessionFactory webSocketRoutedSessionFactory) {
-        this.discovery = discovery;
+        this.instanceSelector = instanceSelector;
         this.webSocketClientFactory = webSocketClientFactory;
         this.routedSessions = routedSessions;
         this.webSocketRoutedSessionFactory = webSocketRoutedSessionFactory;
@@ -88,10 +103,58 @@ public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implem
         return routedSessions;
     }
 
+    public WebSocketInstanceSelector getInstanceSelector() {
+        return instanceSelector;
+    }
+
+    public long getOpenedCount() {
+        return openedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getClosedBeforeConnectedCount() {
+        return closedBeforeConnectedCount.get();
+    }
+
+    /**
+     * Select the instance of the service while the request of the client is available (the load balancer could use
+     * it, ie. to find the user). The connection is not rejected here, the routing errors are reported after the
+     * connection is established.
+     */
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String[] uriParts = getUriParts(request.getURI());
+        if ((uriParts != null) && (uriParts.length == 5) && (request instanceof ServletServerHttpRequest)) {
+            String serviceId = uriParts[1].equals("ws") ? uriParts[3] : uriParts[1];
+            ServiceInstance serviceInstance = instanceSelector.choose(serviceId, ((ServletServerHttpRequest) request).getServletRequest());
+            if (serviceInstance != null) {
+                attributes.put(SERVICE_INSTANCE_ATTRIBUTE, serviceInstance);
+                putSettings(attributes, serviceInstance);
+            }
+        }
+        return true;
+    }
+
+    private void putSettings(Map<String, Object> attributes, ServiceInstance serviceInstance) {
+        WebSocketProxySettings settings = webSocketClientFactory.getSettings(serviceInstance);
+        if (settings != null) {
+            attributes.put(SETTINGS_ATTRIBUTE, settings);
+        }
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Exception exception) {
+        // nothing to do
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession webSocketSession) throws IOException {
-        String[] uriParts = getUriParts(webSocketSession);
+        String[] uriParts = getUriParts(webSocketSession.getUri());
         if (uriParts == null || uriParts.length != 5) {
+            rejectedCount.incrementAndGet();
             closeWebSocket(webSocketSession, CloseStatus.NOT_ACCEPTABLE, "Invalid URL format");
             return;
         }
@@ -115,6 +178,7 @@ public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implem
         RoutedServices routedServices = routedServicesMap.get(serviceId);
 
         if (routedServices == null) {
+            rejectedCount.incrementAndGet();
             closeWebSocket(webSocketSession, CloseStatus.NOT_ACCEPTABLE,
                 String.format("Requested service %s is not known by the gateway", serviceId));
             return;
@@ -122,15 +186,24 @@ public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implem
 
         RoutedService service = routedServices.findServiceByGatewayUrl("ws/" + majorVersion);
         if (service == null) {
+            rejectedCount.incrementAndGet();
             closeWebSocket(webSocketSession, CloseStatus.NOT_ACCEPTABLE,
                 String.format("Requested ws/%s url is not known by the gateway", majorVersion));
             return;
         }
 
-        ServiceInstance serviceInstance = findServiceInstance(serviceId);
+        ServiceInstance serviceInstance = (ServiceInstance) webSocketSession.getAttributes().remove(SERVICE_INSTANCE_ATTRIBUTE);
+        if (serviceInstance == null) {
+            serviceInstance = instanceSelector.choose(serviceId, null);
+            if (serviceInstance != null) {
+                putSettings(webSocketSession.getAttributes(), serviceInstance);
+            }
+        }
+
         if (serviceInstance != null) {
             openWebSocketConnection(service, serviceInstance, serviceInstance, path, webSocketSession);
         } else {
+            rejectedCount.incrementAndGet();
             closeWebSocket(webSocketSession, CloseStatus.SERVICE_RESTARTED,
                 String.format("Requested service %s does not have available instance", serviceId));
         }
@@ -142,8 +215,7 @@ public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implem
         }
     }
 
-    private String[] getUriParts(WebSocketSession webSocketSession) {
-        URI uri = webSocketSession.getUri();
+    private String[] getUriParts(URI uri) {
         String[] uriParts = null;
         if (uri != null && uri.getPath() != null) {
             uriParts = uri.getPath().split(SEPARATOR, 5);
@@ -160,31 +232,32 @@ public class WebSocketProxyServerHandler extends AbstractWebSocketHandler implem
         try {
             WebSocketRoutedSession session = webSocketRoutedSessionFactory.session(webSocketSession, targetUrl, webSocketClientFactory);
             routedSessions.put(webSocketSession.getId(), session);
-
+            instanceSelector.connected(serviceInstance);
+            webSocketSession.getAttributes().put(INSTANCE_KEY_ATTRIBUTE, WebSocketInstanceSelector.getKey(serviceInstance));
+            openedCount.incrementAndGet();
         } catch (WebSocketProxyError e) {
+            rejectedCount.incrementAndGet();
             log.debug("Error opening WebSocket connection to {}: {}", targetUrl, e.getMessage());
             webSocketSession.close(CloseStatus.NOT_ACCEPTABLE.withReason(e.getMessage()));
         }
     }
 
-    private ServiceInstance findServiceInstance(String serviceId) {
-        List<ServiceInstance> serviceInstances = this.discovery.getInstances(serviceId);
-        if (!serviceInstances.isEmpty()) {
-            // TODO: Is this implementation apropriate?
-            return serviceInstances.get(0);
-        } else {
-            return null;
-        }
-    }
-
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
         log.debug("afterConnectionClosed(session={},status={})", session, status);
+        Object instanceKey = session.getAttributes().remove(INSTANCE_KEY_ATTRIBUTE);
+        if (instanceKey != null) {
+            instanceSelector.disconnected((String) instanceKey);
+        }
+
         try {
             session.close(status);
 
             WebSocketRoutedSession webSocketRoutedSession = getRoutedSession(session);
             if (webSocketRoutedSession != null) {
+                if (!webSocketRoutedSession.isConnected()) {
+                    closedBeforeConnectedCount.incrementAndGet();
+                }
                 webSocketRoutedSession.close(status);
             }
 
@@ -0,0 +1,39 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ws;
+
+import lombok.Value;
+
+/**
+ * Settings of the proxied WebSocket connection to one service. The defaults are configured in the gateway
+ * (server.webSocket.*) and a service can override them by its metadata (apiml.websocket.*).
+ */
+@Value
+public class WebSocketProxySettings {
+
+    public static final WebSocketProxySettings DEFAULT = new WebSocketProxySettings(true, true, 0);
+
+    /**
+     * Allow permessage-deflate on the connection between the client and the gateway
+     */
+    boolean clientCompression;
+
+    /**
+     * Request permessage-deflate on the connection between the gateway and the service
+     */
+    boolean serviceCompression;
+
+    /**
+     * Time to collect text messages to the client before they are merged into one message separated by new lines
+     * (0 = disabled)
+     */
+    long mergeMessagesWindowInMillis;
+
+}
@@ -17,36 +17,77 @@ import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.web.socket.*;
 import org.springframework.web.socket.client.jetty.JettyWebSocketClient;
 
-import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Represents a connection in the proxying chain, establishes 'client' to
  * 'server' communication with the next server, with a
  * {@link WebSocketProxyClientHandler} to copy data from the 'client' to the
  * supplied 'server' session.
+ * <p>
+ * The handshake with the server is asynchronous. Messages received before the session to the server is open are
+ * buffered and sent once it is open. If the handshake fails or it is not completed in time, the session of the client
+ * is closed.
+ * <p>
+ * Messages are sent through a bounded {@link WebSocketSendQueue} in both directions.
+ * <p>
+ * The extensions requested by the client are not forwarded to the service, permessage-deflate is requested by the
+ * gateway itself according to the {@link WebSocketProxySettings} of the service.
  */
 @Slf4j
 public class WebSocketRoutedSession {
-    private static final int DEFAULT_TIMEOUT = 30000;
+    static final int MAX_PENDING_MESSAGES = 1000;
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
 
-    private final WebSocketSession webSocketClientSession;
     private final WebSocketSession webSocketServerSession;
+    private final WebSocketSendQueue webSocketServerSendQueue;
+    private final String targetUrl;
+    private final WebSocketClientFactory webSocketClientFactory;
+
+    private final Object lock = new Object();
+    private volatile WebSocketSession webSocketClientSession;
+    private volatile WebSocketSendQueue webSocketClientSendQueue;
+    private List<WebSocketMessage<?>> pendingMessages = new ArrayList<>();
+    private CloseStatus closeStatus;
 
     public WebSocketRoutedSession(WebSocketSession webSocketServerSession, String targetUrl, WebSocketClientFactory webSocketClientFactory) {
+        WebSocketProxySettings settings = getSettings(webSocketServerSession);
         this.webSocketServerSession = webSocketServerSession;
-        this.webSocketClientSession = createWebSocketClientSession(webSocketServerSession, targetUrl, webSocketClientFactory);
+        this.webSocketServerSendQueue = webSocketClientFactory.sendQueue(webSocketServerSession, settings.getMergeMessagesWindowInMillis());
+        this.targetUrl = targetUrl;
+        this.webSocketClientFactory = webSocketClientFactory;
+        createWebSocketClientSession(webSocketServerSession, targetUrl, webSocketClientFactory, settings)
+            .addCallback(this::onClientSessionOpened, this::onClientSessionFailed);
     }
 
     public WebSocketRoutedSession(WebSocketSession webSocketServerSession, WebSocketSession webSocketClientSession) {
         this.webSocketClientSession = webSocketClientSession;
+        this.webSocketClientSendQueue = directSendQueue(webSocketClientSession);
         this.webSocketServerSession = webSocketServerSession;
+        this.webSocketServerSendQueue = directSendQueue(webSocketServerSession);
+        this.targetUrl = null;
+        this.webSocketClientFactory = null;
+    }
+
+    private static WebSocketSendQueue directSendQueue(WebSocketSession session) {
+        return new WebSocketSendQueue(session, Runnable::run, Long.MAX_VALUE, Long.MAX_VALUE, WebSocketSendQueue.OverflowPolicy.CLOSE);
     }
 
-    private WebSocketHttpHeaders getWebSocketHttpHeaders(WebSocketSession webSocketServerSession) {
+    private static WebSocketProxySettings getSettings(WebSocketSession webSocketServerSession) {
+        Object settings = webSocketServerSession.getAttributes().get(WebSocketProxyServerHandler.SETTINGS_ATTRIBUTE);
+        if (settings instanceof WebSocketProxySettings) {
+            return (WebSocketProxySettings) settings;
+        }
+        return WebSocketProxySettings.DEFAULT;
+    }
+
+    private WebSocketHttpHeaders getWebSocketHttpHeaders(WebSocketSession webSocketServerSession, WebSocketProxySettings settings) {
         WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
         HttpHeaders browserHeaders = webSocketServerSession.getHandshakeHeaders();
         browserHeaders.forEach((key, value) -> {
@@ -54,6 +95,12 @@ public class WebSocketRoutedSession {
             headers.add(key, header);
         });
 
+        // extensions are negotiated on each connection independently
+        headers.remove(WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS);
+        if (settings.isServiceCompression()) {
+            headers.setSecWebSocketExtensions(Collections.singletonList(new WebSocketExtension(PERMESSAGE_DEFLATE)));
+        }
+
         return headers;
     }
 
@@ -65,44 +112,84 @@ public class WebSocketRoutedSession {
         return webSocketServerSession;
     }
 
-    private WebSocketSession createWebSocketClientSession(WebSocketSession webSocketServerSession, String targetUrl, WebSocketClientFactory webSocketClientFactory) {
+    /**
+     * @return queue of messages to the client of gateway
+     */
+    public WebSocketSendQueue getWebSocketServerSendQueue() {
+        return webSocketServerSendQueue;
+    }
+
+    /**
+     * @return queue of messages to the service (null until the session to the service is open)
+     */
+    public WebSocketSendQueue getWebSocketClientSendQueue() {
+        return webSocketClientSendQueue;
+    }
+
+    /**
+     * @return true if the session to the server is already open
+     */
+    public boolean isConnected() {
+        return webSocketClientSession != null;
+    }
+
+    private ListenableFuture<WebSocketSession> createWebSocketClientSession(
+        WebSocketSession webSocketServerSession, String targetUrl, WebSocketClientFactory webSocketClientFactory, WebSocketProxySettings settings
+    ) {
         try {
             JettyWebSocketClient client = webSocketClientFactory.getClientInstance();
             URI targetURI = new URI(targetUrl);
-            WebSocketHttpHeaders headers = getWebSocketHttpHeaders(webSocketServerSession);
-            ListenableFuture<WebSocketSession> futureSession = client
-                .doHandshake(new WebSocketProxyClientHandler(webSocketServerSession), headers, targetURI);
-            return futureSession.get(DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS);
+            WebSocketHttpHeaders headers = getWebSocketHttpHeaders(webSocketServerSession, settings);
+            return webSocketClientFactory.withHandshakeTimeout(
+                client.doHandshake(new WebSocketProxyClientHandler(webSocketServerSendQueue), headers, targetURI)
+            );
         } catch (IllegalStateException e) {
             throw webSocketProxyException(targetUrl, e, webSocketServerSession, true);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw webSocketProxyException(targetUrl, e, webSocketServerSession, false);
-        } catch (ExecutionException e) {
-            throw handleExecutionException(targetUrl, e, webSocketServerSession, false);
         } catch (Exception e) {
             throw webSocketProxyException(targetUrl, e, webSocketServerSession, false);
         }
     }
 
-    private WebSocketProxyError handleExecutionException(String targetUrl, ExecutionException cause, WebSocketSession webSocketServerSession, boolean logError) {
-        if (cause.getCause() != null && cause.getCause().getCause() instanceof UpgradeException) {
-            UpgradeException upgradeException = (UpgradeException) cause.getCause().getCause();
-            if (upgradeException.getResponseStatusCode() == HttpStatus.UNAUTHORIZED.value()) {
-                String message = "Invalid login credentials";
-                if (logError) {
-                    log.debug(message);
-                }
-                return new WebSocketProxyError(message, cause, webSocketServerSession);
+    private void onClientSessionOpened(WebSocketSession clientSession) {
+        WebSocketSendQueue clientSendQueue = webSocketClientFactory.sendQueue(clientSession);
+        synchronized (lock) {
+            if (closeStatus != null) {
+                // the client left during the handshake
+                clientSendQueue.close(closeStatus);
             } else {
-                return webSocketProxyException(targetUrl, cause, webSocketServerSession, logError);
+                for (WebSocketMessage<?> message : pendingMessages) {
+                    clientSendQueue.send(message);
+                }
+            }
+
+            pendingMessages = null;
+            webSocketClientSendQueue = clientSendQueue;
+            webSocketClientSession = clientSession;
+        }
+    }
+
+    private void onClientSessionFailed(Throwable cause) {
+        WebSocketProxyError error = handleHandshakeException(targetUrl, cause, webSocketServerSession);
+        log.debug("Error opening WebSocket connection to {}: {}", targetUrl, error.getMessage());
+        synchronized (lock) {
+            pendingMessages = null;
+        }
+        webSocketServerSendQueue.close(CloseStatus.NOT_ACCEPTABLE.withReason(error.getMessage()));
+    }
+
+    private WebSocketProxyError handleHandshakeException(String targetUrl, Throwable cause, WebSocketSession webSocketServerSession) {
+        if (cause instanceof CancellationException) {
+            return webSocketProxyException(targetUrl, new TimeoutException("The handshake was not completed in time"), webSocketServerSession, false);
+        }
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if ((t instanceof UpgradeException) && (((UpgradeException) t).getResponseStatusCode() == HttpStatus.UNAUTHORIZED.value())) {
+                return new WebSocketProxyError("Invalid login credentials", cause, webSocketServerSession);
             }
-        } else {
-            return webSocketProxyException(targetUrl, cause, webSocketServerSession, logError);
         }
+        return webSocketProxyException(targetUrl, cause, webSocketServerSession, false);
     }
 
-    private WebSocketProxyError webSocketProxyException(String targetUrl, Exception cause, WebSocketSession webSocketServerSession, boolean logError) {
+    private WebSocketProxyError webSocketProxyException(String targetUrl, Throwable cause, WebSocketSession webSocketServerSession, boolean logError) {
         String message = String.format("Error opening session to WebSocket service at %s: %s", targetUrl, cause.getMessage());
         if (logError) {
             log.debug(message);
@@ -110,15 +197,47 @@ public class WebSocketRoutedSession {
         return new WebSocketProxyError(message, cause, webSocketServerSession);
     }
 
-    public void sendMessageToServer(WebSocketMessage<?> webSocketMessage) throws IOException {
+    public void sendMessageToServer(WebSocketMessage<?> webSocketMessage) {
         log.debug("sendMessageToServer(session={},message={})", webSocketClientSession, webSocketMessage);
-        webSocketClientSession.sendMessage(webSocketMessage);
+        WebSocketSendQueue clientSendQueue = webSocketClientSendQueue;
+        if (clientSendQueue == null) {
+            synchronized (lock) {
+                clientSendQueue = webSocketClientSendQueue;
+                if (clientSendQueue == null) {
+                    bufferMessage(webSocketMessage);
+                    return;
+                }
+            }
+        }
+        clientSendQueue.send(webSocketMessage);
     }
 
-    public void close(CloseStatus status) throws IOException {
-        if (webSocketClientSession.isOpen()) {
-            webSocketClientSession.close(status);
+    private void bufferMessage(WebSocketMessage<?> webSocketMessage) {
+        if (pendingMessages == null) {
+            // the handshake failed, the session is being closed
+            return;
+        }
+        if (pendingMessages.size() >= MAX_PENDING_MESSAGES) {
+            log.debug("Too many messages waiting for WebSocket service at {}", targetUrl);
+            pendingMessages = null;
+            webSocketServerSendQueue.close(CloseStatus.SERVICE_OVERLOAD);
+            return;
         }
+        pendingMessages.add(webSocketMessage);
+    }
+
+    public void close(CloseStatus status) {
+        WebSocketSendQueue clientSendQueue;
+        synchronized (lock) {
+            clientSendQueue = webSocketClientSendQueue;
+            if (clientSendQueue == null) {
+                // the session to the server is closed once it is open
+                closeStatus = status;
+                pendingMessages = null;
+                return;
+            }
+        }
+        clientSendQueue.close(status);
     }
 
     public String getServerRemoteAddress() {
@@ -140,7 +259,12 @@ public class WebSocketRoutedSession {
     }
 
     public String getClientUri() {
-        URI uri = getWebSocketClientSession().getUri();
+        WebSocketSession clientSession = getWebSocketClientSession();
+        if (clientSession == null) {
+            return targetUrl;
+        }
+
+        URI uri = clientSession.getUri();
         if (uri != null) {
             return uri.toString();
         }
@@ -149,6 +273,7 @@ public class WebSocketRoutedSession {
     }
 
     public String getClientId() {
-        return getWebSocketClientSession().getId();
+        WebSocketSession clientSession = getWebSocketClientSession();
+        return clientSession == null ? null : clientSession.getId();
     }
 }
@@ -0,0 +1,357 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.ws;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.StringJoiner;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded queue of messages sent to one WebSocket session. The messages are sent by a shared pool of threads, so the
+ * thread which received the message (ie. Jetty client thread serving other sessions too) never waits for a slow peer.
+ * <p>
+ * Once the queued messages exceed the high watermark (in bytes), the overflow policy is applied until the queue drains
+ * below the low watermark: new messages are dropped, or the session is closed with status 1013 (try again later).
+ * <p>
+ * Sending of one message can be limited by time. If the peer does not accept the message in time, the queue is
+ * discarded and the session is closed with status 1013, which also releases the thread blocked by the sending.
+ * <p>
+ * Optionally, small text messages can be merged. The sending starts after the merge window and consecutive text
+ * messages waiting in the queue are sent as one message, separated by new line. It changes the boundaries of the
+ * messages, so it fits only services which send many small messages framed by new lines (ie. newline delimited JSON)
+ * to clients which split the received messages by new lines again.
+ */
+@Slf4j
+public class WebSocketSendQueue {
+
+    public enum OverflowPolicy {
+        DROP, CLOSE
+    }
+
+    // amount of messages sent in one task, then the thread is released for other sessions
+    private static final int MESSAGES_PER_TASK = 100;
+
+    static final String MERGE_DELIMITER = "\n";
+    static final int MAX_MERGED_BYTES = 65536;
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final long highWatermark;
+    private final long lowWatermark;
+    private final OverflowPolicy overflowPolicy;
+    private final ScheduledExecutorService scheduler;
+    private final long mergeMessagesWindowInMillis;
+    private final long sendTimeLimitInMillis;
+
+    private final Queue<WebSocketMessage<?>> messages = new ArrayDeque<>();
+    private long queuedBytes;
+    private long droppedCount;
+    private long sentCount;
+    private boolean draining;
+    private boolean overflow;
+    private boolean closed;
+    private CloseStatus closeStatus;
+
+    /**
+     * @param session        session to send messages to
+     * @param executor       executor which sends the messages
+     * @param highWatermark  amount of queued bytes when the overflow policy starts to be applied
+     * @param lowWatermark   amount of queued bytes when the overflow policy stops to be applied
+     * @param overflowPolicy what to do with messages above the high watermark
+     */
+    public WebSocketSendQueue(WebSocketSession session, Executor executor, long highWatermark, long lowWatermark, OverflowPolicy overflowPolicy) {
+        this(session, executor, highWatermark, lowWatermark, overflowPolicy, null, 0);
+    }
+
+    /**
+     * @param session                     session to send messages to
+     * @param executor                    executor which sends the messages
+     * @param highWatermark               amount of queued bytes when the overflow policy starts to be applied
+     * @param lowWatermark                amount of queued bytes when the overflow policy stops to be applied
+     * @param overflowPolicy              what to do with messages above the high watermark
+     * @param scheduler                   scheduler to delay the sending for the merge window
+     * @param mergeMessagesWindowInMillis time to collect text messages before they are sent as one message (0 = disabled)
+     */
+    public WebSocketSendQueue(
+        WebSocketSession session, Executor executor, long highWatermark, long lowWatermark, OverflowPolicy overflowPolicy,
+        ScheduledExecutorService scheduler, long mergeMessagesWindowInMillis
+    ) {
+        this(session, executor, highWatermark, lowWatermark, overflowPolicy, scheduler, mergeMessagesWindowInMillis, 0);
+    }
+
+    /**
+     * @param session                     session to send messages to
+     * @param executor                    executor which sends the messages
+     * @param highWatermark               amount of queued bytes when the overflow policy starts to be applied
+     * @param lowWatermark                amount of queued bytes when the overflow policy stops to be applied
+     * @param overflowPolicy              what to do with messages above the high watermark
+     * @param scheduler                   scheduler to delay the sending for the merge window and to check the send time
+     * @param mergeMessagesWindowInMillis time to collect text messages before they are sent as one message (0 = disabled)
+     * @param sendTimeLimitInMillis       maximum time to send one message, then the session is closed (0 = disabled)
+     */
+    public WebSocketSendQueue(
+        WebSocketSession session, Executor executor, long highWatermark, long lowWatermark, OverflowPolicy overflowPolicy,
+        ScheduledExecutorService scheduler, long mergeMessagesWindowInMillis, long sendTimeLimitInMillis
+    ) {
+        this.session = session;
+        this.executor = executor;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = Math.min(lowWatermark, highWatermark);
+        this.overflowPolicy = overflowPolicy;
+        this.scheduler = scheduler;
+        this.mergeMessagesWindowInMillis = scheduler == null ? 0 : mergeMessagesWindowInMillis;
+        this.sendTimeLimitInMillis = scheduler == null ? 0 : sendTimeLimitInMillis;
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    /**
+     * Queue the message to be sent. The method does not wait for sending.
+     *
+     * @param message message to send
+     */
+    public void send(WebSocketMessage<?> message) {
+        boolean overloaded;
+        synchronized (this) {
+            if (closed || (closeStatus != null)) {
+                return;
+            }
+
+            // one message is always accepted, even if it is bigger than the high watermark
+            if (!messages.isEmpty() && (queuedBytes + message.getPayloadLength() > highWatermark)) {
+                overflow = true;
+            }
+
+            if (overflow) {
+                if (overflowPolicy == OverflowPolicy.DROP) {
+                    droppedCount++;
+                    return;
+                }
+                discard();
+                overloaded = true;
+            } else {
+                messages.add(message);
+                queuedBytes += message.getPayloadLength();
+                if (draining) {
+                    return;
+                }
+                draining = true;
+                overloaded = false;
+            }
+        }
+
+        if (overloaded) {
+            log.debug("Too many bytes queued for WebSocket session {}, closing it", session.getId());
+            closeSession(CloseStatus.SERVICE_OVERLOAD);
+        } else if (isMerging() && (message instanceof TextMessage)) {
+            // wait for next messages to send them together
+            scheduler.schedule(() -> executor.execute(this::drain), mergeMessagesWindowInMillis, TimeUnit.MILLISECONDS);
+        } else {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Close the session once all queued messages are sent.
+     *
+     * @param status status to close the session with
+     */
+    public void close(CloseStatus status) {
+        synchronized (this) {
+            if (closed || (closeStatus != null)) {
+                return;
+            }
+            closeStatus = status;
+            if (draining) {
+                // the session is closed by the sending thread
+                return;
+            }
+            closed = true;
+        }
+        closeSession(status);
+    }
+
+    public synchronized long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    public synchronized int getQueuedMessages() {
+        return messages.size();
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return true if the session is closed or it is going to be closed
+     */
+    public synchronized boolean isClosed() {
+        return closed || (closeStatus != null);
+    }
+
+    private void discard() {
+        closed = true;
+        messages.clear();
+        queuedBytes = 0;
+    }
+
+    private boolean isMerging() {
+        return mergeMessagesWindowInMillis > 0;
+    }
+
+    private void drain() {
+        for (int i = 0; i < MESSAGES_PER_TASK; i++) {
+            WebSocketMessage<?> message;
+            // amount of queued messages and their bytes in the message being sent
+            int count = 1;
+            long bytes = 0;
+            long sendNumber;
+            synchronized (this) {
+                sendNumber = sentCount;
+                message = messages.peek();
+                if (message == null) {
+                    draining = false;
+                    if (closed || (closeStatus == null)) {
+                        return;
+                    }
+                    closed = true;
+                } else {
+                    bytes = message.getPayloadLength();
+                    if (isMerging() && (message instanceof TextMessage)) {
+                        count = countMergeable();
+                        if (count > 1) {
+                            message = merge(count);
+                            bytes = message.getPayloadLength() - (long) (count - 1) * MERGE_DELIMITER.length();
+                        }
+                    }
+                }
+            }
+
+            if (message == null) {
+                // all messages were sent, the session was waiting to be closed
+                closeSession(closeStatus);
+                return;
+            }
+
+            ScheduledFuture<?> sendTimeout = scheduleSendTimeout(sendNumber);
+            try {
+                session.sendMessage(message);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Error sending message to WebSocket session {}: {}", session.getId(), e.getMessage());
+                synchronized (this) {
+                    discard();
+                    draining = false;
+                }
+                // the queue does not accept messages anymore, the peer has to know it
+                closeSession(CloseStatus.SERVER_ERROR);
+                return;
+            } finally {
+                synchronized (this) {
+                    sentCount++;
+                }
+                if (sendTimeout != null) {
+                    sendTimeout.cancel(false);
+                }
+            }
+
+            synchronized (this) {
+                if (closed) {
+                    // the queue was discarded meanwhile
+                    draining = false;
+                    return;
+                }
+                for (int j = 0; j < count; j++) {
+                    messages.poll();
+                }
+                queuedBytes -= bytes;
+                if (overflow && (queuedBytes <= lowWatermark)) {
+                    overflow = false;
+                }
+            }
+        }
+
+        // continue in a new task, so other sessions are not starving
+        executor.execute(this::drain);
+    }
+
+    private ScheduledFuture<?> scheduleSendTimeout(long sendNumber) {
+        if (sendTimeLimitInMillis <= 0) {
+            return null;
+        }
+        return scheduler.schedule(() -> onSendTimeout(sendNumber), sendTimeLimitInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void onSendTimeout(long sendNumber) {
+        synchronized (this) {
+            if (closed || (sentCount != sendNumber)) {
+                // the message was sent meanwhile
+                return;
+            }
+            discard();
+        }
+
+        log.debug("Message to WebSocket session {} was not sent in {} ms, closing it", session.getId(), sendTimeLimitInMillis);
+        // closing of the session fails the blocked sending, the sending thread is released then
+        closeSession(CloseStatus.SERVICE_OVERLOAD);
+    }
+
+    /**
+     * @return amount of text messages from the head of the queue which fit together into one message
+     */
+    private int countMergeable() {
+        Iterator<WebSocketMessage<?>> iterator = messages.iterator();
+        int length = iterator.next().getPayloadLength();
+        int count = 1;
+        while (iterator.hasNext()) {
+            WebSocketMessage<?> next = iterator.next();
+            length += MERGE_DELIMITER.length() + next.getPayloadLength();
+            if (!(next instanceof TextMessage) || (length > MAX_MERGED_BYTES)) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private TextMessage merge(int count) {
+        StringJoiner joiner = new StringJoiner(MERGE_DELIMITER);
+        Iterator<WebSocketMessage<?>> iterator = messages.iterator();
+        for (int i = 0; i < count; i++) {
+            joiner.add(((TextMessage) iterator.next()).getPayload());
+        }
+        return new TextMessage(joiner.toString());
+    }
+
+    private void closeSession(CloseStatus status) {
+        try {
+            if (session.isOpen()) {
+                session.close(status);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Error closing WebSocket session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+}
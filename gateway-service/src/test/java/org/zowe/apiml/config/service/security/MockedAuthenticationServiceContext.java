@@ -69,7 +69,12 @@ public class MockedAuthenticationServiceContext {
     public AuthenticationService getAuthenticationService(CacheManager cacheManager, CacheUtils cacheUtils) {
         return new AuthenticationService(
             applicationContext, getAuthConfigurationProperties(), getJwtSecurityInitializer(),
-            getZosmfService(), getDiscoveryClient(), getRestTemplate(), cacheManager, cacheUtils
+            getZosmfService(), getDiscoveryClient(), cacheManager, cacheUtils, getTokenInvalidationDistributor()
         );
     }
+
+    @Bean
+    public TokenInvalidationDistributor getTokenInvalidationDistributor() {
+        return new TokenInvalidationDistributor(getRestTemplate(), 1, TokenInvalidationDistributor.DEFAULT_BATCH_SIZE);
+    }
 }
@@ -13,8 +13,10 @@ import com.netflix.discovery.EurekaClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.cache.CacheManager;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.context.annotation.Bean;
 import org.zowe.apiml.eurekaservice.client.util.EurekaMetadataParser;
+import org.zowe.apiml.gateway.metadata.service.ServicePolicyRegistry;
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
 import org.zowe.apiml.gateway.security.service.ServiceAuthenticationServiceImpl;
 import org.zowe.apiml.gateway.security.service.schema.AuthenticationSchemeFactory;
@@ -55,7 +57,8 @@ public class MockedSecurityContext {
                 getAuthenticationSchemeFactory(),
                 getAuthenticationService(),
                 cacheManager,
-                cacheUtils
+                cacheUtils,
+                new ServicePolicyRegistry(mock(DiscoveryClient.class), getEurekaMetadataParser())
         );
     }
 
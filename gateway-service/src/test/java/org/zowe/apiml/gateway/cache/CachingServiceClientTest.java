@@ -11,10 +11,16 @@
 package org.zowe.apiml.gateway.cache;
 
 import org.junit.jupiter.api.*;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -64,6 +70,43 @@ class CachingServiceClientTest {
         }
     }
 
+    @Nested
+    class givenUpsertOperation {
+        @Test
+        void upsertWithoutProblem() {
+            CachingServiceClient.KeyValue kv = new CachingServiceClient.KeyValue("Britney", "Spears");
+            assertDoesNotThrow(() -> underTest.upsert(kv));
+            verify(restTemplate).exchange(urlBase + "/Britney", HttpMethod.PUT, new HttpEntity<>(kv, new HttpHeaders()), String.class);
+        }
+
+        @Test
+        void upsertWithExceptionFromRestTemplateThrowsDefined() {
+            doThrow(new RestClientException("oops")).when(restTemplate).exchange(anyString(), any(HttpMethod.class), any(HttpEntity.class), eq(String.class));
+            CachingServiceClient.KeyValue kv = new CachingServiceClient.KeyValue("Britney", "Spears");
+            assertThrows(CachingServiceClientException.class, () -> underTest.upsert(kv));
+        }
+    }
+
+    @Nested
+    class givenUpsertBatchOperation {
+        @Test
+        void upsertBatchWithoutProblem() {
+            List<CachingServiceClient.KeyValue> kvs = Arrays.asList(
+                new CachingServiceClient.KeyValue("Britney", "Spears"),
+                new CachingServiceClient.KeyValue("Justin", "Timberlake")
+            );
+            assertDoesNotThrow(() -> underTest.upsertBatch(kvs));
+            verify(restTemplate).exchange(urlBase + "/batch", HttpMethod.PUT, new HttpEntity<>(kvs, new HttpHeaders()), String.class);
+        }
+
+        @Test
+        void upsertBatchWithExceptionFromRestTemplateThrowsDefined() {
+            doThrow(new RestClientException("oops")).when(restTemplate).exchange(anyString(), any(HttpMethod.class), any(HttpEntity.class), eq(String.class));
+            List<CachingServiceClient.KeyValue> kvs = Collections.singletonList(new CachingServiceClient.KeyValue("Britney", "Spears"));
+            assertThrows(CachingServiceClientException.class, () -> underTest.upsertBatch(kvs));
+        }
+    }
+
     @Nested
     class givenReadOperation {
 
@@ -95,6 +138,30 @@ class CachingServiceClientTest {
         }
     }
 
+    @Nested
+    class givenReadAllOperation {
+
+        @Test
+        void readAllWithoutProblem() throws CachingServiceClientException {
+            ResponseEntity<Map<String, CachingServiceClient.KeyValue>> responseEntity = mock(ResponseEntity.class);
+            doReturn(true).when(responseEntity).hasBody();
+            doReturn(Collections.singletonMap("Stevie", new CachingServiceClient.KeyValue("Stevie", "Wonder"))).when(responseEntity).getBody();
+            doReturn(responseEntity).when(restTemplate).exchange(eq(urlBase), eq(HttpMethod.GET), any(HttpEntity.class), any(ParameterizedTypeReference.class));
+            assertThat(underTest.readAll().get("Stevie").getValue(), is("Wonder"));
+        }
+
+        @Test
+        void readAllWithNullResponseReturnsEmpty() throws CachingServiceClientException {
+            assertThat(underTest.readAll().isEmpty(), is(true));
+        }
+
+        @Test
+        void readAllWithExceptionFromRestTemplateThrowsDefined() {
+            doThrow(new RestClientException("oops")).when(restTemplate).exchange(anyString(), any(HttpMethod.class), any(HttpEntity.class), any(ParameterizedTypeReference.class));
+            assertThrows(CachingServiceClientException.class, () -> underTest.readAll());
+        }
+    }
+
     @Nested
     class givenDeleteOperation {
         private String keyToDelete = "reee";
@@ -111,5 +178,18 @@ class CachingServiceClientTest {
         }
     }
 
+    @Nested
+    class givenNamespace {
+        @Test
+        void thenServiceIdHeaderIsSent() throws CachingServiceClientException {
+            underTest = new CachingServiceClient(restTemplate, "https://localhost:10010", "invalidatedTokens");
+            underTest.readAll();
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.add("X-CS-Service-ID", "invalidatedTokens");
+            verify(restTemplate).exchange(eq(urlBase), eq(HttpMethod.GET), eq(new HttpEntity<>(null, headers)), any(ParameterizedTypeReference.class));
+        }
+    }
+
 
 }
@@ -0,0 +1,215 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.cache;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.zowe.apiml.security.common.token.TokenAuthentication;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.*;
+
+class InvalidatedTokenCacheTest {
+
+    private static final long HOUR = 3600000L;
+
+    private CachingServiceClient cachingServiceClient;
+    private TokenValidationCache tokenValidationCache;
+    private InvalidatedTokenCache underTest;
+
+    @BeforeEach
+    void setUp() {
+        cachingServiceClient = mock(CachingServiceClient.class);
+        tokenValidationCache = new TokenValidationCache("validationJwtToken", 100, 1, TokenValidationCache.DEFAULT_MAX_TIME_TO_LIVE);
+        underTest = new InvalidatedTokenCache("invalidatedJwtTokens", cachingServiceClient, tokenValidationCache, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+    }
+
+    private String createToken(String username, long expiresIn) {
+        return Jwts.builder()
+            .setSubject(username)
+            .setExpiration(new Date(System.currentTimeMillis() + expiresIn))
+            .compact();
+    }
+
+    private String keyOf(String token) {
+        return InvalidatedTokenCache.KEY_PREFIX + TokenValidationCache.TokenKey.of(token).toHex();
+    }
+
+    @Nested
+    class WhenTokenIsInvalidated {
+
+        @Test
+        void thenItIsStoredInCachingServiceWithExpiration() throws CachingServiceClientException {
+            String token = createToken("user", HOUR);
+
+            underTest.put(token, Boolean.TRUE);
+
+            ArgumentCaptor<CachingServiceClient.KeyValue> captor = ArgumentCaptor.forClass(CachingServiceClient.KeyValue.class);
+            verify(cachingServiceClient).upsert(captor.capture());
+            assertThat(captor.getValue().getKey(), is(keyOf(token)));
+            assertThat(captor.getValue().getValue(), is(String.valueOf(TokenValidationCache.getExpiration(token, 0))));
+            assertThat(captor.getValue().getTtl() > 3500 && captor.getValue().getTtl() <= 3600, is(true));
+        }
+
+        @Test
+        void thenItIsInvalidatedImmediately() {
+            String token = createToken("user", HOUR);
+
+            underTest.put(token, Boolean.TRUE);
+
+            assertThat(underTest.get(token).get(), is(Boolean.TRUE));
+            assertThat(underTest.getHitCount(), is(1L));
+        }
+
+        @Test
+        void givenOtherToken_thenItIsNotFound() {
+            underTest.put(createToken("user", HOUR), Boolean.TRUE);
+
+            assertThat(underTest.get(createToken("user2", HOUR)), is(nullValue()));
+            assertThat(underTest.getHitCount(), is(0L));
+        }
+
+        @Test
+        void givenExpiredToken_thenItIsNotStored() {
+            underTest.put(createToken("user", -HOUR), Boolean.TRUE);
+
+            verifyZeroInteractions(cachingServiceClient);
+            assertThat(underTest.getSize(), is(0));
+        }
+
+        @Test
+        void givenUnsuccessfulInvalidation_thenItIsNotStored() {
+            String token = createToken("user", HOUR);
+
+            underTest.put(token, Boolean.FALSE);
+
+            assertThat(underTest.get(token), is(nullValue()));
+            verifyZeroInteractions(cachingServiceClient);
+        }
+
+        @Test
+        void givenUnavailableCachingService_thenItIsStoredOnRefresh() throws CachingServiceClientException {
+            String token = createToken("user", HOUR);
+            doThrow(new CachingServiceClientException("unavailable")).when(cachingServiceClient).upsert(any());
+
+            underTest.put(token, Boolean.TRUE);
+            assertThat(underTest.get(token).get(), is(Boolean.TRUE));
+            assertThat(underTest.getStoreFailedCount(), is(1L));
+
+            when(cachingServiceClient.readAll()).thenReturn(Collections.emptyMap());
+            underTest.refresh();
+
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<CachingServiceClient.KeyValue>> captor = ArgumentCaptor.forClass(List.class);
+            verify(cachingServiceClient).upsertBatch(captor.capture());
+            assertThat(captor.getValue().get(0).getKey(), is(keyOf(token)));
+            // the token is still known until Caching Service returns it
+            assertThat(underTest.get(token).get(), is(Boolean.TRUE));
+            assertThat(underTest.getPendingCount(), is(1));
+        }
+
+    }
+
+    @Nested
+    class WhenRefreshed {
+
+        @Test
+        void thenTokensInvalidatedOnOtherInstancesAreKnown() throws CachingServiceClientException {
+            String token = createToken("user", HOUR);
+            tokenValidationCache.put(token, TokenAuthentication.createAuthenticated("user", token));
+
+            Map<String, CachingServiceClient.KeyValue> records = new HashMap<>();
+            records.put(keyOf(token), new CachingServiceClient.KeyValue(keyOf(token), String.valueOf(System.currentTimeMillis() + HOUR)));
+            records.put("lb.user", new CachingServiceClient.KeyValue("lb.user", "{}"));
+            when(cachingServiceClient.readAll()).thenReturn(records);
+
+            assertThat(underTest.get(token), is(nullValue()));
+            underTest.refresh();
+
+            assertThat(underTest.get(token).get(), is(Boolean.TRUE));
+            assertThat(underTest.getSize(), is(1));
+            // the cached validation result is not valid anymore
+            assertThat(tokenValidationCache.get(token), is(nullValue()));
+        }
+
+        @Test
+        void thenConfirmedTokensAreNotPendingAnymore() throws CachingServiceClientException {
+            String token = createToken("user", HOUR);
+            underTest.put(token, Boolean.TRUE);
+            assertThat(underTest.getPendingCount(), is(1));
+
+            when(cachingServiceClient.readAll()).thenReturn(Collections.singletonMap(
+                keyOf(token), new CachingServiceClient.KeyValue(keyOf(token), String.valueOf(System.currentTimeMillis() + HOUR))
+            ));
+            underTest.refresh();
+
+            assertThat(underTest.getPendingCount(), is(0));
+            assertThat(underTest.get(token).get(), is(Boolean.TRUE));
+            verify(cachingServiceClient, never()).upsertBatch(anyList());
+        }
+
+        @Test
+        void givenExpiredRecord_thenItIsIgnored() throws CachingServiceClientException {
+            String token = createToken("user", HOUR);
+            when(cachingServiceClient.readAll()).thenReturn(Collections.singletonMap(
+                keyOf(token), new CachingServiceClient.KeyValue(keyOf(token), String.valueOf(System.currentTimeMillis() - 1))
+            ));
+
+            underTest.refresh();
+
+            assertThat(underTest.get(token), is(nullValue()));
+            assertThat(underTest.getSize(), is(0));
+        }
+
+        @Test
+        void givenUnavailableCachingService_thenCurrentTokensAreKept() throws CachingServiceClientException {
+            String token = createToken("user", HOUR);
+            underTest.put(token, Boolean.TRUE);
+            when(cachingServiceClient.readAll()).thenThrow(new CachingServiceClientException("unavailable"));
+
+            underTest.refresh();
+
+            assertThat(underTest.getRefreshFailedCount(), is(1L));
+            assertThat(underTest.get(token).get(), is(Boolean.TRUE));
+        }
+
+    }
+
+    @Nested
+    class GivenTokenKey {
+
+        @Test
+        void thenHashIsConvertedToHexAndBack() {
+            TokenValidationCache.TokenKey tokenKey = TokenValidationCache.TokenKey.of("token");
+
+            assertThat(tokenKey.toHex().length(), is(32));
+            assertThat(TokenValidationCache.TokenKey.fromHex(tokenKey.toHex()), is(tokenKey));
+        }
+
+    }
+
+}
@@ -13,9 +13,6 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.junit.jupiter.api.*;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.web.client.HttpClientErrorException;
 import org.zowe.apiml.gateway.ribbon.loadbalancer.model.LoadBalancerCacheRecord;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -78,24 +75,33 @@ public class LoadBalancerCacheTest {
             void storageHappensToLocalAndRemoteCache() throws CachingServiceClientException, JsonProcessingException {
                 underTest.store("user", "serviceid", record);
                 String serializedRecord = mapper.writeValueAsString(record);
-                verify(cachingServiceClient).create(new CachingServiceClient.KeyValue(keyPrefix + "user:serviceid", serializedRecord));
+                verify(cachingServiceClient).upsert(new CachingServiceClient.KeyValue(keyPrefix + "user:serviceid", serializedRecord));
                 assertThat(underTest.getLocalCache().containsKey(keyPrefix + "user:serviceid"), is(true));
             }
 
             @Test
-            void storageHappensToRemoteEvenForConflict() throws CachingServiceClientException, JsonProcessingException {
-                HttpClientErrorException clientErrorException = HttpClientErrorException.create(HttpStatus.CONFLICT, "", new HttpHeaders(), null, null);
-                CachingServiceClientException e = new CachingServiceClientException("oops", clientErrorException);
-                doThrow(e).when(cachingServiceClient).create(any());
-                String serializedRecord = mapper.writeValueAsString(record);
+            void storageIsDoneInOneRemoteCall() throws CachingServiceClientException {
+                underTest.store("user", "serviceid", record);
+                verify(cachingServiceClient, times(1)).upsert(any());
+                verify(cachingServiceClient, never()).create(any());
+                verify(cachingServiceClient, never()).update(any());
+            }
+
+            @Test
+            void givenWriteBehind_storageIsEnqueued() throws CachingServiceClientException, JsonProcessingException {
+                LoadBalancerCacheWriteBehind writeBehind = mock(LoadBalancerCacheWriteBehind.class);
+                underTest = new LoadBalancerCache(cachingServiceClient, LoadBalancerCache.DEFAULT_NEAR_CACHE_TIME_TO_LIVE, writeBehind);
 
                 underTest.store("user", "serviceid", record);
-                verify(cachingServiceClient).update(new CachingServiceClient.KeyValue(keyPrefix + "user:serviceid", serializedRecord));
+                String serializedRecord = mapper.writeValueAsString(record);
+                verify(writeBehind).enqueue(new CachingServiceClient.KeyValue(keyPrefix + "user:serviceid", serializedRecord));
+                verify(cachingServiceClient, never()).upsert(any());
+                assertThat(underTest.retrieve("user", "serviceid").getInstanceId(), is("instanceid"));
             }
 
             @Test
             void storageFailsToRemoteCacheAndStoresLocal() throws CachingServiceClientException {
-                doThrow(CachingServiceClientException.class).when(cachingServiceClient).create(any());
+                doThrow(CachingServiceClientException.class).when(cachingServiceClient).upsert(any());
                 underTest.store("user", "serviceid", record);
                 assertThat(underTest.getLocalCache().containsKey(keyPrefix + "user:serviceid"), is(true));
             }
@@ -119,6 +125,35 @@ public class LoadBalancerCacheTest {
                 assertThat(retrievedRecord.getInstanceId(), is("Batman"));
             }
 
+            @Test
+            void repeatedRetrievalIsServedFromNearCache() throws CachingServiceClientException, JsonProcessingException {
+                String serializedRecord = mapper.writeValueAsString(record);
+                doReturn(new CachingServiceClient.KeyValue(keyPrefix + "user:serviceid", serializedRecord)).when(cachingServiceClient).read(keyPrefix + "user:serviceid");
+
+                assertThat(underTest.retrieve("user", "serviceid").getInstanceId(), is("instanceid"));
+                assertThat(underTest.retrieve("user", "serviceid").getInstanceId(), is("instanceid"));
+                verify(cachingServiceClient, times(1)).read(keyPrefix + "user:serviceid");
+            }
+
+            @Test
+            void storedRecordIsServedFromNearCache() throws CachingServiceClientException {
+                underTest.store("user", "serviceid", record);
+
+                assertThat(underTest.retrieve("user", "serviceid").getInstanceId(), is("instanceid"));
+                verify(cachingServiceClient, never()).read(any());
+            }
+
+            @Test
+            void givenDisabledNearCache_remoteCacheIsCalledEachTime() throws CachingServiceClientException, JsonProcessingException {
+                underTest = new LoadBalancerCache(cachingServiceClient, 0);
+                String serializedRecord = mapper.writeValueAsString(record);
+                doReturn(new CachingServiceClient.KeyValue(keyPrefix + "user:serviceid", serializedRecord)).when(cachingServiceClient).read(keyPrefix + "user:serviceid");
+
+                underTest.retrieve("user", "serviceid");
+                underTest.retrieve("user", "serviceid");
+                verify(cachingServiceClient, times(2)).read(keyPrefix + "user:serviceid");
+            }
+
         }
 
         @Nested
@@ -131,6 +166,15 @@ public class LoadBalancerCacheTest {
                 assertThat(underTest.retrieve("user", "serviceid"), is(nullValue()));
 
             }
+
+            @Test
+            void deleteRemovesEntryFromNearCache() throws CachingServiceClientException {
+                underTest.store("user", "serviceid", record);
+                underTest.delete("user", "serviceid");
+                assertThat(underTest.getNearCache().containsKey(keyPrefix + "user:serviceid"), is(false));
+                assertThat(underTest.retrieve("user", "serviceid"), is(nullValue()));
+                verify(cachingServiceClient).read(keyPrefix + "user:serviceid");
+            }
         }
     }
 }
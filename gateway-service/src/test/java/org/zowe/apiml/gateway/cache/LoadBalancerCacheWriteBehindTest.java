@@ -0,0 +1,118 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+package org.zowe.apiml.gateway.cache;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class LoadBalancerCacheWriteBehindTest {
+
+    private static final long NEVER = 1000000;
+
+    private CachingServiceClient cachingServiceClient;
+    private LoadBalancerCacheWriteBehind underTest;
+
+    @BeforeEach
+    void setUp() {
+        cachingServiceClient = mock(CachingServiceClient.class);
+        underTest = new LoadBalancerCacheWriteBehind(cachingServiceClient, 2, NEVER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+    }
+
+    @Test
+    void givenNoClient_thenFail() {
+        assertThrows(IllegalStateException.class, () -> new LoadBalancerCacheWriteBehind(null, 2, NEVER));
+    }
+
+    @Nested
+    class WhenEnqueue {
+
+        @Test
+        void thenRecordIsNotWrittenImmediately() throws CachingServiceClientException {
+            assertThat(underTest.enqueue(new CachingServiceClient.KeyValue("key", "value")), is(true));
+
+            verify(cachingServiceClient, never()).upsertBatch(any());
+            assertThat(underTest.getPendingCount(), is(1));
+        }
+
+        @Test
+        void givenSameKey_thenLastWriterWins() throws CachingServiceClientException {
+            underTest.enqueue(new CachingServiceClient.KeyValue("key", "value1"));
+            underTest.enqueue(new CachingServiceClient.KeyValue("key", "value2"));
+            underTest.flush();
+
+            verify(cachingServiceClient, times(1)).upsertBatch(Collections.singletonList(new CachingServiceClient.KeyValue("key", "value2")));
+            assertThat(underTest.getFlushedCount(), is(1L));
+        }
+
+        @Test
+        void givenFullQueue_thenRecordIsDropped() {
+            underTest.enqueue(new CachingServiceClient.KeyValue("key1", "value"));
+            underTest.enqueue(new CachingServiceClient.KeyValue("key2", "value"));
+
+            assertThat(underTest.enqueue(new CachingServiceClient.KeyValue("key3", "value")), is(false));
+            assertThat(underTest.enqueue(new CachingServiceClient.KeyValue("key1", "value2")), is(true));
+            assertThat(underTest.getDroppedCount(), is(1L));
+            assertThat(underTest.getPendingCount(), is(2));
+        }
+
+        @Test
+        void givenCancel_thenRecordIsNotWritten() throws CachingServiceClientException {
+            underTest.enqueue(new CachingServiceClient.KeyValue("key", "value"));
+            underTest.cancel("key");
+            underTest.flush();
+
+            verify(cachingServiceClient, never()).upsertBatch(any());
+        }
+
+    }
+
+    @Nested
+    class WhenFlush {
+
+        @BeforeEach
+        void setUp() {
+            underTest.enqueue(new CachingServiceClient.KeyValue("key", "value"));
+        }
+
+        @Test
+        void givenMultipleRecords_thenTheyAreWrittenInOneBatch() throws CachingServiceClientException {
+            underTest.enqueue(new CachingServiceClient.KeyValue("key2", "value2"));
+
+            underTest.flush();
+
+            verify(cachingServiceClient, times(1)).upsertBatch(argThat(batch -> batch.size() == 2));
+            assertThat(underTest.getFlushedCount(), is(2L));
+            assertThat(underTest.getPendingCount(), is(0));
+        }
+
+        @Test
+        void givenError_thenFailureIsCounted() throws CachingServiceClientException {
+            doThrow(new CachingServiceClientException("oops")).when(cachingServiceClient).upsertBatch(any());
+
+            underTest.flush();
+
+            assertThat(underTest.getFailedCount(), is(1L));
+            assertThat(underTest.getPendingCount(), is(0));
+        }
+
+    }
+
+}
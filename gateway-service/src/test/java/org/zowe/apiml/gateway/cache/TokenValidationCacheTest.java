@@ -0,0 +1,133 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.cache;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.security.common.token.TokenAuthentication;
+
+import java.util.Date;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class TokenValidationCacheTest {
+
+    private static final long HOUR = 3600000L;
+
+    private TokenValidationCache underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new TokenValidationCache("validationJwtToken", 4, 2, TokenValidationCache.DEFAULT_MAX_TIME_TO_LIVE);
+    }
+
+    private String createToken(String username, long expiresIn) {
+        return Jwts.builder()
+            .setSubject(username)
+            .setExpiration(new Date(System.currentTimeMillis() + expiresIn))
+            .compact();
+    }
+
+    @Nested
+    class WhenValidationIsStored {
+
+        @Test
+        void thenTokenAuthenticationIsRebuilt() {
+            String token = createToken("user", HOUR);
+            underTest.put(token, TokenAuthentication.createAuthenticated("user", token));
+
+            TokenAuthentication cached = underTest.get(token, TokenAuthentication.class);
+
+            assertThat(cached.getPrincipal(), is("user"));
+            assertThat(cached.getCredentials(), is(token));
+            assertThat(cached.isAuthenticated(), is(true));
+            assertThat(underTest.getHitCount(), is(1L));
+        }
+
+        @Test
+        void givenUnknownToken_thenMiss() {
+            assertThat(underTest.get(createToken("user", HOUR)), is(nullValue()));
+            assertThat(underTest.getMissCount(), is(1L));
+        }
+
+        @Test
+        void givenEvictedToken_thenMiss() {
+            String token = createToken("user", HOUR);
+            underTest.put(token, TokenAuthentication.createAuthenticated("user", token));
+
+            underTest.evict(token);
+
+            assertThat(underTest.get(token), is(nullValue()));
+        }
+
+        @Test
+        void givenOtherValue_thenItIsStoredAsIs() {
+            underTest.put("notJwt", Boolean.TRUE);
+
+            assertThat(underTest.get("notJwt").get(), is(Boolean.TRUE));
+        }
+
+    }
+
+    @Nested
+    class WhenTokenExpires {
+
+        @Test
+        void givenExpiredToken_thenItIsNotStored() {
+            String token = createToken("user", -HOUR);
+            underTest.put(token, TokenAuthentication.createAuthenticated("user", token));
+
+            assertThat(underTest.get(token), is(nullValue()));
+            assertThat(underTest.getSize(), is(0));
+        }
+
+        @Test
+        void givenTokenExpiredInCache_thenMissAndRecordIsRemoved() throws InterruptedException {
+            String token = createToken("user", 1000);
+            underTest.put(token, TokenAuthentication.createAuthenticated("user", token));
+            Thread.sleep(1100);
+
+            assertThat(underTest.get(token), is(nullValue()));
+            assertThat(underTest.getExpirationCount(), is(1L));
+            assertThat(underTest.getSize(), is(0));
+        }
+
+        @Test
+        void thenExpirationIsReadFromToken() {
+            long expiration = System.currentTimeMillis() + HOUR;
+            String token = Jwts.builder().setExpiration(new Date(expiration)).compact();
+
+            assertThat(TokenValidationCache.getExpiration(token, 0), is(expiration / 1000 * 1000));
+            assertThat(TokenValidationCache.getExpiration("notJwt", 5), is(5L));
+        }
+
+    }
+
+    @Nested
+    class WhenCacheIsFull {
+
+        @Test
+        void thenLeastRecentlyUsedRecordsAreEvicted() {
+            for (int i = 0; i < 20; i++) {
+                String token = createToken("user" + i, HOUR);
+                underTest.put(token, TokenAuthentication.createAuthenticated("user" + i, token));
+            }
+
+            assertThat(underTest.getSize() <= 4, is(true));
+            assertThat(underTest.getEvictionCount(), is(20L - underTest.getSize()));
+        }
+
+    }
+
+}
@@ -16,6 +16,7 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
@@ -34,6 +35,7 @@ import static org.apache.http.HttpStatus.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.hamcrest.CoreMatchers.is;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -81,6 +83,25 @@ class AuthControllerTest {
         verify(authenticationService, times(1)).invalidateJwtToken("a/b", false);
     }
 
+    @Test
+    void invalidateJwtTokens() throws Exception {
+        when(authenticationService.invalidateJwtToken("a", false)).thenReturn(Boolean.TRUE);
+        when(authenticationService.invalidateJwtToken("b", false)).thenReturn(Boolean.TRUE);
+        this.mockMvc.perform(post("/gateway/auth/invalidate/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[\"a\",\"b\"]")
+        ).andExpect(status().is(SC_OK));
+
+        this.mockMvc.perform(post("/gateway/auth/invalidate/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[\"a\",\"xyz\"]")
+        ).andExpect(status().is(SC_SERVICE_UNAVAILABLE));
+
+        verify(authenticationService, times(2)).invalidateJwtToken("a", false);
+        verify(authenticationService, times(1)).invalidateJwtToken("b", false);
+        verify(authenticationService, times(1)).invalidateJwtToken("xyz", false);
+    }
+
     @Test
     void distributeInvalidate() throws Exception {
         when(authenticationService.distributeInvalidate("instance/1")).thenReturn(true);
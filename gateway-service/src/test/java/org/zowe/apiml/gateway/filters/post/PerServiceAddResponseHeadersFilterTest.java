@@ -16,6 +16,8 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.zowe.apiml.eurekaservice.client.util.EurekaMetadataParser;
+import org.zowe.apiml.gateway.metadata.service.ServicePolicyRegistry;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -52,7 +54,7 @@ public class PerServiceAddResponseHeadersFilterTest {
 
         discoveryClient = mock(DiscoveryClient.class);
         when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(Collections.singletonList(instance));
-        underTest = new PerServiceAddResponseHeadersFilter(discoveryClient);
+        underTest = new PerServiceAddResponseHeadersFilter(new ServicePolicyRegistry(discoveryClient, new EurekaMetadataParser()));
     }
 
     @Nested
@@ -18,12 +18,20 @@ import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+import org.zowe.apiml.eurekaservice.client.util.EurekaMetadataParser;
+import org.zowe.apiml.gateway.metadata.service.ServicePolicyRegistry;
 import org.zowe.apiml.gzip.GZipResponseWrapper;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -74,7 +82,7 @@ class PerServiceGZipFilterTest {
                 @BeforeEach
                 void setup() {
                     when(discoveryClient.getInstances(SERVICE_WITH_COMPRESSION)).thenReturn(instances);
-                    filter = new PerServiceGZipFilter(discoveryClient);
+                    filter = new PerServiceGZipFilter(new ServicePolicyRegistry(discoveryClient, new EurekaMetadataParser()));
                 }
 
                 @ParameterizedTest(name = "whenResponseIsEmpty_thenLengthIsZero {index} {0} ")
@@ -117,6 +125,35 @@ class PerServiceGZipFilterTest {
                 }
             }
 
+            @Nested
+            class WhenResponseIsAboveThreshold {
+                @BeforeEach
+                void setup() {
+                    when(discoveryClient.getInstances(SERVICE_WITH_COMPRESSION)).thenReturn(instances);
+                    filter = new PerServiceGZipFilter(new ServicePolicyRegistry(discoveryClient, new EurekaMetadataParser()));
+                    ReflectionTestUtils.setField(filter, "bufferThreshold", 16);
+                    request.setRequestURI("/api/v1/" + SERVICE_WITH_COMPRESSION);
+                }
+
+                @Test
+                void thenResponseIsStreamedWithoutContentLength() throws ServletException, IOException {
+                    byte[] data = new byte[64 * 1024];
+                    new Random(0).nextBytes(data);
+                    MockHttpServletResponse response = new MockHttpServletResponse();
+
+                    filter.doFilterInternal(request, response, (request, response1) -> {
+                        response1.getOutputStream().write(data);
+                        assertTrue(response.isCommitted() || response.getContentAsByteArray().length > 0);
+                    });
+
+                    assertEquals("gzip", response.getHeader("Content-Encoding"));
+                    assertNull(response.getHeader("Content-Length"));
+                    try (GZIPInputStream decompressed = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+                        assertArrayEquals(data, StreamUtils.copyToByteArray(decompressed));
+                    }
+                }
+            }
+
             @Nested
             class OnCompressedPath {
                 @BeforeEach
@@ -125,7 +162,7 @@ class PerServiceGZipFilterTest {
                     metadata.put("apiml.response.compressRoutes", "/**/compressed,/api/v1/,**/" + SERVICE_WITH_COMPRESSION + "/comp2ress");
 
                     when(discoveryClient.getInstances(SERVICE_WITH_COMPRESSION)).thenReturn(instances);
-                    filter = new PerServiceGZipFilter(discoveryClient);
+                    filter = new PerServiceGZipFilter(new ServicePolicyRegistry(discoveryClient, new EurekaMetadataParser()));
                 }
 
                 @Test
@@ -149,7 +186,7 @@ class PerServiceGZipFilterTest {
                     metadata.put("apiml.response.compressRoutes", "/**/compressed,/api/v1/" + SERVICE_WITH_COMPRESSION + "/comp2ress");
 
                     when(discoveryClient.getInstances(SERVICE_WITH_COMPRESSION)).thenReturn(instances);
-                    filter = new PerServiceGZipFilter(discoveryClient);
+                    filter = new PerServiceGZipFilter(new ServicePolicyRegistry(discoveryClient, new EurekaMetadataParser()));
                 }
 
 
@@ -172,7 +209,7 @@ class PerServiceGZipFilterTest {
             @BeforeEach
             void setup() {
                 request.setRequestURI("/api/v1/" + SERVICE_WITHOUT_COMPRESSION);
-                filter = new PerServiceGZipFilter(discoveryClient);
+                filter = new PerServiceGZipFilter(new ServicePolicyRegistry(discoveryClient, new EurekaMetadataParser()));
                 when(discoveryClient.getInstances(SERVICE_WITHOUT_COMPRESSION)).thenReturn(instancesWithoutCompression);
             }
 
@@ -190,7 +227,7 @@ class PerServiceGZipFilterTest {
         @BeforeEach
         void setUp() {
             when(discoveryClient.getInstances(SERVICE_WITH_COMPRESSION)).thenReturn(instances);
-            filter = new PerServiceGZipFilter(discoveryClient);
+            filter = new PerServiceGZipFilter(new ServicePolicyRegistry(discoveryClient, new EurekaMetadataParser()));
             request.setRequestURI("/api/v1/" + SERVICE_WITHOUT_COMPRESSION);
         }
 
@@ -203,10 +240,61 @@ class PerServiceGZipFilterTest {
         }
     }
 
+    @Nested
+    class WhenNegotiatingCodec {
+        @BeforeEach
+        void setup() {
+            when(discoveryClient.getInstances(SERVICE_WITH_COMPRESSION)).thenReturn(instances);
+            filter = new PerServiceGZipFilter(new ServicePolicyRegistry(discoveryClient, new EurekaMetadataParser()));
+            request.setRequestURI("/api/v1/" + SERVICE_WITH_COMPRESSION);
+        }
+
+        @Test
+        void givenPreferredDeflate_thenDeflateIsUsed() throws ServletException, IOException {
+            request.addHeader("Accept-Encoding", "gzip;q=0.5, deflate");
+            metadata.put("apiml.response.compressLevel", "9");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            filter.doFilterInternal(request, response, (request, response1) ->
+                response1.getOutputStream().write("Hello worlds".getBytes()));
+
+            assertEquals("deflate", response.getHeader("Content-Encoding"));
+            try (InflaterInputStream decompressed = new InflaterInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+                assertEquals("Hello worlds", new String(StreamUtils.copyToByteArray(decompressed)));
+            }
+        }
+
+        @Test
+        void givenRejectedEncodings_thenDoNotWrapResponse() throws ServletException, IOException {
+            request.addHeader("Accept-Encoding", "gzip;q=0, br");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            filter.doFilterInternal(request, response, (request, response1) ->
+                assertNotEquals(GZipResponseWrapper.class, response1.getClass()));
+        }
+
+        @Test
+        void givenEncodedResponse_thenBodyIsPassedThrough() throws ServletException, IOException {
+            request.addHeader("Accept-Encoding", "gzip");
+            byte[] body = {1, 2, 3, 4};
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            filter.doFilterInternal(request, response, (request, response1) -> {
+                ((HttpServletResponse) response1).setHeader("Content-Encoding", "br");
+                response1.setContentLength(body.length);
+                response1.getOutputStream().write(body);
+            });
+
+            assertEquals("br", response.getHeader("Content-Encoding"));
+            assertEquals(body.length, response.getContentLength());
+            assertArrayEquals(body, response.getContentAsByteArray());
+        }
+    }
+
     @Test
     void whenNoInstancesAvailable_thenDoNotWrapResponse() throws ServletException, IOException {
         request.setRequestURI("/api/v1/" + SERVICE_WITHOUT_COMPRESSION);
-        filter = new PerServiceGZipFilter(discoveryClient);
+        filter = new PerServiceGZipFilter(new ServicePolicyRegistry(discoveryClient, new EurekaMetadataParser()));
         when(discoveryClient.getInstances(SERVICE_WITHOUT_COMPRESSION)).thenReturn(new ArrayList<>());
         MockHttpServletResponse response = new MockHttpServletResponse();
         filter.doFilterInternal(request, response, (request, response1) ->
@@ -17,6 +17,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.netflix.zuul.filters.ProxyRequestHelper;
+import org.zowe.apiml.eurekaservice.client.util.EurekaMetadataParser;
+import org.zowe.apiml.gateway.metadata.service.ServicePolicyRegistry;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -46,7 +48,7 @@ class PerServiceIgnoreHeaderFilterTest {
 
         when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(Collections.singletonList(instance));
         when(instance.getMetadata()).thenReturn(metadata);
-        underTest = new PerServiceIgnoreHeaderFilter(discoveryClient, proxyRequestHelper);
+        underTest = new PerServiceIgnoreHeaderFilter(new ServicePolicyRegistry(discoveryClient, new EurekaMetadataParser()), proxyRequestHelper);
     }
 
     @Nested
@@ -0,0 +1,154 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.metadata.service;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.zowe.apiml.auth.Authentication;
+import org.zowe.apiml.auth.AuthenticationScheme;
+import org.zowe.apiml.eurekaservice.client.util.EurekaMetadataParser;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.zowe.apiml.constants.EurekaMetadataDefinition.AUTHENTICATION_SCHEME;
+
+class ServicePolicyRegistryTest {
+
+    private static final String SERVICE_ID = "service";
+
+    private final DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+    private ServicePolicyRegistry underTest;
+
+    private Map<String, String> metadata;
+    private ServiceInstance instance;
+
+    @BeforeEach
+    void setUp() {
+        metadata = new HashMap<>();
+        instance = new DefaultServiceInstance("instance1", SERVICE_ID, "localhost", 10010, true, metadata);
+
+        when(discoveryClient.getServices()).thenReturn(Collections.singletonList(SERVICE_ID));
+        when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(Collections.singletonList(instance));
+
+        underTest = new ServicePolicyRegistry(discoveryClient, new EurekaMetadataParser());
+    }
+
+    @Nested
+    class WhenRefreshed {
+
+        @Test
+        void thenPolicyIsServedFromSnapshot() {
+            metadata.put(ServicePolicy.COMPRESS_KEY, "true");
+            underTest.refresh();
+            reset(discoveryClient);
+
+            ServicePolicy policy = underTest.getPolicy(SERVICE_ID.toUpperCase());
+
+            assertThat(policy.isAvailable(), is(true));
+            assertThat(policy.isCompressionEnabled(), is(true));
+            verifyZeroInteractions(discoveryClient);
+        }
+
+        @Test
+        void thenAuthenticationIsParsedOnce() {
+            metadata.put(AUTHENTICATION_SCHEME, "bypass");
+            underTest.refresh();
+
+            Authentication authentication = underTest.getAuthentication("instance1", metadata);
+
+            assertThat(authentication.getScheme(), is(AuthenticationScheme.BYPASS));
+        }
+
+        @Test
+        void givenChangedMetadata_thenAuthenticationIsNotServed() {
+            metadata.put(AUTHENTICATION_SCHEME, "bypass");
+            underTest.refresh();
+
+            assertThat(underTest.getAuthentication("instance1", new HashMap<>(metadata)), is(nullValue()));
+            assertThat(underTest.getAuthentication("unknown", metadata), is(nullValue()));
+        }
+
+    }
+
+    @Nested
+    class WhenServiceIsNotInSnapshot {
+
+        @Test
+        void thenPolicyIsComputedFromDiscovery() {
+            metadata.put(ServicePolicy.ENCODED_CHARACTERS_KEY, "false");
+
+            assertThat(underTest.getPolicy(SERVICE_ID).isEncodedCharactersAllowed(), is(false));
+            verify(discoveryClient).getInstances(SERVICE_ID);
+        }
+
+        @Test
+        void givenNoInstance_thenPolicyIsEmpty() {
+            when(discoveryClient.getInstances("unknown")).thenReturn(Collections.emptyList());
+
+            assertThat(underTest.getPolicy("unknown"), is(ServicePolicy.EMPTY));
+            assertThat(underTest.getPolicy(null), is(ServicePolicy.EMPTY));
+        }
+
+    }
+
+    @Nested
+    class WhenBuildingPolicy {
+
+        @Test
+        void thenMetadataAreParsed() {
+            metadata.put(ServicePolicy.COMPRESS_KEY, "true");
+            metadata.put(ServicePolicy.COMPRESS_ROUTES_KEY, "**/compressed,/api/v1/" + SERVICE_ID + "/data");
+            metadata.put(ServicePolicy.HEADERS_TO_IGNORE_KEY, " header1 , header2");
+            metadata.put(ServicePolicy.RESPONSE_HEADERS_KEY, "Header1:value1, Header2");
+
+            ServicePolicy policy = ServicePolicy.of(Collections.singletonList(instance));
+
+            assertThat(policy.requestsCompression("/api/v1/" + SERVICE_ID + "/compressed"), is(true));
+            assertThat(policy.requestsCompression("/api/v1/" + SERVICE_ID + "/data"), is(true));
+            assertThat(policy.requestsCompression("/api/v1/" + SERVICE_ID + "/other"), is(false));
+            assertThat(policy.getHeadersToIgnore(), is(new String[] {"header1", "header2"}));
+            assertThat(policy.getResponseHeaders(), contains(Pair.of("Header1", "value1"), Pair.of("Header2", "")));
+        }
+
+        @Test
+        void givenCompressionLevel_thenItIsValidated() {
+            metadata.put(ServicePolicy.COMPRESS_LEVEL_KEY, " 3 ");
+            assertThat(ServicePolicy.of(Collections.singletonList(instance)).getCompressionLevel(), is(3));
+
+            metadata.put(ServicePolicy.COMPRESS_LEVEL_KEY, "10");
+            assertThat(ServicePolicy.of(Collections.singletonList(instance)).getCompressionLevel(), is(-1));
+
+            metadata.put(ServicePolicy.COMPRESS_LEVEL_KEY, "best");
+            assertThat(ServicePolicy.of(Collections.singletonList(instance)).getCompressionLevel(), is(-1));
+        }
+
+        @Test
+        void givenMixedInstances_thenEncodedCharactersAreNotAllowed() {
+            metadata.put(ServicePolicy.ENCODED_CHARACTERS_KEY, "true");
+            Map<String, String> otherMetadata = Collections.singletonMap(ServicePolicy.ENCODED_CHARACTERS_KEY, "false");
+            ServiceInstance otherInstance = new DefaultServiceInstance("instance2", SERVICE_ID, "localhost", 10011, true, otherMetadata);
+
+            ServicePolicy policy = ServicePolicy.of(Arrays.asList(instance, otherInstance));
+
+            assertThat(policy.isEncodedCharactersAllowed(), is(false));
+        }
+
+    }
+
+}
@@ -104,6 +104,20 @@ class LoadBalancerRuleAdapterTest {
             underTest.setLoadBalancer(lb);
             assertNull(underTest.choose("key"));
         }
+
+        @Test
+        void eligibleServersFitAllPredicates() {
+            when(requestAwarePredicate.apply(any(), any())).thenReturn(true);
+            when(requestAwarePredicate1.apply(any(), eq(server))).thenReturn(false);
+            when(requestAwarePredicate1.apply(any(), eq(server1))).thenReturn(true);
+            when(configurableNamedContextFactory.getInstances(any(), any())).thenReturn(predicateMap);
+            when(lb.getAllServers()).thenReturn(Arrays.asList(server, server1));
+
+            LoadBalancerRuleAdapter underTest = new LoadBalancerRuleAdapter(instanceInfo, configurableNamedContextFactory, null);
+            underTest.setLoadBalancer(lb);
+
+            assertEquals(Collections.singletonList(server1), underTest.getEligibleServers("key"));
+        }
     }
 
     @Nested
@@ -20,13 +20,15 @@ import org.zowe.apiml.gateway.security.service.RequestAuthenticationService;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.SERVICE_ID_KEY;
 
 class AuthenticationBasedPredicateTest {
@@ -51,6 +53,10 @@ class AuthenticationBasedPredicateTest {
         InstanceInfo info = mock(InstanceInfo.class);
         when(info.getInstanceId()).thenReturn("hostname:service:port");
         when(context.getInstanceInfo()).thenReturn(info);
+        Map<String, Object> attributes = new HashMap<>();
+        when(context.computeIfAbsent(any(), any())).thenAnswer(invocation ->
+            attributes.computeIfAbsent(invocation.getArgument(0), k -> ((Supplier<?>) invocation.getArgument(1)).get())
+        );
 
         underTest = new AuthenticationBasedPredicate(authenticationService, cache, 8);
     }
@@ -137,6 +143,15 @@ class AuthenticationBasedPredicateTest {
                         boolean amongSelected = underTest.apply(context, server);
                         assertThat(amongSelected, is(false));
                     }
+
+                    @Test
+                    void withMultipleServers_cacheIsCalledOnce() {
+                        assertThat(underTest.apply(context, discoveryEnabledServer(VALID_INSTANCE)), is(true));
+                        assertThat(underTest.apply(context, discoveryEnabledServer("invalid-fox")), is(false));
+                        assertThat(underTest.apply(context, discoveryEnabledServer("another-fox")), is(false));
+
+                        verify(cache, times(1)).retrieve(VALID_USER, SERVICE_ID);
+                    }
                 }
 
                 @Nested
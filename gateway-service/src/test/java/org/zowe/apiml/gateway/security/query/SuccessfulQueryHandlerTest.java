@@ -26,6 +26,7 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.web.client.RestTemplate;
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
 import org.zowe.apiml.gateway.security.service.JwtSecurity;
+import org.zowe.apiml.gateway.security.service.TokenInvalidationDistributor;
 import org.zowe.apiml.gateway.security.service.zosmf.TokenValidationStrategy;
 import org.zowe.apiml.gateway.security.service.zosmf.ZosmfService;
 import org.zowe.apiml.security.SecurityUtils;
@@ -86,7 +87,8 @@ class SuccessfulQueryHandlerTest {
             new ArrayList<TokenValidationStrategy>());
         AuthenticationService authenticationService = new AuthenticationService(
             applicationContext, authConfigurationProperties, jwtSecurityInitializer, zosmfService,
-            discoveryClient, restTemplate, cacheManager, new CacheUtils()
+            discoveryClient, cacheManager, new CacheUtils(),
+            new TokenInvalidationDistributor(restTemplate, 1, TokenInvalidationDistributor.DEFAULT_BATCH_SIZE)
         );
         when(jwtSecurityInitializer.getSignatureAlgorithm()).thenReturn(algorithm);
         when(jwtSecurityInitializer.getJwtSecret()).thenReturn(privateKey);
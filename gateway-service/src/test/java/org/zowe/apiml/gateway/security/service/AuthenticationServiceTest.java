@@ -32,8 +32,11 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.zowe.apiml.config.service.security.MockedAuthenticationServiceContext;
 import org.zowe.apiml.constants.ApimlConstants;
+import org.zowe.apiml.gateway.cache.InvalidatedTokenCache;
 import org.zowe.apiml.gateway.config.CacheConfig;
 import org.zowe.apiml.gateway.security.service.zosmf.TokenValidationStrategy;
 import org.zowe.apiml.gateway.security.service.zosmf.ZosmfService;
@@ -105,6 +108,7 @@ public class AuthenticationServiceTest { //NOSONAR, needs to be public
         Mockito.lenient().when(jwtSecurityInitializer.getSignatureAlgorithm()).thenReturn(ALGORITHM);
         Mockito.lenient().when(jwtSecurityInitializer.getJwtSecret()).thenReturn(privateKey);
         Mockito.lenient().when(jwtSecurityInitializer.getJwtPublicKey()).thenReturn(publicKey);
+        Mockito.lenient().when(jwtSecurityInitializer.getJwtParser()).thenReturn(Jwts.parserBuilder().setSigningKey(publicKey).build());
         zosmfUrl = mockZosmfUrl(discoveryClient);
     }
 
@@ -387,9 +391,10 @@ public class AuthenticationServiceTest { //NOSONAR, needs to be public
         assertTrue(authService.isInvalidated(jwt1));
         tokenAuthentication = authService.validateJwtToken(jwt1);
         assertFalse(tokenAuthentication.isAuthenticated());
-        verify(restTemplate, times(2)).delete(anyString(), (Object[]) any());
-        verify(restTemplate).delete("https://hostname1:10433/gateway/auth/invalidate/" + jwt1);
-        verify(restTemplate).delete("http://hostname2:10001/gateway/auth/invalidate/" + jwt1);
+        // other instances are notified asynchronously
+        verify(restTemplate, timeout(1000).times(2)).delete(anyString(), (Object[]) any());
+        verify(restTemplate, timeout(1000)).delete("https://hostname1:10433/gateway/auth/invalidate/" + jwt1);
+        verify(restTemplate, timeout(1000)).delete("http://hostname2:10001/gateway/auth/invalidate/" + jwt1);
         verify(restTemplate, times(1))
             .exchange(zosmfUrl + "/zosmf/services/authenticate", HttpMethod.DELETE, new HttpEntity<>(null, headers), String.class);
     }
@@ -402,15 +407,15 @@ public class AuthenticationServiceTest { //NOSONAR, needs to be public
         assertFalse(authService.isInvalidated(jwtToken01));
         assertFalse(authService.isInvalidated(jwtToken02));
 
-        verify(jwtSecurityInitializer, never()).getJwtPublicKey();
+        verify(jwtSecurityInitializer, never()).getJwtParser();
 
         assertTrue(authService.validateJwtToken(jwtToken01).isAuthenticated());
-        verify(jwtSecurityInitializer, times(1)).getJwtPublicKey();
+        verify(jwtSecurityInitializer, times(1)).getJwtParser();
         assertTrue(authService.validateJwtToken(jwtToken01).isAuthenticated());
-        verify(jwtSecurityInitializer, times(1)).getJwtPublicKey();
+        verify(jwtSecurityInitializer, times(1)).getJwtParser();
 
         assertTrue(authService.validateJwtToken(jwtToken02).isAuthenticated());
-        verify(jwtSecurityInitializer, times(2)).getJwtPublicKey();
+        verify(jwtSecurityInitializer, times(2)).getJwtParser();
 
         when(restTemplate.exchange(zosmfUrl + "/zosmf/services/authenticate", HttpMethod.DELETE, new HttpEntity<>(null, null), String.class))
             .thenThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED));
@@ -421,12 +426,31 @@ public class AuthenticationServiceTest { //NOSONAR, needs to be public
             .thenReturn(new ResponseEntity<>(HttpStatus.OK));
         authService.invalidateJwtToken(jwtToken01, false);
         assertTrue(authService.validateJwtToken(jwtToken02).isAuthenticated());
-        verify(jwtSecurityInitializer, times(2)).getJwtPublicKey();
+        verify(jwtSecurityInitializer, times(2)).getJwtParser();
         verify(restTemplate, times(1))
             .exchange(zosmfUrl + "/zosmf/services/authenticate", HttpMethod.DELETE, new HttpEntity<>(null, headers), String.class);
 
         assertFalse(authService.validateJwtToken(jwtToken01).isAuthenticated());
-        verify(jwtSecurityInitializer, times(3)).getJwtPublicKey();
+        verify(jwtSecurityInitializer, times(3)).getJwtParser();
+    }
+
+    @Test
+    void givenRequest_whenTokenIsUsedRepeatedly_thenItIsParsedAndValidatedOnce() {
+        String jwtToken = authService.createJwtToken("user", "domain", "ltpa");
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            QueryResponse queryResponse = authService.parseJwtToken(jwtToken);
+            assertSame(queryResponse, authService.parseJwtToken(jwtToken));
+
+            TokenAuthentication validation = authService.validateJwtToken(new TokenAuthentication(jwtToken));
+            assertTrue(validation.isAuthenticated());
+            assertSame(validation, authService.validateJwtToken(new TokenAuthentication(jwtToken)));
+            assertEquals("ltpa", authService.getLtpaTokenWithValidation(jwtToken));
+            verify(jwtSecurityInitializer, times(1)).getJwtParser();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
     }
 
     private ZosmfService getSpiedZosmfService() {
@@ -446,7 +470,8 @@ public class AuthenticationServiceTest { //NOSONAR, needs to be public
     private AuthenticationService getSpiedAuthenticationService(ZosmfService spiedZosmfService) {
         AuthenticationService out = new AuthenticationService(
             applicationContext, authConfigurationProperties, jwtSecurityInitializer,
-            spiedZosmfService, discoveryClient, restTemplate, mock(CacheManager.class), mock(CacheUtils.class)
+            spiedZosmfService, discoveryClient, mock(CacheManager.class), mock(CacheUtils.class),
+            new TokenInvalidationDistributor(restTemplate, 1, TokenInvalidationDistributor.DEFAULT_BATCH_SIZE)
         );
         ReflectionTestUtils.setField(out, "meAsProxy", out);
         return spy(out);
@@ -634,16 +659,42 @@ public class AuthenticationServiceTest { //NOSONAR, needs to be public
 
         AuthenticationService authenticationService = new AuthenticationService(
             applicationContext, authConfigurationProperties, jwtSecurityInitializer, getSpiedZosmfService(),
-            discoveryClient, restTemplate, mock(CacheManager.class), cacheUtils
+            discoveryClient, mock(CacheManager.class), cacheUtils,
+            new TokenInvalidationDistributor(restTemplate, 1, TokenInvalidationDistributor.DEFAULT_BATCH_SIZE)
         );
 
         when(applicationContext.getBean(AuthenticationService.class)).thenReturn(authenticationService);
 
         authenticationService.distributeInvalidate(instanceInfo.getInstanceId());
 
-        verify(restTemplate, times(2)).delete(anyString(), anyString());
-        verify(restTemplate, times(1)).delete(EurekaUtils.getUrl(instanceInfo) + "/gateway/auth/invalidate/{}", "a");
-        verify(restTemplate, times(1)).delete(EurekaUtils.getUrl(instanceInfo) + "/gateway/auth/invalidate/{}", "a");
+        verify(restTemplate, times(1)).postForEntity(
+            EurekaUtils.getUrl(instanceInfo) + "/gateway/auth/invalidate/batch", Arrays.asList("a", "b"), Void.class
+        );
+        verify(restTemplate, never()).delete(anyString(), anyString());
+    }
+
+    @Test
+    void givenSharedInvalidatedTokens_whenDistributeInvalidate_thenNothingIsSent() {
+        reset(restTemplate);
+
+        InstanceInfo instanceInfo = createInstanceInfo("instanceId", "host", 1000, 1433, true);
+
+        Application application = mock(Application.class);
+        when(application.getByInstanceId("instanceId")).thenReturn(instanceInfo);
+        when(discoveryClient.getApplication("gateway")).thenReturn(application);
+
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getCache("invalidatedJwtTokens")).thenReturn(mock(InvalidatedTokenCache.class));
+        CacheUtils cacheUtils = mock(CacheUtils.class);
+
+        AuthenticationService authenticationService = new AuthenticationService(
+            mock(ApplicationContext.class), authConfigurationProperties, jwtSecurityInitializer, getSpiedZosmfService(),
+            discoveryClient, cacheManager, cacheUtils,
+            new TokenInvalidationDistributor(restTemplate, 1, TokenInvalidationDistributor.DEFAULT_BATCH_SIZE)
+        );
+
+        assertTrue(authenticationService.distributeInvalidate(instanceInfo.getInstanceId()));
+        verifyZeroInteractions(cacheUtils, restTemplate);
     }
 
     @Test
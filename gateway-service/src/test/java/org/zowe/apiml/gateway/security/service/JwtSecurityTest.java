@@ -64,6 +64,15 @@ class JwtSecurityTest {
             assertThat(underTest.getJwtSecret(), is(not(nullValue())));
         }
 
+        @Test
+        void givenKeysAreLoaded_thenParserIsPrebuilt() {
+            when(providers.isZosfmUsed()).thenReturn(false);
+
+            underTest.loadAppropriateJwtKeyOrFail();
+            assertThat(underTest.getJwtParser(), is(not(nullValue())));
+            assertThat(underTest.getJwtParser(), is(sameInstance(underTest.getJwtParser())));
+        }
+
         @Test
         void givenZosmfIsUsedWithoutJwt_thenProperKeysAreInitialized() {
             when(providers.zosmfSupportsJwt()).thenReturn(false);
@@ -94,6 +103,7 @@ class JwtSecurityTest {
 
             underTest.loadAppropriateJwtKeyOrFail();
             assertThat(underTest.getJwtSecret(), is(nullValue()));
+            assertThat(underTest.getJwtParser(), is(nullValue()));
         }
 
         @Test
@@ -0,0 +1,80 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.security.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParsedJwtTokenTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Nested
+    class GivenNoRequest {
+
+        @Test
+        void thenThereIsNoHolder() {
+            assertNull(ParsedJwtToken.of("token"));
+        }
+
+    }
+
+    @Nested
+    class GivenRequest {
+
+        private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+        @Test
+        void thenHolderIsSharedForSameToken() {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+            ParsedJwtToken parsed = ParsedJwtToken.of("token");
+
+            assertSame(parsed, ParsedJwtToken.of(new String("token")));
+            assertSame(parsed, request.getAttribute(ParsedJwtToken.ATTRIBUTE_NAME));
+            assertNull(ParsedJwtToken.of(null));
+        }
+
+        @Test
+        void givenOtherToken_thenHolderIsReplaced() {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+            ParsedJwtToken parsed = ParsedJwtToken.of("token1");
+            ParsedJwtToken other = ParsedJwtToken.of("token2");
+
+            assertNotSame(parsed, other);
+            assertEquals("token2", other.getToken());
+        }
+
+        @Test
+        void whenForget_thenHolderIsRemoved() {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+            ParsedJwtToken parsed = ParsedJwtToken.of("token");
+
+            ParsedJwtToken.forget("otherToken");
+            assertSame(parsed, request.getAttribute(ParsedJwtToken.ATTRIBUTE_NAME));
+
+            ParsedJwtToken.forget("token");
+            assertNull(request.getAttribute(ParsedJwtToken.ATTRIBUTE_NAME));
+        }
+
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.security.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.passticket.IRRPassTicketGenerationException;
+import org.zowe.apiml.passticket.PassTicketService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PassTicketManagerTest {
+
+    private static final String USER_ID = "USER";
+    private static final String APPLID = "APPLID";
+    private static final long LIFETIME = 60000;
+
+    private final PassTicketService passTicketService = mock(PassTicketService.class);
+    private PassTicketManager underTest;
+
+    @BeforeEach
+    void setUp() throws IRRPassTicketGenerationException {
+        when(passTicketService.generate(USER_ID, APPLID)).thenReturn("ticket1", "ticket2");
+        underTest = new PassTicketManager(passTicketService, LIFETIME, LIFETIME, LIFETIME);
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+    }
+
+    @Nested
+    class WhenTicketIsRequested {
+
+        @Test
+        void givenValidTicket_thenItIsReused() throws IRRPassTicketGenerationException {
+            PassTicketManager.PassTicket first = underTest.getPassTicket(USER_ID, APPLID);
+            PassTicketManager.PassTicket second = underTest.getPassTicket(USER_ID, APPLID);
+
+            assertSame(first, second);
+            assertEquals("ticket1", second.getValue());
+            assertEquals(LIFETIME / 2, first.getExpireAt() - first.getRefreshAt());
+            assertEquals(1, underTest.getGeneratedCount());
+            assertEquals(1, underTest.getHitCount());
+            verify(passTicketService, times(1)).generate(USER_ID, APPLID);
+        }
+
+        @Test
+        void givenConcurrentRequests_thenTicketIsGeneratedOnce() throws Exception {
+            CountDownLatch generating = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            when(passTicketService.generate(USER_ID, APPLID)).thenAnswer(invocation -> {
+                generating.countDown();
+                release.await();
+                return "ticket";
+            });
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<PassTicketManager.PassTicket>> results = new ArrayList<>();
+                results.add(executor.submit(() -> underTest.getPassTicket(USER_ID, APPLID)));
+                assertTrue(generating.await(5, TimeUnit.SECONDS));
+                for (int i = 0; i < 3; i++) {
+                    results.add(executor.submit(() -> underTest.getPassTicket(USER_ID, APPLID)));
+                }
+                release.countDown();
+
+                for (Future<PassTicketManager.PassTicket> result : results) {
+                    assertEquals("ticket", result.get(5, TimeUnit.SECONDS).getValue());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            verify(passTicketService, times(1)).generate(USER_ID, APPLID);
+        }
+
+        @Test
+        void givenGenerationFails_thenExceptionIsThrownAndCounted() throws IRRPassTicketGenerationException {
+            IRRPassTicketGenerationException exception = new IRRPassTicketGenerationException(8, 16, 32);
+            when(passTicketService.generate("unknown", APPLID)).thenThrow(exception);
+
+            assertSame(exception, assertThrows(IRRPassTicketGenerationException.class, () -> underTest.getPassTicket("unknown", APPLID)));
+            assertEquals(1, underTest.getFailedCount());
+        }
+
+    }
+
+    @Nested
+    class WhenRefreshed {
+
+        @Test
+        void givenFreshTicket_thenItIsKept() throws IRRPassTicketGenerationException {
+            underTest.getPassTicket(USER_ID, APPLID);
+
+            underTest.refresh();
+
+            assertEquals("ticket1", underTest.getPassTicket(USER_ID, APPLID).getValue());
+            assertEquals(0, underTest.getRefreshedCount());
+        }
+
+        @Test
+        void givenTicketAfterHalfOfLifetime_thenItIsRegenerated() throws Exception {
+            underTest.shutdown();
+            underTest = new PassTicketManager(passTicketService, 10, LIFETIME, LIFETIME);
+            underTest.getPassTicket(USER_ID, APPLID);
+            Thread.sleep(20);
+
+            underTest.refresh();
+
+            assertEquals(1, underTest.getRefreshedCount());
+            verify(passTicketService, times(2)).generate(USER_ID, APPLID);
+        }
+
+        @Test
+        void givenIdleEntry_thenItIsRemoved() throws Exception {
+            underTest.shutdown();
+            underTest = new PassTicketManager(passTicketService, LIFETIME, LIFETIME, 0);
+            underTest.getPassTicket(USER_ID, APPLID);
+            Thread.sleep(10);
+
+            underTest.refresh();
+
+            assertEquals(0, underTest.getEntryCount());
+            assertEquals(0, underTest.getRefreshedCount());
+        }
+
+    }
+
+}
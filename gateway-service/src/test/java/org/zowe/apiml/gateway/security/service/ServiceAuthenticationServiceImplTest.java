@@ -28,6 +28,7 @@ import org.mockito.stubbing.Stubber;
 import org.springframework.aop.framework.Advised;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -35,6 +36,7 @@ import org.zowe.apiml.config.service.security.MockedSecurityContext;
 import org.zowe.apiml.eurekaservice.client.util.EurekaMetadataParser;
 import org.zowe.apiml.gateway.cache.RetryIfExpiredAspect;
 import org.zowe.apiml.gateway.config.CacheConfig;
+import org.zowe.apiml.gateway.metadata.service.ServicePolicyRegistry;
 import org.zowe.apiml.gateway.security.service.schema.*;
 import org.zowe.apiml.gateway.utils.CurrentRequestContextTest;
 import org.zowe.apiml.auth.Authentication;
@@ -101,7 +103,8 @@ class ServiceAuthenticationServiceImplTest extends CurrentRequestContextTest {
                 authenticationSchemeFactory,
                 authenticationService,
                 cacheManager,
-                new CacheUtils());
+                new CacheUtils(),
+                new ServicePolicyRegistry(mock(DiscoveryClient.class), new EurekaMetadataParser()));
     }
 
     @AfterEach
@@ -0,0 +1,128 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.security.service;
+
+import com.netflix.appinfo.InstanceInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class TokenInvalidationDistributorTest {
+
+    private static final String URL1 = "https://hostname1:10010/gateway/auth";
+    private static final String URL2 = "https://hostname2:10010/gateway/auth";
+
+    private RestTemplate restTemplate;
+    private TokenInvalidationDistributor underTest;
+
+    private InstanceInfo instance1;
+    private InstanceInfo instance2;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        underTest = new TokenInvalidationDistributor(restTemplate, 2, 2);
+
+        instance1 = createInstanceInfo("hostname1");
+        instance2 = createInstanceInfo("hostname2");
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+    }
+
+    private InstanceInfo createInstanceInfo(String hostname) {
+        return InstanceInfo.Builder.newBuilder()
+            .setInstanceId(hostname + ":gateway:10010")
+            .setAppName("gateway")
+            .setHostName(hostname)
+            .setSecurePort(10010)
+            .enablePort(InstanceInfo.PortType.SECURE, true)
+            .enablePort(InstanceInfo.PortType.UNSECURE, false)
+            .build();
+    }
+
+    @Nested
+    class WhenTokenIsInvalidated {
+
+        @Test
+        void thenAllInstancesAreNotified() {
+            underTest.invalidate(Arrays.asList(instance1, instance2), "token");
+
+            verify(restTemplate, timeout(1000)).delete(URL1 + "/invalidate/token");
+            verify(restTemplate, timeout(1000)).delete(URL2 + "/invalidate/token");
+        }
+
+        @Test
+        void givenUnavailableInstance_thenOtherInstancesAreNotified() {
+            doThrow(new ResourceAccessException("unavailable")).when(restTemplate).delete(URL1 + "/invalidate/token");
+
+            underTest.invalidate(Arrays.asList(instance1, instance2), "token");
+
+            verify(restTemplate, timeout(1000)).delete(URL2 + "/invalidate/token");
+        }
+
+    }
+
+    @Nested
+    class WhenTokensAreDistributed {
+
+        @Test
+        void thenTokensAreSentInBatches() {
+            underTest.distribute(instance1, Arrays.asList("a", "b", "c"));
+
+            verify(restTemplate).postForEntity(URL1 + "/invalidate/batch", Arrays.asList("a", "b"), Void.class);
+            verify(restTemplate).postForEntity(URL1 + "/invalidate/batch", Collections.singletonList("c"), Void.class);
+            verify(restTemplate, never()).delete(anyString(), anyString());
+        }
+
+        @Test
+        void givenNoTokens_thenNothingIsSent() {
+            underTest.distribute(instance1, Collections.emptyList());
+
+            verifyZeroInteractions(restTemplate);
+        }
+
+        @Test
+        void givenInstanceWithoutBatchSupport_thenTokensAreSentOneByOne() {
+            when(restTemplate.postForEntity(anyString(), any(), eq(Void.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.METHOD_NOT_ALLOWED));
+
+            underTest.distribute(instance1, Arrays.asList("a", "b", "c"));
+
+            verify(restTemplate).delete(URL1 + "/invalidate/{}", "a");
+            verify(restTemplate).delete(URL1 + "/invalidate/{}", "b");
+            verify(restTemplate).delete(URL1 + "/invalidate/{}", "c");
+        }
+
+        @Test
+        void givenOtherError_thenItIsPropagated() {
+            when(restTemplate.postForEntity(anyString(), any(), eq(Void.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.FORBIDDEN));
+
+            assertThrows(HttpClientErrorException.class, () -> underTest.distribute(instance1, Collections.singletonList("a")));
+        }
+
+    }
+
+}
@@ -21,6 +21,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.zowe.apiml.gateway.security.service.PassTicketException;
+import org.zowe.apiml.gateway.security.service.PassTicketManager;
 import org.zowe.apiml.gateway.utils.CleanCurrentRequestContextTest;
 import org.zowe.apiml.passticket.IRRPassTicketGenerationException;
 import org.zowe.apiml.passticket.PassTicketService;
@@ -37,29 +38,36 @@ import java.util.Date;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.*;
 import static org.zowe.apiml.passticket.PassTicketService.DefaultPassTicketImpl.UNKNOWN_USER;
 
 class HttpBasicPassTicketSchemeTest extends CleanCurrentRequestContextTest {
 
     private static final String USERNAME = "USERNAME";
     private final AuthConfigurationProperties authConfigurationProperties = new AuthConfigurationProperties();
+    private PassTicketManager passTicketManager;
     private HttpBasicPassTicketScheme httpBasicPassTicketScheme;
 
     @BeforeEach
     void init() {
         PassTicketService passTicketService = new PassTicketService();
-        httpBasicPassTicketScheme = new HttpBasicPassTicketScheme(passTicketService, authConfigurationProperties);
+        httpBasicPassTicketScheme = new HttpBasicPassTicketScheme(createPassTicketManager(passTicketService), authConfigurationProperties);
     }
 
     @AfterEach
     void tearEverythingDown() {
         RequestContext.testSetCurrentContext(null);
+        passTicketManager.shutdown();
+    }
+
+    private PassTicketManager createPassTicketManager(PassTicketService passTicketService) {
+        long lifetime = authConfigurationProperties.getPassTicket().getTimeout() * 1000L;
+        passTicketManager = new PassTicketManager(passTicketService, lifetime, 60000, lifetime);
+        return passTicketManager;
     }
 
     @Test
-    void testCreateCommand() {
+    void testCreateCommand() throws IRRPassTicketGenerationException {
         Calendar calendar = Calendar.getInstance();
         Authentication authentication = new Authentication(AuthenticationScheme.HTTP_BASIC_PASSTICKET, "APPLID");
         QueryResponse queryResponse = new QueryResponse("domain", USERNAME, calendar.getTime(), calendar.getTime(), QueryResponse.Source.ZOWE);
@@ -98,14 +106,34 @@ class HttpBasicPassTicketSchemeTest extends CleanCurrentRequestContextTest {
 
         calendar = Calendar.getInstance();
         calendar.add(Calendar.SECOND, authConfigurationProperties.getPassTicket().getTimeout());
-        // checking setup of expired time, JWT expired in future (more than hour), check if set date is similar to passticket timeout (5s)
-        assertEquals(0.0, Math.abs(calendar.getTime().getTime() - (long) ReflectionTestUtils.getField(ac, "expireAt")), 10.0);
+        // checking setup of expired time, JWT expired in future (more than hour), check if set date is the expiration of passticket
+        long passTicketExpireAt = passTicketManager.getPassTicket(USERNAME, "APPLID").getExpireAt();
+        assertEquals(passTicketExpireAt, (long) ReflectionTestUtils.getField(ac, "expireAt"));
+        assertTrue(passTicketExpireAt <= calendar.getTime().getTime());
+    }
+
+    @Test
+    void givenValidPassTicket_whenCreateCommand_thenPassTicketIsReused() throws IRRPassTicketGenerationException {
+        PassTicketService passTicketService = mock(PassTicketService.class);
+        httpBasicPassTicketScheme = new HttpBasicPassTicketScheme(createPassTicketManager(passTicketService), authConfigurationProperties);
+        doReturn("HI").when(passTicketService).generate(USERNAME, "APPLID");
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.HOUR, 1);
+        Authentication authentication = new Authentication(AuthenticationScheme.HTTP_BASIC_PASSTICKET, "APPLID");
+        QueryResponse queryResponse = new QueryResponse("domain", USERNAME, new Date(), calendar.getTime(), QueryResponse.Source.ZOWE);
+
+        AuthenticationCommand ac1 = httpBasicPassTicketScheme.createCommand(authentication, () -> queryResponse);
+        AuthenticationCommand ac2 = httpBasicPassTicketScheme.createCommand(authentication, () -> queryResponse);
+
+        assertEquals(ac1, ac2);
+        verify(passTicketService, times(1)).generate(USERNAME, "APPLID");
     }
 
     @Test
     void givenRequest_whenApplyToRequest_thenSetsAuthorizationBasic() throws IRRPassTicketGenerationException {
         PassTicketService passTicketService = mock(PassTicketService.class);
-        httpBasicPassTicketScheme = new HttpBasicPassTicketScheme(passTicketService, authConfigurationProperties);
+        httpBasicPassTicketScheme = new HttpBasicPassTicketScheme(createPassTicketManager(passTicketService), authConfigurationProperties);
 
         Calendar calendar = Calendar.getInstance();
         Authentication authentication = new Authentication(AuthenticationScheme.HTTP_BASIC_PASSTICKET, "APPLID");
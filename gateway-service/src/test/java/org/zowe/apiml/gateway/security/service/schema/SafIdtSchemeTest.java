@@ -11,14 +11,19 @@ package org.zowe.apiml.gateway.security.service.schema;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.zuul.context.RequestContext;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.zowe.apiml.auth.Authentication;
+import org.zowe.apiml.auth.AuthenticationScheme;
 import org.zowe.apiml.gateway.security.service.AuthenticationService;
 import org.zowe.apiml.gateway.security.service.saf.SafRestAuthenticationService;
 import org.zowe.apiml.security.common.token.QueryResponse;
 import org.zowe.apiml.security.common.token.TokenAuthentication;
 
+import java.util.Date;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -26,8 +31,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 class SafIdtSchemeTest {
     private SafIdtScheme underTest;
@@ -38,7 +42,7 @@ class SafIdtSchemeTest {
     void setUp() {
         authenticationService = mock(AuthenticationService.class);
         safAuthenticationService = mock(SafRestAuthenticationService.class);
-        underTest = new SafIdtScheme(authenticationService, safAuthenticationService);
+        underTest = new SafIdtScheme(authenticationService, safAuthenticationService, new ConcurrentMapCacheManager());
     }
 
     @Nested
@@ -99,6 +103,98 @@ class SafIdtSchemeTest {
         }
     }
 
+    @Nested
+    class WhenTokensAreCached {
+        private static final String USERNAME = "hg679853";
+        private static final String JWT = "validJwtToken";
+
+        private final InstanceInfo info = mock(InstanceInfo.class);
+
+        @BeforeEach
+        void setUp() {
+            RequestContext.getCurrentContext().clear();
+            TokenAuthentication authentication = new TokenAuthentication(USERNAME, JWT);
+            authentication.setAuthenticated(true);
+
+            when(authenticationService.getJwtTokenFromRequest(any())).thenReturn(Optional.of(JWT));
+            when(authenticationService.validateJwtToken(JWT)).thenReturn(authentication);
+        }
+
+        private AuthenticationCommand createCommand(String applid) {
+            Authentication authentication = Authentication.builder().scheme(AuthenticationScheme.SAF_IDT).applid(applid).build();
+            return underTest.createCommand(authentication, () -> null);
+        }
+
+        @Test
+        void givenRepeatedRequests_thenTokenIsGeneratedOnce() {
+            when(safAuthenticationService.generate(USERNAME)).thenReturn(Optional.of("safIdt"));
+
+            createCommand("APPLID").apply(info);
+            createCommand("APPLID").apply(info);
+
+            assertThat(getValueOfZuulHeader(), is("safIdt"));
+            verify(safAuthenticationService, times(1)).generate(USERNAME);
+        }
+
+        @Test
+        void givenDifferentApplids_thenTokenIsGeneratedForEach() {
+            when(safAuthenticationService.generate(USERNAME)).thenReturn(Optional.of("safIdt"));
+
+            createCommand("APPLID1").apply(info);
+            createCommand("APPLID2").apply(info);
+
+            verify(safAuthenticationService, times(2)).generate(USERNAME);
+        }
+
+        @Test
+        void givenExpiredToken_thenNewTokenIsGenerated() {
+            String expiredToken = Jwts.builder().setSubject(USERNAME).setExpiration(new Date(1000)).compact();
+            when(safAuthenticationService.generate(USERNAME)).thenReturn(Optional.of(expiredToken));
+
+            createCommand("APPLID").apply(info);
+
+            verify(safAuthenticationService, times(2)).generate(USERNAME);
+        }
+
+        @Test
+        void givenTokenAfterHalfOfLifetime_thenNewTokenIsGenerated() {
+            long now = System.currentTimeMillis();
+            String agingToken = Jwts.builder().setSubject(USERNAME)
+                .setIssuedAt(new Date(now - 60_000L)).setExpiration(new Date(now + 10_000L)).compact();
+            when(safAuthenticationService.generate(USERNAME)).thenReturn(Optional.of(agingToken), Optional.of("safIdt"));
+
+            createCommand("APPLID").apply(info);
+
+            assertThat(getValueOfZuulHeader(), is("safIdt"));
+            verify(safAuthenticationService, times(2)).generate(USERNAME);
+        }
+
+        @Test
+        void givenRefreshFails_thenCurrentTokenIsUsedUntilExpiration() {
+            long now = System.currentTimeMillis();
+            String agingToken = Jwts.builder().setSubject(USERNAME)
+                .setIssuedAt(new Date(now - 60_000L)).setExpiration(new Date(now + 10_000L)).compact();
+            when(safAuthenticationService.generate(USERNAME))
+                .thenReturn(Optional.of(agingToken))
+                .thenThrow(new IllegalStateException("SAF is not available"));
+
+            createCommand("APPLID").apply(info);
+
+            assertThat(getValueOfZuulHeader(), is(agingToken));
+        }
+
+        @Test
+        void givenNoToken_thenResultIsNotCached() {
+            when(safAuthenticationService.generate(USERNAME)).thenReturn(Optional.empty());
+
+            createCommand("APPLID").apply(info);
+            createCommand("APPLID").apply(info);
+
+            assertThat(getValueOfZuulHeader(), is(nullValue()));
+            verify(safAuthenticationService, times(2)).generate(USERNAME);
+        }
+    }
+
     private String getValueOfZuulHeader() {
         final RequestContext context = RequestContext.getCurrentContext();
         String valueOfHeader = context.getZuulRequestHeaders().get("x-saf-token");
@@ -0,0 +1,154 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.sse;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
+import com.netflix.zuul.context.RequestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.*;
+import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.SERVICE_ID_KEY;
+
+class ServerSentEventInstanceSelectorTest {
+
+    private static final String SERVICE_ID = "serviceid";
+
+    private SpringClientFactory springClientFactory;
+    private DiscoveryClient discoveryClient;
+    private HttpServletRequest request;
+    private ServerSentEventInstanceSelector underTest;
+
+    @BeforeEach
+    void setUp() {
+        springClientFactory = mock(SpringClientFactory.class);
+        discoveryClient = mock(DiscoveryClient.class);
+        request = mock(HttpServletRequest.class);
+        underTest = new ServerSentEventInstanceSelector(springClientFactory, discoveryClient);
+    }
+
+    @Nested
+    class GivenLoadBalancer {
+
+        private ILoadBalancer loadBalancer;
+
+        @BeforeEach
+        void setUp() {
+            loadBalancer = mock(ILoadBalancer.class);
+            when(springClientFactory.getLoadBalancer(SERVICE_ID)).thenReturn(loadBalancer);
+        }
+
+        @Test
+        void thenSelectedInstanceIsUsed() {
+            InstanceInfo instanceInfo = InstanceInfo.Builder.newBuilder()
+                .setAppName(SERVICE_ID).setHostName("host2").setPort(10012).build();
+            when(loadBalancer.chooseServer(any())).thenAnswer(invocation -> {
+                // predicates of load balancer are able to read the request
+                assertThat(RequestContext.getCurrentContext().getRequest(), is(request));
+                assertThat(RequestContext.getCurrentContext().get(SERVICE_ID_KEY), is(SERVICE_ID));
+                return new DiscoveryEnabledServer(instanceInfo, false);
+            });
+
+            ServiceInstance serviceInstance = underTest.choose(SERVICE_ID, request);
+
+            assertThat(serviceInstance.getHost(), is("host2"));
+            assertThat(serviceInstance.getPort(), is(10012));
+            assertThat(RequestContext.getCurrentContext().get(SERVICE_ID_KEY), is(nullValue()));
+            verifyZeroInteractions(discoveryClient);
+        }
+
+        @Test
+        void givenNoAvailableInstance_thenReturnNull() {
+            when(loadBalancer.chooseServer(any())).thenReturn(null);
+
+            assertThat(underTest.choose(SERVICE_ID, request), is(nullValue()));
+        }
+
+        @Test
+        void givenFailedInstanceIsSelected_thenOtherReachableInstanceIsUsed() {
+            DiscoveryEnabledServer failedServer = server("host1");
+            DiscoveryEnabledServer otherServer = server("host2");
+            when(loadBalancer.chooseServer(any())).thenReturn(failedServer);
+            when(loadBalancer.getReachableServers()).thenReturn(Arrays.asList(failedServer, otherServer));
+            ServiceInstance failedInstance = underTest.choose(SERVICE_ID, request);
+
+            ServiceInstance serviceInstance = underTest.choose(SERVICE_ID, request, failedInstance);
+
+            assertThat(serviceInstance.getHost(), is("host2"));
+        }
+
+        @Test
+        void givenFailedInstanceIsTheOnlyOne_thenItIsUsed() {
+            DiscoveryEnabledServer failedServer = server("host1");
+            when(loadBalancer.chooseServer(any())).thenReturn(failedServer);
+            when(loadBalancer.getReachableServers()).thenReturn(Collections.singletonList(failedServer));
+            ServiceInstance failedInstance = underTest.choose(SERVICE_ID, request);
+
+            ServiceInstance serviceInstance = underTest.choose(SERVICE_ID, request, failedInstance);
+
+            assertThat(serviceInstance.getHost(), is("host1"));
+        }
+
+        private DiscoveryEnabledServer server(String hostname) {
+            InstanceInfo instanceInfo = InstanceInfo.Builder.newBuilder()
+                .setAppName(SERVICE_ID).setInstanceId(hostname + ":" + SERVICE_ID).setHostName(hostname).setPort(10012).build();
+            return new DiscoveryEnabledServer(instanceInfo, false);
+        }
+
+    }
+
+    @Nested
+    class GivenNoLoadBalancer {
+
+        @Test
+        void thenInstanceFromDiscoveryIsUsed() {
+            ServiceInstance serviceInstance = mock(ServiceInstance.class);
+            when(springClientFactory.getLoadBalancer(SERVICE_ID)).thenThrow(new IllegalStateException("no context"));
+            when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(Collections.singletonList(serviceInstance));
+
+            assertThat(underTest.choose(SERVICE_ID, request), is(serviceInstance));
+        }
+
+        @Test
+        void givenFailedInstance_thenOtherInstanceFromDiscoveryIsUsed() {
+            ServiceInstance failedInstance = mock(ServiceInstance.class);
+            ServiceInstance otherInstance = mock(ServiceInstance.class);
+            when(failedInstance.getInstanceId()).thenReturn("host1:serviceid");
+            when(otherInstance.getInstanceId()).thenReturn("host2:serviceid");
+            when(springClientFactory.getLoadBalancer(SERVICE_ID)).thenReturn(null);
+            when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(Arrays.asList(failedInstance, otherInstance));
+
+            assertThat(underTest.choose(SERVICE_ID, request, failedInstance), is(otherInstance));
+        }
+
+        @Test
+        void givenNoInstance_thenReturnNull() {
+            when(springClientFactory.getLoadBalancer(SERVICE_ID)).thenReturn(null);
+            when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(Collections.emptyList());
+
+            assertThat(underTest.choose(SERVICE_ID, request), is(nullValue()));
+        }
+
+    }
+
+}
@@ -21,26 +21,30 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.zowe.apiml.message.core.MessageService;
 import org.zowe.apiml.message.yaml.YamlMessageService;
 import org.zowe.apiml.product.routing.RoutedService;
 import org.zowe.apiml.product.routing.RoutedServices;
+import reactor.core.publisher.Flux;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
+import java.net.ConnectException;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -58,7 +62,7 @@ class ServerSentEventProxyHandlerTest {
     private static final String GATEWAY_PATH_OLD_FORMAT = "/sse/" + MAJOR_VERSION + "/" + SERVICE_ID + ENDPOINT;
 
     private ServerSentEventProxyHandler underTest;
-    private DiscoveryClient mockDiscoveryClient;
+    private ServerSentEventInstanceSelector mockInstanceSelector;
     private HttpServletRequest mockHttpServletRequest;
     private HttpServletResponse mockHttpServletResponse;
     private final MessageService messageService = new YamlMessageService("/gateway-messages.yml");
@@ -68,8 +72,10 @@ class ServerSentEventProxyHandlerTest {
         mockHttpServletRequest = mock(HttpServletRequest.class);
         mockHttpServletResponse = mock(HttpServletResponse.class);
 
-        mockDiscoveryClient = mock(DiscoveryClient.class);
-        underTest = Mockito.spy(new ServerSentEventProxyHandler(mockDiscoveryClient, messageService));
+        mockInstanceSelector = mock(ServerSentEventInstanceSelector.class);
+        underTest = Mockito.spy(new ServerSentEventProxyHandler(
+            mockInstanceSelector, mock(WebClient.class), messageService, 2, 1
+        ));
     }
 
     @Nested
@@ -106,7 +112,7 @@ class ServerSentEventProxyHandlerTest {
 
                     PrintWriter mockWriter = mock(PrintWriter.class);
                     when(mockHttpServletResponse.getWriter()).thenReturn(mockWriter);
-                    when(mockDiscoveryClient.getInstances(anyString())).thenReturn(new ArrayList<>());
+                    when(mockInstanceSelector.choose(SERVICE_ID, mockHttpServletRequest)).thenReturn(null);
 
                     verifyError(mockWriter, HttpStatus.NOT_FOUND);
                 }
@@ -118,9 +124,7 @@ class ServerSentEventProxyHandlerTest {
                     PrintWriter mockWriter = mock(PrintWriter.class);
                     when(mockHttpServletResponse.getWriter()).thenReturn(mockWriter);
 
-                    List<ServiceInstance> serviceInstances = new ArrayList<>();
-                    serviceInstances.add(mock(ServiceInstance.class));
-                    when(mockDiscoveryClient.getInstances(SERVICE_ID)).thenReturn(serviceInstances);
+                    when(mockInstanceSelector.choose(SERVICE_ID, mockHttpServletRequest)).thenReturn(mock(ServiceInstance.class));
 
                     verifyError(mockWriter, HttpStatus.NOT_FOUND);
                 }
@@ -132,9 +136,7 @@ class ServerSentEventProxyHandlerTest {
                     PrintWriter mockWriter = mock(PrintWriter.class);
                     when(mockHttpServletResponse.getWriter()).thenReturn(mockWriter);
 
-                    List<ServiceInstance> serviceInstances = new ArrayList<>();
-                    serviceInstances.add(mock(ServiceInstance.class));
-                    when(mockDiscoveryClient.getInstances(SERVICE_ID)).thenReturn(serviceInstances);
+                    when(mockInstanceSelector.choose(SERVICE_ID, mockHttpServletRequest)).thenReturn(mock(ServiceInstance.class));
 
                     RoutedServices mockRoutedServices = mock(RoutedServices.class);
                     underTest.addRoutedServices(SERVICE_ID, mockRoutedServices);
@@ -159,7 +161,7 @@ class ServerSentEventProxyHandlerTest {
                 mockServiceInstance(false);
 
                 verifyConsumerUsed();
-                verify(underTest).getSseStream(URL_INSECURE + ENDPOINT);
+                verify(underTest).getSseStream(URL_INSECURE + ENDPOINT, null);
             }
 
             @ParameterizedTest
@@ -169,7 +171,7 @@ class ServerSentEventProxyHandlerTest {
                 mockServiceInstance(true, serviceUrlEndingSlash);
 
                 verifyConsumerUsed();
-                verify(underTest).getSseStream(URL_SECURE + ENDPOINT);
+                verify(underTest).getSseStream(URL_SECURE + ENDPOINT, null);
             }
 
             @ParameterizedTest(name = "givenEndpoint {0}")
@@ -179,7 +181,7 @@ class ServerSentEventProxyHandlerTest {
                 mockServiceInstance(true);
 
                 verifyConsumerUsed();
-                verify(underTest).getSseStream(URL_SECURE + expectedEndpoint);
+                verify(underTest).getSseStream(URL_SECURE + expectedEndpoint, null);
             }
 
             @Test
@@ -190,7 +192,88 @@ class ServerSentEventProxyHandlerTest {
                 mockServiceInstance(true);
 
                 verifyConsumerUsed();
-                verify(underTest).getSseStream(URL_SECURE + ENDPOINT + "?" + params);
+                verify(underTest).getSseStream(URL_SECURE + ENDPOINT + "?" + params, null);
+            }
+
+            @Test
+            void givenLastEventId_thenItIsSentToService() throws IOException {
+                when(mockHttpServletRequest.getRequestURI()).thenReturn(GATEWAY_PATH);
+                when(mockHttpServletRequest.getHeader(ServerSentEventProxyHandler.LAST_EVENT_ID)).thenReturn("42");
+                mockServiceInstance(true);
+
+                verifyConsumerUsed();
+                verify(underTest).getSseStream(URL_SECURE + ENDPOINT, "42");
+            }
+        }
+
+        @Nested
+        class WhenStreamFails {
+            @Test
+            void thenReconnectToNextInstanceWithLastEventId() {
+                doReturn(Flux.just(event("1"), event("2")).concatWith(Flux.error(new ConnectException("closed"))))
+                    .when(underTest).getSseStream("url1", null);
+                doReturn(Flux.just(event("3"))).when(underTest).getSseStream("url2", "2");
+
+                List<ServerSentEvent<String>> events = underTest.getSseStream("url1", null, () -> "url2")
+                    .collectList().block();
+
+                assertThat(events.size(), is(3));
+                assertThat(events.get(2).id(), is("3"));
+            }
+
+            @Test
+            void givenRepeatedFailures_thenStopReconnecting() {
+                ConnectException error = new ConnectException("refused");
+                doReturn(Flux.error(error)).when(underTest).getSseStream(anyString(), isNull());
+
+                Flux<ServerSentEvent<String>> stream = underTest.getSseStream("url1", null, () -> "url2");
+
+                assertThrows(Exception.class, stream::blockLast);
+                // first connection and two reconnects
+                verify(underTest).getSseStream("url1", null);
+                verify(underTest, times(2)).getSseStream("url2", null);
+            }
+
+            @Test
+            void givenClientError_thenDoNotReconnect() {
+                WebClientResponseException error = WebClientResponseException.create(
+                    HttpStatus.NOT_FOUND.value(), "Not Found", HttpHeaders.EMPTY, new byte[0], null
+                );
+                doReturn(Flux.error(error)).when(underTest).getSseStream("url1", null);
+
+                Flux<ServerSentEvent<String>> stream = underTest.getSseStream("url1", null, () -> "url2");
+
+                assertThrows(WebClientResponseException.class, stream::blockLast);
+                verify(underTest, never()).getSseStream("url2", null);
+            }
+
+            @Test
+            void givenFailedInstance_thenItIsAvoidedOnReconnect() {
+                when(mockHttpServletRequest.getRequestURI()).thenReturn(GATEWAY_PATH);
+                ServiceInstance failedInstance = mockServiceInstance(false);
+                ServiceInstance otherInstance = mock(ServiceInstance.class);
+                when(otherInstance.getHost()).thenReturn("otherhost.com");
+                when(otherInstance.getPort()).thenReturn(PORT);
+                when(mockInstanceSelector.choose(SERVICE_ID, mockHttpServletRequest, failedInstance)).thenReturn(otherInstance);
+                doReturn(Flux.error(new ConnectException("refused"))).when(underTest).getSseStream(URL_INSECURE + ENDPOINT, null);
+                doReturn(Flux.empty()).when(underTest).getSseStream("http://otherhost.com:" + PORT + SERVICE_URL + ENDPOINT, null);
+
+                underTest.getEmitter(mockHttpServletRequest, mockHttpServletResponse);
+
+                verify(underTest, timeout(1000)).getSseStream("http://otherhost.com:" + PORT + SERVICE_URL + ENDPOINT, null);
+            }
+
+            @Test
+            void givenNoOtherInstance_thenFail() {
+                doReturn(Flux.error(new ConnectException("refused"))).when(underTest).getSseStream("url1", null);
+
+                Flux<ServerSentEvent<String>> stream = underTest.getSseStream("url1", null, () -> null);
+
+                assertThrows(IllegalStateException.class, stream::blockLast);
+            }
+
+            private ServerSentEvent<String> event(String id) {
+                return ServerSentEvent.builder("data" + id).id(id).build();
             }
         }
 
@@ -222,11 +305,11 @@ class ServerSentEventProxyHandlerTest {
             }
         }
 
-        private void mockServiceInstance(boolean isSecure) {
-            mockServiceInstance(isSecure, true);
+        private ServiceInstance mockServiceInstance(boolean isSecure) {
+            return mockServiceInstance(isSecure, true);
         }
 
-        private void mockServiceInstance(boolean isSecure, boolean serviceUrlEndWithSlash) {
+        private ServiceInstance mockServiceInstance(boolean isSecure, boolean serviceUrlEndWithSlash) {
             RoutedServices mockRoutedServices = mock(RoutedServices.class);
             RoutedService mockRoutedService = mock(RoutedService.class);
             when(mockRoutedService.getServiceUrl()).thenReturn(SERVICE_URL + (serviceUrlEndWithSlash ? "/" : ""));
@@ -238,12 +321,13 @@ class ServerSentEventProxyHandlerTest {
             when(serviceInstance.getPort()).thenReturn(PORT);
             when(serviceInstance.isSecure()).thenReturn(isSecure);
 
-            List<ServiceInstance> serviceInstances = new ArrayList<>();
-            serviceInstances.add(serviceInstance);
-            when(mockDiscoveryClient.getInstances(SERVICE_ID)).thenReturn(serviceInstances);
+            when(mockInstanceSelector.choose(SERVICE_ID, mockHttpServletRequest)).thenReturn(serviceInstance);
+            return serviceInstance;
         }
 
         private void verifyConsumerUsed() throws IOException {
+            doReturn(Flux.empty()).when(underTest).getSseStream(anyString(), any());
+
             SseEmitter emitter = underTest.getEmitter(mockHttpServletRequest, mockHttpServletResponse);
             assertThat(emitter, is(not(nullValue())));
             verify(underTest).consumer(emitter);
@@ -14,10 +14,12 @@ import org.json.JSONArray;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -47,4 +49,50 @@ class WebSocketActuatorEndpointTest {
         String clientResponse = new JSONArray(underTest.getAll()).toString();
         assertThat(clientResponse, is("[{\"gatewayPath\":\"ws:\\/\\/gateway:10010\\/api\\/v2\\/\",\"serviceUrl\":\"ws:\\/\\/localhost:8080\\/v2\",\"serviceSessionId\":\"12\",\"sessionId\":\"webSocketSessionId\",\"clientAddress\":\"ws:\\/\\/gateway:10010\"}]"));
     }
+
+    @Test
+    void givenSessionWithQueues_whenTheStatusOfRoutesIsRequested_thenQueuedBytesAreReturned() {
+        Map<String, WebSocketRoutedSession> routedSessions = new HashMap<>();
+        WebSocketRoutedSession validSession = mock(WebSocketRoutedSession.class);
+        WebSocketSendQueue serverSendQueue = mock(WebSocketSendQueue.class);
+        when(serverSendQueue.getQueuedBytes()).thenReturn(1024L);
+        when(serverSendQueue.getDroppedCount()).thenReturn(2L);
+        when(validSession.getWebSocketServerSendQueue()).thenReturn(serverSendQueue);
+        routedSessions.put("webSocketSessionId", validSession);
+        when(webSocketProxyServerHandler.getRoutedSessions()).thenReturn(routedSessions);
+
+        Map<String, String> result = underTest.getAll().get(0);
+
+        assertThat(result.get("queuedBytesToClient"), is("1024"));
+        assertThat(result.get("droppedMessagesToClient"), is("2"));
+        assertThat(result.containsKey("queuedBytesToService"), is(false));
+    }
+
+    @Test
+    void givenExistingSessions_whenTheMetricsAreRequested_thenTheyAreReturned() {
+        Map<String, WebSocketRoutedSession> routedSessions = new HashMap<>();
+        WebSocketRoutedSession connectedSession = mock(WebSocketRoutedSession.class);
+        when(connectedSession.isConnected()).thenReturn(true);
+        routedSessions.put("connected", connectedSession);
+        routedSessions.put("pending", mock(WebSocketRoutedSession.class));
+        when(webSocketProxyServerHandler.getRoutedSessions()).thenReturn(routedSessions);
+        when(webSocketProxyServerHandler.getOpenedCount()).thenReturn(3L);
+        when(webSocketProxyServerHandler.getRejectedCount()).thenReturn(1L);
+        WebSocketInstanceSelector instanceSelector = mock(WebSocketInstanceSelector.class);
+        when(instanceSelector.getConnections()).thenReturn(Collections.singletonMap("host:1443", 2));
+        when(webSocketProxyServerHandler.getInstanceSelector()).thenReturn(instanceSelector);
+
+        Map<String, Object> metrics = underTest.getMetrics(WebSocketActuatorEndpoint.METRICS);
+
+        assertThat(metrics.get("sessions"), is(2));
+        assertThat(metrics.get("pendingHandshakes"), is(1L));
+        assertThat(metrics.get("opened"), is(3L));
+        assertThat(metrics.get("rejected"), is(1L));
+        assertThat(metrics.get("connectionsPerInstance"), is(Collections.singletonMap("host:1443", 2)));
+    }
+
+    @Test
+    void givenUnknownName_whenTheMetricsAreRequested_thenNothingIsReturned() {
+        assertThat(underTest.getMetrics("unknown"), is(nullValue()));
+    }
 }
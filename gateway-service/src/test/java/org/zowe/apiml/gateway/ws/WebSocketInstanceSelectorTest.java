@@ -0,0 +1,145 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.ws;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
+import com.netflix.zuul.context.RequestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.zowe.apiml.gateway.ribbon.loadbalancer.LoadBalancerRuleAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.*;
+import static org.springframework.cloud.netflix.zuul.filters.support.FilterConstants.SERVICE_ID_KEY;
+
+class WebSocketInstanceSelectorTest {
+
+    private static final String SERVICE_ID = "serviceid";
+
+    private SpringClientFactory springClientFactory;
+    private DiscoveryClient discoveryClient;
+    private WebSocketInstanceSelector underTest;
+
+    @BeforeEach
+    void setUp() {
+        springClientFactory = mock(SpringClientFactory.class);
+        discoveryClient = mock(DiscoveryClient.class);
+        underTest = new WebSocketInstanceSelector(springClientFactory, discoveryClient);
+    }
+
+    private ServiceInstance serviceInstance(String host) {
+        ServiceInstance serviceInstance = mock(ServiceInstance.class);
+        when(serviceInstance.getHost()).thenReturn(host);
+        when(serviceInstance.getPort()).thenReturn(10012);
+        return serviceInstance;
+    }
+
+    @Nested
+    class GivenNoRequest {
+
+        private ServiceInstance instance1;
+        private ServiceInstance instance2;
+
+        @BeforeEach
+        void setUp() {
+            instance1 = serviceInstance("host1");
+            instance2 = serviceInstance("host2");
+            when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(Arrays.asList(instance1, instance2));
+        }
+
+        @Test
+        void thenInstanceWithLeastConnectionsIsSelected() {
+            underTest.connected(instance1);
+
+            for (int i = 0; i < 4; i++) {
+                assertThat(underTest.choose(SERVICE_ID, null), is(instance2));
+            }
+        }
+
+        @Test
+        void thenInstancesWithSameConnectionsTakeTurns() {
+            ServiceInstance first = underTest.choose(SERVICE_ID, null);
+            ServiceInstance second = underTest.choose(SERVICE_ID, null);
+
+            assertThat(first, is(not(second)));
+        }
+
+        @Test
+        void thenClosedConnectionsAreNotCounted() {
+            underTest.connected(instance1);
+            underTest.connected(instance1);
+            underTest.disconnected("host1:10012");
+
+            assertThat(underTest.getConnections(), is(Collections.singletonMap("host1:10012", 1)));
+
+            underTest.disconnected("host1:10012");
+            assertThat(underTest.getConnections().isEmpty(), is(true));
+        }
+
+        @Test
+        void givenNoInstance_thenReturnNull() {
+            when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(Collections.emptyList());
+
+            assertThat(underTest.choose(SERVICE_ID, null), is(nullValue()));
+        }
+
+    }
+
+    @Nested
+    class GivenRequest {
+
+        @Test
+        void thenOnlyServersAllowedByLoadBalancerAreCandidates() {
+            HttpServletRequest request = mock(HttpServletRequest.class);
+            InstanceInfo instanceInfo = InstanceInfo.Builder.newBuilder()
+                .setAppName(SERVICE_ID).setHostName("host3").setPort(10012).build();
+
+            LoadBalancerRuleAdapter rule = mock(LoadBalancerRuleAdapter.class);
+            when(rule.getEligibleServers(any())).thenAnswer(invocation -> {
+                // predicates of load balancer are able to read the request
+                assertThat(RequestContext.getCurrentContext().getRequest(), is(request));
+                assertThat(RequestContext.getCurrentContext().get(SERVICE_ID_KEY), is(SERVICE_ID));
+                return Collections.singletonList(new DiscoveryEnabledServer(instanceInfo, false));
+            });
+            BaseLoadBalancer loadBalancer = mock(BaseLoadBalancer.class);
+            when(loadBalancer.getRule()).thenReturn(rule);
+            when(springClientFactory.getLoadBalancer(SERVICE_ID)).thenReturn(loadBalancer);
+
+            ServiceInstance serviceInstance = underTest.choose(SERVICE_ID, request);
+
+            assertThat(serviceInstance.getHost(), is("host3"));
+            assertThat(RequestContext.getCurrentContext().get(SERVICE_ID_KEY), is(nullValue()));
+            verifyZeroInteractions(discoveryClient);
+        }
+
+        @Test
+        void givenNoLoadBalancer_thenInstancesFromDiscoveryAreCandidates() {
+            ServiceInstance instance = serviceInstance("host1");
+            when(springClientFactory.getLoadBalancer(SERVICE_ID)).thenThrow(new IllegalStateException("no context"));
+            when(discoveryClient.getInstances(SERVICE_ID)).thenReturn(Collections.singletonList(instance));
+
+            assertThat(underTest.choose(SERVICE_ID, mock(HttpServletRequest.class)), is(instance));
+        }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.ws;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class WebSocketProxyHandshakeHandlerTest {
+
+    @Nested
+    class GivenRequestWithoutCompression {
+
+        @Test
+        void whenDeflateIsRequested_thenItIsHidden() {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.addHeader(WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS, "permessage-deflate;client_max_window_bits=15, x-custom");
+
+            WebSocketProxyHandshakeHandler.WithoutCompressionRequest underTest = new WebSocketProxyHandshakeHandler.WithoutCompressionRequest(request);
+
+            assertThat(underTest.getHeader("sec-websocket-extensions"), is("x-custom"));
+            assertThat(Collections.list(underTest.getHeaders(WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS)), is(Collections.singletonList("x-custom")));
+        }
+
+        @Test
+        void whenOnlyDeflateIsRequested_thenNoExtensionIsRequested() {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.addHeader(WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS, "permessage-deflate");
+
+            WebSocketProxyHandshakeHandler.WithoutCompressionRequest underTest = new WebSocketProxyHandshakeHandler.WithoutCompressionRequest(request);
+
+            assertThat(underTest.getHeader(WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS), is(nullValue()));
+            assertThat(underTest.getHeaders(WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS).hasMoreElements(), is(false));
+        }
+
+        @Test
+        void thenOtherHeadersAreNotChanged() {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.addHeader(WebSocketHttpHeaders.SEC_WEBSOCKET_PROTOCOL, "v12.stomp");
+            request.addHeader(WebSocketHttpHeaders.SEC_WEBSOCKET_PROTOCOL, "v11.stomp");
+
+            WebSocketProxyHandshakeHandler.WithoutCompressionRequest underTest = new WebSocketProxyHandshakeHandler.WithoutCompressionRequest(request);
+
+            assertThat(underTest.getHeader(WebSocketHttpHeaders.SEC_WEBSOCKET_PROTOCOL), is("v12.stomp"));
+            assertThat(Collections.list(underTest.getHeaders(WebSocketHttpHeaders.SEC_WEBSOCKET_PROTOCOL)), is(Arrays.asList("v12.stomp", "v11.stomp")));
+        }
+
+    }
+
+}
@@ -16,7 +16,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
@@ -24,7 +25,6 @@ import org.zowe.apiml.product.routing.RoutedService;
 import org.zowe.apiml.product.routing.RoutedServices;
 
 import java.net.URI;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -37,19 +37,21 @@ import static org.mockito.Mockito.*;
 
 class WebSocketProxyServerHandlerTest {
     private WebSocketProxyServerHandler underTest;
-    private DiscoveryClient discoveryClient;
+    private WebSocketInstanceSelector instanceSelector;
     private WebSocketRoutedSessionFactory webSocketRoutedSessionFactory;
+    private WebSocketClientFactory webSocketClientFactory;
     private Map<String, WebSocketRoutedSession> routedSessions;
 
     @BeforeEach
     public void setup() {
-        discoveryClient = mock(DiscoveryClient.class);
+        instanceSelector = mock(WebSocketInstanceSelector.class);
+        webSocketClientFactory = mock(WebSocketClientFactory.class);
         routedSessions = new HashMap<>();
         webSocketRoutedSessionFactory = mock(WebSocketRoutedSessionFactory.class);
 
         underTest = new WebSocketProxyServerHandler(
-            discoveryClient,
-            mock(WebSocketClientFactory.class),
+            instanceSelector,
+            webSocketClientFactory,
             routedSessions,
             webSocketRoutedSessionFactory
         );
@@ -85,7 +87,7 @@ class WebSocketProxyServerHandlerTest {
                 when(routesForSpecificValidService.findServiceByGatewayUrl("ws/v1"))
                     .thenReturn(new RoutedService("ws-v1", "ws/v1", "/valid-service/ws/v1"));
                 ServiceInstance foundService = validServiceInstance();
-                when(discoveryClient.getInstances(serviceId)).thenReturn(Collections.singletonList(foundService));
+                when(instanceSelector.choose(serviceId, null)).thenReturn(foundService);
 
                 underTest.addRoutedServices(serviceId, routesForSpecificValidService);
             }
@@ -114,6 +116,25 @@ class WebSocketProxyServerHandlerTest {
                 verify(webSocketRoutedSessionFactory).session(any(), any(), any());
                 WebSocketRoutedSession preparedSession = routedSessions.get(establishedSessionId);
                 assertThat(preparedSession, is(notNullValue()));
+                verify(instanceSelector).connected(any());
+                assertThat(underTest.getOpenedCount(), is(1L));
+            }
+
+            @Test
+            void givenInstanceSelectedDuringHandshake_thenItIsUsed() throws Exception {
+                ServiceInstance selectedService = mock(ServiceInstance.class);
+                when(selectedService.getHost()).thenReturn("selectedHost");
+                when(selectedService.getPort()).thenReturn(1444);
+                when(establishedSession.getUri()).thenReturn(new URI("wss://gatewayHost:1443/valid-service/ws/v1/valid-path"));
+                Map<String, Object> attributes = new HashMap<>();
+                attributes.put(WebSocketProxyServerHandler.SERVICE_INSTANCE_ATTRIBUTE, selectedService);
+                when(establishedSession.getAttributes()).thenReturn(attributes);
+
+                underTest.afterConnectionEstablished(establishedSession);
+
+                verify(webSocketRoutedSessionFactory).session(any(), eq("ws://selectedHost:1444/valid-service/ws/v1/valid-path"), any());
+                verify(instanceSelector, never()).choose(any(), any());
+                assertThat(attributes.get(WebSocketProxyServerHandler.INSTANCE_KEY_ATTRIBUTE), is("selectedHost:1444"));
             }
         }
 
@@ -186,6 +207,37 @@ class WebSocketProxyServerHandlerTest {
         }
     }
 
+    @Nested
+    class WhenTheHandshakeIsRequested {
+        @Test
+        void givenValidUri_thenTheInstanceIsSelectedByTheRequest() throws Exception {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/valid-service/ws/v1/valid-path");
+            ServiceInstance selectedService = mock(ServiceInstance.class);
+            when(instanceSelector.choose("valid-service", request)).thenReturn(selectedService);
+            WebSocketProxySettings settings = new WebSocketProxySettings(false, true, 0);
+            when(webSocketClientFactory.getSettings(selectedService)).thenReturn(settings);
+            Map<String, Object> attributes = new HashMap<>();
+
+            boolean result = underTest.beforeHandshake(new ServletServerHttpRequest(request), null, underTest, attributes);
+
+            assertThat(result, is(true));
+            assertThat(attributes.get(WebSocketProxyServerHandler.SERVICE_INSTANCE_ATTRIBUTE), is(selectedService));
+            assertThat(attributes.get(WebSocketProxyServerHandler.SETTINGS_ATTRIBUTE), is(settings));
+        }
+
+        @Test
+        void givenInvalidUri_thenNoInstanceIsSelected() throws Exception {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/invalidUrl");
+            Map<String, Object> attributes = new HashMap<>();
+
+            boolean result = underTest.beforeHandshake(new ServletServerHttpRequest(request), null, underTest, attributes);
+
+            assertThat(result, is(true));
+            assertThat(attributes.isEmpty(), is(true));
+            verifyZeroInteractions(instanceSelector);
+        }
+    }
+
     @Nested
     class GivenValidExistingSession {
         WebSocketSession establishedSession;
@@ -211,6 +263,27 @@ class WebSocketProxyServerHandlerTest {
             assertThat(routedSessions.entrySet(), hasSize(0));
         }
 
+        @Test
+        void whenTheConnectionIsClosed_thenTheConnectionToInstanceIsForgotten() {
+            Map<String, Object> attributes = new HashMap<>();
+            attributes.put(WebSocketProxyServerHandler.INSTANCE_KEY_ATTRIBUTE, "gatewayHost:1443");
+            when(establishedSession.getAttributes()).thenReturn(attributes);
+
+            underTest.afterConnectionClosed(establishedSession, CloseStatus.NORMAL);
+            underTest.afterConnectionClosed(establishedSession, CloseStatus.NORMAL);
+
+            verify(instanceSelector, times(1)).disconnected("gatewayHost:1443");
+        }
+
+        @Test
+        void whenTheConnectionIsClosedDuringHandshake_thenItIsCounted() {
+            when(internallyStoredSession.isConnected()).thenReturn(false);
+
+            underTest.afterConnectionClosed(establishedSession, CloseStatus.NORMAL);
+
+            assertThat(underTest.getClosedBeforeConnectedCount(), is(1L));
+        }
+
         @Test
         void whenTheMessageIsReceived_thenTheMessageIsPassedToTheSession() throws Exception {
             WebSocketMessage<String> passedMessage = mock(WebSocketMessage.class);
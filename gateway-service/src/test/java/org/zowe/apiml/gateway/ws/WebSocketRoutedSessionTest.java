@@ -9,18 +9,30 @@
  */
 package org.zowe.apiml.gateway.ws;
 
+import org.eclipse.jetty.websocket.api.UpgradeException;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
-import org.springframework.web.socket.WebSocketSession;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import org.springframework.web.socket.*;
+import org.springframework.web.socket.client.jetty.JettyWebSocketClient;
 
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.nullValue;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
 
 class WebSocketRoutedSessionTest {
     private WebSocketSession clientSession;
@@ -65,4 +77,140 @@ class WebSocketRoutedSessionTest {
         when(clientSession.getUri()).thenReturn(null);
         assertThat(underTest.getClientUri(), is(nullValue()));
     }
+
+    @Nested
+    class GivenAsynchronousHandshake {
+        private static final String TARGET_URL = "ws://localhost:8080/petstore";
+
+        private SettableListenableFuture<WebSocketSession> futureSession;
+        private WebSocketClientFactory webSocketClientFactory;
+        private List<WebSocketExtension> requestedExtensions;
+        private WebSocketRoutedSession asyncSession;
+
+        @BeforeEach
+        void startHandshake() {
+            futureSession = new SettableListenableFuture<>();
+            JettyWebSocketClient client = new JettyWebSocketClient() {
+                @Override
+                public ListenableFuture<WebSocketSession> doHandshakeInternal(
+                    WebSocketHandler wsHandler, HttpHeaders headers, URI uri, List<String> protocols,
+                    List<WebSocketExtension> extensions, Map<String, Object> attributes
+                ) {
+                    requestedExtensions = extensions;
+                    return futureSession;
+                }
+            };
+            webSocketClientFactory = mock(WebSocketClientFactory.class);
+            when(webSocketClientFactory.getClientInstance()).thenReturn(client);
+            when(webSocketClientFactory.withHandshakeTimeout(any())).thenAnswer(invocation -> invocation.getArgument(0));
+            when(webSocketClientFactory.sendQueue(any())).thenAnswer(invocation -> new WebSocketSendQueue(
+                invocation.getArgument(0), Runnable::run, 1000, 100, WebSocketSendQueue.OverflowPolicy.CLOSE
+            ));
+            when(webSocketClientFactory.sendQueue(any(), anyLong())).thenAnswer(invocation -> new WebSocketSendQueue(
+                invocation.getArgument(0), Runnable::run, 1000, 100, WebSocketSendQueue.OverflowPolicy.CLOSE
+            ));
+            HttpHeaders handshakeHeaders = new HttpHeaders();
+            handshakeHeaders.add(WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS, "x-webkit-deflate-frame");
+            when(serverSession.getHandshakeHeaders()).thenReturn(handshakeHeaders);
+
+            asyncSession = new WebSocketRoutedSession(serverSession, TARGET_URL, webSocketClientFactory);
+        }
+
+        private void startHandshakeWithSettings(WebSocketProxySettings settings) {
+            Map<String, Object> attributes = new HashMap<>();
+            attributes.put(WebSocketProxyServerHandler.SETTINGS_ATTRIBUTE, settings);
+            when(serverSession.getAttributes()).thenReturn(attributes);
+
+            asyncSession = new WebSocketRoutedSession(serverSession, TARGET_URL, webSocketClientFactory);
+        }
+
+        @Test
+        void givenDefaultSettings_thenOnlyCompressionIsRequestedFromService() {
+            assertThat(requestedExtensions, is(Collections.singletonList(new WebSocketExtension("permessage-deflate"))));
+            verify(webSocketClientFactory).sendQueue(serverSession, 0);
+        }
+
+        @Test
+        void givenCompressionToServiceIsDisabled_thenNoExtensionIsRequested() {
+            startHandshakeWithSettings(new WebSocketProxySettings(true, false, 0));
+
+            assertThat(requestedExtensions.isEmpty(), is(true));
+        }
+
+        @Test
+        void givenMergeMessagesWindow_thenItIsUsedForMessagesToClient() {
+            startHandshakeWithSettings(new WebSocketProxySettings(true, true, 50));
+
+            verify(webSocketClientFactory).sendQueue(serverSession, 50);
+        }
+
+        @Test
+        void whenMessagesAreReceivedBeforeOpen_thenTheyAreSentOnceOpen() throws Exception {
+            TextMessage first = new TextMessage("first");
+            TextMessage second = new TextMessage("second");
+            asyncSession.sendMessageToServer(first);
+            asyncSession.sendMessageToServer(second);
+
+            assertThat(asyncSession.isConnected(), is(false));
+            assertThat(asyncSession.getClientUri(), is(TARGET_URL));
+            verify(clientSession, never()).sendMessage(any());
+
+            futureSession.set(clientSession);
+
+            assertThat(asyncSession.isConnected(), is(true));
+            verify(clientSession).sendMessage(first);
+            verify(clientSession).sendMessage(second);
+        }
+
+        @Test
+        void whenHandshakeFails_thenServerSessionIsClosed() throws Exception {
+            when(serverSession.isOpen()).thenReturn(true);
+
+            futureSession.setException(new ExecutionException(new UpgradeException(new URI(TARGET_URL), 401, "Unauthorized")));
+
+            verify(serverSession).close(CloseStatus.NOT_ACCEPTABLE.withReason("Invalid login credentials"));
+        }
+
+        @Test
+        void whenHandshakeIsCancelledByTimeout_thenServerSessionIsClosed() {
+            when(serverSession.isOpen()).thenReturn(true);
+
+            futureSession.cancel(true);
+
+            verify(serverSession).close(CloseStatus.NOT_ACCEPTABLE.withReason(
+                "Error opening session to WebSocket service at " + TARGET_URL + ": The handshake was not completed in time"
+            ));
+        }
+
+        @Test
+        void whenServiceSessionOpensAfterClientSessionIsClosed_thenItIsClosed() throws Exception {
+            WebSocketSendQueue serverSendQueue = new WebSocketSendQueue(serverSession, Runnable::run, 1000, 100, WebSocketSendQueue.OverflowPolicy.CLOSE);
+            serverSendQueue.close(CloseStatus.NORMAL);
+
+            new WebSocketProxyClientHandler(serverSendQueue).afterConnectionEstablished(clientSession);
+
+            verify(clientSession).close(CloseStatus.GOING_AWAY);
+        }
+
+        @Test
+        void whenClosedBeforeOpen_thenClientSessionIsClosedOnceOpen() throws Exception {
+            when(clientSession.isOpen()).thenReturn(true);
+            asyncSession.close(CloseStatus.NORMAL);
+
+            futureSession.set(clientSession);
+
+            verify(clientSession).close(CloseStatus.NORMAL);
+        }
+
+        @Test
+        void whenTooManyMessagesAreWaiting_thenServerSessionIsClosed() throws Exception {
+            when(serverSession.isOpen()).thenReturn(true);
+
+            for (int i = 0; i <= WebSocketRoutedSession.MAX_PENDING_MESSAGES; i++) {
+                asyncSession.sendMessageToServer(new TextMessage("message"));
+            }
+
+            verify(serverSession).close(CloseStatus.SERVICE_OVERLOAD);
+        }
+    }
 }
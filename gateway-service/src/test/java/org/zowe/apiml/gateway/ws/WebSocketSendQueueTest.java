@@ -0,0 +1,269 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.ws;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class WebSocketSendQueueTest {
+
+    private static final TextMessage MESSAGE = new TextMessage("0123456789");
+
+    private WebSocketSession session;
+    // tasks are not executed until the test runs them, as if the peer was slow
+    private List<Runnable> tasks;
+
+    @BeforeEach
+    void setUp() {
+        session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        tasks = new ArrayList<>();
+    }
+
+    private WebSocketSendQueue createQueue(WebSocketSendQueue.OverflowPolicy overflowPolicy) {
+        return new WebSocketSendQueue(session, tasks::add, 30, 10, overflowPolicy);
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    @Test
+    void whenMessagesAreQueued_thenTheyAreSentInOrderByExecutor() throws IOException {
+        WebSocketSendQueue underTest = createQueue(WebSocketSendQueue.OverflowPolicy.CLOSE);
+        TextMessage first = new TextMessage("first");
+        TextMessage second = new TextMessage("second");
+
+        underTest.send(first);
+        underTest.send(second);
+
+        verify(session, never()).sendMessage(any());
+        assertThat(underTest.getQueuedMessages(), is(2));
+        assertThat(underTest.getQueuedBytes(), is(11L));
+        assertThat(tasks.size(), is(1));
+
+        runTasks();
+
+        verify(session).sendMessage(first);
+        verify(session).sendMessage(second);
+        assertThat(underTest.getQueuedBytes(), is(0L));
+    }
+
+    @Test
+    void whenClosed_thenSessionIsClosedAfterQueuedMessages() throws IOException {
+        WebSocketSendQueue underTest = createQueue(WebSocketSendQueue.OverflowPolicy.CLOSE);
+        underTest.send(MESSAGE);
+
+        underTest.close(CloseStatus.NORMAL);
+        verify(session, never()).close(any());
+
+        runTasks();
+
+        verify(session).sendMessage(MESSAGE);
+        verify(session).close(CloseStatus.NORMAL);
+    }
+
+    @Test
+    void givenBrokenSession_thenQueuedMessagesAreDiscardedAndSessionIsClosed() throws IOException {
+        WebSocketSendQueue underTest = createQueue(WebSocketSendQueue.OverflowPolicy.CLOSE);
+        doThrow(new IOException("broken")).when(session).sendMessage(any());
+        underTest.send(MESSAGE);
+        underTest.send(MESSAGE);
+
+        runTasks();
+
+        verify(session, times(1)).sendMessage(any());
+        assertThat(underTest.getQueuedMessages(), is(0));
+        verify(session).close(CloseStatus.SERVER_ERROR);
+    }
+
+    @Nested
+    class GivenSlowPeer {
+
+        @Test
+        void whenPolicyIsClose_thenSessionIsClosedWithServiceOverload() throws IOException {
+            WebSocketSendQueue underTest = createQueue(WebSocketSendQueue.OverflowPolicy.CLOSE);
+
+            for (int i = 0; i < 4; i++) {
+                underTest.send(MESSAGE);
+            }
+
+            verify(session).close(CloseStatus.SERVICE_OVERLOAD);
+            assertThat(underTest.getQueuedBytes(), is(0L));
+        }
+
+        @Test
+        void whenPolicyIsDrop_thenMessagesAreDroppedUntilLowWatermark() throws IOException {
+            WebSocketSendQueue underTest = createQueue(WebSocketSendQueue.OverflowPolicy.DROP);
+
+            for (int i = 0; i < 5; i++) {
+                underTest.send(MESSAGE);
+            }
+
+            assertThat(underTest.getQueuedBytes(), is(30L));
+            assertThat(underTest.getDroppedCount(), is(2L));
+            verify(session, never()).close(any());
+
+            runTasks();
+            underTest.send(MESSAGE);
+            runTasks();
+
+            verify(session, times(4)).sendMessage(MESSAGE);
+            assertThat(underTest.getDroppedCount(), is(2L));
+        }
+
+        @Test
+        void givenBigMessage_thenItIsAcceptedToEmptyQueue() throws IOException {
+            WebSocketSendQueue underTest = createQueue(WebSocketSendQueue.OverflowPolicy.CLOSE);
+            TextMessage bigMessage = new TextMessage("0123456789012345678901234567890123456789");
+
+            underTest.send(bigMessage);
+            runTasks();
+
+            verify(session).sendMessage(bigMessage);
+            verify(session, never()).close(any());
+        }
+
+    }
+
+    @Nested
+    class GivenSendTimeLimit {
+
+        private ScheduledExecutorService scheduler;
+        private WebSocketSendQueue underTest;
+
+        @BeforeEach
+        void setUp() {
+            scheduler = mock(ScheduledExecutorService.class);
+            underTest = new WebSocketSendQueue(session, tasks::add, 1000, 100, WebSocketSendQueue.OverflowPolicy.CLOSE, scheduler, 0, 200);
+        }
+
+        private Runnable captureSendTimeout() {
+            ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+            verify(scheduler, atLeastOnce()).schedule(captor.capture(), eq(200L), eq(TimeUnit.MILLISECONDS));
+            return captor.getValue();
+        }
+
+        @Test
+        void whenMessageIsNotSentInTime_thenSessionIsClosed() throws IOException {
+            doAnswer(invocation -> {
+                // the peer does not accept the message until the time limit elapses
+                captureSendTimeout().run();
+                return null;
+            }).when(session).sendMessage(any());
+
+            underTest.send(MESSAGE);
+            underTest.send(MESSAGE);
+            runTasks();
+
+            verify(session, times(1)).sendMessage(any());
+            verify(session).close(CloseStatus.SERVICE_OVERLOAD);
+            assertThat(underTest.getQueuedMessages(), is(0));
+        }
+
+        @Test
+        void whenMessageIsSentInTime_thenSessionIsNotClosed() throws IOException {
+            underTest.send(MESSAGE);
+            runTasks();
+
+            captureSendTimeout().run();
+
+            verify(session).sendMessage(MESSAGE);
+            verify(session, never()).close(any());
+        }
+
+    }
+
+    @Nested
+    class GivenMergeMessagesWindow {
+
+        private ScheduledExecutorService scheduler;
+        private WebSocketSendQueue underTest;
+
+        @BeforeEach
+        void setUp() {
+            scheduler = mock(ScheduledExecutorService.class);
+            underTest = new WebSocketSendQueue(session, tasks::add, 1000, 100, WebSocketSendQueue.OverflowPolicy.CLOSE, scheduler, 50);
+        }
+
+        private void runScheduled() {
+            ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+            verify(scheduler).schedule(captor.capture(), eq(50L), eq(TimeUnit.MILLISECONDS));
+            captor.getValue().run();
+            runTasks();
+        }
+
+        @Test
+        void whenTextMessagesAreQueued_thenTheyAreSentAsOneAfterWindow() throws IOException {
+            underTest.send(new TextMessage("{\"id\":1}"));
+            underTest.send(new TextMessage("{\"id\":2}"));
+
+            assertThat(tasks.isEmpty(), is(true));
+            runScheduled();
+
+            verify(session).sendMessage(new TextMessage("{\"id\":1}\n{\"id\":2}"));
+            verify(session, times(1)).sendMessage(any());
+            assertThat(underTest.getQueuedBytes(), is(0L));
+            assertThat(underTest.getQueuedMessages(), is(0));
+        }
+
+        @Test
+        void givenBinaryMessage_thenItIsNotMerged() throws IOException {
+            BinaryMessage binary = new BinaryMessage(new byte[] {1, 2});
+            underTest.send(MESSAGE);
+            underTest.send(binary);
+            underTest.send(MESSAGE);
+
+            runScheduled();
+
+            verify(session, times(2)).sendMessage(MESSAGE);
+            verify(session).sendMessage(binary);
+            assertThat(underTest.getQueuedBytes(), is(0L));
+        }
+
+        @Test
+        void givenTooManyBytes_thenTheyAreSplitToMoreMessages() throws IOException {
+            underTest = new WebSocketSendQueue(session, tasks::add, Long.MAX_VALUE, Long.MAX_VALUE, WebSocketSendQueue.OverflowPolicy.CLOSE, scheduler, 50);
+            TextMessage half = new TextMessage(new String(new char[WebSocketSendQueue.MAX_MERGED_BYTES / 2]));
+            underTest.send(half);
+            underTest.send(half);
+            underTest.send(MESSAGE);
+
+            runScheduled();
+
+            verify(session).sendMessage(half);
+            verify(session, times(2)).sendMessage(any());
+            assertThat(underTest.getQueuedBytes(), is(0L));
+        }
+
+    }
+
+}